@@ -17,10 +17,15 @@ package de.alpharogroup.wicket.annotated.header.contributors.examples;
 
 import java.io.IOException;
 
+import org.apache.log4j.Logger;
 import org.apache.wicket.markup.html.WebPage;
 import org.apache.wicket.protocol.http.WebApplication;
 
 import de.alpharogroup.wicket.PackageResourceReferences;
+import de.alpharogroup.wicket.annotated.header.contributors.examples.panels.footer.FooterPanel;
+import de.alpharogroup.wicket.annotated.header.contributors.examples.panels.home.HomePanel;
+import de.alpharogroup.wicket.bundles.BundleReport;
+import de.alpharogroup.wicket.bundles.HeaderContributorBundles;
 
 /**
  * Application object for your web application. If you want to run this application without
@@ -28,6 +33,9 @@ import de.alpharogroup.wicket.PackageResourceReferences;
  */
 public class WicketApplication extends WebApplication
 {
+	/** The Constant logger. */
+	private static final Logger LOGGER = Logger.getLogger(WicketApplication.class.getName());
+
 	public static final int DEFAULT_HTTP_PORT = 9090;
 	public static final int DEFAULT_HTTPS_PORT = 9443;
 
@@ -69,7 +77,7 @@ public class WicketApplication extends WebApplication
 
 
 	/**
-	 * Inits the all relevant resources like css and js files.
+	 * Inits the all relevant resources like css and js files and bundles them.
 	 *
 	 * @throws ClassNotFoundException
 	 *             the class not found exception
@@ -80,6 +88,13 @@ public class WicketApplication extends WebApplication
 	{
 		final PackageResourceReferences prr = PackageResourceReferences.getInstance();
 		prr.initializeResources("de.alpharogroup");
+		final HeaderContributorBundles bundles = new HeaderContributorBundles(prr).addPage(
+			HomePage.class, HomePanel.class, FooterPanel.class);
+		bundles.install(this);
+		for (final BundleReport report : bundles.getReports())
+		{
+			LOGGER.info(report);
+		}
 	}
 
 }
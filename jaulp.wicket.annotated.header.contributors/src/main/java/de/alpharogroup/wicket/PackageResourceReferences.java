@@ -16,26 +16,43 @@
 package de.alpharogroup.wicket;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import lombok.NoArgsConstructor;
 
+import org.apache.log4j.Logger;
 import org.apache.wicket.markup.head.CssHeaderItem;
 import org.apache.wicket.markup.head.HeaderItem;
 import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.request.resource.CssResourceReference;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
 import org.apache.wicket.request.resource.PackageResourceReference;
 
 import de.alpharogroup.io.annotations.ImportResource;
 import de.alpharogroup.io.annotations.ImportResourcesUtils;
 import de.alpharogroup.wicket.base.enums.ResourceReferenceType;
+import de.alpharogroup.wicket.index.AnnotationIndex;
+import de.alpharogroup.wicket.less.LessResources;
 
 /**
- * The Class PackageResourceReferences.
+ * The Class PackageResourceReferences.<br>
+ * <br>
+ * The registry of the package resource references is never modified: a registration copies the
+ * registry and publishes the copy, so request threads can read it while resources are
+ * initialized. The package resource references of a component class are resolved over the whole
+ * class hierarchy, the references of the superclasses come first, then the references of the
+ * interfaces and then the references of the class itself. The resolved references and the
+ * header items are cached per class in a {@link ClassValue}, see {@link #getHeaderItems(Class)},
+ * and resolved again after the next registration. Less sources are rendered as the css that is
+ * compiled from the {@link LessResources}.
  */
 @NoArgsConstructor
 public class PackageResourceReferences
@@ -44,6 +61,10 @@ public class PackageResourceReferences
 	/** The Constant instance. */
 	private final static PackageResourceReferences instance = new PackageResourceReferences();
 
+	/** The Constant logger. */
+	private static final Logger LOGGER = Logger.getLogger(PackageResourceReferences.class
+		.getName());
+
 	/**
 	 * Adds the given css files to the given response object in the given scope.
 	 * 
@@ -96,94 +117,179 @@ public class PackageResourceReferences
 		return instance;
 	}
 
-	/** The package resource reference map. */
-	private final Map<Class<?>, Set<PackageResourceReferenceWrapper>> packageResourceReferenceMap = new LinkedHashMap<>();
+	/**
+	 * The Class Registry is one published state of the registry.
+	 */
+	private static final class Registry
+	{
+
+		/** The immutable package resource references by the annotated classes. */
+		private final Map<Class<?>, Set<PackageResourceReferenceWrapper>> references;
+
+		/**
+		 * Instantiates a new {@link Registry}.
+		 *
+		 * @param references
+		 *            the immutable package resource references by the annotated classes
+		 */
+		private Registry(final Map<Class<?>, Set<PackageResourceReferenceWrapper>> references)
+		{
+			this.references = references;
+		}
+	}
+
+	/**
+	 * The Class Resolution holds the resolved package resource references of one class.
+	 */
+	private static final class Resolution
+	{
+
+		/** The registry that was resolved. */
+		private final Registry registry;
+
+		/** The immutable resolved package resource references. */
+		private final Set<PackageResourceReferenceWrapper> references;
+
+		/** The header items of the resolved package resource references. */
+		private final HeaderItem[] headerItems;
+
+		/**
+		 * Instantiates a new {@link Resolution}.
+		 *
+		 * @param registry
+		 *            the registry that was resolved
+		 * @param references
+		 *            the immutable resolved package resource references
+		 * @param headerItems
+		 *            the header items
+		 */
+		private Resolution(final Registry registry,
+			final Set<PackageResourceReferenceWrapper> references, final HeaderItem[] headerItems)
+		{
+			this.registry = registry;
+			this.references = references;
+			this.headerItems = headerItems;
+		}
+	}
 
 	/**
-	 * Adds the found package resource references.
+	 * Factory method for the header items of the given package resource references. The header
+	 * items have the scope and the name of the package resource references. Less sources are
+	 * rendered as the compiled css, a less source that could not be compiled is logged and skipped.
 	 *
-	 * @param packageResourceReferences
+	 * @param references
 	 *            the package resource references
-	 * @param iface
-	 *            the iface
-	 * @return the sets the
+	 * @return the header items
 	 */
-	private Set<PackageResourceReferenceWrapper> addFoundPackageResourceReferences(
-		Set<PackageResourceReferenceWrapper> packageResourceReferences, final Class<?> iface)
+	private static HeaderItem[] newHeaderItems(
+		final Set<PackageResourceReferenceWrapper> references)
 	{
-		final Set<PackageResourceReferenceWrapper> prr = PackageResourceReferences.getInstance()
-			.getPackageResourceReferenceMap().get(iface);
-		if ((packageResourceReferences != null) && !packageResourceReferences.isEmpty())
+		final List<HeaderItem> items = new ArrayList<>();
+		for (final PackageResourceReferenceWrapper headerContributor : references)
 		{
-			if ((prr != null) && !prr.isEmpty())
+			final PackageResourceReference reference = headerContributor
+				.getPackageResourceReference();
+			if (ResourceReferenceType.JS.equals(headerContributor.getType()))
 			{
-				packageResourceReferences.addAll(prr);
+				items.add(JavaScriptHeaderItem.forReference(new JavaScriptResourceReference(
+					reference.getScope(), reference.getName())));
 			}
-			else
+			else if (ResourceReferenceType.CSS.equals(headerContributor.getType()))
 			{
-
+				items.add(CssHeaderItem.forReference(new CssResourceReference(reference
+					.getScope(), reference.getName())));
 			}
-		}
-		else
-		{
-			if ((prr != null) && !prr.isEmpty())
+			else if (ResourceReferenceType.LESS.equals(headerContributor.getType()))
 			{
-				packageResourceReferences = prr;
+				try
+				{
+					items.add(CssHeaderItem.forReference(LessResources.getInstance()
+						.getCssResourceReference(reference)));
+				}
+				catch (final IOException e)
+				{
+					LOGGER.error("The less source " + reference + " could not be compiled.", e);
+				}
 			}
 		}
-		return packageResourceReferences;
+		return items.toArray(new HeaderItem[items.size()]);
 	}
 
+	/** The published registry. */
+	private volatile Registry registry = new Registry(
+		Collections.<Class<?>, Set<PackageResourceReferenceWrapper>> emptyMap());
+
+	/** The cached resolutions by the classes. */
+	private final ClassValue<Resolution> resolutions = new ClassValue<Resolution>()
+	{
+		@Override
+		protected Resolution computeValue(final Class<?> type)
+		{
+			return resolve(type);
+		}
+	};
+
 	/**
-	 * Adds the package resource reference from interfaces.
+	 * Gets the header items of the given component class. The header items are created from the
+	 * resolved package resource references of the component class on the first call and cached
+	 * until the next registration. The returned array is shared and must not be modified.
 	 *
-	 * @param packageResourceReferences
-	 *            the package resource references
-	 * @param searchClass
-	 *            the search class
-	 * @return 's a set with the founded interfaces from the given search class.
+	 * @param componentClass
+	 *            the component class
+	 * @return the header items, the javascript and css references in the resolved order
 	 */
-	private Set<PackageResourceReferenceWrapper> addPackageResourceReferenceFromInterfaces(
-		Set<PackageResourceReferenceWrapper> packageResourceReferences, final Class<?> searchClass)
+	public HeaderItem[] getHeaderItems(final Class<?> componentClass)
 	{
-		final Class<?>[] interfaces = searchClass.getInterfaces();
-		for (final Class<?> iface : interfaces)
-		{
-			packageResourceReferences = addFoundPackageResourceReferences(
-				packageResourceReferences, iface);
-		}
-		return packageResourceReferences;
+		return getResolution(componentClass).headerItems;
 	}
 
 	/**
-	 * Gets the package resource reference.
+	 * Gets the resolved package resource references of the given component class, these are the
+	 * references of the class, its superclasses and all its interfaces.
 	 *
 	 * @param componentClass
 	 *            the component class
-	 * @return the package resource reference
+	 * @return the immutable package resource references
 	 */
 	public Set<PackageResourceReferenceWrapper> getPackageResourceReference(
 		final Class<?> componentClass)
 	{
-		Set<PackageResourceReferenceWrapper> packageResourceReference = PackageResourceReferences
-			.getInstance().getPackageResourceReferenceMap().get(componentClass);
-		packageResourceReference = addPackageResourceReferenceFromInterfaces(
-			packageResourceReference, componentClass);
-		return packageResourceReference;
+		return getResolution(componentClass).references;
 	}
 
 	/**
-	 * Gets the package resource reference map.
+	 * Gets the package resource reference map. The map is an immutable snapshot of the registry,
+	 * references are added with {@link #register(Map)}.
 	 *
 	 * @return the package resource reference map
 	 */
 	public Map<Class<?>, Set<PackageResourceReferenceWrapper>> getPackageResourceReferenceMap()
 	{
-		return packageResourceReferenceMap;
+		return registry.references;
 	}
 
 	/**
-	 * Initialize resources.
+	 * Gets the resolution of the given class, a resolution of an older registry is resolved
+	 * again.
+	 *
+	 * @param type
+	 *            the class
+	 * @return the resolution
+	 */
+	private Resolution getResolution(final Class<?> type)
+	{
+		Resolution resolution = resolutions.get(type);
+		if (resolution.registry != registry)
+		{
+			resolutions.remove(type);
+			resolution = resolutions.get(type);
+		}
+		return resolution;
+	}
+
+	/**
+	 * Initialize resources. The annotated classes are read from the {@link AnnotationIndex}, the
+	 * classpath is scanned only if the classpath contains no index.
 	 *
 	 * @param packageName
 	 *            the package name
@@ -195,9 +301,13 @@ public class PackageResourceReferences
 	public void initializeResources(final String packageName) throws ClassNotFoundException,
 		IOException
 	{
-		final Map<Class<?>, ImportResource[]> resourcesMap = ImportResourcesUtils
+		Map<Class<?>, ImportResource[]> resourcesMap = AnnotationIndex
 			.getImportResources(packageName);
-
+		if (resourcesMap == null)
+		{
+			resourcesMap = ImportResourcesUtils.getImportResources(packageName);
+		}
+		final Map<Class<?>, Set<PackageResourceReferenceWrapper>> found = new LinkedHashMap<>();
 		for (final Entry<Class<?>, ImportResource[]> entry : resourcesMap.entrySet())
 		{
 			final Class<?> key = entry.getKey();
@@ -220,11 +330,91 @@ public class PackageResourceReferences
 					packageResourceReferences.add(new PackageResourceReferenceWrapper(t,
 						ResourceReferenceType.CSS));
 				}
+				else if (importResource.resourceType().equalsIgnoreCase("less"))
+				{
+					final PackageResourceReference t = new PackageResourceReference(key,
+						importResource.resourceName());
+					packageResourceReferences.add(new PackageResourceReferenceWrapper(t,
+						ResourceReferenceType.LESS));
+				}
+			}
+			found.put(key, packageResourceReferences);
+		}
+		register(found);
+		for (final Class<?> componentClass : found.keySet())
+		{
+			getHeaderItems(componentClass);
+		}
+	}
+
+	/**
+	 * Refreshes the resolved package resource references and the header items of all classes,
+	 * for instance after a less source was compiled again.
+	 */
+	public void refresh()
+	{
+		synchronized (this)
+		{
+			registry = new Registry(registry.references);
+		}
+	}
+
+	/**
+	 * Registers the given package resource references. The registry is copied, the given
+	 * references replace the references of their classes in the copy and the copy is published.
+	 *
+	 * @param references
+	 *            the package resource references by the annotated classes
+	 */
+	public void register(final Map<Class<?>, ? extends Set<PackageResourceReferenceWrapper>> references)
+	{
+		synchronized (this)
+		{
+			final Map<Class<?>, Set<PackageResourceReferenceWrapper>> copy = new LinkedHashMap<>(
+				registry.references);
+			for (final Entry<Class<?>, ? extends Set<PackageResourceReferenceWrapper>> entry : references
+				.entrySet())
+			{
+				copy.put(entry.getKey(),
+					Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
 			}
-			PackageResourceReferences.getInstance().getPackageResourceReferenceMap()
-				.put(key, packageResourceReferences);
+			registry = new Registry(Collections.unmodifiableMap(copy));
 		}
+	}
 
+	/**
+	 * Resolves the package resource references of the given class from the current registry. The
+	 * resolutions of the superclass and the interfaces are taken from the cache.
+	 *
+	 * @param type
+	 *            the class
+	 * @return the resolution
+	 */
+	private Resolution resolve(final Class<?> type)
+	{
+		final Registry current = registry;
+		final Set<PackageResourceReferenceWrapper> references = new LinkedHashSet<>();
+		final Class<?> superclass = type.getSuperclass();
+		if (superclass != null)
+		{
+			references.addAll(getResolution(superclass).references);
+		}
+		for (final Class<?> iface : type.getInterfaces())
+		{
+			references.addAll(getResolution(iface).references);
+		}
+		final Set<PackageResourceReferenceWrapper> own = current.references.get(type);
+		if (own != null)
+		{
+			references.addAll(own);
+		}
+		if (references.isEmpty())
+		{
+			return new Resolution(current,
+				Collections.<PackageResourceReferenceWrapper> emptySet(), new HeaderItem[0]);
+		}
+		return new Resolution(current, Collections.unmodifiableSet(references),
+			newHeaderItems(references));
 	}
 
 }
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.bundles;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The Class BundleReport compares the requests and the bytes of the header contributions of a page
+ * without and with the bundles of the {@link HeaderContributorBundles}.
+ */
+@Getter
+@ToString
+public class BundleReport
+{
+
+	/** The page class. */
+	private final Class<?> pageClass;
+
+	/** The number of the requests without the bundles. */
+	private final int requestsBefore;
+
+	/** The number of the requests with the bundles. */
+	private final int requestsAfter;
+
+	/** The number of the bytes without the bundles. */
+	private final long bytesBefore;
+
+	/** The number of the bytes with the bundles. */
+	private final long bytesAfter;
+
+	/**
+	 * Instantiates a new {@link BundleReport}.
+	 *
+	 * @param pageClass
+	 *            the page class
+	 * @param requestsBefore
+	 *            the number of the requests without the bundles
+	 * @param requestsAfter
+	 *            the number of the requests with the bundles
+	 * @param bytesBefore
+	 *            the number of the bytes without the bundles
+	 * @param bytesAfter
+	 *            the number of the bytes with the bundles
+	 */
+	BundleReport(final Class<?> pageClass, final int requestsBefore, final int requestsAfter,
+		final long bytesBefore, final long bytesAfter)
+	{
+		this.pageClass = pageClass;
+		this.requestsBefore = requestsBefore;
+		this.requestsAfter = requestsAfter;
+		this.bytesBefore = bytesBefore;
+		this.bytesAfter = bytesAfter;
+	}
+
+}
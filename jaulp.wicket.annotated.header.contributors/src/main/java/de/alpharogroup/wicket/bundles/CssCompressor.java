@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.bundles;
+
+import org.apache.wicket.css.ICssCompressor;
+
+/**
+ * The Class CssCompressor removes the comments and the whitespace that is not needed from css.
+ * Comments that starts with <code>/*!</code> are kept on their own line and the content of strings
+ * is kept. The whitespace before <code>:</code> and around <code>+</code> is kept, because it is
+ * significant in selectors like <code>div :first-child</code> and in <code>calc()</code>
+ * expressions.
+ */
+public class CssCompressor implements ICssCompressor
+{
+
+	/** The characters after them the whitespace is removed. */
+	private static final String NO_SPACE_AFTER = "{};:,>(\n";
+
+	/** The characters before them the whitespace is removed. */
+	private static final String NO_SPACE_BEFORE = "{};,>)!";
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String compress(final String original)
+	{
+		if (original == null)
+		{
+			return null;
+		}
+		final int length = original.length();
+		final StringBuilder compressed = new StringBuilder(length);
+		char quote = 0;
+		int i = 0;
+		while (i < length)
+		{
+			final char c = original.charAt(i);
+			if (quote != 0)
+			{
+				compressed.append(c);
+				if (c == '\\' && i + 1 < length)
+				{
+					compressed.append(original.charAt(++i));
+				}
+				else if (c == quote)
+				{
+					quote = 0;
+				}
+				i++;
+			}
+			else if (c == '"' || c == '\'')
+			{
+				quote = c;
+				compressed.append(c);
+				i++;
+			}
+			else if (c == '/' && i + 1 < length && original.charAt(i + 1) == '*')
+			{
+				final int end = original.indexOf("*/", i + 2);
+				final int next = end < 0 ? length : end + 2;
+				if (i + 2 < length && original.charAt(i + 2) == '!')
+				{
+					compressed.append(original, i, next).append('\n');
+				}
+				i = next;
+			}
+			else if (Character.isWhitespace(c))
+			{
+				while (i < length && Character.isWhitespace(original.charAt(i)))
+				{
+					i++;
+				}
+				if (0 < compressed.length() && i < length
+					&& NO_SPACE_AFTER.indexOf(compressed.charAt(compressed.length() - 1)) < 0
+					&& NO_SPACE_BEFORE.indexOf(original.charAt(i)) < 0
+					&& !original.startsWith("/*", i))
+				{
+					compressed.append(' ');
+				}
+			}
+			else if (c == '}' && 0 < compressed.length()
+				&& compressed.charAt(compressed.length() - 1) == ';')
+			{
+				compressed.setCharAt(compressed.length() - 1, '}');
+				i++;
+			}
+			else
+			{
+				compressed.append(c);
+				i++;
+			}
+		}
+		return compressed.toString();
+	}
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.bundles;
+
+import java.util.List;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import org.apache.wicket.request.resource.PackageResourceReference;
+
+import de.alpharogroup.wicket.base.enums.ResourceReferenceType;
+
+/**
+ * The Class HeaderContributorBundle is one bundle of package resource references that are
+ * concatenated and served as one resource, see {@link HeaderContributorBundles}.
+ */
+@Getter
+@ToString
+public class HeaderContributorBundle
+{
+
+	/** The name of the bundle, it is derived from the names of the bundled references. */
+	private final String name;
+
+	/** The type of the bundled references. */
+	private final ResourceReferenceType type;
+
+	/** The bundled references in the dependency order. */
+	private final List<PackageResourceReference> references;
+
+	/** The page classes that render all the bundled references. */
+	private final Set<Class<?>> pageClasses;
+
+	/** The sum of the bytes of the bundled references. */
+	private final long length;
+
+	/** The bytes of the bundle after the compression. */
+	private final long compressedLength;
+
+	/**
+	 * Instantiates a new {@link HeaderContributorBundle}.
+	 *
+	 * @param name
+	 *            the name
+	 * @param type
+	 *            the type
+	 * @param references
+	 *            the immutable bundled references
+	 * @param pageClasses
+	 *            the immutable page classes
+	 * @param length
+	 *            the sum of the bytes of the bundled references
+	 * @param compressedLength
+	 *            the bytes of the bundle after the compression
+	 */
+	HeaderContributorBundle(final String name, final ResourceReferenceType type,
+		final List<PackageResourceReference> references, final Set<Class<?>> pageClasses,
+		final long length, final long compressedLength)
+	{
+		this.name = name;
+		this.type = type;
+		this.references = references;
+		this.pageClasses = pageClasses;
+		this.length = length;
+		this.compressedLength = compressedLength;
+	}
+
+}
@@ -0,0 +1,563 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.bundles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.Application;
+import org.apache.wicket.Page;
+import org.apache.wicket.markup.head.CssHeaderItem;
+import org.apache.wicket.markup.head.CssReferenceHeaderItem;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.head.JavaScriptReferenceHeaderItem;
+import org.apache.wicket.request.resource.CssResourceReference;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.apache.wicket.resource.ITextResourceCompressor;
+import org.apache.wicket.resource.bundles.ConcatResourceBundleReference;
+import org.apache.wicket.util.lang.Args;
+
+import de.alpharogroup.wicket.PackageResourceReferenceWrapper;
+import de.alpharogroup.wicket.PackageResourceReferences;
+import de.alpharogroup.wicket.base.enums.ResourceReferenceType;
+
+/**
+ * The Class HeaderContributorBundles groups the package resource references of the annotated
+ * header contributors into bundles that are registered in the resource bundles of the application.
+ * A page that renders one reference of a bundle gets the whole bundle in one request, see
+ * {@link org.apache.wicket.ResourceBundles}.<br>
+ * <br>
+ * The references of a page are the resolved references of the page class and of the component
+ * classes that are added with {@link #addPage(Class, Class...)} in this order. If no page is
+ * added, all registered non abstract page classes are the pages. References that are rendered
+ * from the same pages are grouped into one bundle, so a page never loads a reference that it does
+ * not render. A group is split where its references are not adjacent on a page, so the
+ * concatenation keeps the dependency order of every page.<br>
+ * <br>
+ * The bundles are compressed with the compressors of the application, that are set in the
+ * deployment mode, for css the {@link CssCompressor} is the default in the deployment mode. The
+ * urls of the bundles contain the hash of their content and they are served with far future cache
+ * headers from the caching strategy of the application, that Wicket sets in the deployment mode.
+ */
+public class HeaderContributorBundles
+{
+
+	/** The Constant logger. */
+	private static final Logger LOGGER = Logger.getLogger(HeaderContributorBundles.class
+		.getName());
+
+	/**
+	 * Reads the content of the given package resource reference from the classpath.
+	 *
+	 * @param reference
+	 *            the package resource reference
+	 * @return the content or an empty array if the content could not be read.
+	 */
+	private static byte[] read(final PackageResourceReference reference)
+	{
+		try (InputStream inputStream = reference.getScope().getResourceAsStream(
+			reference.getName()))
+		{
+			if (inputStream == null)
+			{
+				LOGGER.warn("The resource " + reference + " does not exist.");
+				return new byte[0];
+			}
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1)
+			{
+				output.write(buffer, 0, read);
+			}
+			return output.toByteArray();
+		}
+		catch (final IOException e)
+		{
+			LOGGER.warn("The resource " + reference + " could not be read.", e);
+			return new byte[0];
+		}
+	}
+
+	/**
+	 * Factory method for the name of a bundle. The name is derived from the names of the bundled
+	 * references, so every node of a cluster creates the same name.
+	 *
+	 * @param type
+	 *            the type of the bundle
+	 * @param references
+	 *            the bundled references
+	 * @return the name of the bundle
+	 */
+	private static String newName(final ResourceReferenceType type,
+		final List<PackageResourceReference> references)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for (final PackageResourceReference reference : references)
+			{
+				digest.update((reference.getScope().getName() + "/" + reference.getName() + "\n")
+					.getBytes(StandardCharsets.UTF_8));
+			}
+			final StringBuilder name = new StringBuilder("bundle-");
+			final byte[] hash = digest.digest();
+			for (int i = 0; i < 8; i++)
+			{
+				name.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+				name.append(Character.forDigit(hash[i] & 0xF, 16));
+			}
+			return name.append(ResourceReferenceType.JS.equals(type) ? ".js" : ".css").toString();
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** The package resource references of the header contributors. */
+	private final PackageResourceReferences packageResourceReferences;
+
+	/** The component classes by the page classes. */
+	private final Map<Class<?>, List<Class<?>>> pages = new LinkedHashMap<>();
+
+	/**
+	 * The compressor of the javascript bundles, if null the compressor of the application is used.
+	 */
+	@Getter
+	@Setter
+	private ITextResourceCompressor javaScriptCompressor;
+
+	/**
+	 * The compressor of the css bundles, if null the compressor of the application is used.
+	 */
+	@Getter
+	@Setter
+	private ITextResourceCompressor cssCompressor;
+
+	/** The bundles of the last grouping. */
+	@Getter
+	private volatile List<HeaderContributorBundle> bundles = Collections.emptyList();
+
+	/** The bundles of the last grouping by the bundled references. */
+	private volatile Map<PackageResourceReference, HeaderContributorBundle> bundlesByReference = Collections
+		.emptyMap();
+
+	/** The lengths of the references of the last grouping. */
+	private volatile Map<PackageResourceReference, Integer> lengths = Collections.emptyMap();
+
+	/**
+	 * Instantiates a new {@link HeaderContributorBundles}.
+	 *
+	 * @param packageResourceReferences
+	 *            the package resource references of the header contributors
+	 */
+	public HeaderContributorBundles(final PackageResourceReferences packageResourceReferences)
+	{
+		this.packageResourceReferences = Args.notNull(packageResourceReferences,
+			"packageResourceReferences");
+	}
+
+	/**
+	 * Adds a bundle of the given references if there are more than one reference.
+	 *
+	 * @param references
+	 *            the references
+	 * @param type
+	 *            the type of the references
+	 * @param pageClasses
+	 *            the page classes of the references
+	 * @param bundles
+	 *            the bundles
+	 * @param bundlesByReference
+	 *            the bundles by the references
+	 * @param lengths
+	 *            the lengths of the references
+	 */
+	private void addBundle(final List<PackageResourceReference> references,
+		final ResourceReferenceType type, final Set<Class<?>> pageClasses,
+		final List<HeaderContributorBundle> bundles,
+		final Map<PackageResourceReference, HeaderContributorBundle> bundlesByReference,
+		final Map<PackageResourceReference, Integer> lengths)
+	{
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		for (final PackageResourceReference reference : references)
+		{
+			final byte[] bytes = read(reference);
+			lengths.put(reference, bytes.length);
+			content.write(bytes, 0, bytes.length);
+			content.write('\n');
+		}
+		if (references.size() < 2)
+		{
+			return;
+		}
+		final HeaderContributorBundle bundle = new HeaderContributorBundle(newName(type,
+			references), type, Collections.unmodifiableList(references),
+			Collections.unmodifiableSet(pageClasses), content.size() - references.size(),
+			compress(type, content.toByteArray()));
+		bundles.add(bundle);
+		for (final PackageResourceReference reference : references)
+		{
+			bundlesByReference.put(reference, bundle);
+		}
+	}
+
+	/**
+	 * Adds a page with the classes of the components that render header contributions on the
+	 * page.
+	 *
+	 * @param pageClass
+	 *            the page class
+	 * @param componentClasses
+	 *            the component classes in the render order
+	 * @return this for chaining
+	 */
+	public HeaderContributorBundles addPage(final Class<?> pageClass,
+		final Class<?>... componentClasses)
+	{
+		Args.notNull(pageClass, "pageClass");
+		pages.put(pageClass, Arrays.<Class<?>> asList(componentClasses));
+		return this;
+	}
+
+	/**
+	 * Compresses the given content with the compressor of the given type.
+	 *
+	 * @param type
+	 *            the type
+	 * @param content
+	 *            the content
+	 * @return the length of the compressed content
+	 */
+	private long compress(final ResourceReferenceType type, final byte[] content)
+	{
+		final ITextResourceCompressor compressor = ResourceReferenceType.JS.equals(type)
+			? javaScriptCompressor
+			: cssCompressor;
+		if (compressor == null)
+		{
+			return content.length;
+		}
+		return compressor.compress(new String(content, StandardCharsets.UTF_8)).getBytes(
+			StandardCharsets.UTF_8).length;
+	}
+
+	/**
+	 * Gets the page classes, these are the added pages or all registered non abstract page
+	 * classes.
+	 *
+	 * @return the page classes
+	 */
+	private Set<Class<?>> getPageClasses()
+	{
+		if (!pages.isEmpty())
+		{
+			return pages.keySet();
+		}
+		final Set<Class<?>> pageClasses = new LinkedHashSet<>();
+		for (final Class<?> registered : packageResourceReferences
+			.getPackageResourceReferenceMap().keySet())
+		{
+			if (Page.class.isAssignableFrom(registered)
+				&& !Modifier.isAbstract(registered.getModifiers()))
+			{
+				pageClasses.add(registered);
+			}
+		}
+		return pageClasses;
+	}
+
+	/**
+	 * Gets the javascript and css references of the given page class in the render order, these
+	 * are the resolved references of the page class and of its component classes.
+	 *
+	 * @param pageClass
+	 *            the page class
+	 * @return the references of the page
+	 */
+	private Map<PackageResourceReference, ResourceReferenceType> getReferences(
+		final Class<?> pageClass)
+	{
+		final List<Class<?>> classes = new ArrayList<>();
+		classes.add(pageClass);
+		final List<Class<?>> componentClasses = pages.get(pageClass);
+		if (componentClasses != null)
+		{
+			classes.addAll(componentClasses);
+		}
+		final Map<PackageResourceReference, ResourceReferenceType> references = new LinkedHashMap<>();
+		for (final Class<?> type : classes)
+		{
+			for (final PackageResourceReferenceWrapper wrapper : packageResourceReferences
+				.getPackageResourceReference(type))
+			{
+				if (ResourceReferenceType.JS.equals(wrapper.getType())
+					|| ResourceReferenceType.CSS.equals(wrapper.getType()))
+				{
+					final PackageResourceReference reference = wrapper
+						.getPackageResourceReference();
+					if (!references.containsKey(reference))
+					{
+						references.put(reference, wrapper.getType());
+					}
+				}
+			}
+		}
+		return references;
+	}
+
+	/**
+	 * Gets the report of the given page class from the last grouping.
+	 *
+	 * @param pageClass
+	 *            the page class
+	 * @return the report
+	 */
+	public BundleReport getReport(final Class<?> pageClass)
+	{
+		final Map<PackageResourceReference, HeaderContributorBundle> bundlesByReference = this.bundlesByReference;
+		final Map<PackageResourceReference, Integer> lengths = this.lengths;
+		final Set<HeaderContributorBundle> pageBundles = new HashSet<>();
+		int requestsBefore = 0;
+		int requestsAfter = 0;
+		long bytesBefore = 0;
+		long bytesAfter = 0;
+		for (final PackageResourceReference reference : getReferences(pageClass).keySet())
+		{
+			Integer length = lengths.get(reference);
+			if (length == null)
+			{
+				length = read(reference).length;
+			}
+			requestsBefore++;
+			bytesBefore += length;
+			final HeaderContributorBundle bundle = bundlesByReference.get(reference);
+			if (bundle == null)
+			{
+				requestsAfter++;
+				bytesAfter += length;
+			}
+			else if (pageBundles.add(bundle))
+			{
+				requestsAfter++;
+				bytesAfter += bundle.getCompressedLength();
+			}
+		}
+		return new BundleReport(pageClass, requestsBefore, requestsAfter, bytesBefore, bytesAfter);
+	}
+
+	/**
+	 * Gets the reports of all pages from the last grouping.
+	 *
+	 * @return the reports
+	 */
+	public List<BundleReport> getReports()
+	{
+		final List<BundleReport> reports = new ArrayList<>();
+		for (final Class<?> pageClass : getPageClasses())
+		{
+			reports.add(getReport(pageClass));
+		}
+		return reports;
+	}
+
+	/**
+	 * Groups the references of the pages into bundles. Groups with one reference are not
+	 * bundled.
+	 *
+	 * @return the bundles
+	 */
+	public List<HeaderContributorBundle> group()
+	{
+		// the references of every page and the pages of every reference
+		final Map<Class<?>, Map<PackageResourceReference, Integer>> positions = new HashMap<>();
+		final Map<PackageResourceReference, Set<Class<?>>> pagesByReference = new LinkedHashMap<>();
+		final Map<PackageResourceReference, ResourceReferenceType> types = new HashMap<>();
+		for (final Class<?> pageClass : getPageClasses())
+		{
+			final Map<PackageResourceReference, Integer> pagePositions = new HashMap<>();
+			final int[] counters = new int[2];
+			for (final Entry<PackageResourceReference, ResourceReferenceType> entry : getReferences(
+				pageClass).entrySet())
+			{
+				final int counter = ResourceReferenceType.JS.equals(entry.getValue()) ? 0 : 1;
+				pagePositions.put(entry.getKey(), counters[counter]++);
+				types.put(entry.getKey(), entry.getValue());
+				Set<Class<?>> referencePages = pagesByReference.get(entry.getKey());
+				if (referencePages == null)
+				{
+					referencePages = new LinkedHashSet<>();
+					pagesByReference.put(entry.getKey(), referencePages);
+				}
+				referencePages.add(pageClass);
+			}
+			positions.put(pageClass, pagePositions);
+		}
+
+		// the references with the same type and the same pages are one group
+		final Map<List<Object>, List<PackageResourceReference>> groups = new LinkedHashMap<>();
+		for (final Entry<PackageResourceReference, Set<Class<?>>> entry : pagesByReference
+			.entrySet())
+		{
+			final List<Object> key = Arrays.<Object> asList(types.get(entry.getKey()),
+				entry.getValue());
+			List<PackageResourceReference> group = groups.get(key);
+			if (group == null)
+			{
+				group = new ArrayList<>();
+				groups.put(key, group);
+			}
+			group.add(entry.getKey());
+		}
+
+		// a group is split where its references are not adjacent on a page
+		final List<HeaderContributorBundle> bundles = new ArrayList<>();
+		final Map<PackageResourceReference, HeaderContributorBundle> bundlesByReference = new HashMap<>();
+		final Map<PackageResourceReference, Integer> lengths = new HashMap<>();
+		for (final List<PackageResourceReference> group : groups.values())
+		{
+			final Set<Class<?>> pageClasses = pagesByReference.get(group.get(0));
+			List<PackageResourceReference> run = new ArrayList<>();
+			for (final PackageResourceReference reference : group)
+			{
+				if (!run.isEmpty() && !isAdjacent(positions, pageClasses, run.get(run.size() - 1),
+					reference))
+				{
+					addBundle(run, types.get(reference), pageClasses, bundles,
+						bundlesByReference, lengths);
+					run = new ArrayList<>();
+				}
+				run.add(reference);
+			}
+			addBundle(run, types.get(group.get(0)), pageClasses, bundles, bundlesByReference,
+				lengths);
+		}
+		this.lengths = lengths;
+		this.bundlesByReference = bundlesByReference;
+		this.bundles = Collections.unmodifiableList(bundles);
+		return this.bundles;
+	}
+
+	/**
+	 * Installs the bundles in the resource bundles of the given application. The compressors that
+	 * are not set are taken from the application. This method should be called once in the init
+	 * method of the application after the resources are initialized.
+	 *
+	 * @param application
+	 *            the application
+	 * @return the installed bundles
+	 */
+	public List<HeaderContributorBundle> install(final Application application)
+	{
+		Args.notNull(application, "application");
+		if (javaScriptCompressor == null)
+		{
+			javaScriptCompressor = application.getResourceSettings().getJavaScriptCompressor();
+		}
+		if (cssCompressor == null)
+		{
+			cssCompressor = application.getResourceSettings().getCssCompressor();
+			if (cssCompressor == null && application.usesDeploymentConfig())
+			{
+				cssCompressor = new CssCompressor();
+			}
+		}
+		final List<HeaderContributorBundle> bundles = group();
+		for (final HeaderContributorBundle bundle : bundles)
+		{
+			if (ResourceReferenceType.JS.equals(bundle.getType()))
+			{
+				final List<JavaScriptReferenceHeaderItem> items = new ArrayList<>();
+				for (final PackageResourceReference reference : bundle.getReferences())
+				{
+					items.add(JavaScriptHeaderItem.forReference(new JavaScriptResourceReference(
+						reference.getScope(), reference.getName())));
+				}
+				final ConcatResourceBundleReference<JavaScriptReferenceHeaderItem> reference = new ConcatResourceBundleReference<>(
+					HeaderContributorBundles.class, bundle.getName(), items);
+				reference.setCompressor(javaScriptCompressor);
+				application.getResourceBundles().addBundle(
+					JavaScriptHeaderItem.forReference(reference));
+			}
+			else
+			{
+				final List<CssReferenceHeaderItem> items = new ArrayList<>();
+				for (final PackageResourceReference reference : bundle.getReferences())
+				{
+					items.add(CssHeaderItem.forReference(new CssResourceReference(reference
+						.getScope(), reference.getName())));
+				}
+				final ConcatResourceBundleReference<CssReferenceHeaderItem> reference = new ConcatResourceBundleReference<>(
+					HeaderContributorBundles.class, bundle.getName(), items);
+				reference.setCompressor(cssCompressor);
+				application.getResourceBundles().addBundle(CssHeaderItem.forReference(reference));
+			}
+		}
+		return bundles;
+	}
+
+	/**
+	 * Checks if the given references are adjacent and in this order on all given pages.
+	 *
+	 * @param positions
+	 *            the positions of the references by the page classes
+	 * @param pageClasses
+	 *            the page classes
+	 * @param previous
+	 *            the previous reference
+	 * @param next
+	 *            the next reference
+	 * @return true, if the references are adjacent on all pages
+	 */
+	private boolean isAdjacent(
+		final Map<Class<?>, Map<PackageResourceReference, Integer>> positions,
+		final Set<Class<?>> pageClasses, final PackageResourceReference previous,
+		final PackageResourceReference next)
+	{
+		for (final Class<?> pageClass : pageClasses)
+		{
+			final Map<PackageResourceReference, Integer> pagePositions = positions.get(pageClass);
+			if (pagePositions.get(next) != pagePositions.get(previous) + 1)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,287 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.experimental.UtilityClass;
+
+import org.apache.log4j.Logger;
+
+import de.alpharogroup.io.annotations.ImportResource;
+import de.alpharogroup.io.annotations.ImportResources;
+
+/**
+ * The Class AnnotationIndex reads the index of the annotated classes that is written at compile
+ * time from the {@link AnnotationIndexProcessor}. The lookups return null if the classpath
+ * contains no index of the annotation, the callers scan the classpath in this case. The index can
+ * be ignored with the system property {@link #DISABLED_PROPERTY}, for instance to compare the
+ * startup time with and without the index.<br>
+ * <br>
+ * The index is only complete if every jar and every class directory that contains the package was
+ * compiled with the {@link AnnotationIndexProcessor} and contains the directory
+ * {@link #INDEX_LOCATION}. If a classpath root contains the package but has no index, a warning
+ * is logged and the lookups return null, so the annotated classes of this root are not missed and
+ * the callers scan the classpath.
+ */
+@UtilityClass
+public class AnnotationIndex
+{
+
+	/** The Constant INDEX_LOCATION is the directory of the index files in the classpath. */
+	public static final String INDEX_LOCATION = "META-INF/jaulp/annotation-index/";
+
+	/** The Constant DISABLED_PROPERTY is the system property that disables the index. */
+	public static final String DISABLED_PROPERTY = "jaulp.wicket.annotationIndex.disabled";
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = Logger.getLogger(AnnotationIndex.class.getName());
+
+	/**
+	 * Gets the classes from the index that are annotated with the given annotation and are in the
+	 * given package or in a subpackage of it.
+	 *
+	 * @param packageName
+	 *            the package name
+	 * @param annotationClass
+	 *            the annotation class
+	 * @return the annotated classes or null if the classpath contains no index of the annotation or
+	 *         a classpath root of the package has no index.
+	 * @throws ClassNotFoundException
+	 *             is thrown if a class of the index could not be found
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Set<Class<?>> getAnnotatedClasses(final String packageName,
+		final Class<? extends Annotation> annotationClass) throws ClassNotFoundException,
+		IOException
+	{
+		final ClassLoader classLoader = getClassLoader();
+		final Set<String> classNames = readIndex(classLoader, annotationClass.getName());
+		if (classNames == null || !isIndexed(classLoader, packageName))
+		{
+			return null;
+		}
+		final String prefix = packageName == null || packageName.isEmpty() ? "" : packageName
+			+ ".";
+		final Set<Class<?>> classes = new LinkedHashSet<>();
+		for (final String className : classNames)
+		{
+			if (className.startsWith(prefix))
+			{
+				final Class<?> annotatedClass = Class.forName(className, false, classLoader);
+				if (annotatedClass.isAnnotationPresent(annotationClass))
+				{
+					classes.add(annotatedClass);
+				}
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * Gets the class loader of the current thread or the class loader of this class.
+	 *
+	 * @return the class loader
+	 */
+	private static ClassLoader getClassLoader()
+	{
+		final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return classLoader != null ? classLoader : AnnotationIndex.class.getClassLoader();
+	}
+
+	/**
+	 * Gets the resources of the classes from the index that are annotated with
+	 * {@link ImportResources} or {@link ImportResource} and are in the given package or in a
+	 * subpackage of it.
+	 *
+	 * @param packageName
+	 *            the package name
+	 * @return the resources by the annotated classes or null if the classpath contains no index of
+	 *         the annotations or a classpath root of the package has no index.
+	 * @throws ClassNotFoundException
+	 *             is thrown if a class of the index could not be found
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Map<Class<?>, ImportResource[]> getImportResources(final String packageName)
+		throws ClassNotFoundException, IOException
+	{
+		final Set<Class<?>> importResourcesClasses = getAnnotatedClasses(packageName,
+			ImportResources.class);
+		final Set<Class<?>> importResourceClasses = getAnnotatedClasses(packageName,
+			ImportResource.class);
+		if (importResourcesClasses == null && importResourceClasses == null)
+		{
+			return null;
+		}
+		final Set<Class<?>> annotatedClasses = new LinkedHashSet<>();
+		if (importResourcesClasses != null)
+		{
+			annotatedClasses.addAll(importResourcesClasses);
+		}
+		if (importResourceClasses != null)
+		{
+			annotatedClasses.addAll(importResourceClasses);
+		}
+		final Map<Class<?>, ImportResource[]> resourcesMap = new LinkedHashMap<>();
+		for (final Class<?> annotatedClass : annotatedClasses)
+		{
+			final List<ImportResource> resources = new ArrayList<>();
+			final ImportResources importResources = annotatedClass
+				.getAnnotation(ImportResources.class);
+			if (importResources != null)
+			{
+				resources.addAll(Arrays.asList(importResources.resources()));
+			}
+			final ImportResource importResource = annotatedClass
+				.getAnnotation(ImportResource.class);
+			if (importResource != null)
+			{
+				resources.add(importResource);
+			}
+			resourcesMap.put(annotatedClass,
+				resources.toArray(new ImportResource[resources.size()]));
+		}
+		return resourcesMap;
+	}
+
+	/**
+	 * Gets the classpath roots of the given resources, that are the urls of the resources without
+	 * the given path.
+	 *
+	 * @param resources
+	 *            the urls of the resources
+	 * @param path
+	 *            the path of the resources in the classpath
+	 * @return the classpath roots
+	 */
+	private static Set<String> getRoots(final Enumeration<URL> resources, final String path)
+	{
+		final String suffix = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+		final Set<String> roots = new LinkedHashSet<>();
+		while (resources.hasMoreElements())
+		{
+			String root = resources.nextElement().toExternalForm();
+			if (root.endsWith("/"))
+			{
+				root = root.substring(0, root.length() - 1);
+			}
+			if (root.endsWith(suffix))
+			{
+				root = root.substring(0, root.length() - suffix.length());
+			}
+			if (root.endsWith("/"))
+			{
+				root = root.substring(0, root.length() - 1);
+			}
+			roots.add(root);
+		}
+		return roots;
+	}
+
+	/**
+	 * Checks if every classpath root that contains the given package has an index. A warning is
+	 * logged for the first root without an index.
+	 *
+	 * @param classLoader
+	 *            the class loader
+	 * @param packageName
+	 *            the package name
+	 * @return true, if every classpath root of the package has an index
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static boolean isIndexed(final ClassLoader classLoader, final String packageName)
+		throws IOException
+	{
+		final Set<String> indexedRoots = getRoots(classLoader.getResources(INDEX_LOCATION),
+			INDEX_LOCATION);
+		final String packagePath = packageName == null ? "" : packageName.replace('.', '/');
+		for (final String root : getRoots(classLoader.getResources(packagePath), packagePath))
+		{
+			if (!indexedRoots.contains(root))
+			{
+				LOGGER.warn("The classpath root " + root + " contains the package " + packageName
+					+ " but has no annotation index, the classpath will be scanned. Compile it "
+					+ "with the " + AnnotationIndexProcessor.class.getSimpleName()
+					+ " to use the index.");
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the binary names of the annotated classes from all index files of the given
+	 * annotation in the classpath.
+	 *
+	 * @param classLoader
+	 *            the class loader
+	 * @param annotationName
+	 *            the qualified name of the annotation
+	 * @return the binary names of the annotated classes or null if the classpath contains no index
+	 *         of the annotation or the index is disabled.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static Set<String> readIndex(final ClassLoader classLoader,
+		final String annotationName) throws IOException
+	{
+		if (Boolean.getBoolean(DISABLED_PROPERTY))
+		{
+			return null;
+		}
+		final Enumeration<URL> resources = classLoader.getResources(INDEX_LOCATION
+			+ annotationName);
+		if (!resources.hasMoreElements())
+		{
+			return null;
+		}
+		final Set<String> classNames = new LinkedHashSet<>();
+		while (resources.hasMoreElements())
+		{
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(resources
+				.nextElement().openStream(), StandardCharsets.UTF_8)))
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					line = line.trim();
+					if (!line.isEmpty() && !line.startsWith("#"))
+					{
+						classNames.add(line);
+					}
+				}
+			}
+		}
+		return classNames;
+	}
+
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * The Class AnnotationIndexProcessor writes at compile time an index of the classes that are
+ * annotated with {@link #IMPORT_RESOURCE}, {@link #IMPORT_RESOURCES} or {@link #MOUNT_PATH}. The
+ * index has one file for every annotation in the directory {@link AnnotationIndex#INDEX_LOCATION}
+ * that contains the binary names of the annotated classes, one per line. The index is read from
+ * the {@link AnnotationIndex}, so the annotated classes are found without a scan of the
+ * classpath.<br>
+ * <br>
+ * The processor is registered as service, so it runs in every compilation that has this module on
+ * the classpath. More annotations can be indexed with the processor option
+ * {@link #ANNOTATIONS_OPTION}, that contains a comma separated list of the qualified names of the
+ * annotations. On an incremental compilation the entries of the existing index are kept, if the
+ * classes still exist and are still annotated.
+ */
+@SupportedOptions(AnnotationIndexProcessor.ANNOTATIONS_OPTION)
+public class AnnotationIndexProcessor extends AbstractProcessor
+{
+
+	/** The Constant ANNOTATIONS_OPTION is the processor option for more annotations. */
+	public static final String ANNOTATIONS_OPTION = "jaulp.annotationIndex.annotations";
+
+	/** The Constant IMPORT_RESOURCE is the qualified name of the ImportResource annotation. */
+	public static final String IMPORT_RESOURCE = "de.alpharogroup.io.annotations.ImportResource";
+
+	/** The Constant IMPORT_RESOURCES is the qualified name of the ImportResources annotation. */
+	public static final String IMPORT_RESOURCES = "de.alpharogroup.io.annotations.ImportResources";
+
+	/** The Constant MOUNT_PATH is the qualified name of the MountPath annotation. */
+	public static final String MOUNT_PATH = "org.wicketstuff.annotation.mount.MountPath";
+
+	/** The binary names of the annotated classes by the qualified names of the annotations. */
+	private final Map<String, Set<String>> annotatedClasses = new TreeMap<>();
+
+	/**
+	 * Checks if the given element is annotated with the given annotation.
+	 *
+	 * @param element
+	 *            the element
+	 * @param annotationName
+	 *            the qualified name of the annotation
+	 * @return true, if the element is annotated with the given annotation
+	 */
+	private static boolean isAnnotated(final Element element, final String annotationName)
+	{
+		for (final AnnotationMirror annotationMirror : element.getAnnotationMirrors())
+		{
+			final Element annotation = annotationMirror.getAnnotationType().asElement();
+			if (((TypeElement)annotation).getQualifiedName().contentEquals(annotationName))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<String> getSupportedAnnotationTypes()
+	{
+		final Set<String> annotationTypes = new LinkedHashSet<>(Arrays.asList(IMPORT_RESOURCE,
+			IMPORT_RESOURCES, MOUNT_PATH));
+		final String annotations = processingEnv != null ? processingEnv.getOptions().get(
+			ANNOTATIONS_OPTION) : null;
+		if (annotations != null)
+		{
+			for (final String annotation : annotations.split(","))
+			{
+				if (!annotation.trim().isEmpty())
+				{
+					annotationTypes.add(annotation.trim());
+				}
+			}
+		}
+		return annotationTypes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations,
+		final RoundEnvironment roundEnv)
+	{
+		final Elements elements = processingEnv.getElementUtils();
+		for (final TypeElement annotation : annotations)
+		{
+			Set<String> classes = annotatedClasses.get(annotation.getQualifiedName().toString());
+			if (classes == null)
+			{
+				classes = new TreeSet<>();
+				annotatedClasses.put(annotation.getQualifiedName().toString(), classes);
+			}
+			for (final Element element : roundEnv.getElementsAnnotatedWith(annotation))
+			{
+				if (element instanceof TypeElement)
+				{
+					classes.add(elements.getBinaryName((TypeElement)element).toString());
+				}
+			}
+		}
+		if (roundEnv.processingOver())
+		{
+			writeIndex();
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the entries of the existing index of the given annotation and adds the entries to the
+	 * given classes, if the classes still exist and are still annotated.
+	 *
+	 * @param annotationName
+	 *            the qualified name of the annotation
+	 * @param classes
+	 *            the binary names of the annotated classes
+	 */
+	private void readExistingIndex(final String annotationName, final Set<String> classes)
+	{
+		final Elements elements = processingEnv.getElementUtils();
+		try
+		{
+			final FileObject resource = processingEnv.getFiler().getResource(
+				StandardLocation.CLASS_OUTPUT, "", AnnotationIndex.INDEX_LOCATION + annotationName);
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				resource.openInputStream(), StandardCharsets.UTF_8)))
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					line = line.trim();
+					if (!line.isEmpty() && !line.startsWith("#") && !classes.contains(line))
+					{
+						final TypeElement element = elements.getTypeElement(line.replace('$', '.'));
+						if (element != null && isAnnotated(element, annotationName))
+						{
+							classes.add(line);
+						}
+					}
+				}
+			}
+		}
+		catch (final IOException | IllegalArgumentException e)
+		{
+			// there is no existing index
+		}
+	}
+
+	/**
+	 * Writes the index files of the annotated classes.
+	 */
+	private void writeIndex()
+	{
+		final Filer filer = processingEnv.getFiler();
+		for (final Entry<String, Set<String>> entry : annotatedClasses.entrySet())
+		{
+			final String annotationName = entry.getKey();
+			final Set<String> classes = entry.getValue();
+			readExistingIndex(annotationName, classes);
+			try
+			{
+				final FileObject resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "",
+					AnnotationIndex.INDEX_LOCATION + annotationName);
+				try (Writer writer = new OutputStreamWriter(resource.openOutputStream(),
+					StandardCharsets.UTF_8))
+				{
+					for (final String className : classes)
+					{
+						writer.write(className);
+						writer.write('\n');
+					}
+				}
+			}
+			catch (final IOException e)
+			{
+				processingEnv.getMessager().printMessage(
+					Kind.WARNING,
+					"The annotation index of " + annotationName
+						+ " could not be written, the classpath will be scanned: "
+						+ e.getMessage());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.less;
+
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.resource.ByteArrayResource;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.ResourceReference;
+
+/**
+ * The Class CompiledLessResourceReference references the css that is compiled from a less source.
+ * The name of the reference contains the hash of the less source, so the css is served with far
+ * future cache headers.
+ */
+public class CompiledLessResourceReference extends ResourceReference
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The compiled css. */
+	private final byte[] css;
+
+	/**
+	 * Instantiates a new {@link CompiledLessResourceReference}.
+	 *
+	 * @param scope
+	 *            the scope of the less source
+	 * @param name
+	 *            the name with the hash of the less source
+	 * @param css
+	 *            the compiled css
+	 */
+	public CompiledLessResourceReference(final Class<?> scope, final String name, final byte[] css)
+	{
+		super(scope, name);
+		this.css = css;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IResource getResource()
+	{
+		return new ByteArrayResource("text/css", css)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void configureResponse(final ResourceResponse response,
+				final Attributes attributes)
+			{
+				response.setCacheDurationToMaximum();
+				response.setCacheScope(WebResponse.CacheScope.PUBLIC);
+			}
+		};
+	}
+
+}
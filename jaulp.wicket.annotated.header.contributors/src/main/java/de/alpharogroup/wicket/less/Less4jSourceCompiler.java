@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.less;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.Properties;
+
+import com.github.sommeri.less4j.Less4jException;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+
+/**
+ * The Class Less4jSourceCompiler compiles less sources with less4j, a less compiler that runs in
+ * the jvm without node or a javascript engine.
+ */
+public class Less4jSourceCompiler implements LessSourceCompiler
+{
+
+	/** The Constant POM_PROPERTIES is the maven properties file in the jar of less4j. */
+	private static final String POM_PROPERTIES = "/META-INF/maven/"
+		+ "com.github.sommeri/less4j/pom.properties";
+
+	/** The version of less4j. */
+	private static volatile String version;
+
+	/**
+	 * Reads the version of less4j from the maven properties of its jar, from the implementation
+	 * version of its package or from the location of its jar.
+	 *
+	 * @return the version of less4j
+	 */
+	private static String readVersion()
+	{
+		try (InputStream inputStream = DefaultLessCompiler.class.getResourceAsStream(POM_PROPERTIES))
+		{
+			if (inputStream != null)
+			{
+				final Properties properties = new Properties();
+				properties.load(inputStream);
+				if (properties.getProperty("version") != null)
+				{
+					return properties.getProperty("version");
+				}
+			}
+		}
+		catch (final IOException e)
+		{
+			// the version is read from the package or the location of the jar
+		}
+		final Package less4jPackage = DefaultLessCompiler.class.getPackage();
+		if (less4jPackage != null && less4jPackage.getImplementationVersion() != null)
+		{
+			return less4jPackage.getImplementationVersion();
+		}
+		final CodeSource codeSource = DefaultLessCompiler.class.getProtectionDomain()
+			.getCodeSource();
+		return codeSource != null && codeSource.getLocation() != null ? codeSource.getLocation()
+			.toString() : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String compile(final URL source) throws IOException
+	{
+		try
+		{
+			return new DefaultLessCompiler().compile(source).getCss();
+		}
+		catch (final Less4jException e)
+		{
+			throw new IOException("The less source " + source + " could not be compiled: "
+				+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Gets the version of less4j.
+	 *
+	 * @return the version of less4j
+	 */
+	@Override
+	public String getVersion()
+	{
+		if (version == null)
+		{
+			version = readVersion();
+		}
+		return version;
+	}
+
+}
@@ -0,0 +1,652 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.less;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.Application;
+import org.apache.wicket.core.util.resource.UrlResourceStream;
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.listener.IChangeListener;
+import org.apache.wicket.util.watch.IModificationWatcher;
+
+import de.alpharogroup.wicket.PackageResourceReferences;
+
+/**
+ * The Class LessResources compiles the less sources of the header contributors to css. A less
+ * source is compiled once with the {@link LessSourceCompiler} into a
+ * {@link CompiledLessResourceReference}, that has the hash of the less source and of its imports
+ * in its name. The compiled css is saved in a file with the name of the hash in the cache
+ * directory, so unchanged sources are not compiled again after a restart. The hash contains the
+ * name and the version of the compiler, so a new compiler version compiles the sources again.<br>
+ * <br>
+ * The cached css is served without a check, so the cache directory must only be writable by the
+ * application. The cache directory is given from the system property
+ * {@link #CACHE_DIRECTORY_PROPERTY} or is a directory of the application in the file store folder
+ * of Wicket, that is the temp directory of the servlet context. Without an application a new
+ * private temp directory is used. The directory is created with permissions for the owner only and
+ * a default directory that is writable by others is not used.<br>
+ * <br>
+ * In the development mode the less sources and their imports are added to the resource watcher
+ * of the application, that polls with the resource poll frequency. If a source is modified, the
+ * less sources that depend on it are compiled again and the header items of the
+ * {@link PackageResourceReferences} are refreshed.
+ */
+public class LessResources
+{
+
+	/** The Constant CACHE_DIRECTORY_PROPERTY is the system property for the cache directory. */
+	public static final String CACHE_DIRECTORY_PROPERTY = "jaulp.wicket.less.cacheDirectory";
+
+	/** The Constant CACHE_DIRECTORY_NAME is the name of the default cache directory. */
+	private static final String CACHE_DIRECTORY_NAME = "jaulp-wicket-less";
+
+	/** The Constant LESS4J_COMPILER_CLASS is the compiler class of the optional less4j. */
+	private static final String LESS4J_COMPILER_CLASS = "com.github.sommeri.less4j.core."
+		+ "DefaultLessCompiler";
+
+	/** The Constant logger. */
+	private static final Logger LOGGER = Logger.getLogger(LessResources.class.getName());
+
+	/** The Constant IMPORT matches the imported file of an import statement. */
+	private static final Pattern IMPORT = Pattern
+		.compile("@import\\s*(?:\\([^)]*\\)\\s*)?(?:url\\(\\s*)?[\"']([^\"']+)[\"']");
+
+	/** The shared instance. */
+	private static volatile LessResources instance;
+
+	/**
+	 * Creates the given directory with permissions for the owner only, if the file system supports
+	 * posix permissions.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void createPrivateDirectory(final Path directory) throws IOException
+	{
+		if (Files.isDirectory(directory))
+		{
+			return;
+		}
+		if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+		{
+			Files.createDirectories(directory,
+				PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		}
+		else
+		{
+			Files.createDirectories(directory);
+		}
+	}
+
+	/**
+	 * Gets the default cache directory.
+	 *
+	 * @return the default cache directory
+	 */
+	static File getDefaultCacheDirectory()
+	{
+		final String cacheDirectory = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+		if (cacheDirectory != null && !cacheDirectory.trim().isEmpty())
+		{
+			return new File(cacheDirectory.trim());
+		}
+		if (Application.exists())
+		{
+			final Application application = Application.get();
+			final File fileStoreFolder = application.getStoreSettings().getFileStoreFolder();
+			if (fileStoreFolder != null)
+			{
+				final File directory = new File(fileStoreFolder, application.getName() + "-"
+					+ CACHE_DIRECTORY_NAME);
+				if (!directory.exists() || isPrivate(directory.toPath()))
+				{
+					return directory;
+				}
+				LOGGER.warn("The cache directory " + directory
+					+ " is not owned by the application or is writable by others, a new temp "
+					+ "directory is used.");
+			}
+		}
+		try
+		{
+			return Files.createTempDirectory(CACHE_DIRECTORY_NAME).toFile();
+		}
+		catch (final IOException e)
+		{
+			throw new IllegalStateException("The cache directory could not be created.", e);
+		}
+	}
+
+	/**
+	 * Gets the shared instance. If no instance was set, an instance with the
+	 * {@link Less4jSourceCompiler} and the default cache directory is created. less4j is an
+	 * optional dependency, so an application that uses less sources without another
+	 * {@link LessSourceCompiler} has to add less4j as a dependency.
+	 *
+	 * @return the shared instance
+	 * @throws IllegalStateException
+	 *             if no instance was set and less4j is not in the classpath
+	 */
+	public static LessResources getInstance()
+	{
+		LessResources lessResources = instance;
+		if (lessResources == null)
+		{
+			synchronized (LessResources.class)
+			{
+				lessResources = instance;
+				if (lessResources == null)
+				{
+					if (!isLess4jAvailable())
+					{
+						final String message = "The less sources can not be compiled, because "
+							+ "less4j is not in the classpath. Add the dependency "
+							+ "com.github.sommeri:less4j or set an instance with another "
+							+ "LessSourceCompiler with LessResources.setInstance.";
+						LOGGER.error(message);
+						throw new IllegalStateException(message);
+					}
+					lessResources = new LessResources(new Less4jSourceCompiler(),
+						getDefaultCacheDirectory());
+					instance = lessResources;
+				}
+			}
+		}
+		return lessResources;
+	}
+
+	/**
+	 * Gets the url of the given less reference.
+	 *
+	 * @param lessReference
+	 *            the less reference
+	 * @return the url of the less source
+	 * @throws FileNotFoundException
+	 *             is thrown if the less source does not exist
+	 */
+	private static URL getSource(final PackageResourceReference lessReference)
+		throws FileNotFoundException
+	{
+		final URL source = lessReference.getScope().getResource(lessReference.getName());
+		if (source == null)
+		{
+			throw new FileNotFoundException("The less source " + lessReference
+				+ " does not exist.");
+		}
+		return source;
+	}
+
+	/**
+	 * Checks if less4j is in the classpath.
+	 *
+	 * @return true, if less4j is in the classpath
+	 */
+	private static boolean isLess4jAvailable()
+	{
+		try
+		{
+			Class.forName(LESS4J_COMPILER_CLASS, false, LessResources.class.getClassLoader());
+			return true;
+		}
+		catch (final ClassNotFoundException | LinkageError e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Checks if the given directory is owned by the user of the application and is not writable by
+	 * others. Directories of file systems without posix permissions are seen as private.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @return true, if the given directory is private
+	 */
+	static boolean isPrivate(final Path directory)
+	{
+		try
+		{
+			if (!Files.getFileStore(directory).supportsFileAttributeView(
+				PosixFileAttributeView.class))
+			{
+				return true;
+			}
+			final PosixFileAttributes attributes = Files.readAttributes(directory,
+				PosixFileAttributes.class);
+			final Set<PosixFilePermission> permissions = attributes.permissions();
+			return attributes.owner().getName().equals(System.getProperty("user.name"))
+				&& !permissions.contains(PosixFilePermission.GROUP_WRITE)
+				&& !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+		}
+		catch (final IOException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the content of the given url.
+	 *
+	 * @param url
+	 *            the url
+	 * @return the content
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static byte[] read(final URL url) throws IOException
+	{
+		try (InputStream inputStream = url.openStream())
+		{
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1)
+			{
+				output.write(buffer, 0, read);
+			}
+			return output.toByteArray();
+		}
+	}
+
+	/**
+	 * Reads the given less source and its imports recursively.
+	 *
+	 * @param source
+	 *            the url of the less source
+	 * @param sources
+	 *            the content of the read sources by their urls
+	 * @throws IOException
+	 *             Signals that the given less source could not be read.
+	 */
+	private static void readImports(final URL source, final Map<String, byte[]> sources)
+		throws IOException
+	{
+		if (sources.containsKey(source.toExternalForm()))
+		{
+			return;
+		}
+		final byte[] content = read(source);
+		sources.put(source.toExternalForm(), content);
+		final Matcher matcher = IMPORT.matcher(new String(content, StandardCharsets.UTF_8));
+		while (matcher.find())
+		{
+			String name = matcher.group(1);
+			if (!name.substring(name.lastIndexOf('/') + 1).contains("."))
+			{
+				name = name + ".less";
+			}
+			final URL imported = new URL(source, name);
+			if (imported.getProtocol().equals(source.getProtocol()))
+			{
+				try
+				{
+					readImports(imported, sources);
+				}
+				catch (final IOException e)
+				{
+					// the compiler reports the missing import
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the given less source and its imports.
+	 *
+	 * @param source
+	 *            the url of the less source
+	 * @return the content of the less source and its imports by their urls
+	 * @throws IOException
+	 *             Signals that the given less source could not be read.
+	 */
+	static Map<String, byte[]> readSources(final URL source) throws IOException
+	{
+		final Map<String, byte[]> sources = new LinkedHashMap<>();
+		readImports(source, sources);
+		return sources;
+	}
+
+	/**
+	 * Sets the shared instance, for instance in the init method of the application.
+	 *
+	 * @param lessResources
+	 *            the new shared instance
+	 */
+	public static void setInstance(final LessResources lessResources)
+	{
+		instance = Args.notNull(lessResources, "lessResources");
+	}
+
+	/**
+	 * The compiler of the less sources.
+	 */
+	@Getter
+	private final LessSourceCompiler compiler;
+
+	/**
+	 * The directory of the compiled css files.
+	 */
+	@Getter
+	private final File cacheDirectory;
+
+	/** The compiled references by the less references. */
+	private final ConcurrentMap<PackageResourceReference, CompiledLessResourceReference> references = new ConcurrentHashMap<>();
+
+	/** The less references by the urls of the watched sources that they import. */
+	private final ConcurrentMap<String, Set<PackageResourceReference>> dependents = new ConcurrentHashMap<>();
+
+	/**
+	 * Instantiates a new {@link LessResources}.
+	 *
+	 * @param compiler
+	 *            the compiler of the less sources
+	 * @param cacheDirectory
+	 *            the directory of the compiled css files
+	 */
+	public LessResources(final LessSourceCompiler compiler, final File cacheDirectory)
+	{
+		this.compiler = Args.notNull(compiler, "compiler");
+		this.cacheDirectory = Args.notNull(cacheDirectory, "cacheDirectory");
+	}
+
+	/**
+	 * Compiles the given less source or reads the compiled css from the cache directory if the
+	 * hash of the given sources is cached.
+	 *
+	 * @param scope
+	 *            the scope of the less source
+	 * @param name
+	 *            the name of the less source
+	 * @param source
+	 *            the url of the less source
+	 * @param sources
+	 *            the content of the less source and its imports
+	 * @return the compiled reference
+	 * @throws IOException
+	 *             Signals that the less source could not be compiled.
+	 */
+	CompiledLessResourceReference compile(final Class<?> scope, final String name,
+		final URL source, final Map<String, byte[]> sources) throws IOException
+	{
+		final String hash = hash(sources.values());
+		final File cached = new File(cacheDirectory, hash + ".css");
+		byte[] css;
+		if (cached.isFile())
+		{
+			css = Files.readAllBytes(cached.toPath());
+		}
+		else
+		{
+			css = compiler.compile(source).getBytes(StandardCharsets.UTF_8);
+			write(cached, css);
+		}
+		final String baseName = name.endsWith(".less")
+			? name.substring(0, name.length() - ".less".length())
+			: name;
+		return new CompiledLessResourceReference(scope, baseName + "-" + hash.substring(0, 16)
+			+ ".css", css);
+	}
+
+	/**
+	 * Gets the reference of the css that is compiled from the given less reference. The less
+	 * source is compiled on the first call.
+	 *
+	 * @param lessReference
+	 *            the less reference
+	 * @return the compiled reference
+	 * @throws IOException
+	 *             Signals that the less source could not be read or compiled.
+	 */
+	public CompiledLessResourceReference getCssResourceReference(
+		final PackageResourceReference lessReference) throws IOException
+	{
+		CompiledLessResourceReference reference = references.get(lessReference);
+		if (reference == null)
+		{
+			final URL source = getSource(lessReference);
+			final Map<String, byte[]> sources = readSources(source);
+			reference = compile(lessReference.getScope(), lessReference.getName(), source,
+				sources);
+			final CompiledLessResourceReference previous = references.putIfAbsent(lessReference,
+				reference);
+			if (previous != null)
+			{
+				return previous;
+			}
+			final Application application = Application.exists() ? Application.get() : null;
+			register(application, reference);
+			watch(application, lessReference, sources.keySet());
+		}
+		return reference;
+	}
+
+	/**
+	 * Computes the hash of the given sources and of the name and the version of the compiler.
+	 *
+	 * @param sources
+	 *            the content of the sources
+	 * @return the hash as hex string
+	 */
+	private String hash(final Collection<byte[]> sources)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(compiler.getClass().getName().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte)0);
+			digest.update(String.valueOf(compiler.getVersion()).getBytes(StandardCharsets.UTF_8));
+			for (final byte[] content : sources)
+			{
+				digest.update((byte)0);
+				digest.update(content);
+			}
+			final StringBuilder hash = new StringBuilder();
+			for (final byte b : digest.digest())
+			{
+				hash.append(Character.forDigit((b >> 4) & 0xF, 16));
+				hash.append(Character.forDigit(b & 0xF, 16));
+			}
+			return hash.toString();
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Compiles the less sources again that depend on the modified source with the given url and
+	 * refreshes the header items if a compiled css has changed.
+	 *
+	 * @param application
+	 *            the application
+	 * @param url
+	 *            the url of the modified source
+	 */
+	private void recompile(final Application application, final String url)
+	{
+		boolean changed = false;
+		for (final PackageResourceReference lessReference : dependents.get(url))
+		{
+			try
+			{
+				final URL source = getSource(lessReference);
+				final Map<String, byte[]> sources = readSources(source);
+				final CompiledLessResourceReference reference = compile(
+					lessReference.getScope(), lessReference.getName(), source, sources);
+				final CompiledLessResourceReference previous = references.put(lessReference,
+					reference);
+				if (previous == null || !previous.getName().equals(reference.getName()))
+				{
+					register(application, reference);
+					changed = true;
+				}
+				watch(application, lessReference, sources.keySet());
+			}
+			catch (final IOException e)
+			{
+				LOGGER.error("The less source " + lessReference + " could not be compiled.", e);
+			}
+		}
+		if (changed)
+		{
+			PackageResourceReferences.getInstance().refresh();
+		}
+	}
+
+	/**
+	 * Registers the given compiled reference in the given application, so the css can be
+	 * requested.
+	 *
+	 * @param application
+	 *            the application or null
+	 * @param reference
+	 *            the compiled reference
+	 */
+	private void register(final Application application,
+		final CompiledLessResourceReference reference)
+	{
+		if (application != null)
+		{
+			application.getResourceReferenceRegistry().registerResourceReference(reference);
+		}
+	}
+
+	/**
+	 * Adds the given sources of the given less reference to the resource watcher of the given
+	 * application, if the application runs in the development mode.
+	 *
+	 * @param application
+	 *            the application or null
+	 * @param lessReference
+	 *            the less reference
+	 * @param sources
+	 *            the urls of the less source and its imports
+	 */
+	private void watch(final Application application,
+		final PackageResourceReference lessReference, final Set<String> sources)
+	{
+		if (application == null || !application.usesDevelopmentConfig())
+		{
+			return;
+		}
+		final IModificationWatcher watcher = application.getResourceSettings().getResourceWatcher(
+			true);
+		if (watcher == null)
+		{
+			return;
+		}
+		for (final String url : sources)
+		{
+			Set<PackageResourceReference> lessReferences = dependents.get(url);
+			if (lessReferences == null)
+			{
+				lessReferences = ConcurrentHashMap.newKeySet();
+				final Set<PackageResourceReference> previous = dependents.putIfAbsent(url,
+					lessReferences);
+				if (previous != null)
+				{
+					lessReferences = previous;
+				}
+				else
+				{
+					try
+					{
+						watcher.add(new UrlResourceStream(new URL(url)), new IChangeListener()
+						{
+							@Override
+							public void onChange()
+							{
+								recompile(application, url);
+							}
+						});
+					}
+					catch (final IOException e)
+					{
+						LOGGER.warn("The less source " + url + " could not be watched.", e);
+					}
+				}
+			}
+			lessReferences.add(lessReference);
+		}
+	}
+
+	/**
+	 * Writes the given css to the given cache file. The css is written to a temporary file that
+	 * is moved to the cache file, so no other process reads a partial file.
+	 *
+	 * @param cached
+	 *            the cache file
+	 * @param css
+	 *            the css
+	 */
+	private void write(final File cached, final byte[] css)
+	{
+		try
+		{
+			createPrivateDirectory(cacheDirectory.toPath());
+			final File temporary = File.createTempFile(cached.getName(), ".tmp", cacheDirectory);
+			Files.write(temporary.toPath(), css);
+			try
+			{
+				Files.move(temporary.toPath(), cached.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (final AtomicMoveNotSupportedException e)
+			{
+				Files.move(temporary.toPath(), cached.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (final IOException e)
+		{
+			LOGGER.warn("The compiled css could not be cached in " + cached + ".", e);
+		}
+	}
+
+}
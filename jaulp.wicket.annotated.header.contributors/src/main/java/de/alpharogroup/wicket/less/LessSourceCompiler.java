@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.less;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * The Interface LessSourceCompiler compiles less sources to css.
+ */
+public interface LessSourceCompiler
+{
+
+	/**
+	 * Compiles the less source of the given url to css. Imports are resolved relative to the
+	 * given url.
+	 *
+	 * @param source
+	 *            the url of the less source
+	 * @return the css
+	 * @throws IOException
+	 *             Signals that the source could not be read or compiled.
+	 */
+	String compile(URL source) throws IOException;
+
+	/**
+	 * Gets the version of the compiler. The version is a part of the hash of the cached css, so a
+	 * new version of the compiler compiles the sources again. The default returns the
+	 * implementation version of the package of the compiler class.
+	 *
+	 * @return the version of the compiler or null if it is unknown
+	 */
+	default String getVersion()
+	{
+		final Package compilerPackage = getClass().getPackage();
+		return compilerPackage != null ? compilerPackage.getImplementationVersion() : null;
+	}
+
+}
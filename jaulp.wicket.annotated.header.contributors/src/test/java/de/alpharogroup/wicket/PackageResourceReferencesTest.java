@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import de.alpharogroup.wicket.base.enums.ResourceReferenceType;
+
+public class PackageResourceReferencesTest
+{
+
+	private interface Draggable
+	{
+	}
+
+	private interface Sortable extends Draggable
+	{
+	}
+
+	private static class BasePanel
+	{
+	}
+
+	private static class ListPanel extends BasePanel implements Sortable
+	{
+	}
+
+	private static class LateRegisteredPanel extends ListPanel
+	{
+	}
+
+	private static Set<PackageResourceReferenceWrapper> newReferences(final Class<?> scope,
+		final String name)
+	{
+		final Set<PackageResourceReferenceWrapper> references = new LinkedHashSet<>();
+		references.add(new PackageResourceReferenceWrapper(new PackageResourceReference(scope,
+			name + ".js"), ResourceReferenceType.JS));
+		references.add(new PackageResourceReferenceWrapper(new PackageResourceReference(scope,
+			name + ".css"), ResourceReferenceType.CSS));
+		return references;
+	}
+
+	private static List<String> toNames(final Set<PackageResourceReferenceWrapper> references)
+	{
+		final List<String> names = new ArrayList<>();
+		for (final PackageResourceReferenceWrapper reference : references)
+		{
+			names.add(reference.getPackageResourceReference().getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testResolveHierarchy()
+	{
+		final PackageResourceReferences references = new PackageResourceReferences();
+		references.register(Collections.singletonMap(BasePanel.class,
+			newReferences(BasePanel.class, "base")));
+		references.register(Collections.singletonMap(Draggable.class,
+			newReferences(Draggable.class, "drag")));
+		references.register(Collections.singletonMap(ListPanel.class,
+			newReferences(ListPanel.class, "list")));
+
+		final Set<PackageResourceReferenceWrapper> resolved = references
+			.getPackageResourceReference(ListPanel.class);
+		AssertJUnit.assertEquals(
+			Arrays.asList("base.js", "base.css", "drag.js", "drag.css", "list.js",
+				"list.css"), toNames(resolved));
+		AssertJUnit.assertEquals(6, references.getHeaderItems(ListPanel.class).length);
+		AssertJUnit.assertTrue(references.getPackageResourceReference(String.class).isEmpty());
+		AssertJUnit.assertEquals(0, references.getHeaderItems(String.class).length);
+		try
+		{
+			resolved.clear();
+			AssertJUnit.fail("The resolved references have to be immutable.");
+		}
+		catch (final UnsupportedOperationException e)
+		{
+		}
+		try
+		{
+			references.getPackageResourceReferenceMap().clear();
+			AssertJUnit.fail("The registry has to be immutable.");
+		}
+		catch (final UnsupportedOperationException e)
+		{
+		}
+
+		// a registration of a superclass is resolved in the subclasses
+		references.register(Collections.singletonMap(BasePanel.class,
+			newReferences(BasePanel.class, "base2")));
+		AssertJUnit.assertEquals("base2.js",
+			toNames(references.getPackageResourceReference(LateRegisteredPanel.class)).get(0));
+		AssertJUnit.assertEquals("base2.js",
+			toNames(references.getPackageResourceReference(ListPanel.class)).get(0));
+	}
+
+	@Test
+	public void testRegisterWhileRendering() throws Exception
+	{
+		final PackageResourceReferences references = new PackageResourceReferences();
+		references.register(Collections.singletonMap(BasePanel.class,
+			newReferences(BasePanel.class, "base")));
+
+		final int renderers = 8;
+		final int registrations = 500;
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final CountDownLatch started = new CountDownLatch(renderers);
+		final ExecutorService executor = Executors.newFixedThreadPool(renderers);
+		final List<Future<Long>> futures = new ArrayList<>();
+		for (int i = 0; i < renderers; i++)
+		{
+			futures.add(executor.submit(() -> {
+				long renders = 0;
+				started.countDown();
+				while (running.get() || renders == 0)
+				{
+					final Set<PackageResourceReferenceWrapper> resolved = references
+						.getPackageResourceReference(LateRegisteredPanel.class);
+					final HeaderItem[] headerItems = references
+						.getHeaderItems(LateRegisteredPanel.class);
+					// the inherited references are always resolved and come first
+					AssertJUnit.assertTrue(resolved.size() >= 2);
+					AssertJUnit.assertTrue(toNames(resolved).get(0).startsWith("base"));
+					AssertJUnit.assertTrue(headerItems.length >= 2);
+					AssertJUnit.assertEquals(0, headerItems.length % 2);
+					renders++;
+				}
+				return renders;
+			}));
+		}
+		started.await();
+		for (int i = 0; i < registrations; i++)
+		{
+			references.register(Collections.singletonMap(i % 2 == 0
+				? ListPanel.class
+				: Sortable.class, newReferences(ListPanel.class, "list" + i)));
+		}
+		running.set(false);
+		long renders = 0;
+		for (final Future<Long> future : futures)
+		{
+			renders += future.get(30, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		AssertJUnit.assertTrue(renders > 0);
+		AssertJUnit.assertEquals(
+			Arrays.asList("base.js", "base.css", "list499.js", "list499.css",
+				"list498.js", "list498.css"),
+			toNames(references.getPackageResourceReference(LateRegisteredPanel.class)));
+		AssertJUnit.assertEquals(6, references.getHeaderItems(LateRegisteredPanel.class).length);
+	}
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.bundles;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import de.alpharogroup.wicket.PackageResourceReferenceWrapper;
+import de.alpharogroup.wicket.PackageResourceReferences;
+import de.alpharogroup.wicket.base.enums.ResourceReferenceType;
+
+public class HeaderContributorBundlesTest
+{
+
+	private static class Layout
+	{
+	}
+
+	private static class HomePage extends Layout
+	{
+	}
+
+	private static class ListPage extends Layout
+	{
+	}
+
+	private static class MenuPanel
+	{
+	}
+
+	private static class TablePanel
+	{
+	}
+
+	private static Set<PackageResourceReferenceWrapper> newReferences(final Class<?> scope,
+		final String... names)
+	{
+		final Set<PackageResourceReferenceWrapper> references = new LinkedHashSet<>();
+		for (final String name : names)
+		{
+			final ResourceReferenceType type = name.endsWith(".js")
+				? ResourceReferenceType.JS
+				: ResourceReferenceType.CSS;
+			references.add(new PackageResourceReferenceWrapper(new PackageResourceReference(scope,
+				name), type));
+		}
+		return references;
+	}
+
+	private static String toNames(final HeaderContributorBundle bundle)
+	{
+		final StringBuilder names = new StringBuilder();
+		for (final PackageResourceReference reference : bundle.getReferences())
+		{
+			names.append(names.length() == 0 ? "" : ",").append(reference.getName());
+		}
+		return names.toString();
+	}
+
+	@Test
+	public void testCssCompressor()
+	{
+		AssertJUnit.assertEquals("/*! grid */\n.row>.col{float:left;width:calc(100% - 2em)}"
+			+ ".menu li :first-child{content:\"a  ; b\"}", new CssCompressor()
+			.compress("/*! grid */\n.row > .col {\n\tfloat: left;\n\twidth: calc(100% - 2em);\n}\n"
+				+ "/* menu */\n.menu li :first-child {\n\tcontent: \"a  ; b\";\n}\n"));
+	}
+
+	@Test
+	public void testGroupKeepsTheOrderOfEveryPage()
+	{
+		final PackageResourceReferences packageResourceReferences = new PackageResourceReferences();
+		final Map<Class<?>, Set<PackageResourceReferenceWrapper>> registry = new LinkedHashMap<>();
+		registry.put(Layout.class, newReferences(Layout.class, "layout.js", "layout.css",
+			"grid.css"));
+		registry.put(HomePage.class, newReferences(HomePage.class, "home.css"));
+		registry.put(ListPage.class, newReferences(ListPage.class, "list.js"));
+		registry.put(MenuPanel.class, newReferences(MenuPanel.class, "menu.js", "menu.css"));
+		registry.put(TablePanel.class, newReferences(TablePanel.class, "table.js", "sort.js",
+			"table.css"));
+		packageResourceReferences.register(registry);
+
+		final HeaderContributorBundles bundles = new HeaderContributorBundles(
+			packageResourceReferences).addPage(HomePage.class, MenuPanel.class).addPage(
+			ListPage.class, MenuPanel.class, TablePanel.class);
+		bundles.setCssCompressor(new CssCompressor());
+		final List<HeaderContributorBundle> grouped = bundles.group();
+
+		// layout.js and menu.js are on both pages but not adjacent on the list page
+		AssertJUnit.assertEquals(2, grouped.size());
+		AssertJUnit.assertEquals("layout.css,grid.css", toNames(grouped.get(0)));
+		AssertJUnit.assertTrue(grouped.get(0).getName().matches("bundle-[0-9a-f]{16}\\.css"));
+		AssertJUnit.assertTrue(grouped.get(0).getCompressedLength() < grouped.get(0).getLength());
+		AssertJUnit.assertEquals("table.js,sort.js", toNames(grouped.get(1)));
+		AssertJUnit.assertEquals(ResourceReferenceType.JS, grouped.get(1).getType());
+		AssertJUnit.assertEquals(
+			new LinkedHashSet<Class<?>>(Arrays.<Class<?>> asList(ListPage.class)), grouped.get(1)
+				.getPageClasses());
+
+		final BundleReport home = bundles.getReport(HomePage.class);
+		AssertJUnit.assertEquals(6, home.getRequestsBefore());
+		AssertJUnit.assertEquals(5, home.getRequestsAfter());
+		AssertJUnit.assertTrue(home.getBytesAfter() < home.getBytesBefore());
+		final BundleReport list = bundles.getReport(ListPage.class);
+		AssertJUnit.assertEquals(9, list.getRequestsBefore());
+		AssertJUnit.assertEquals(7, list.getRequestsAfter());
+		AssertJUnit.assertEquals(2, bundles.getReports().size());
+
+		// the names do not change with the order of the grouping
+		AssertJUnit.assertEquals(grouped.get(0).getName(), new HeaderContributorBundles(
+			packageResourceReferences).addPage(ListPage.class, MenuPanel.class, TablePanel.class)
+			.addPage(HomePage.class, MenuPanel.class).group().get(0).getName());
+	}
+
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.testng.AssertJUnit;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import de.alpharogroup.io.annotations.ImportResource;
+import de.alpharogroup.io.annotations.ImportResources;
+
+public class AnnotationIndexProcessorTest
+{
+
+	private static final String PACKAGE_NAME = "de.alpharogroup.wicket.index.sample";
+
+	private static void delete(final Path path) throws IOException
+	{
+		if (Files.isDirectory(path))
+		{
+			for (final Path child : Files.newDirectoryStream(path))
+			{
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+
+	private static String write(final Path sources, final String className, final String source)
+		throws IOException
+	{
+		final Path file = sources.resolve(PACKAGE_NAME.replace('.', File.separatorChar)).resolve(
+			className + ".java");
+		Files.createDirectories(file.getParent());
+		Files.write(file, ("package " + PACKAGE_NAME + ";\n"
+			+ "import de.alpharogroup.io.annotations.ImportResource;\n"
+			+ "import de.alpharogroup.io.annotations.ImportResources;\n" + source)
+			.getBytes(StandardCharsets.UTF_8));
+		return file.toString();
+	}
+
+	@Test
+	public void testClasspathRootWithoutIndexIsScanned() throws Exception
+	{
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+		{
+			throw new SkipException("The test does not run on a JDK.");
+		}
+		final Path directory = Files.createTempDirectory("annotation-index");
+		try
+		{
+			final Path sources = directory.resolve("src");
+			final Path indexed = Files.createDirectories(directory.resolve("indexed"));
+			final Path unindexed = Files.createDirectories(directory.resolve("unindexed"));
+			final String classpath = System.getProperty("java.class.path");
+			final String source = "@ImportResource(resourceName = \"Panel.css\", "
+				+ "resourceType = \"css\")\npublic class Panel {}\n";
+			AssertJUnit.assertEquals(0, compiler.run(null, null, null, "-processorpath",
+				classpath, "-processor", AnnotationIndexProcessor.class.getName(), "-classpath",
+				classpath, "-d", indexed.toString(), write(sources, "Panel", source)));
+			AssertJUnit.assertEquals(0, compiler.run(null, null, null, "-proc:none",
+				"-classpath", classpath, "-d", unindexed.toString(),
+				write(sources, "Other", source.replace("Panel", "Other"))));
+
+			final Thread thread = Thread.currentThread();
+			final ClassLoader contextClassLoader = thread.getContextClassLoader();
+			try
+			{
+				try (URLClassLoader classLoader = new URLClassLoader(new URL[] {
+						indexed.toUri().toURL() }, contextClassLoader))
+				{
+					thread.setContextClassLoader(classLoader);
+					AssertJUnit.assertEquals(1, AnnotationIndex.getImportResources(PACKAGE_NAME)
+						.size());
+				}
+				try (URLClassLoader classLoader = new URLClassLoader(new URL[] {
+						indexed.toUri().toURL(), unindexed.toUri().toURL() }, contextClassLoader))
+				{
+					thread.setContextClassLoader(classLoader);
+					AssertJUnit.assertNull(AnnotationIndex.getImportResources(PACKAGE_NAME));
+					AssertJUnit.assertNull(AnnotationIndex.getAnnotatedClasses(PACKAGE_NAME,
+						ImportResource.class));
+				}
+			}
+			finally
+			{
+				thread.setContextClassLoader(contextClassLoader);
+			}
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testIndexIsWrittenAndRead() throws Exception
+	{
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+		{
+			throw new SkipException("The test does not run on a JDK.");
+		}
+		final int panels = 50;
+		final int models = 10;
+		final Path directory = Files.createTempDirectory("annotation-index");
+		try
+		{
+			final Path sources = directory.resolve("src");
+			final Path classes = Files.createDirectories(directory.resolve("classes"));
+			final String classpath = System.getProperty("java.class.path");
+			final List<String> arguments = new ArrayList<>(Arrays.asList("-processorpath",
+				classpath, "-processor", AnnotationIndexProcessor.class.getName(), "-classpath",
+				classpath, "-d", classes.toString()));
+			for (int i = 0; i < panels; i++)
+			{
+				arguments.add(write(sources, "Panel" + i,
+					"@ImportResources(resources = { @ImportResource(resourceName = \"Panel" + i
+						+ ".css\", resourceType = \"css\") })\npublic class Panel" + i + " {\n"
+						+ "  @ImportResources(resources = {})\n"
+						+ "  public static class Nested {}\n}\n"));
+			}
+			for (int i = 0; i < models; i++)
+			{
+				arguments.add(write(sources, "Model" + i, "public class Model" + i + " {}\n"));
+			}
+			AssertJUnit.assertEquals(0,
+				compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])));
+
+			final Path index = classes.resolve(AnnotationIndex.INDEX_LOCATION
+				+ AnnotationIndexProcessor.IMPORT_RESOURCES);
+			AssertJUnit.assertTrue(Files.exists(index));
+			final String content = new String(Files.readAllBytes(index), StandardCharsets.UTF_8);
+			AssertJUnit.assertTrue(content.contains(PACKAGE_NAME + ".Panel0\n"));
+			AssertJUnit.assertTrue(content.contains(PACKAGE_NAME + ".Panel0$Nested\n"));
+			AssertJUnit.assertFalse(content.contains("Model"));
+
+			final URL[] urls = new URL[] { classes.toUri().toURL() };
+			final Thread thread = Thread.currentThread();
+			final ClassLoader contextClassLoader = thread.getContextClassLoader();
+			try
+			{
+				try (URLClassLoader classLoader = new URLClassLoader(urls, contextClassLoader))
+				{
+					thread.setContextClassLoader(classLoader);
+					AssertJUnit.assertNull(AnnotationIndex.getAnnotatedClasses(PACKAGE_NAME,
+						Deprecated.class));
+
+					final Map<Class<?>, ImportResource[]> indexed = AnnotationIndex
+						.getImportResources(PACKAGE_NAME);
+					AssertJUnit.assertEquals(panels * 2, indexed.size());
+					final Class<?> panel = classLoader.loadClass(PACKAGE_NAME + ".Panel7");
+					AssertJUnit.assertEquals("Panel7.css", indexed.get(panel)[0].resourceName());
+					final Class<?> nested = classLoader.loadClass(PACKAGE_NAME + ".Panel7$Nested");
+					AssertJUnit.assertEquals(0, indexed.get(nested).length);
+					final Set<Class<?>> annotatedClasses = AnnotationIndex.getAnnotatedClasses(
+						PACKAGE_NAME + ".other", ImportResources.class);
+					AssertJUnit.assertTrue(annotatedClasses.isEmpty());
+				}
+
+				System.setProperty(AnnotationIndex.DISABLED_PROPERTY, "true");
+				try (URLClassLoader classLoader = new URLClassLoader(urls, contextClassLoader))
+				{
+					thread.setContextClassLoader(classLoader);
+					AssertJUnit.assertNull(AnnotationIndex.getImportResources(PACKAGE_NAME));
+				}
+				finally
+				{
+					System.clearProperty(AnnotationIndex.DISABLED_PROPERTY);
+				}
+			}
+			finally
+			{
+				thread.setContextClassLoader(contextClassLoader);
+			}
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.less;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class LessResourcesTest
+{
+
+	/**
+	 * A compiler that counts the compilations and returns the source.
+	 */
+	private static class CountingCompiler implements LessSourceCompiler
+	{
+		private final AtomicInteger compilations = new AtomicInteger();
+
+		private final String version;
+
+		CountingCompiler()
+		{
+			this("1.0");
+		}
+
+		CountingCompiler(final String version)
+		{
+			this.version = version;
+		}
+
+		@Override
+		public String compile(final URL source) throws IOException
+		{
+			compilations.incrementAndGet();
+			try (InputStream inputStream = source.openStream())
+			{
+				final byte[] buffer = new byte[4096];
+				final int read = inputStream.read(buffer);
+				return "/* compiled */" + new String(buffer, 0, Math.max(read, 0),
+					StandardCharsets.UTF_8);
+			}
+		}
+
+		@Override
+		public String getVersion()
+		{
+			return version;
+		}
+	}
+
+	private static void delete(final Path path) throws IOException
+	{
+		if (Files.isDirectory(path))
+		{
+			for (final Path child : Files.newDirectoryStream(path))
+			{
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void testCompiledCssIsCachedAcrossRestarts() throws Exception
+	{
+		final Path cacheDirectory = Files.createTempDirectory("less-cache");
+		try
+		{
+			final PackageResourceReference lessReference = new PackageResourceReference(
+				LessResourcesTest.class, "menu.less");
+			final CountingCompiler compiler = new CountingCompiler();
+			final LessResources lessResources = new LessResources(compiler,
+				cacheDirectory.toFile());
+			final CompiledLessResourceReference reference = lessResources
+				.getCssResourceReference(lessReference);
+			AssertJUnit.assertTrue(reference.getName().matches("menu-[0-9a-f]{16}\\.css"));
+			AssertJUnit.assertEquals(LessResourcesTest.class, reference.getScope());
+			AssertJUnit.assertSame(reference, lessResources.getCssResourceReference(lessReference));
+			AssertJUnit.assertEquals(1, compiler.compilations.get());
+
+			// a restart reads the compiled css from the cache directory
+			final CountingCompiler restarted = new CountingCompiler();
+			final CompiledLessResourceReference cached = new LessResources(restarted,
+				cacheDirectory.toFile()).getCssResourceReference(lessReference);
+			AssertJUnit.assertEquals(0, restarted.compilations.get());
+			AssertJUnit.assertEquals(reference.getName(), cached.getName());
+		}
+		finally
+		{
+			delete(cacheDirectory);
+		}
+	}
+
+	@Test
+	public void testModifiedImportChangesTheHash() throws Exception
+	{
+		final Path directory = Files.createTempDirectory("less-sources");
+		try
+		{
+			final Path menu = directory.resolve("menu.less");
+			final Path colors = directory.resolve("colors.less");
+			Files.write(menu, "@import (reference) \"colors\";\n.menu { color: @menu-color; }\n"
+				.getBytes(StandardCharsets.UTF_8));
+			Files.write(colors, "@menu-color: #336699;\n".getBytes(StandardCharsets.UTF_8));
+			final URL source = menu.toUri().toURL();
+			final CountingCompiler compiler = new CountingCompiler();
+			final LessResources lessResources = new LessResources(compiler, directory.resolve(
+				"cache").toFile());
+
+			AssertJUnit.assertEquals(2, LessResources.readSources(source).size());
+			final String name = lessResources.compile(LessResourcesTest.class, "menu.less",
+				source, LessResources.readSources(source)).getName();
+			AssertJUnit.assertEquals(name, lessResources.compile(LessResourcesTest.class,
+				"menu.less", source, LessResources.readSources(source)).getName());
+			AssertJUnit.assertEquals(1, compiler.compilations.get());
+
+			Files.write(colors, "@menu-color: #993366;\n".getBytes(StandardCharsets.UTF_8));
+			AssertJUnit.assertFalse(name.equals(lessResources.compile(LessResourcesTest.class,
+				"menu.less", source, LessResources.readSources(source)).getName()));
+			AssertJUnit.assertEquals(2, compiler.compilations.get());
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testCompilerVersionChangesTheHash() throws Exception
+	{
+		final Path cacheDirectory = Files.createTempDirectory("less-cache");
+		try
+		{
+			final PackageResourceReference lessReference = new PackageResourceReference(
+				LessResourcesTest.class, "menu.less");
+			final String name = new LessResources(new CountingCompiler("1.0"),
+				cacheDirectory.toFile()).getCssResourceReference(lessReference).getName();
+
+			// a new version of the compiler does not read the css of the old version
+			final CountingCompiler upgraded = new CountingCompiler("2.0");
+			AssertJUnit.assertFalse(name.equals(new LessResources(upgraded,
+				cacheDirectory.toFile()).getCssResourceReference(lessReference).getName()));
+			AssertJUnit.assertEquals(1, upgraded.compilations.get());
+		}
+		finally
+		{
+			delete(cacheDirectory);
+		}
+	}
+
+	@Test
+	public void testDefaultCacheDirectoryIsPrivate() throws Exception
+	{
+		final Path cacheDirectory = LessResources.getDefaultCacheDirectory().toPath();
+		try
+		{
+			AssertJUnit.assertTrue(Files.isDirectory(cacheDirectory));
+			AssertJUnit.assertFalse(cacheDirectory.getFileName().toString()
+				.equals("jaulp-wicket-less"));
+			AssertJUnit.assertTrue(LessResources.isPrivate(cacheDirectory));
+		}
+		finally
+		{
+			delete(cacheDirectory);
+		}
+	}
+
+	@Test
+	public void testLess4jSourceCompiler() throws Exception
+	{
+		final String css = new Less4jSourceCompiler().compile(LessResourcesTest.class
+			.getResource("menu.less"));
+		AssertJUnit.assertTrue(css.contains("#336699"));
+		AssertJUnit.assertTrue(css.contains(".menu .item"));
+		AssertJUnit.assertFalse(css.contains("@menu-color"));
+		AssertJUnit.assertNotNull(new Less4jSourceCompiler().getVersion());
+	}
+
+}
@@ -0,0 +1,4 @@
+var layout = {
+	init : function() {
+	}
+};
@@ -0,0 +1,4 @@
+var list = {
+	init : function() {
+	}
+};
@@ -0,0 +1,4 @@
+var menu = {
+	init : function() {
+	}
+};
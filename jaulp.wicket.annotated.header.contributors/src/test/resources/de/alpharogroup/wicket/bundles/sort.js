@@ -0,0 +1,4 @@
+var sort = {
+	init : function() {
+	}
+};
@@ -0,0 +1,4 @@
+var table = {
+	init : function() {
+	}
+};
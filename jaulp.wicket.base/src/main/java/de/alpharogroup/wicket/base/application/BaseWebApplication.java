@@ -33,6 +33,8 @@ import org.apache.wicket.util.time.Duration;
 import org.apache.wicket.util.time.Time;
 import org.joda.time.DateTime;
 
+import de.alpharogroup.wicket.base.request.mapper.TrieRequestMapper;
+
 /**
  * The Class BaseWebApplication have factory methods for the application settings that should be
  * overwritten from the subclasses to provide they own settings and configurations.
@@ -84,7 +86,10 @@ public abstract class BaseWebApplication extends WebApplication
 	}
 
 	/**
-	 * Mounts a page class to the given path with the given {@link IPageParametersEncoder}.
+	 * Mounts a page class to the given path with the given {@link IPageParametersEncoder}. If a
+	 * {@link TrieRequestMapper} is installed with {@code
+	 * ApplicationExtensions#setTrieRootRequestMapper(Application)} the page is mounted into the
+	 * trie.
 	 *
 	 * @param <T>
 	 *            type of page
@@ -99,7 +104,16 @@ public abstract class BaseWebApplication extends WebApplication
 	public <T extends Page> void mountPage(final String path, final Class<T> pageClass,
 		final IPageParametersEncoder pageParametersEncoder)
 	{
-		mount(new MountedMapper(path, pageClass, pageParametersEncoder));
+		final MountedMapper mapper = new MountedMapper(path, pageClass, pageParametersEncoder);
+		final TrieRequestMapper trieRequestMapper = getMetaData(TrieRequestMapper.KEY);
+		if (trieRequestMapper != null)
+		{
+			trieRequestMapper.mount(path, mapper);
+		}
+		else
+		{
+			mount(mapper);
+		}
 	}
 
 	/**
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class ConcurrentOnlineSessionUsers is the concurrent counterpart of
+ * {@link OnlineSessionUsers}. It saves also the session object and removes it together with the
+ * mapping of the session id.
+ *
+ * @param <USER>
+ *            the generic type for the users object.
+ * @param <ID>
+ *            the generic type for the id the references to the user object.
+ * @param <SESSION>
+ *            the generic type for the session object.
+ */
+public class ConcurrentOnlineSessionUsers<USER, ID, SESSION> extends ConcurrentOnlineUsers<USER, ID>
+	implements
+		OnlineSessionUsersStore<USER, ID, SESSION>
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** This map holds which session id references to which session. */
+	private final ConcurrentMap<ID, SESSION> sessionIdToSession = new ConcurrentHashMap<>();
+
+	/**
+	 * Instantiates a new {@link ConcurrentOnlineSessionUsers}.
+	 */
+	public ConcurrentOnlineSessionUsers()
+	{
+		super();
+	}
+
+	/**
+	 * Instantiates a new {@link ConcurrentOnlineSessionUsers}.
+	 *
+	 * @param stripes
+	 *            the number of lock stripes, will be rounded up to the next power of two.
+	 */
+	public ConcurrentOnlineSessionUsers(final int stripes)
+	{
+		super(stripes);
+	}
+
+	/**
+	 * Adds the user online.
+	 *
+	 * @param user
+	 *            the user
+	 * @param sessionId
+	 *            the session id
+	 * @param session
+	 *            the session object
+	 * @return the session id
+	 */
+	@Override
+	public ID addOnline(final USER user, final ID sessionId, final SESSION session)
+	{
+		synchronized (lockFor(user))
+		{
+			final ID previousSessionId = super.addOnline(user, sessionId);
+			sessionIdToSession.put(sessionId, session);
+			return previousSessionId;
+		}
+	}
+
+	/**
+	 * Gets the session from the given user.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the session
+	 */
+	@Override
+	public SESSION get(final USER user)
+	{
+		final ID sessionId = getSessionId(user);
+		return sessionId != null ? sessionIdToSession.get(sessionId) : null;
+	}
+
+	/**
+	 * Gets the session from the given session id.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 * @return the session
+	 */
+	@Override
+	public SESSION getSession(final ID sessionId)
+	{
+		return sessionIdToSession.get(sessionId);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onRemoved(final USER user, final ID sessionId)
+	{
+		sessionIdToSession.remove(sessionId);
+	}
+
+	/**
+	 * Replace the given old session id with the new one.
+	 *
+	 * @param user
+	 *            the user
+	 * @param oldSessionId
+	 *            the old session id
+	 * @param newSessionId
+	 *            the new session id
+	 * @param newSession
+	 *            the new session object
+	 * @return the new session id that is associated with the given user.
+	 */
+	@Override
+	public ID replaceSessionId(final USER user, final ID oldSessionId, final ID newSessionId,
+		final SESSION newSession)
+	{
+		final ID previousSessionId = addOnline(user, newSessionId, newSession);
+		if (oldSessionId != null && !oldSessionId.equals(newSessionId))
+		{
+			remove(oldSessionId);
+		}
+		return previousSessionId;
+	}
+
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class ConcurrentOnlineUsers is the concurrent counterpart of {@link OnlineUsers}. The mapping
+ * between users and session ids is held in two {@link ConcurrentHashMap}s, so read operations like
+ * {@link #isOnline(Object)} or {@link #getSessionId(Object)} never block. Write operations are
+ * guarded by a lock stripe that is selected from the user, so only threads that work on the same
+ * user (or on users that share a stripe) contend with each other. The size is counted in a
+ * {@link LongAdder} and is not computed from the maps.
+ *
+ * @param <USER>
+ *            the generic type for the users object.
+ * @param <ID>
+ *            the generic type for the id the references to the user object.
+ */
+public class ConcurrentOnlineUsers<USER, ID> implements OnlineUsersStore<USER, ID>, Serializable
+{
+
+	/**
+	 * The Class StripeLock is the monitor object of one lock stripe.
+	 */
+	private static final class StripeLock implements Serializable
+	{
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+	}
+
+	/** The Constant DEFAULT_STRIPES. */
+	public static final int DEFAULT_STRIPES = 64;
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Rounds the given value up to the next power of two.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the next power of two
+	 */
+	private static int toPowerOfTwo(final int value)
+	{
+		final int n = -1 >>> Integer.numberOfLeadingZeros(Math.max(1, value) - 1);
+		return n < 0 ? 1 : n + 1;
+	}
+
+	/** This map holds the users objects that are online. */
+	private final ConcurrentMap<USER, ID> usersOnline = new ConcurrentHashMap<>();
+
+	/** This map holds which session id references to which user. */
+	private final ConcurrentMap<ID, USER> sessionIdToUser = new ConcurrentHashMap<>();
+
+	/** The counter of the users that are online. */
+	private final LongAdder size = new LongAdder();
+
+	/** The lock stripes for the write operations. */
+	private final StripeLock[] stripes;
+
+	/**
+	 * Instantiates a new {@link ConcurrentOnlineUsers} with {@link #DEFAULT_STRIPES} lock stripes.
+	 */
+	public ConcurrentOnlineUsers()
+	{
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Instantiates a new {@link ConcurrentOnlineUsers}.
+	 *
+	 * @param stripes
+	 *            the number of lock stripes, will be rounded up to the next power of two.
+	 */
+	public ConcurrentOnlineUsers(final int stripes)
+	{
+		this.stripes = new StripeLock[toPowerOfTwo(stripes)];
+		for (int i = 0; i < this.stripes.length; i++)
+		{
+			this.stripes[i] = new StripeLock();
+		}
+	}
+
+	/**
+	 * Adds the user online.
+	 *
+	 * @param user
+	 *            the user
+	 * @param sessionId
+	 *            the session id
+	 * @return the previous session id of the given user or null if the user was not online.
+	 */
+	@Override
+	public ID addOnline(final USER user, final ID sessionId)
+	{
+		synchronized (lockFor(user))
+		{
+			final ID previousSessionId = usersOnline.put(user, sessionId);
+			if (previousSessionId == null)
+			{
+				size.increment();
+			}
+			else if (!previousSessionId.equals(sessionId)
+				&& sessionIdToUser.remove(previousSessionId, user))
+			{
+				onRemoved(user, previousSessionId);
+			}
+			final USER previousUser = sessionIdToUser.put(sessionId, user);
+			if (previousUser != null && !previousUser.equals(user)
+				&& usersOnline.remove(previousUser, sessionId))
+			{
+				size.decrement();
+				onRemoved(previousUser, sessionId);
+			}
+			return previousSessionId;
+		}
+	}
+
+	/**
+	 * Gets the session id.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the session id
+	 */
+	@Override
+	public ID getSessionId(final USER user)
+	{
+		return usersOnline.get(user);
+	}
+
+	/**
+	 * Gets the size of the online users.
+	 *
+	 * @return how many users are at this moment online.
+	 */
+	@Override
+	public int getSize()
+	{
+		return size.intValue();
+	}
+
+	/**
+	 * Gets the user over the sessionId.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 * @return the user
+	 */
+	@Override
+	public USER getUser(final ID sessionId)
+	{
+		return sessionIdToUser.get(sessionId);
+	}
+
+	/**
+	 * Checks if the given user is online.
+	 *
+	 * @param user
+	 *            the user
+	 * @return true, if the user is online
+	 */
+	@Override
+	public boolean isOnline(final USER user)
+	{
+		return usersOnline.containsKey(user);
+	}
+
+	/**
+	 * Gets the monitor object of the lock stripe for the given user. Subclasses can synchronize on
+	 * it to extend the atomic write operations of this class.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the monitor object for the given user
+	 */
+	protected final Object lockFor(final USER user)
+	{
+		final int h = user.hashCode();
+		return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+	}
+
+	/**
+	 * Callback method that is invoked when the mapping between the given user and the given
+	 * session id was removed. The method is invoked while a lock stripe is held. Overwrite this
+	 * method to release resources that are associated with the session id.
+	 *
+	 * @param user
+	 *            the user
+	 * @param sessionId
+	 *            the session id
+	 */
+	protected void onRemoved(final USER user, final ID sessionId)
+	{
+	}
+
+	/**
+	 * Removes the user from the map with the session id.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 * @return the user
+	 */
+	@Override
+	public USER remove(final ID sessionId)
+	{
+		USER user;
+		while ((user = sessionIdToUser.get(sessionId)) != null)
+		{
+			synchronized (lockFor(user))
+			{
+				if (sessionIdToUser.remove(sessionId, user))
+				{
+					if (usersOnline.remove(user, sessionId))
+					{
+						size.decrement();
+					}
+					onRemoved(user, sessionId);
+					return user;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the user from the map. This method shell be invoked when the session is unbounded
+	 * from the Application. In wicket is the best way to do that in the
+	 * {@code WebApplication#sessionUnbound(String)}.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the session id
+	 */
+	@Override
+	public ID removeOnline(final USER user)
+	{
+		synchronized (lockFor(user))
+		{
+			final ID sessionId = usersOnline.remove(user);
+			if (sessionId != null)
+			{
+				size.decrement();
+				sessionIdToUser.remove(sessionId, user);
+				onRemoved(user, sessionId);
+			}
+			return sessionId;
+		}
+	}
+
+	/**
+	 * Replace the given old session id with the new one.
+	 *
+	 * @param user
+	 *            the user
+	 * @param oldSessionId
+	 *            the old session id
+	 * @param newSessionId
+	 *            the new session id
+	 * @return the new session id that is associated with the given user.
+	 */
+	@Override
+	public ID replaceSessionId(final USER user, final ID oldSessionId, final ID newSessionId)
+	{
+		final ID previousSessionId = addOnline(user, newSessionId);
+		if (oldSessionId != null && !oldSessionId.equals(newSessionId))
+		{
+			remove(oldSessionId);
+		}
+		return previousSessionId;
+	}
+
+}
@@ -0,0 +1,407 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application;
+
+import java.io.Serializable;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The Class ExpiringOnlineSessionUsers is a {@link ConcurrentOnlineSessionUsers} that forgets users
+ * which were not accessed for a configurable time to live. This prevents the leak of entries and
+ * their session objects when the unbound of a session is never reported, for instance after a
+ * container crash or a failover.<br>
+ * <br>
+ * Every entry has a last-access timestamp that is updated with {@link #touch(Object)}. That method
+ * is meant to be called from a request cycle listener, see
+ * {@link TouchOnlineSessionUsersRequestCycleListener}. The expired entries are found over a timing
+ * wheel, so a sweep only visits the buckets that are due and never scans all entries. A touch does
+ * only update the timestamp, an entry that was touched in the meantime is moved to its new bucket
+ * when its old bucket is due. The sweep can be invoked manually with {@link #sweep()} or from a
+ * background thread that is started with {@link #start()}.
+ *
+ * @param <USER>
+ *            the generic type for the users object.
+ * @param <ID>
+ *            the generic type for the id the references to the user object.
+ * @param <SESSION>
+ *            the generic type for the session object.
+ */
+public class ExpiringOnlineSessionUsers<USER, ID, SESSION>
+	extends
+		ConcurrentOnlineSessionUsers<USER, ID, SESSION>
+{
+
+	/**
+	 * The Class Entry holds the last-access timestamp of one session id. An entry is scheduled in
+	 * exactly one bucket of the timing wheel as long as it is tracked.
+	 *
+	 * @param <ID>
+	 *            the generic type for the id the references to the user object.
+	 */
+	private static final class Entry<ID> implements Serializable
+	{
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The session id. */
+		private final ID sessionId;
+
+		/** The last-access timestamp in milliseconds. */
+		private volatile long lastAccess;
+
+		/**
+		 * Instantiates a new {@link Entry}.
+		 *
+		 * @param sessionId
+		 *            the session id
+		 * @param lastAccess
+		 *            the last-access timestamp in milliseconds
+		 */
+		private Entry(final ID sessionId, final long lastAccess)
+		{
+			this.sessionId = sessionId;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	/** The Constant DEFAULT_BATCH_SIZE. */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/** The Constant logger. */
+	private static final Logger LOGGER = Logger
+		.getLogger(ExpiringOnlineSessionUsers.class.getName());
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The time to live in milliseconds since the last access. */
+	private final long timeToLive;
+
+	/** The duration of one tick of the timing wheel in milliseconds. */
+	private final long tickDuration;
+
+	/** The maximum number of entries that will be evicted in one sweep. */
+	private final int batchSize;
+
+	/** The clock for the last-access timestamps. */
+	private final Clock clock;
+
+	/** This map holds the entries with the last-access timestamp of the session ids. */
+	private final ConcurrentMap<ID, Entry<ID>> entries = new ConcurrentHashMap<>();
+
+	/** The buckets of the timing wheel. */
+	private final Queue<Entry<ID>>[] wheel;
+
+	/** The tick that will be swept next. */
+	private long cursor;
+
+	/** The lock for the sweep. */
+	private final Object sweepLock = new Object[0];
+
+	/** The scheduled sweeper if started. */
+	private transient ScheduledFuture<?> sweeper;
+
+	/** The executor of the sweeper if it was created from this instance. */
+	private transient ScheduledExecutorService ownExecutor;
+
+	/**
+	 * Instantiates a new {@link ExpiringOnlineSessionUsers}. The wheel ticks every
+	 * sixtieth of the given time to live, but at least every second.
+	 *
+	 * @param timeToLive
+	 *            the time to live
+	 * @param unit
+	 *            the time unit of the time to live
+	 */
+	public ExpiringOnlineSessionUsers(final long timeToLive, final TimeUnit unit)
+	{
+		this(timeToLive, unit, Math.max(1000L, unit.toMillis(timeToLive) / 60),
+			DEFAULT_BATCH_SIZE, Clock.systemUTC());
+	}
+
+	/**
+	 * Instantiates a new {@link ExpiringOnlineSessionUsers}.
+	 *
+	 * @param timeToLive
+	 *            the time to live
+	 * @param unit
+	 *            the time unit of the time to live
+	 * @param tickDuration
+	 *            the duration of one tick of the timing wheel in milliseconds
+	 * @param batchSize
+	 *            the maximum number of entries that will be evicted in one sweep
+	 * @param clock
+	 *            the clock for the last-access timestamps
+	 */
+	@SuppressWarnings("unchecked")
+	public ExpiringOnlineSessionUsers(final long timeToLive, final TimeUnit unit,
+		final long tickDuration, final int batchSize, final Clock clock)
+	{
+		if (timeToLive <= 0 || tickDuration <= 0 || batchSize <= 0)
+		{
+			throw new IllegalArgumentException(
+				"The time to live, the tick duration and the batch size have to be positive.");
+		}
+		this.timeToLive = unit.toMillis(timeToLive);
+		this.tickDuration = tickDuration;
+		this.batchSize = batchSize;
+		this.clock = clock;
+		final int buckets = (int)Math.min(Integer.MAX_VALUE - 2, this.timeToLive / tickDuration)
+			+ 2;
+		this.wheel = new Queue[buckets];
+		for (int i = 0; i < buckets; i++)
+		{
+			this.wheel[i] = new ConcurrentLinkedQueue<>();
+		}
+		this.cursor = now() / tickDuration;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ID addOnline(final USER user, final ID sessionId, final SESSION session)
+	{
+		synchronized (lockFor(user))
+		{
+			final ID previousSessionId = super.addOnline(user, sessionId, session);
+			track(sessionId);
+			return previousSessionId;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ID addOnline(final USER user, final ID sessionId)
+	{
+		synchronized (lockFor(user))
+		{
+			final ID previousSessionId = super.addOnline(user, sessionId);
+			track(sessionId);
+			return previousSessionId;
+		}
+	}
+
+	/**
+	 * Gets the last-access timestamp of the given session id.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 * @return the last-access timestamp in milliseconds or -1 if the session id is not online.
+	 */
+	public long getLastAccess(final ID sessionId)
+	{
+		final Entry<ID> entry = entries.get(sessionId);
+		return entry != null ? entry.lastAccess : -1L;
+	}
+
+	/**
+	 * Gets the current time in milliseconds.
+	 *
+	 * @return the current time in milliseconds
+	 */
+	private long now()
+	{
+		return clock.millis();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onRemoved(final USER user, final ID sessionId)
+	{
+		super.onRemoved(user, sessionId);
+		entries.remove(sessionId);
+	}
+
+	/**
+	 * Schedule the given entry in the first bucket that is due after the given deadline.
+	 *
+	 * @param entry
+	 *            the entry
+	 * @param deadline
+	 *            the deadline in milliseconds
+	 */
+	private void schedule(final Entry<ID> entry, final long deadline)
+	{
+		final long tick = deadline / tickDuration + 1;
+		wheel[(int)(tick % wheel.length)].add(entry);
+	}
+
+	/**
+	 * Starts the background sweeper on an own single thread executor.
+	 */
+	public synchronized void start()
+	{
+		if (ownExecutor == null)
+		{
+			ownExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "online-session-users-sweeper");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		start(ownExecutor);
+	}
+
+	/**
+	 * Starts the background sweeper on the given executor. The sweeper runs once per tick.
+	 *
+	 * @param executor
+	 *            the executor
+	 */
+	public synchronized void start(final ScheduledExecutorService executor)
+	{
+		if (sweeper == null)
+		{
+			sweeper = executor.scheduleWithFixedDelay(() -> {
+				try
+				{
+					sweep();
+				}
+				catch (final RuntimeException e)
+				{
+					LOGGER.error("Sweep of the expired online users failed.", e);
+				}
+			}, tickDuration, tickDuration, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops the background sweeper.
+	 */
+	public synchronized void stop()
+	{
+		if (sweeper != null)
+		{
+			sweeper.cancel(false);
+			sweeper = null;
+		}
+		if (ownExecutor != null)
+		{
+			ownExecutor.shutdown();
+			ownExecutor = null;
+		}
+	}
+
+	/**
+	 * Evicts the entries that were not accessed since the time to live. The buckets of the timing
+	 * wheel that are due are visited in order. Entries that were touched in the meantime are
+	 * rescheduled. If more than the batch size of entries expired, the sweep stops and the next
+	 * sweep continues at the same bucket.
+	 *
+	 * @return the number of evicted entries.
+	 */
+	public int sweep()
+	{
+		synchronized (sweepLock)
+		{
+			final long currentTime = now();
+			final long currentTick = currentTime / tickDuration;
+			final List<Entry<ID>> rescheduled = new ArrayList<>();
+			int evicted = 0;
+			try
+			{
+				while (cursor <= currentTick)
+				{
+					final Queue<Entry<ID>> bucket = wheel[(int)(cursor % wheel.length)];
+					Entry<ID> entry;
+					while ((entry = bucket.poll()) != null)
+					{
+						if (entries.get(entry.sessionId) != entry)
+						{
+							continue;
+						}
+						if (currentTime < entry.lastAccess + timeToLive)
+						{
+							rescheduled.add(entry);
+						}
+						else if (remove(entry.sessionId) != null && ++evicted >= batchSize)
+						{
+							return evicted;
+						}
+					}
+					cursor++;
+				}
+				return evicted;
+			}
+			finally
+			{
+				// reschedule after the bucket is drained, the new bucket can be the current one
+				for (final Entry<ID> entry : rescheduled)
+				{
+					schedule(entry, entry.lastAccess + timeToLive);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Updates the last-access timestamp of the given session id. This method should be invoked on
+	 * every request of the session.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 * @return true, if the session id is online
+	 */
+	public boolean touch(final ID sessionId)
+	{
+		final Entry<ID> entry = entries.get(sessionId);
+		if (entry == null)
+		{
+			return false;
+		}
+		entry.lastAccess = now();
+		return true;
+	}
+
+	/**
+	 * Starts the tracking of the last access of the given session id.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 */
+	private void track(final ID sessionId)
+	{
+		final long currentTime = now();
+		final Entry<ID> entry = new Entry<>(sessionId, currentTime);
+		final Entry<ID> previous = entries.putIfAbsent(sessionId, entry);
+		if (previous == null)
+		{
+			schedule(entry, currentTime + timeToLive);
+		}
+		else
+		{
+			previous.lastAccess = currentTime;
+		}
+	}
+
+}
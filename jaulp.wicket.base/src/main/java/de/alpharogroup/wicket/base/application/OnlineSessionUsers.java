@@ -30,6 +30,8 @@ import java.util.Map;
  *            the generic type for the session object.
  */
 public class OnlineSessionUsers<USER, ID, SESSION> extends OnlineUsers<USER, ID>
+	implements
+		OnlineSessionUsersStore<USER, ID, SESSION>
 {
 
 	/** The Constant serialVersionUID. */
@@ -49,6 +51,7 @@ public class OnlineSessionUsers<USER, ID, SESSION> extends OnlineUsers<USER, ID>
 	 *            the session object
 	 * @return the session id
 	 */
+	@Override
 	public synchronized ID addOnline(final USER user, final ID sessionId, final SESSION session)
 	{
 		sessionIdToSession.put(sessionId, session);
@@ -62,6 +65,7 @@ public class OnlineSessionUsers<USER, ID, SESSION> extends OnlineUsers<USER, ID>
 	 *            the user
 	 * @return the session
 	 */
+	@Override
 	public synchronized SESSION get(final USER user)
 	{
 		return sessionIdToSession.get(getSessionId(user));
@@ -74,6 +78,7 @@ public class OnlineSessionUsers<USER, ID, SESSION> extends OnlineUsers<USER, ID>
 	 *            the session id
 	 * @return the session
 	 */
+	@Override
 	public synchronized SESSION getSession(final ID sessionId)
 	{
 		return sessionIdToSession.get(sessionId);
@@ -126,6 +131,7 @@ public class OnlineSessionUsers<USER, ID, SESSION> extends OnlineUsers<USER, ID>
 	 *            the new session object
 	 * @return the new session id that is associated with the given user.
 	 */
+	@Override
 	public synchronized ID replaceSessionId(final USER user, final ID oldSessionId,
 		final ID newSessionId, final SESSION newSession)
 	{
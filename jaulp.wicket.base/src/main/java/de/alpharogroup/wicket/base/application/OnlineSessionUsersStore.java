@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application;
+
+/**
+ * The Interface OnlineSessionUsersStore is an {@link OnlineUsersStore} that saves also the session
+ * objects of the users that are online.
+ *
+ * @param <USER>
+ *            the generic type for the users object.
+ * @param <ID>
+ *            the generic type for the id the references to the user object.
+ * @param <SESSION>
+ *            the generic type for the session object.
+ */
+public interface OnlineSessionUsersStore<USER, ID, SESSION> extends OnlineUsersStore<USER, ID>
+{
+
+	/**
+	 * Adds the user online.
+	 *
+	 * @param user
+	 *            the user
+	 * @param sessionId
+	 *            the session id
+	 * @param session
+	 *            the session object
+	 * @return the session id
+	 */
+	ID addOnline(final USER user, final ID sessionId, final SESSION session);
+
+	/**
+	 * Gets the session from the given user.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the session
+	 */
+	SESSION get(final USER user);
+
+	/**
+	 * Gets the session from the given session id.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 * @return the session
+	 */
+	SESSION getSession(final ID sessionId);
+
+	/**
+	 * Replace the given old session id with the new one.
+	 *
+	 * @param user
+	 *            the user
+	 * @param oldSessionId
+	 *            the old session id
+	 * @param newSessionId
+	 *            the new session id
+	 * @param newSession
+	 *            the new session object
+	 * @return the new session id that is associated with the given user.
+	 */
+	ID replaceSessionId(final USER user, final ID oldSessionId, final ID newSessionId,
+		final SESSION newSession);
+
+}
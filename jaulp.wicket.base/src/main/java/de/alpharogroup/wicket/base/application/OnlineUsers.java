@@ -28,7 +28,7 @@ import java.util.Map;
  * @param <ID>
  *            the generic type for the id the references to the user object.
  */
-public class OnlineUsers<USER, ID> implements Serializable
+public class OnlineUsers<USER, ID> implements OnlineUsersStore<USER, ID>, Serializable
 {
 
 	/** The Constant serialVersionUID. */
@@ -49,6 +49,7 @@ public class OnlineUsers<USER, ID> implements Serializable
 	 *            the session id
 	 * @return the string
 	 */
+	@Override
 	public synchronized ID addOnline(final USER user, final ID sessionId)
 	{
 		sessionIdToUser.put(sessionId, user);
@@ -62,6 +63,7 @@ public class OnlineUsers<USER, ID> implements Serializable
 	 *            the user
 	 * @return the session id
 	 */
+	@Override
 	public ID getSessionId(final USER user)
 	{
 		return usersOnline.get(user);
@@ -72,6 +74,7 @@ public class OnlineUsers<USER, ID> implements Serializable
 	 * 
 	 * @return how many users are at this moment online.
 	 */
+	@Override
 	public int getSize()
 	{
 		return usersOnline.size();
@@ -84,6 +87,7 @@ public class OnlineUsers<USER, ID> implements Serializable
 	 *            the session id
 	 * @return the user
 	 */
+	@Override
 	public USER getUser(final ID sessionId)
 	{
 		return sessionIdToUser.get(sessionId);
@@ -96,6 +100,7 @@ public class OnlineUsers<USER, ID> implements Serializable
 	 *            the user
 	 * @return true, if the user is online
 	 */
+	@Override
 	public boolean isOnline(final USER user)
 	{
 		return usersOnline.containsKey(user);
@@ -108,6 +113,7 @@ public class OnlineUsers<USER, ID> implements Serializable
 	 *            the session id
 	 * @return the user
 	 */
+	@Override
 	public synchronized USER remove(final ID sessionId)
 	{
 		final USER user = getUser(sessionId);
@@ -128,6 +134,7 @@ public class OnlineUsers<USER, ID> implements Serializable
 	 *            the user
 	 * @return the session id
 	 */
+	@Override
 	public synchronized ID removeOnline(final USER user)
 	{
 		final ID sessionId = usersOnline.remove(user);
@@ -149,6 +156,7 @@ public class OnlineUsers<USER, ID> implements Serializable
 	 *            the new session id
 	 * @return the new session id that is associated with the given user.
 	 */
+	@Override
 	public synchronized ID replaceSessionId(final USER user, final ID oldSessionId,
 		final ID newSessionId)
 	{
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application;
+
+/**
+ * The Interface OnlineUsersStore is the service provider interface for the storage of the mapping
+ * between the users that are online and their session ids. Implementations can hold the mapping
+ * only in the local jvm like {@link OnlineUsers} and {@link ConcurrentOnlineUsers} or share it
+ * between the nodes of a cluster.
+ *
+ * @param <USER>
+ *            the generic type for the users object.
+ * @param <ID>
+ *            the generic type for the id the references to the user object.
+ */
+public interface OnlineUsersStore<USER, ID>
+{
+
+	/**
+	 * Adds the user online.
+	 *
+	 * @param user
+	 *            the user
+	 * @param sessionId
+	 *            the session id
+	 * @return the previous session id of the given user or null if the user was not online.
+	 */
+	ID addOnline(final USER user, final ID sessionId);
+
+	/**
+	 * Gets the session id.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the session id
+	 */
+	ID getSessionId(final USER user);
+
+	/**
+	 * Gets the size of the online users.
+	 *
+	 * @return how many users are at this moment online.
+	 */
+	int getSize();
+
+	/**
+	 * Gets the user over the sessionId.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 * @return the user
+	 */
+	USER getUser(final ID sessionId);
+
+	/**
+	 * Checks if the given user is online.
+	 *
+	 * @param user
+	 *            the user
+	 * @return true, if the user is online
+	 */
+	boolean isOnline(final USER user);
+
+	/**
+	 * Removes the user from the store with the session id.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 * @return the user
+	 */
+	USER remove(final ID sessionId);
+
+	/**
+	 * Removes the user from the store. This method shell be invoked when the session is unbounded
+	 * from the Application. In wicket is the best way to do that in the
+	 * {@code WebApplication#sessionUnbound(String)}.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the session id
+	 */
+	ID removeOnline(final USER user);
+
+	/**
+	 * Replace the given old session id with the new one.
+	 *
+	 * @param user
+	 *            the user
+	 * @param oldSessionId
+	 *            the old session id
+	 * @param newSessionId
+	 *            the new session id
+	 * @return the new session id that is associated with the given user.
+	 */
+	ID replaceSessionId(final USER user, final ID oldSessionId, final ID newSessionId);
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application;
+
+import java.io.Serializable;
+
+import org.apache.wicket.Session;
+import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+/**
+ * The Class TouchOnlineSessionUsersRequestCycleListener updates the last-access timestamp of the
+ * current session in the given {@link ExpiringOnlineSessionUsers} on every request.<br>
+ * <br>
+ * For instance:
+ *
+ * <pre>
+ * getRequestCycleListeners().add(new TouchOnlineSessionUsersRequestCycleListener(onlineUsers));
+ * </pre>
+ */
+public class TouchOnlineSessionUsersRequestCycleListener extends AbstractRequestCycleListener
+	implements
+		Serializable
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The online session users. */
+	private final ExpiringOnlineSessionUsers<?, String, ?> onlineSessionUsers;
+
+	/**
+	 * Instantiates a new {@link TouchOnlineSessionUsersRequestCycleListener}.
+	 *
+	 * @param onlineSessionUsers
+	 *            the online session users
+	 */
+	public TouchOnlineSessionUsersRequestCycleListener(
+		final ExpiringOnlineSessionUsers<?, String, ?> onlineSessionUsers)
+	{
+		this.onlineSessionUsers = onlineSessionUsers;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onBeginRequest(final RequestCycle cycle)
+	{
+		if (Session.exists() && !Session.get().isTemporary())
+		{
+			onlineSessionUsers.touch(Session.get().getId());
+		}
+	}
+
+}
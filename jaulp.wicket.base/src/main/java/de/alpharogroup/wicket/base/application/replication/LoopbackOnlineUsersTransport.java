@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application.replication;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The Class LoopbackOnlineUsersTransport is an in-memory {@link OnlineUsersTransport} that connects
+ * several {@link ReplicatedOnlineUsers} in the same jvm. The batches are delivered synchronously in
+ * the thread of the publisher. It is meant for tests and for a single machine setup that should
+ * behave like a cluster.
+ *
+ * @param <USER>
+ *            the generic type for the users object.
+ * @param <ID>
+ *            the generic type for the id the references to the user object.
+ */
+public class LoopbackOnlineUsersTransport<USER, ID> implements OnlineUsersTransport<USER, ID>
+{
+
+	/** The receivers of the subscribed nodes. */
+	private final Map<String, Consumer<List<PresenceDelta<USER, ID>>>> receivers = new ConcurrentHashMap<>();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void publish(final String nodeId, final List<PresenceDelta<USER, ID>> deltas)
+	{
+		final List<PresenceDelta<USER, ID>> batch = Collections.unmodifiableList(deltas);
+		for (final Map.Entry<String, Consumer<List<PresenceDelta<USER, ID>>>> entry : receivers
+			.entrySet())
+		{
+			if (!entry.getKey().equals(nodeId))
+			{
+				entry.getValue().accept(batch);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void subscribe(final String nodeId,
+		final Consumer<List<PresenceDelta<USER, ID>>> receiver)
+	{
+		receivers.put(nodeId, receiver);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void unsubscribe(final String nodeId)
+	{
+		receivers.remove(nodeId);
+	}
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application.replication;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The Interface OnlineUsersTransport delivers batches of {@link PresenceDelta}s between the nodes
+ * of a cluster. Implementations have to deliver the batches of one node in the order they were
+ * published.
+ *
+ * @param <USER>
+ *            the generic type for the users object.
+ * @param <ID>
+ *            the generic type for the id the references to the user object.
+ */
+public interface OnlineUsersTransport<USER, ID>
+{
+
+	/**
+	 * Publish the given batch of deltas from the given node to all other subscribed nodes.
+	 *
+	 * @param nodeId
+	 *            the id of the publishing node
+	 * @param deltas
+	 *            the batch of deltas
+	 */
+	void publish(final String nodeId, final List<PresenceDelta<USER, ID>> deltas);
+
+	/**
+	 * Subscribe the given node for the batches of the other nodes.
+	 *
+	 * @param nodeId
+	 *            the id of the subscribing node
+	 * @param receiver
+	 *            the receiver of the batches
+	 */
+	void subscribe(final String nodeId, final Consumer<List<PresenceDelta<USER, ID>>> receiver);
+
+	/**
+	 * Unsubscribe the given node.
+	 *
+	 * @param nodeId
+	 *            the id of the node
+	 */
+	void unsubscribe(final String nodeId);
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application.replication;
+
+import java.io.Serializable;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The Class PresenceDelta is one change of the presence of a user on a node that is replicated to
+ * the other nodes of the cluster.
+ *
+ * @param <USER>
+ *            the generic type for the users object.
+ * @param <ID>
+ *            the generic type for the id the references to the user object.
+ */
+@Getter
+@ToString
+public class PresenceDelta<USER, ID> implements Serializable
+{
+
+	/**
+	 * The enum Type of the presence delta.
+	 */
+	public enum Type
+	{
+		/** The user is online with the session id. */
+		ADD,
+		/** The user with the session id is not online anymore. */
+		REMOVE,
+		/** The sending node requests the presences of all other nodes. */
+		SYNC
+	}
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Factory method for create a new {@link PresenceDelta} of the type {@link Type#ADD}.
+	 *
+	 * @param <USER>
+	 *            the generic type for the users object.
+	 * @param <ID>
+	 *            the generic type for the id the references to the user object.
+	 * @param nodeId
+	 *            the id of the node where the user is online
+	 * @param user
+	 *            the user
+	 * @param sessionId
+	 *            the session id
+	 * @return the new {@link PresenceDelta}
+	 */
+	public static <USER, ID> PresenceDelta<USER, ID> add(final String nodeId, final USER user,
+		final ID sessionId)
+	{
+		return new PresenceDelta<>(Type.ADD, nodeId, user, sessionId);
+	}
+
+	/**
+	 * Factory method for create a new {@link PresenceDelta} of the type {@link Type#REMOVE}.
+	 *
+	 * @param <USER>
+	 *            the generic type for the users object.
+	 * @param <ID>
+	 *            the generic type for the id the references to the user object.
+	 * @param nodeId
+	 *            the id of the node where the user was online
+	 * @param user
+	 *            the user
+	 * @param sessionId
+	 *            the session id
+	 * @return the new {@link PresenceDelta}
+	 */
+	public static <USER, ID> PresenceDelta<USER, ID> remove(final String nodeId, final USER user,
+		final ID sessionId)
+	{
+		return new PresenceDelta<>(Type.REMOVE, nodeId, user, sessionId);
+	}
+
+	/**
+	 * Factory method for create a new {@link PresenceDelta} of the type {@link Type#SYNC}.
+	 *
+	 * @param <USER>
+	 *            the generic type for the users object.
+	 * @param <ID>
+	 *            the generic type for the id the references to the user object.
+	 * @param nodeId
+	 *            the id of the node that requests the presences
+	 * @return the new {@link PresenceDelta}
+	 */
+	public static <USER, ID> PresenceDelta<USER, ID> sync(final String nodeId)
+	{
+		return new PresenceDelta<>(Type.SYNC, nodeId, null, null);
+	}
+
+	/** The type of this delta. */
+	private final Type type;
+
+	/** The id of the node that created this delta. */
+	private final String nodeId;
+
+	/** The user. */
+	private final USER user;
+
+	/** The session id. */
+	private final ID sessionId;
+
+	/**
+	 * Instantiates a new {@link PresenceDelta}.
+	 *
+	 * @param type
+	 *            the type
+	 * @param nodeId
+	 *            the node id
+	 * @param user
+	 *            the user
+	 * @param sessionId
+	 *            the session id
+	 */
+	private PresenceDelta(final Type type, final String nodeId, final USER user, final ID sessionId)
+	{
+		this.type = type;
+		this.nodeId = nodeId;
+		this.user = user;
+		this.sessionId = sessionId;
+	}
+
+}
@@ -0,0 +1,384 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+import org.apache.log4j.Logger;
+
+import de.alpharogroup.wicket.base.application.ConcurrentOnlineUsers;
+import de.alpharogroup.wicket.base.application.OnlineUsersStore;
+
+/**
+ * The Class ReplicatedOnlineUsers is an {@link OnlineUsersStore} that shares the users that are
+ * online between the nodes of a cluster. Every node holds a near-cache with the presences of all
+ * nodes, so all read operations like {@link #isOnline(Object)} or {@link #getSize()} are served
+ * locally and never go over the network. The local changes are collected as {@link PresenceDelta}s
+ * and published in batches over the pluggable {@link OnlineUsersTransport}. The received deltas of
+ * the other nodes update the near-cache.<br>
+ * <br>
+ * A node has to {@link #join()} the cluster, which requests the presences of the other nodes, and
+ * should {@link #leave()} it on shutdown, which removes its own presences from the other nodes. The
+ * batches are published when the batch size is reached, on {@link #flush()} and periodically if the
+ * flusher was started with {@link #start(ScheduledExecutorService, long, TimeUnit)}.
+ *
+ * @param <USER>
+ *            the generic type for the users object.
+ * @param <ID>
+ *            the generic type for the id the references to the user object.
+ */
+public class ReplicatedOnlineUsers<USER, ID> implements OnlineUsersStore<USER, ID>
+{
+
+	/** The Constant DEFAULT_BATCH_SIZE. */
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	/** The Constant logger. */
+	private static final Logger LOGGER = Logger.getLogger(ReplicatedOnlineUsers.class.getName());
+
+	/**
+	 * The id of this node.
+	 *
+	 * @return the node id
+	 */
+	@Getter
+	private final String nodeId;
+
+	/** The transport to the other nodes. */
+	private final OnlineUsersTransport<USER, ID> transport;
+
+	/** The number of deltas that triggers a publish. */
+	private final int batchSize;
+
+	/** The near-cache with the presences of all nodes. */
+	private final ConcurrentOnlineUsers<USER, ID> nearCache = new ConcurrentOnlineUsers<>();
+
+	/** This map holds the session ids of this node and which user they reference. */
+	private final ConcurrentMap<ID, USER> localSessions = new ConcurrentHashMap<>();
+
+	/** The deltas that are not published yet. */
+	private final Queue<PresenceDelta<USER, ID>> pending = new ConcurrentLinkedQueue<>();
+
+	/** The number of the deltas that are not published yet. */
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	/** The lock that keeps the order of the published batches. */
+	private final Object publishLock = new Object();
+
+	/** The scheduled flusher if started. */
+	private ScheduledFuture<?> flusher;
+
+	/**
+	 * Instantiates a new {@link ReplicatedOnlineUsers} with the {@link #DEFAULT_BATCH_SIZE}.
+	 *
+	 * @param nodeId
+	 *            the id of this node
+	 * @param transport
+	 *            the transport to the other nodes
+	 */
+	public ReplicatedOnlineUsers(final String nodeId, final OnlineUsersTransport<USER, ID> transport)
+	{
+		this(nodeId, transport, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Instantiates a new {@link ReplicatedOnlineUsers}.
+	 *
+	 * @param nodeId
+	 *            the id of this node
+	 * @param transport
+	 *            the transport to the other nodes
+	 * @param batchSize
+	 *            the number of deltas that triggers a publish
+	 */
+	public ReplicatedOnlineUsers(final String nodeId,
+		final OnlineUsersTransport<USER, ID> transport, final int batchSize)
+	{
+		if (batchSize <= 0)
+		{
+			throw new IllegalArgumentException("The batch size has to be positive.");
+		}
+		this.nodeId = nodeId;
+		this.transport = transport;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ID addOnline(final USER user, final ID sessionId)
+	{
+		localSessions.put(sessionId, user);
+		final ID previousSessionId = nearCache.addOnline(user, sessionId);
+		if (previousSessionId != null && !previousSessionId.equals(sessionId))
+		{
+			localSessions.remove(previousSessionId, user);
+		}
+		enqueue(PresenceDelta.add(nodeId, user, sessionId), true);
+		return previousSessionId;
+	}
+
+	/**
+	 * Apply the given batch of deltas from another node to the near-cache.
+	 *
+	 * @param deltas
+	 *            the batch of deltas
+	 */
+	protected void apply(final List<PresenceDelta<USER, ID>> deltas)
+	{
+		for (final PresenceDelta<USER, ID> delta : deltas)
+		{
+			switch (delta.getType())
+			{
+				case ADD :
+					nearCache.addOnline(delta.getUser(), delta.getSessionId());
+					break;
+				case REMOVE :
+					nearCache.remove(delta.getSessionId());
+					break;
+				case SYNC :
+					// answer with the local presences, the next flush will publish them
+					for (final Map.Entry<ID, USER> entry : localSessions.entrySet())
+					{
+						enqueue(PresenceDelta.add(nodeId, entry.getValue(), entry.getKey()),
+							false);
+					}
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Enqueue the given delta for the next publish.
+	 *
+	 * @param delta
+	 *            the delta
+	 * @param publishIfFull
+	 *            flag that indicates if the batch should be published when it is full
+	 */
+	private void enqueue(final PresenceDelta<USER, ID> delta, final boolean publishIfFull)
+	{
+		pending.add(delta);
+		if (pendingCount.incrementAndGet() >= batchSize && publishIfFull)
+		{
+			flush();
+		}
+	}
+
+	/**
+	 * Publish all pending deltas as one batch.
+	 *
+	 * @return the number of the published deltas
+	 */
+	public int flush()
+	{
+		synchronized (publishLock)
+		{
+			final List<PresenceDelta<USER, ID>> batch = new ArrayList<>();
+			PresenceDelta<USER, ID> delta;
+			while ((delta = pending.poll()) != null)
+			{
+				batch.add(delta);
+			}
+			if (!batch.isEmpty())
+			{
+				pendingCount.addAndGet(-batch.size());
+				transport.publish(nodeId, batch);
+			}
+			return batch.size();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ID getSessionId(final USER user)
+	{
+		return nearCache.getSessionId(user);
+	}
+
+	/**
+	 * Gets the size of the online users of all nodes.
+	 *
+	 * @return how many users are at this moment online.
+	 */
+	@Override
+	public int getSize()
+	{
+		return nearCache.getSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public USER getUser(final ID sessionId)
+	{
+		return nearCache.getUser(sessionId);
+	}
+
+	/**
+	 * Checks if the given user is online on any node.
+	 *
+	 * @param user
+	 *            the user
+	 * @return true, if the user is online
+	 */
+	@Override
+	public boolean isOnline(final USER user)
+	{
+		return nearCache.isOnline(user);
+	}
+
+	/**
+	 * Checks if the given session id belongs to this node.
+	 *
+	 * @param sessionId
+	 *            the session id
+	 * @return true, if the session id belongs to this node
+	 */
+	public boolean isLocal(final ID sessionId)
+	{
+		return localSessions.containsKey(sessionId);
+	}
+
+	/**
+	 * Joins the cluster. The other nodes will answer with their presences.
+	 */
+	public void join()
+	{
+		transport.subscribe(nodeId, this::apply);
+		synchronized (publishLock)
+		{
+			final List<PresenceDelta<USER, ID>> batch = new ArrayList<>();
+			batch.add(PresenceDelta.<USER, ID> sync(nodeId));
+			transport.publish(nodeId, batch);
+		}
+	}
+
+	/**
+	 * Leaves the cluster. The presences of this node are removed from the other nodes.
+	 */
+	public void leave()
+	{
+		stop();
+		for (final Map.Entry<ID, USER> entry : localSessions.entrySet())
+		{
+			enqueue(PresenceDelta.remove(nodeId, entry.getValue(), entry.getKey()), false);
+		}
+		flush();
+		transport.unsubscribe(nodeId);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public USER remove(final ID sessionId)
+	{
+		final USER user = nearCache.remove(sessionId);
+		localSessions.remove(sessionId);
+		if (user != null)
+		{
+			enqueue(PresenceDelta.remove(nodeId, user, sessionId), true);
+		}
+		return user;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ID removeOnline(final USER user)
+	{
+		final ID sessionId = nearCache.removeOnline(user);
+		if (sessionId != null)
+		{
+			localSessions.remove(sessionId);
+			enqueue(PresenceDelta.remove(nodeId, user, sessionId), true);
+		}
+		return sessionId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ID replaceSessionId(final USER user, final ID oldSessionId, final ID newSessionId)
+	{
+		final ID previousSessionId = addOnline(user, newSessionId);
+		if (oldSessionId != null && !oldSessionId.equals(newSessionId))
+		{
+			remove(oldSessionId);
+		}
+		return previousSessionId;
+	}
+
+	/**
+	 * Starts the periodic publish of the pending deltas on the given executor.
+	 *
+	 * @param executor
+	 *            the executor
+	 * @param interval
+	 *            the interval between two publishes
+	 * @param unit
+	 *            the time unit of the interval
+	 */
+	public synchronized void start(final ScheduledExecutorService executor, final long interval,
+		final TimeUnit unit)
+	{
+		if (flusher == null)
+		{
+			flusher = executor.scheduleWithFixedDelay(() -> {
+				try
+				{
+					flush();
+				}
+				catch (final RuntimeException e)
+				{
+					LOGGER.error("Publish of the presence deltas failed.", e);
+				}
+			}, interval, interval, unit);
+		}
+	}
+
+	/**
+	 * Stops the periodic publish of the pending deltas.
+	 */
+	public synchronized void stop()
+	{
+		if (flusher != null)
+		{
+			flusher.cancel(false);
+			flusher = null;
+		}
+	}
+
+}
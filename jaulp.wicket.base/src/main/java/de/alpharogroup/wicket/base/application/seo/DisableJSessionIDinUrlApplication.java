@@ -68,8 +68,7 @@ public abstract class DisableJSessionIDinUrlApplication extends BaseWebApplicati
 
 			private boolean isRobot(final WebRequest request)
 			{
-				final String agent = webRequest.getHeader("User-Agent");
-				return BotAgentInspector.isAgent(agent);
+				return BotAgentInspector.isAgent(request);
 			}
 		};
 	}
@@ -33,6 +33,7 @@ import org.wicketstuff.annotation.mount.MountPath;
 
 import de.alpharogroup.lang.AnnotationUtils;
 import de.alpharogroup.wicket.base.util.url.WicketUrlExtensions;
+import de.alpharogroup.wicket.index.AnnotationIndex;
 
 /**
  * The Class AbstractSiteMapPage is the base class for subclass a SiteMapPage.
@@ -78,7 +79,8 @@ public abstract class AbstractSiteMapPage extends WebPage
 	protected abstract List<? extends Class<? extends WebPage>> getAllPageClasses();
 
 	/**
-	 * Gets the all page classes quietly.
+	 * Gets the all page classes quietly. The page classes are read from the
+	 * {@link AnnotationIndex}, the classpath is scanned only if the classpath contains no index.
 	 *
 	 * @return the all page classes quietly
 	 */
@@ -88,8 +90,12 @@ public abstract class AbstractSiteMapPage extends WebPage
 		final List<Class<? extends WebPage>> pages = new ArrayList<>();
 		try
 		{
-			final Set<Class<?>> set = AnnotationUtils.getAllAnnotatedClasses(getPackageName(),
+			Set<Class<?>> set = AnnotationIndex.getAnnotatedClasses(getPackageName(),
 				MountPath.class);
+			if (set == null)
+			{
+				set = AnnotationUtils.getAllAnnotatedClasses(getPackageName(), MountPath.class);
+			}
 			for (final Class<?> class1 : set)
 			{
 				pages.add((Class<? extends WebPage>)class1);
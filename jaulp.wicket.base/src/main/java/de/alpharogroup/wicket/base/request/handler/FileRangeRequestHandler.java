@@ -0,0 +1,397 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.request.handler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.Getter;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.request.IRequestCycle;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.resource.ContentDisposition;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.Strings;
+import org.apache.wicket.util.time.Time;
+
+import de.alpharogroup.wicket.base.util.resource.ByteRange;
+import de.alpharogroup.wicket.base.util.resource.FileResourceStreamWriter;
+
+/**
+ * The Class FileRangeRequestHandler sends the content of a {@link FileResourceStreamWriter} and
+ * supports resumable and parallel downloads. It answers
+ * <ul>
+ * <li>a request with a matching If-None-Match or If-Modified-Since header with 304 Not
+ * Modified,</li>
+ * <li>a request with a Range header with 206 Partial Content, a single range is sent as is and
+ * several ranges are sent as multipart/byteranges,</li>
+ * <li>a request with a Range header that can not be satisfied with 416,</li>
+ * <li>all other requests with the whole content.</li>
+ * </ul>
+ * A Range header is ignored if the If-Range header does not match the current ETag or last
+ * modified time. The ETag is computed from the length and the last modified time of the file.
+ * Every request opens its own file channel and the ranges are read with positional reads, so
+ * concurrent range requests on the same file do not serialize.
+ */
+public class FileRangeRequestHandler implements IRequestHandler
+{
+
+	/** The Constant CRLF. */
+	private static final String CRLF = "\r\n";
+
+	/** The Constant DEFAULT_CONTENT_TYPE. */
+	private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+	/**
+	 * Creates the ETag for the given file from its length and its last modified time.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the ETag
+	 */
+	public static String newEntityTag(final File file)
+	{
+		return "\"" + Long.toHexString(file.length()) + "-"
+			+ Long.toHexString(file.lastModified()) + "\"";
+	}
+
+	/**
+	 * Checks if the given value of an If-None-Match header matches the given ETag.
+	 *
+	 * @param ifNoneMatch
+	 *            the value of the If-None-Match header
+	 * @param entityTag
+	 *            the ETag
+	 * @return true, if the ETag matches
+	 */
+	static boolean matches(final String ifNoneMatch, final String entityTag)
+	{
+		for (final String candidate : Strings.split(ifNoneMatch, ','))
+		{
+			final String value = candidate.trim();
+			// the weak comparison is used for If-None-Match
+			if ("*".equals(value) || entityTag.equals(value.startsWith("W/")
+				? value.substring(2)
+				: value))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The resource stream writer.
+	 */
+	@Getter
+	private final FileResourceStreamWriter resourceStreamWriter;
+
+	/**
+	 * The file name.
+	 */
+	@Getter
+	private final String fileName;
+
+	/**
+	 * The content disposition.
+	 */
+	@Getter
+	private final ContentDisposition contentDisposition;
+
+	/**
+	 * The flag if the client has to revalidate the content with the ETag on every request.
+	 */
+	@Getter
+	private final boolean revalidate;
+
+	/**
+	 * Instantiates a new {@link FileRangeRequestHandler}.
+	 *
+	 * @param resourceStreamWriter
+	 *            the resource stream writer
+	 * @param fileName
+	 *            the file name
+	 * @param contentDisposition
+	 *            the content disposition
+	 * @param revalidate
+	 *            the flag if the client has to revalidate the content with the ETag on every
+	 *            request
+	 */
+	public FileRangeRequestHandler(final FileResourceStreamWriter resourceStreamWriter,
+		final String fileName, final ContentDisposition contentDisposition, final boolean revalidate)
+	{
+		this.resourceStreamWriter = Args.notNull(resourceStreamWriter, "resourceStreamWriter");
+		this.fileName = fileName;
+		this.contentDisposition = Args.notNull(contentDisposition, "contentDisposition");
+		this.revalidate = revalidate;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void detach(final IRequestCycle requestCycle)
+	{
+	}
+
+	/**
+	 * Gets the content type of the file.
+	 *
+	 * @return the content type
+	 */
+	private String getContentType()
+	{
+		final String contentType = resourceStreamWriter.getContentType();
+		return contentType != null ? contentType : DEFAULT_CONTENT_TYPE;
+	}
+
+	/**
+	 * Checks if the Range header of the given request can be used. This is the case if no If-Range
+	 * header is given or if it matches the current ETag or last modified time.
+	 *
+	 * @param request
+	 *            the request
+	 * @param entityTag
+	 *            the ETag
+	 * @param lastModified
+	 *            the last modified time
+	 * @return true, if the Range header can be used
+	 */
+	private boolean isRangeApplicable(final WebRequest request, final String entityTag,
+		final Time lastModified)
+	{
+		final String ifRange = request.getHeader("If-Range");
+		if (ifRange == null)
+		{
+			return true;
+		}
+		final String value = ifRange.trim();
+		if (value.startsWith("\"") || value.startsWith("W/"))
+		{
+			// the strong comparison is used for If-Range
+			return entityTag.equals(value);
+		}
+		try
+		{
+			final Time date = request.getDateHeader("If-Range");
+			return date != null
+				&& lastModified.getMilliseconds() / 1000 == date.getMilliseconds() / 1000;
+		}
+		catch (final RuntimeException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Checks if the client has the current content already, this is answered from the
+	 * If-None-Match header or if absent from the If-Modified-Since header.
+	 *
+	 * @param request
+	 *            the request
+	 * @param entityTag
+	 *            the ETag
+	 * @param lastModified
+	 *            the last modified time
+	 * @return true, if the content was not modified
+	 */
+	private boolean isNotModified(final WebRequest request, final String entityTag,
+		final Time lastModified)
+	{
+		final String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null)
+		{
+			return matches(ifNoneMatch, entityTag);
+		}
+		final Time ifModifiedSince = request.getIfModifiedSinceHeader();
+		return ifModifiedSince != null
+			&& lastModified.getMilliseconds() / 1000 <= ifModifiedSince.getMilliseconds() / 1000;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void respond(final IRequestCycle requestCycle)
+	{
+		final WebRequest request = (WebRequest)requestCycle.getRequest();
+		final WebResponse response = (WebResponse)requestCycle.getResponse();
+		final File file = resourceStreamWriter.getFile();
+		if (!file.isFile())
+		{
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, null);
+			return;
+		}
+		final long length = file.length();
+		final Time lastModified = Time.millis(file.lastModified());
+		final String entityTag = newEntityTag(file);
+
+		response.setHeader("Accept-Ranges", ByteRange.BYTES_UNIT);
+		response.setHeader("ETag", entityTag);
+		response.setLastModifiedTime(lastModified);
+		response.setHeader("Cache-Control", revalidate ? "private, no-cache" : "private");
+
+		if (isNotModified(request, entityTag, lastModified))
+		{
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		List<ByteRange> ranges = null;
+		if (isRangeApplicable(request, entityTag, lastModified))
+		{
+			ranges = ByteRange.parse(request.getHeader("Range"), length);
+		}
+		if (ranges != null && ranges.isEmpty())
+		{
+			response.setHeader("Content-Range", ByteRange.BYTES_UNIT + " */" + length);
+			response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, null);
+			return;
+		}
+
+		setContentDisposition(response);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			if (ranges == null)
+			{
+				response.setContentType(getContentType());
+				response.setContentLength(length);
+				write(channel, 0, length, response.getOutputStream());
+			}
+			else if (ranges.size() == 1)
+			{
+				final ByteRange range = ranges.get(0);
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setContentType(getContentType());
+				response.setHeader("Content-Range", range.toContentRange(length));
+				response.setContentLength(range.getLength());
+				write(channel, range.getFirst(), range.getLength(), response.getOutputStream());
+			}
+			else
+			{
+				respondMultipart(response, channel, ranges, length);
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new WicketRuntimeException("Unable to write the file " + file.getName(), e);
+		}
+	}
+
+	/**
+	 * Sends the given ranges of the given channel as multipart/byteranges.
+	 *
+	 * @param response
+	 *            the response
+	 * @param channel
+	 *            the file channel
+	 * @param ranges
+	 *            the ranges
+	 * @param length
+	 *            the length of the file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void respondMultipart(final WebResponse response, final FileChannel channel,
+		final List<ByteRange> ranges, final long length) throws IOException
+	{
+		final String boundary = "BYTERANGES"
+			+ Long.toHexString(ThreadLocalRandom.current().nextLong());
+		final String contentType = getContentType();
+		final List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+		long contentLength = 0;
+		for (final ByteRange range : ranges)
+		{
+			final byte[] partHeader = (CRLF + "--" + boundary + CRLF + "Content-Type: "
+				+ contentType + CRLF + "Content-Range: " + range.toContentRange(length) + CRLF + CRLF)
+				.getBytes(StandardCharsets.ISO_8859_1);
+			partHeaders.add(partHeader);
+			contentLength += partHeader.length + range.getLength();
+		}
+		final byte[] trailer = (CRLF + "--" + boundary + "--" + CRLF)
+			.getBytes(StandardCharsets.ISO_8859_1);
+		contentLength += trailer.length;
+
+		response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		response.setContentType("multipart/byteranges; boundary=" + boundary);
+		response.setContentLength(contentLength);
+		final OutputStream output = response.getOutputStream();
+		for (int i = 0; i < ranges.size(); i++)
+		{
+			final ByteRange range = ranges.get(i);
+			output.write(partHeaders.get(i));
+			resourceStreamWriter.write(channel, range.getFirst(), range.getLength(), output);
+		}
+		output.write(trailer);
+		output.flush();
+	}
+
+	/**
+	 * Sets the Content-Disposition header if a file name is given.
+	 *
+	 * @param response
+	 *            the response
+	 */
+	private void setContentDisposition(final WebResponse response)
+	{
+		if (Strings.isEmpty(fileName))
+		{
+			return;
+		}
+		if (contentDisposition == ContentDisposition.ATTACHMENT)
+		{
+			response.setAttachmentHeader(fileName);
+		}
+		else
+		{
+			response.setInlineHeader(fileName);
+		}
+	}
+
+	/**
+	 * Writes the given range of the given channel to the given output stream.
+	 *
+	 * @param channel
+	 *            the file channel
+	 * @param position
+	 *            the position of the first byte
+	 * @param count
+	 *            the number of bytes
+	 * @param output
+	 *            the output
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void write(final FileChannel channel, final long position, final long count,
+		final OutputStream output) throws IOException
+	{
+		resourceStreamWriter.write(channel, position, count, output);
+		output.flush();
+	}
+
+}
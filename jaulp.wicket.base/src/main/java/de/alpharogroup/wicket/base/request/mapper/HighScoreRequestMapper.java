@@ -15,13 +15,18 @@
  */
 package de.alpharogroup.wicket.base.request.mapper;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import lombok.Getter;
+import lombok.Setter;
+
 import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.IRequestMapper;
 import org.apache.wicket.request.Request;
@@ -31,7 +36,17 @@ import org.apache.wicket.util.lang.Args;
 
 /**
  * Compound {@link IRequestMapper} with request mappers, orders by the compatibility score they were
- * added.
+ * added. Mappers with an equal compatibility score are kept in the order they were registered.<br>
+ * <br>
+ * The resolved order is cached per url path, so repeated urls are not scored again. The cache is
+ * invalidated when a mapper is registered or unregistered. The key is the whole url path and not a
+ * prefix of it, because the compatibility score of a mapper like the MountedMapper depends on
+ * every segment of the url, on the placeholder and optional segments and on the number of the
+ * segments, so the compound mapper can not know how many segments a mapper looked at. Urls with
+ * parameters in the path, for instance <code>/product/123</code>, are therefore cached once per
+ * value. If the cache exceeds {@link #getMaxCacheSize()}, about a quarter of the cached url paths
+ * are evicted. If a registered mapper computes its compatibility score from more than the url path
+ * of the request, the cache has to be disabled with {@link #setCacheEnabled(boolean)}.
  * 
  * For instance:
  * 
@@ -54,17 +69,92 @@ import org.apache.wicket.util.lang.Args;
 public class HighScoreRequestMapper extends CompoundRequestMapper
 {
 
+	/**
+	 * The Class Resolution holds the ordered request mappers and the highest compatibility score
+	 * for one url path.
+	 */
+	private static final class Resolution
+	{
+
+		/** The request mappers in the order they will be asked. */
+		private final IRequestMapper[] mappers;
+
+		/** The highest compatibility score. */
+		private final int score;
+
+		/**
+		 * Instantiates a new {@link Resolution}.
+		 *
+		 * @param mappers
+		 *            the ordered request mappers
+		 * @param score
+		 *            the highest compatibility score
+		 */
+		private Resolution(final IRequestMapper[] mappers, final int score)
+		{
+			this.mappers = mappers;
+			this.score = score;
+		}
+	}
+
+	/**
+	 * The Class Snapshot holds the registered request mappers and the cache of the resolutions
+	 * that belongs to them.
+	 */
+	private static final class Snapshot
+	{
+
+		/** The registered request mappers. */
+		private final IRequestMapper[] mappers;
+
+		/** The cached resolutions by the url path segments. */
+		private final ConcurrentMap<List<String>, Resolution> resolutions = new ConcurrentHashMap<>();
+
+		/**
+		 * Instantiates a new {@link Snapshot}.
+		 *
+		 * @param mappers
+		 *            the registered request mappers
+		 */
+		private Snapshot(final IRequestMapper[] mappers)
+		{
+			this.mappers = mappers;
+		}
+	}
+
+	/** The Constant DEFAULT_MAX_CACHE_SIZE. */
+	public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
 	/** The request mappers. */
 	private List<IRequestMapper> requestMappers = new CopyOnWriteArrayList<>();
 
 	/** The comparator. */
 	private Comparator<RequestMapperBean> comparator;
 
+	/** The current snapshot of the registered request mappers. */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * The flag that indicates if the resolved order is cached per url path.
+	 */
+	@Getter
+	@Setter
+	private volatile boolean cacheEnabled = true;
+
+	/**
+	 * The maximum number of cached url paths. If it is exceeded about a quarter of the cached url
+	 * paths are evicted.
+	 */
+	@Getter
+	@Setter
+	private volatile int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
 	/**
 	 * Instantiates a new {@link HighScoreRequestMapper}.
 	 */
 	public HighScoreRequestMapper()
 	{
+		invalidate();
 	}
 
 	/**
@@ -76,6 +166,27 @@ public class HighScoreRequestMapper extends CompoundRequestMapper
 	public HighScoreRequestMapper(final List<IRequestMapper> requestMappers)
 	{
 		this.requestMappers = Args.notNull(requestMappers, "requestMappers");
+		invalidate();
+	}
+
+	/**
+	 * Evicts about a quarter of the given cached resolutions. The iteration order of the
+	 * {@link ConcurrentHashMap} is not related to the access order, so the evicted url paths are a
+	 * sample of the cache and the lookups stay free of locks. A hot url path that is evicted is
+	 * scored and cached again on its next request.
+	 *
+	 * @param resolutions
+	 *            the cached resolutions
+	 */
+	private void evict(final ConcurrentMap<List<String>, Resolution> resolutions)
+	{
+		int count = Math.max(1, getMaxCacheSize() / 4);
+		final Iterator<List<String>> iterator = resolutions.keySet().iterator();
+		while (iterator.hasNext() && count-- > 0)
+		{
+			iterator.next();
+			iterator.remove();
+		}
 	}
 
 	/**
@@ -98,30 +209,16 @@ public class HighScoreRequestMapper extends CompoundRequestMapper
 	@Override
 	public int getCompatibilityScore(final Request request)
 	{
-		int score = Integer.MIN_VALUE;
-		for (final IRequestMapper requestMapper : this.requestMappers)
-		{
-			score = Math.max(score, requestMapper.getCompatibilityScore(request));
-		}
-		return score;
+		return resolve(request).score;
 	}
 
 	/**
-	 * Initialize request mappers.
-	 *
-	 * @param request
-	 *            the request
-	 * @return the collection
+	 * Takes a new snapshot of the registered request mappers, which invalidates the cached
+	 * resolutions.
 	 */
-	private Collection<RequestMapperBean> initializeRequestMappers(final Request request)
+	private void invalidate()
 	{
-		final Set<RequestMapperBean> mapperBeans = new TreeSet<>(getComparator());
-		for (final IRequestMapper requestMapper : this.requestMappers)
-		{
-			mapperBeans.add(new RequestMapperBean(requestMapper, requestMapper
-				.getCompatibilityScore(request)));
-		}
-		return mapperBeans;
+		this.snapshot = new Snapshot(this.requestMappers.toArray(new IRequestMapper[0]));
 	}
 
 	/**
@@ -147,9 +244,9 @@ public class HighScoreRequestMapper extends CompoundRequestMapper
 	@Override
 	public IRequestHandler mapRequest(final Request request)
 	{
-		for (final RequestMapperBean mapperBean : initializeRequestMappers(request))
+		for (final IRequestMapper requestMapper : resolve(request).mappers)
 		{
-			final IRequestHandler handler = mapperBean.getMapper().mapRequest(request);
+			final IRequestHandler handler = requestMapper.mapRequest(request);
 			if (handler != null)
 			{
 				return handler;
@@ -160,8 +257,9 @@ public class HighScoreRequestMapper extends CompoundRequestMapper
 
 	/**
 	 * Factory method for creating a new Comparator for sort the compatibility score. This method is
-	 * invoked in the method initializeRequestMappers and can be overridden so users can provide
-	 * their own version of a Comparator.
+	 * invoked when the request mappers are scored and can be overridden so users can provide their
+	 * own version of a Comparator. The sort is stable, so mappers that are equal for the comparator
+	 * keep their registration order.
 	 *
 	 * @return the new Comparator.
 	 */
@@ -172,7 +270,7 @@ public class HighScoreRequestMapper extends CompoundRequestMapper
 			@Override
 			public int compare(final RequestMapperBean o1, final RequestMapperBean o2)
 			{
-				return o1.getCompatibilityScore() - o2.getCompatibilityScore();
+				return Integer.compare(o1.getCompatibilityScore(), o2.getCompatibilityScore());
 			}
 		};
 	}
@@ -184,12 +282,72 @@ public class HighScoreRequestMapper extends CompoundRequestMapper
 	 *            the encoder
 	 * @return the high score request mapper
 	 */
-	public HighScoreRequestMapper register(final IRequestMapper encoder)
+	public synchronized HighScoreRequestMapper register(final IRequestMapper encoder)
 	{
 		this.requestMappers.add(0, encoder);
+		invalidate();
 		return this;
 	}
 
+	/**
+	 * Resolves the order of the request mappers for the given request. Every request mapper is
+	 * scored once and the result is cached for the url path of the request if the cache is
+	 * enabled.
+	 *
+	 * @param request
+	 *            the request
+	 * @return the resolution
+	 */
+	private Resolution resolve(final Request request)
+	{
+		final Snapshot current = this.snapshot;
+		if (!isCacheEnabled())
+		{
+			return score(current.mappers, request);
+		}
+		final List<String> segments = request.getUrl().getSegments();
+		Resolution resolution = current.resolutions.get(segments);
+		if (resolution == null)
+		{
+			resolution = score(current.mappers, request);
+			if (current.resolutions.size() >= getMaxCacheSize())
+			{
+				evict(current.resolutions);
+			}
+			current.resolutions.put(new ArrayList<>(segments), resolution);
+		}
+		return resolution;
+	}
+
+	/**
+	 * Scores the given request mappers once and sorts them stable with the comparator, so mappers
+	 * with an equal compatibility score keep their registration order.
+	 *
+	 * @param mappers
+	 *            the request mappers
+	 * @param request
+	 *            the request
+	 * @return the resolution
+	 */
+	private Resolution score(final IRequestMapper[] mappers, final Request request)
+	{
+		final RequestMapperBean[] mapperBeans = new RequestMapperBean[mappers.length];
+		int score = Integer.MIN_VALUE;
+		for (int i = 0; i < mappers.length; i++)
+		{
+			final int compatibilityScore = mappers[i].getCompatibilityScore(request);
+			score = Math.max(score, compatibilityScore);
+			mapperBeans[i] = new RequestMapperBean(mappers[i], compatibilityScore);
+		}
+		Arrays.sort(mapperBeans, getComparator());
+		final IRequestMapper[] ordered = new IRequestMapper[mappers.length];
+		for (int i = 0; i < mapperBeans.length; i++)
+		{
+			ordered[i] = mapperBeans[i].getMapper();
+		}
+		return new Resolution(ordered, score);
+	}
+
 	/**
 	 * Unregister.
 	 *
@@ -197,9 +355,10 @@ public class HighScoreRequestMapper extends CompoundRequestMapper
 	 *            the encoder
 	 * @return the high score request mapper
 	 */
-	public HighScoreRequestMapper unregister(final IRequestMapper encoder)
+	public synchronized HighScoreRequestMapper unregister(final IRequestMapper encoder)
 	{
 		this.requestMappers.remove(encoder);
+		invalidate();
 		return this;
 	}
 
@@ -0,0 +1,446 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.request.mapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.mapper.CompoundRequestMapper;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.Strings;
+
+/**
+ * Compound {@link IRequestMapper} that indexes the mounted request mappers by the segments of their
+ * mount path in a prefix trie. For a request only the mappers are scored whose mount path can match
+ * the url, which are found in O(path depth) over the literal segments and the placeholder
+ * (<code>${name}</code>) or optional placeholder (<code>#{name}</code>) segments. The mappers that
+ * are added without a mount path, like the previous root request mapper, are always asked.<br>
+ * <br>
+ * The candidates are asked in the order of their compatibility score like the
+ * {@link CompoundRequestMapper} does, mounted mappers with an equal score in the order they were
+ * mounted and the mappers without a mount path after them.
+ * 
+ * For instance:
+ * 
+ * <pre>
+ * public void init()
+ * {
+ * 	...
+ * 	ApplicationExtensions.setTrieRootRequestMapper(this);
+ * 	// now BaseWebApplication#mountPage mounts into the trie...
+ * 	mountPage(&quot;/products/${id}&quot;, ProductPage.class, new PageParametersEncoder());
+ * 	// install the https mapper after the trie so it wraps the trie
+ * 	ApplicationExtensions.setRootRequestMapper(this, httpPort, httpsPort);
+ * 	...
+ * }
+ * </pre>
+ */
+public class TrieRequestMapper extends CompoundRequestMapper
+{
+
+	/**
+	 * The Class Node is one segment of the prefix trie.
+	 */
+	private static final class Node
+	{
+
+		/** The child nodes of the literal segments. */
+		private final Map<String, Node> literals = new ConcurrentHashMap<>();
+
+		/** The child node of a placeholder segment. */
+		private volatile Node placeholder;
+
+		/** The child node of an optional placeholder segment. */
+		private volatile Node optionalPlaceholder;
+
+		/** The request mappers that are mounted on the path of this node. */
+		private final List<IRequestMapper> mappers = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * The Class Candidate holds a request mapper and its compatibility score for one request.
+	 */
+	private static final class Candidate
+	{
+
+		/**
+		 * The Constant COMPARATOR orders the candidates by the higher score first and the
+		 * candidates with an equal score by the mount order.
+		 */
+		private static final Comparator<Candidate> COMPARATOR = new Comparator<Candidate>()
+		{
+			@Override
+			public int compare(final Candidate o1, final Candidate o2)
+			{
+				final int result = Integer.compare(o2.score, o1.score);
+				return result != 0 ? result : Long.compare(o1.order, o2.order);
+			}
+		};
+
+		/** The request mapper. */
+		private final IRequestMapper mapper;
+
+		/** The compatibility score. */
+		private final int score;
+
+		/** The mount order of the request mapper. */
+		private final long order;
+
+		/**
+		 * Instantiates a new {@link Candidate}.
+		 *
+		 * @param mapper
+		 *            the request mapper
+		 * @param score
+		 *            the compatibility score
+		 * @param order
+		 *            the mount order of the request mapper
+		 */
+		private Candidate(final IRequestMapper mapper, final int score, final long order)
+		{
+			this.mapper = mapper;
+			this.score = score;
+			this.order = order;
+		}
+	}
+
+	/** The Constant KEY for the {@link TrieRequestMapper} of an application. */
+	public static final MetaDataKey<TrieRequestMapper> KEY = new MetaDataKey<TrieRequestMapper>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * Checks if the given segment is a placeholder.
+	 *
+	 * @param segment
+	 *            the segment
+	 * @return true, if the given segment is a placeholder
+	 */
+	private static boolean isPlaceholder(final String segment)
+	{
+		return segment.startsWith("${") && segment.endsWith("}");
+	}
+
+	/**
+	 * Checks if the given segment is an optional placeholder.
+	 *
+	 * @param segment
+	 *            the segment
+	 * @return true, if the given segment is an optional placeholder
+	 */
+	private static boolean isOptionalPlaceholder(final String segment)
+	{
+		return segment.startsWith("#{") && segment.endsWith("}");
+	}
+
+	/**
+	 * Splits the given mount path into its segments.
+	 *
+	 * @param path
+	 *            the mount path
+	 * @return the segments
+	 */
+	private static List<String> toSegments(final String path)
+	{
+		final List<String> segments = new ArrayList<>();
+		for (final String segment : Strings.split(path, '/'))
+		{
+			if (!segment.isEmpty())
+			{
+				segments.add(segment);
+			}
+		}
+		return segments;
+	}
+
+	/** The root node of the trie. */
+	private final Node root = new Node();
+
+	/** The mounted request mappers in the order they were mounted. */
+	private final List<IRequestMapper> mounted = new CopyOnWriteArrayList<>();
+
+	/** The mount order of the mounted request mappers. */
+	private final Map<IRequestMapper, Long> mountOrder = new ConcurrentHashMap<>();
+
+	/** The sequence of the mount order. */
+	private final AtomicLong mountSequence = new AtomicLong();
+
+	/**
+	 * Instantiates a new {@link TrieRequestMapper}.
+	 */
+	public TrieRequestMapper()
+	{
+	}
+
+	/**
+	 * Instantiates a new {@link TrieRequestMapper} that asks the given request mapper for every
+	 * request. Typically this is the previous root request mapper of the application.
+	 *
+	 * @param delegate
+	 *            the request mapper that is asked for every request
+	 */
+	public TrieRequestMapper(final IRequestMapper delegate)
+	{
+		add(Args.notNull(delegate, "delegate"));
+	}
+
+	/**
+	 * Adds the candidates of the mappers of the given node and of the nodes that can match the
+	 * remaining segments.
+	 *
+	 * @param node
+	 *            the node
+	 * @param segments
+	 *            the segments of the url
+	 * @param index
+	 *            the index of the next segment
+	 * @param request
+	 *            the request
+	 * @param candidates
+	 *            the candidates
+	 */
+	private void collect(final Node node, final List<String> segments, final int index,
+		final Request request, final List<Candidate> candidates)
+	{
+		for (final IRequestMapper mapper : node.mappers)
+		{
+			addCandidate(mapper, request, candidates);
+		}
+		if (index < segments.size())
+		{
+			final Node literal = node.literals.get(segments.get(index));
+			if (literal != null)
+			{
+				collect(literal, segments, index + 1, request, candidates);
+			}
+			final Node placeholder = node.placeholder;
+			if (placeholder != null)
+			{
+				collect(placeholder, segments, index + 1, request, candidates);
+			}
+		}
+		final Node optionalPlaceholder = node.optionalPlaceholder;
+		if (optionalPlaceholder != null)
+		{
+			collect(optionalPlaceholder, segments, index, request, candidates);
+			if (index < segments.size())
+			{
+				collect(optionalPlaceholder, segments, index + 1, request, candidates);
+			}
+		}
+	}
+
+	/**
+	 * Adds the given mapper with its compatibility score to the candidates if it is not already
+	 * contained.
+	 *
+	 * @param mapper
+	 *            the mapper
+	 * @param request
+	 *            the request
+	 * @param candidates
+	 *            the candidates
+	 */
+	private void addCandidate(final IRequestMapper mapper, final Request request,
+		final List<Candidate> candidates)
+	{
+		for (final Candidate candidate : candidates)
+		{
+			if (candidate.mapper == mapper)
+			{
+				return;
+			}
+		}
+		final Long order = mountOrder.get(mapper);
+		candidates.add(new Candidate(mapper, mapper.getCompatibilityScore(request),
+			order != null ? order : Long.MAX_VALUE));
+	}
+
+	/**
+	 * Finds the candidates for the given request sorted by the higher score first.
+	 *
+	 * @param request
+	 *            the request
+	 * @return the candidates
+	 */
+	private List<Candidate> findCandidates(final Request request)
+	{
+		final List<Candidate> candidates = new ArrayList<>();
+		collect(root, request.getUrl().getSegments(), 0, request, candidates);
+		for (final IRequestMapper mapper : this)
+		{
+			addCandidate(mapper, request, candidates);
+		}
+		Collections.sort(candidates, Candidate.COMPARATOR);
+		return candidates;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getCompatibilityScore(final Request request)
+	{
+		int score = Integer.MIN_VALUE;
+		for (final Candidate candidate : findCandidates(request))
+		{
+			score = Math.max(score, candidate.score);
+		}
+		return score;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Url mapHandler(final IRequestHandler handler)
+	{
+		for (int i = mounted.size() - 1; i >= 0; i--)
+		{
+			final Url url = mounted.get(i).mapHandler(handler);
+			if (url != null)
+			{
+				return url;
+			}
+		}
+		return super.mapHandler(handler);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IRequestHandler mapRequest(final Request request)
+	{
+		for (final Candidate candidate : findCandidates(request))
+		{
+			final IRequestHandler handler = candidate.mapper.mapRequest(request);
+			if (handler != null)
+			{
+				return handler;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Mounts the given request mapper on the given mount path. The mount path has to be the same
+	 * path the request mapper was created with.
+	 *
+	 * @param path
+	 *            the mount path
+	 * @param mapper
+	 *            the request mapper
+	 * @return this {@link TrieRequestMapper}
+	 */
+	public synchronized TrieRequestMapper mount(final String path, final IRequestMapper mapper)
+	{
+		Args.notNull(path, "path");
+		Args.notNull(mapper, "mapper");
+		Node node = root;
+		for (final String segment : toSegments(path))
+		{
+			if (isPlaceholder(segment))
+			{
+				if (node.placeholder == null)
+				{
+					node.placeholder = new Node();
+				}
+				node = node.placeholder;
+			}
+			else if (isOptionalPlaceholder(segment))
+			{
+				if (node.optionalPlaceholder == null)
+				{
+					node.optionalPlaceholder = new Node();
+				}
+				node = node.optionalPlaceholder;
+			}
+			else
+			{
+				Node child = node.literals.get(segment);
+				if (child == null)
+				{
+					child = new Node();
+					node.literals.put(segment, child);
+				}
+				node = child;
+			}
+		}
+		node.mappers.add(mapper);
+		mounted.add(mapper);
+		if (!mountOrder.containsKey(mapper))
+		{
+			mountOrder.put(mapper, mountSequence.getAndIncrement());
+		}
+		return this;
+	}
+
+	/**
+	 * Unmounts the given request mapper from all mount paths it was mounted on.
+	 *
+	 * @param mapper
+	 *            the request mapper
+	 * @return this {@link TrieRequestMapper}
+	 */
+	public synchronized TrieRequestMapper unmount(final IRequestMapper mapper)
+	{
+		if (mounted.removeAll(Collections.singleton(mapper)))
+		{
+			mountOrder.remove(mapper);
+			unmount(root, mapper);
+		}
+		return this;
+	}
+
+	/**
+	 * Removes the given request mapper from the given node and its child nodes.
+	 *
+	 * @param node
+	 *            the node
+	 * @param mapper
+	 *            the request mapper
+	 */
+	private void unmount(final Node node, final IRequestMapper mapper)
+	{
+		node.mappers.remove(mapper);
+		for (final Node child : node.literals.values())
+		{
+			unmount(child, mapper);
+		}
+		if (node.placeholder != null)
+		{
+			unmount(node.placeholder, mapper);
+		}
+		if (node.optionalPlaceholder != null)
+		{
+			unmount(node.optionalPlaceholder, mapper);
+		}
+	}
+
+}
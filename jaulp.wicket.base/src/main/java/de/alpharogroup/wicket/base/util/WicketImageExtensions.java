@@ -20,6 +20,8 @@ import org.apache.wicket.markup.html.image.Image;
 import org.apache.wicket.markup.html.image.NonCachingImage;
 
 import de.alpharogroup.wicket.base.util.resource.DatabaseImageResource;
+import de.alpharogroup.wicket.base.util.resource.OffHeapContentStore;
+import de.alpharogroup.wicket.base.util.resource.OffHeapImageResource;
 
 /**
  * The Class WicketImageExtensions is helper class for create wicket Image objects.
@@ -62,6 +64,67 @@ public class WicketImageExtensions
 	}
 
 
+	/**
+	 * Gets an image that keeps the given data in the shared {@link OffHeapContentStore}. Identical
+	 * images are stored only once and the page holds only the key of the image.
+	 * 
+	 * @param wicketId
+	 *            the id from the image for the html template.
+	 * @param contentType
+	 *            the content type
+	 * @param data
+	 *            the data
+	 * @return the image
+	 */
+	public static Image getOffHeapImage(final String wicketId, final String contentType,
+		final byte[] data)
+	{
+		return new Image(wicketId, new OffHeapImageResource(contentType, data));
+	}
+
+
+	/**
+	 * Gets an image that keeps the given data in the shared {@link OffHeapContentStore}. If the
+	 * image was evicted from the store, it is loaded again with the given loader, so urls of pages
+	 * that are already rendered stay valid.
+	 * 
+	 * @param wicketId
+	 *            the id from the image for the html template.
+	 * @param contentType
+	 *            the content type
+	 * @param data
+	 *            the data
+	 * @param imageLoader
+	 *            the loader of the image if it is missing in the store
+	 * @return the image
+	 */
+	public static Image getOffHeapImage(final String wicketId, final String contentType,
+		final byte[] data, final OffHeapImageResource.ImageLoader imageLoader)
+	{
+		return new Image(wicketId, new OffHeapImageResource(contentType, data, imageLoader));
+	}
+
+
+	/**
+	 * Gets an image that keeps the given data in the shared {@link OffHeapContentStore}. The data is
+	 * only converted to a byte array if the image is not stored yet.
+	 * 
+	 * @param wicketId
+	 *            the id from the image for the html template.
+	 * @param contentType
+	 *            the content type
+	 * @param data
+	 *            the data
+	 * @return the image
+	 */
+	public static Image getOffHeapImage(final String wicketId, final String contentType,
+		final Byte[] data)
+	{
+		final String key = OffHeapContentStore.getInstance().put(data);
+		return new Image(wicketId, new OffHeapImageResource(contentType, key));
+	}
+
+
 	/**
 	 * Gets a non caching image from the given wicketId, contentType and the byte array data.
 	 * 
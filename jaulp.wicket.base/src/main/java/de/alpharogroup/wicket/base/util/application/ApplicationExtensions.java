@@ -41,12 +41,10 @@ import org.apache.wicket.request.resource.UrlResourceReference;
 import org.apache.wicket.settings.IExceptionSettings;
 import org.apache.wicket.settings.IResourceSettings;
 import org.apache.wicket.spring.injection.annot.SpringComponentInjector;
-import org.apache.wicket.util.file.File;
-import org.apache.wicket.util.file.Files;
-import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.time.Duration;
 
-import de.alpharogroup.wicket.base.util.resource.ByteArrayResourceStreamWriter;
+import de.alpharogroup.wicket.base.request.mapper.TrieRequestMapper;
+import de.alpharogroup.wicket.base.util.resource.FileResourceStreamWriter;
 
 /**
  * The Class ApplicationExtensions.
@@ -185,7 +183,8 @@ public final class ApplicationExtensions
 	}
 
 	/**
-	 * Gets the resource stream from the given parameters.
+	 * Gets the resource stream from the given parameters. The returned resource stream streams the
+	 * file content and does not load it into the heap.
 	 *
 	 * @param file
 	 *            the file
@@ -195,30 +194,15 @@ public final class ApplicationExtensions
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public static IResourceStream getResourceStream(final java.io.File file,
+	public static FileResourceStreamWriter getResourceStream(final java.io.File file,
 		final String contentType) throws IOException
 	{
-		return new ByteArrayResourceStreamWriter()
-		{
-			private static final long serialVersionUID = 1L;
-
-			@Override
-			public String getContentType()
-			{
-				return contentType;
-			}
-
-			@Override
-			protected byte[] load() throws IOException
-			{
-				final byte[] data = Files.readBytes(file);
-				return data;
-			}
-		};
+		return new FileResourceStreamWriter(file, contentType);
 	}
 
 	/**
-	 * Gets the resource stream from the given parameters.
+	 * Gets the resource stream from the given parameters. The returned resource stream streams the
+	 * file content and does not load it into the heap.
 	 *
 	 * @param application
 	 *            the application
@@ -230,28 +214,11 @@ public final class ApplicationExtensions
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public static IResourceStream getResourceStream(final WebApplication application,
+	public static FileResourceStreamWriter getResourceStream(final WebApplication application,
 		final String path, final String contentType) throws IOException
 	{
-		return new ByteArrayResourceStreamWriter()
-		{
-			private static final long serialVersionUID = 1L;
-
-			@Override
-			public String getContentType()
-			{
-				return contentType;
-			}
-
-			@Override
-			protected byte[] load() throws IOException
-			{
-				final String realPath = ApplicationExtensions.getRealPath(application, path);
-				final File file = new File(realPath);
-				final byte[] data = Files.readBytes(file);
-				return data;
-			}
-		};
+		final String realPath = ApplicationExtensions.getRealPath(application, path);
+		return new FileResourceStreamWriter(new java.io.File(realPath), contentType);
 	}
 
 	/**
@@ -558,6 +525,26 @@ public final class ApplicationExtensions
 		});
 	}
 
+	/**
+	 * Sets a {@link TrieRequestMapper} that wraps the current root request mapper as the root
+	 * request mapper of the given application. The pages that are mounted with
+	 * {@code BaseWebApplication#mountPage(String, Class, IPageParametersEncoder)} afterwards are
+	 * indexed in the trie. Call this method before other root request mappers like the https mapper
+	 * are set, so they wrap the trie.
+	 *
+	 * @param application
+	 *            the application
+	 * @return the {@link TrieRequestMapper}
+	 */
+	public static TrieRequestMapper setTrieRootRequestMapper(final Application application)
+	{
+		final TrieRequestMapper trieRequestMapper = new TrieRequestMapper(
+			application.getRootRequestMapper());
+		application.setMetaData(TrieRequestMapper.KEY, trieRequestMapper);
+		application.setRootRequestMapper(trieRequestMapper);
+		return trieRequestMapper;
+	}
+
 	/**
 	 * Sets the settings for deployment mode for the given application.
 	 *
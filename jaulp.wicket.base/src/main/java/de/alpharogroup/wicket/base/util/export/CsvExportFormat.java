@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+/**
+ * The Class CsvExportFormat writes the rows as comma separated values after RFC 4180. The values
+ * are written in UTF-8 with a byte order mark, so spreadsheet applications recognize the
+ * encoding.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ */
+public class CsvExportFormat<T> extends TableExportFormat<T>
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The separator. */
+	private final char separator;
+
+	/**
+	 * Instantiates a new {@link CsvExportFormat} with a comma as separator.
+	 *
+	 * @param columns
+	 *            the columns
+	 */
+	public CsvExportFormat(final ExportColumn... columns)
+	{
+		super(columns);
+		this.separator = ',';
+	}
+
+	/**
+	 * Instantiates a new {@link CsvExportFormat}.
+	 *
+	 * @param separator
+	 *            the separator
+	 * @param columns
+	 *            the columns
+	 */
+	public CsvExportFormat(final char separator, final List<ExportColumn> columns)
+	{
+		super(columns);
+		this.separator = separator;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getContentType()
+	{
+		return "text/csv; charset=UTF-8";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getFileExtension()
+	{
+		return "csv";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public TableWriter<T> newWriter(final OutputStream output) throws IOException
+	{
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(output,
+			StandardCharsets.UTF_8));
+		final SimpleDateFormat dateFormat = newDateFormat();
+		final List<ExportColumn> columns = getColumns();
+		writer.write('\uFEFF');
+		for (int i = 0; i < columns.size(); i++)
+		{
+			writeValue(writer, i, columns.get(i).getHeader());
+		}
+		writer.write("\r\n");
+		return new TableWriter<T>()
+		{
+			@Override
+			public void finish() throws IOException
+			{
+				writer.flush();
+			}
+
+			@Override
+			public void flush() throws IOException
+			{
+				writer.flush();
+			}
+
+			@Override
+			public void writeRow(final T row) throws IOException
+			{
+				for (int i = 0; i < columns.size(); i++)
+				{
+					writeValue(writer, i,
+						CsvExportFormat.this.toString(getValue(row, columns.get(i)), dateFormat));
+				}
+				writer.write("\r\n");
+			}
+		};
+	}
+
+	/**
+	 * Writes the given value of the column with the given index, the value is quoted if it
+	 * contains the separator, a quote or a line break.
+	 *
+	 * @param writer
+	 *            the writer
+	 * @param index
+	 *            the index of the column
+	 * @param value
+	 *            the value
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeValue(final Writer writer, final int index, final String value)
+		throws IOException
+	{
+		if (index > 0)
+		{
+			writer.write(separator);
+		}
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++)
+		{
+			final char c = value.charAt(i);
+			quote = c == separator || c == '"' || c == '\r' || c == '\n';
+		}
+		if (quote)
+		{
+			writer.write('"');
+			writer.write(value.replace("\"", "\"\""));
+			writer.write('"');
+		}
+		else
+		{
+			writer.write(value);
+		}
+	}
+
+}
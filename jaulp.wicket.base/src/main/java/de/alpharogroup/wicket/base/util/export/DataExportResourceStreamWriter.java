@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import lombok.Getter;
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.markup.repeater.data.IDataProvider;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.resource.AbstractResourceStreamWriter;
+
+/**
+ * The Class DataExportResourceStreamWriter streams all rows of a data provider in the current sort
+ * order and with the current filter of the data provider to the client. The rows are requested
+ * from the data provider in chunks of a fixed size and every chunk is flushed to the client before
+ * the next chunk is requested, so neither the rows nor the file are held in memory at once.<br>
+ * <br>
+ * The progress of the export is reported to an {@link ExportProgress}. If the progress is
+ * cancelled, the export stops before the next chunk and the download fails, so the client does
+ * not get a truncated file that looks complete. If the client aborts the download, the export
+ * stops with the failed write.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ */
+public class DataExportResourceStreamWriter<T> extends AbstractResourceStreamWriter
+{
+
+	/** The Constant DEFAULT_CHUNK_SIZE. */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	/** The Constant logger. */
+	private static final Logger LOGGER = Logger.getLogger(DataExportResourceStreamWriter.class
+		.getName());
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The data provider. */
+	private final IDataProvider<T> dataProvider;
+
+	/** The format. */
+	@Getter
+	private final TableExportFormat<T> format;
+
+	/** The number of rows that are requested at once from the data provider. */
+	@Getter
+	private final int chunkSize;
+
+	/** The id of the progress. */
+	@Getter
+	private final String progressId;
+
+	/**
+	 * Instantiates a new {@link DataExportResourceStreamWriter} with the
+	 * {@link #DEFAULT_CHUNK_SIZE} and a new progress.
+	 *
+	 * @param dataProvider
+	 *            the data provider
+	 * @param format
+	 *            the format
+	 */
+	public DataExportResourceStreamWriter(final IDataProvider<T> dataProvider,
+		final TableExportFormat<T> format)
+	{
+		this(dataProvider, format, DEFAULT_CHUNK_SIZE, ExportProgress.newProgress().getId());
+	}
+
+	/**
+	 * Instantiates a new {@link DataExportResourceStreamWriter}.
+	 *
+	 * @param dataProvider
+	 *            the data provider
+	 * @param format
+	 *            the format
+	 * @param chunkSize
+	 *            the number of rows that are requested at once from the data provider
+	 * @param progressId
+	 *            the id of the registered progress, see {@link ExportProgress#newProgress()}
+	 */
+	public DataExportResourceStreamWriter(final IDataProvider<T> dataProvider,
+		final TableExportFormat<T> format, final int chunkSize, final String progressId)
+	{
+		this.dataProvider = Args.notNull(dataProvider, "dataProvider");
+		this.format = Args.notNull(format, "format");
+		this.chunkSize = Args.withinRange(1, Integer.MAX_VALUE, chunkSize, "chunkSize");
+		this.progressId = Args.notNull(progressId, "progressId");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getContentType()
+	{
+		return format.getContentType();
+	}
+
+	/**
+	 * Gets the progress of the export.
+	 *
+	 * @return the progress or null if the progress is not registered anymore
+	 */
+	public ExportProgress getProgress()
+	{
+		return ExportProgress.get(progressId);
+	}
+
+	/**
+	 * Writes all rows of the data provider chunk by chunk to the given output stream.
+	 *
+	 * @param output
+	 *            the output
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred or the export was cancelled.
+	 */
+	@Override
+	public void write(final OutputStream output) throws IOException
+	{
+		ExportProgress progress = getProgress();
+		if (progress == null)
+		{
+			progress = ExportProgress.newProgress();
+		}
+		final long size = dataProvider.size();
+		progress.start(size);
+		try
+		{
+			final TableWriter<T> writer = format.newWriter(output);
+			for (long first = 0; first < size; first += chunkSize)
+			{
+				if (progress.isCancelled())
+				{
+					throw new InterruptedIOException("The export " + progressId
+						+ " was cancelled.");
+				}
+				final Iterator<? extends T> rows = dataProvider.iterator(first,
+					Math.min(chunkSize, size - first));
+				long count = 0;
+				while (rows.hasNext())
+				{
+					writer.writeRow(rows.next());
+					count++;
+				}
+				writer.flush();
+				progress.addRows(count);
+				if (count == 0)
+				{
+					// the data provider has less rows than reported
+					break;
+				}
+			}
+			writer.finish();
+		}
+		finally
+		{
+			progress.finish();
+			LOGGER.info("Exported " + progress.getRows() + " of " + size + " rows in "
+				+ progress.getElapsedMillis() + " ms ("
+				+ Math.round(progress.getRowsPerSecond()) + " rows/s).");
+		}
+	}
+
+}
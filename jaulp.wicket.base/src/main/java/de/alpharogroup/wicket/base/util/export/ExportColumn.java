@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import java.io.Serializable;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class ExportColumn is one column of an export with its header and the property expression
+ * of its values.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class ExportColumn implements Serializable
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The header. */
+	private final String header;
+
+	/** The property expression. */
+	private final String property;
+
+	/**
+	 * Instantiates a new {@link ExportColumn}.
+	 *
+	 * @param header
+	 *            the header
+	 * @param property
+	 *            the property expression
+	 */
+	public ExportColumn(final String header, final String property)
+	{
+		this.header = Args.notNull(header, "header");
+		this.property = Args.notEmpty(property, "property");
+	}
+
+}
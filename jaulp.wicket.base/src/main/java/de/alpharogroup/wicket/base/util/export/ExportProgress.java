@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+/**
+ * The Class ExportProgress holds the progress of one running export. The progress objects are
+ * registered by their id, so the progress can be read and the export can be cancelled from any
+ * request, not only from the request that writes the export. The registry holds the last
+ * {@link #MAX_PROGRESSES} progress objects.
+ */
+public class ExportProgress
+{
+
+	/** The Constant MAX_PROGRESSES. */
+	public static final int MAX_PROGRESSES = 256;
+
+	/** The Constant PROGRESSES is the registry of the progress objects by their id. */
+	private static final Map<String, ExportProgress> PROGRESSES = Collections
+		.synchronizedMap(new LinkedHashMap<String, ExportProgress>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, ExportProgress> eldest)
+			{
+				return size() > MAX_PROGRESSES;
+			}
+		});
+
+	/**
+	 * Gets the progress of the given id.
+	 *
+	 * @param id
+	 *            the id
+	 * @return the progress or null if no progress with the given id is registered
+	 */
+	public static ExportProgress get(final String id)
+	{
+		return id != null ? PROGRESSES.get(id) : null;
+	}
+
+	/**
+	 * Factory method for a new registered progress.
+	 *
+	 * @return the new progress
+	 */
+	public static ExportProgress newProgress()
+	{
+		final ExportProgress progress = new ExportProgress(UUID.randomUUID().toString());
+		PROGRESSES.put(progress.getId(), progress);
+		return progress;
+	}
+
+	/** The id. */
+	@Getter
+	private final String id;
+
+	/** The number of written rows. */
+	private final AtomicLong rows = new AtomicLong();
+
+	/** The number of rows to write or -1 if the export is not started. */
+	private volatile long total = -1;
+
+	/** The start time in nanoseconds. */
+	private volatile long startNanos;
+
+	/** The end time in nanoseconds or 0 if the export is not finished. */
+	private volatile long endNanos;
+
+	/** The flag if the export is cancelled. */
+	private volatile boolean cancelled;
+
+	/**
+	 * Instantiates a new {@link ExportProgress}.
+	 *
+	 * @param id
+	 *            the id
+	 */
+	private ExportProgress(final String id)
+	{
+		this.id = id;
+	}
+
+	/**
+	 * Adds the given number of written rows.
+	 *
+	 * @param count
+	 *            the number of written rows
+	 */
+	public void addRows(final long count)
+	{
+		rows.addAndGet(count);
+	}
+
+	/**
+	 * Cancels the export, the export stops before the next chunk of rows.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * Marks the export as finished.
+	 */
+	public void finish()
+	{
+		endNanos = System.nanoTime();
+	}
+
+	/**
+	 * Gets the elapsed time since the start of the export.
+	 *
+	 * @return the elapsed time in milliseconds
+	 */
+	public long getElapsedMillis()
+	{
+		if (total < 0)
+		{
+			return 0;
+		}
+		final long end = endNanos != 0 ? endNanos : System.nanoTime();
+		return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+	}
+
+	/**
+	 * Gets the number of written rows.
+	 *
+	 * @return the number of written rows
+	 */
+	public long getRows()
+	{
+		return rows.get();
+	}
+
+	/**
+	 * Gets the number of written rows per second.
+	 *
+	 * @return the number of written rows per second
+	 */
+	public double getRowsPerSecond()
+	{
+		final long elapsed = getElapsedMillis();
+		return elapsed > 0 ? getRows() * 1000.0 / elapsed : 0.0;
+	}
+
+	/**
+	 * Gets the number of rows to write.
+	 *
+	 * @return the number of rows to write or -1 if the export is not started
+	 */
+	public long getTotal()
+	{
+		return total;
+	}
+
+	/**
+	 * Checks if the export is cancelled.
+	 *
+	 * @return true, if the export is cancelled
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * Checks if the export is finished, this is also the case if it was cancelled or failed.
+	 *
+	 * @return true, if the export is finished
+	 */
+	public boolean isFinished()
+	{
+		return endNanos != 0;
+	}
+
+	/**
+	 * Marks the export as started.
+	 *
+	 * @param total
+	 *            the number of rows to write
+	 */
+	public void start(final long total)
+	{
+		this.startNanos = System.nanoTime();
+		this.endNanos = 0;
+		this.rows.set(0);
+		this.total = total;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString()
+	{
+		return "ExportProgress [id=" + id + ", rows=" + getRows() + ", total=" + total
+			+ ", elapsedMillis=" + getElapsedMillis() + ", cancelled=" + cancelled + "]";
+	}
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.AbstractResource;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.ResourceReference;
+
+/**
+ * The Class ExportProgressResource is a shared resource that answers the state of an
+ * {@link ExportProgress} as JSON and cancels the export on request. The download of an export
+ * holds the lock of its page until the last row is written, so a progress display or a cancel
+ * button can not use a request that is bound to this page. The urls of this resource are not bound
+ * to a page, they are created with {@link #urlFor(String, boolean)}.<br>
+ * <br>
+ * The progress is addressed with its random id, so only a client that got the id can read or
+ * cancel the progress. The progress objects are held in the memory of one node, so the requests
+ * have to reach the node that writes the export.
+ */
+public class ExportProgressResource extends AbstractResource
+{
+
+	/** The Constant CANCEL_PARAMETER is the name of the parameter that cancels the export. */
+	public static final String CANCEL_PARAMETER = "cancel";
+
+	/** The Constant ID_PARAMETER is the name of the parameter with the id of the progress. */
+	public static final String ID_PARAMETER = "id";
+
+	/** The Constant REFERENCE is the shared reference of this resource. */
+	public static final ResourceReference REFERENCE = new ResourceReference(
+		ExportProgressResource.class, "exportProgress")
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public IResource getResource()
+		{
+			return new ExportProgressResource();
+		}
+	};
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Converts the given progress to JSON.
+	 *
+	 * @param progress
+	 *            the progress
+	 * @return the JSON object of the progress
+	 */
+	static String toJson(final ExportProgress progress)
+	{
+		return "{\"id\":\"" + progress.getId() + "\",\"rows\":" + progress.getRows()
+			+ ",\"total\":" + progress.getTotal() + ",\"elapsedMillis\":"
+			+ progress.getElapsedMillis() + ",\"cancelled\":" + progress.isCancelled()
+			+ ",\"finished\":" + progress.isFinished() + "}";
+	}
+
+	/**
+	 * Gets the url of this resource for the progress with the given id. The {@link #REFERENCE} is
+	 * registered in the current application if it is not registered yet, applications can also
+	 * mount it in the init method with
+	 * {@code mountResource(path, ExportProgressResource.REFERENCE)}.
+	 *
+	 * @param progressId
+	 *            the id of the progress
+	 * @param cancel
+	 *            the flag if the url cancels the export
+	 * @return the url
+	 */
+	public static CharSequence urlFor(final String progressId, final boolean cancel)
+	{
+		Application.get().getResourceReferenceRegistry().registerResourceReference(REFERENCE);
+		final PageParameters parameters = new PageParameters().set(ID_PARAMETER, progressId);
+		if (cancel)
+		{
+			parameters.set(CANCEL_PARAMETER, true);
+		}
+		return RequestCycle.get().urlFor(REFERENCE, parameters);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected ResourceResponse newResourceResponse(final Attributes attributes)
+	{
+		final ResourceResponse resourceResponse = new ResourceResponse();
+		resourceResponse.disableCaching();
+		final PageParameters parameters = attributes.getParameters();
+		final ExportProgress progress = ExportProgress.get(parameters.get(ID_PARAMETER)
+			.toOptionalString());
+		if (progress == null)
+		{
+			resourceResponse.setError(HttpServletResponse.SC_NOT_FOUND);
+			return resourceResponse;
+		}
+		if (parameters.get(CANCEL_PARAMETER).toBoolean(false))
+		{
+			progress.cancel();
+		}
+		final byte[] json = toJson(progress).getBytes(StandardCharsets.UTF_8);
+		resourceResponse.setContentType("application/json");
+		resourceResponse.setTextEncoding(StandardCharsets.UTF_8.name());
+		resourceResponse.setContentLength(json.length);
+		resourceResponse.setWriteCallback(new WriteCallback()
+		{
+			@Override
+			public void writeData(final Attributes attributes)
+			{
+				attributes.getResponse().write(json);
+			}
+		});
+		return resourceResponse;
+	}
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import lombok.Getter;
+
+import org.apache.wicket.core.util.lang.PropertyResolver;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class TableExportFormat is the format of an export of table rows. The format holds only the
+ * columns and the settings, every export gets its own {@link TableWriter} from
+ * {@link #newWriter(OutputStream)}.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ */
+public abstract class TableExportFormat<T> implements Serializable
+{
+
+	/** The Constant DATE_PATTERN is the pattern of the exported dates. */
+	public static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The columns. */
+	@Getter
+	private final List<ExportColumn> columns;
+
+	/**
+	 * Instantiates a new {@link TableExportFormat}.
+	 *
+	 * @param columns
+	 *            the columns
+	 */
+	public TableExportFormat(final ExportColumn... columns)
+	{
+		this(Arrays.asList(columns));
+	}
+
+	/**
+	 * Instantiates a new {@link TableExportFormat}.
+	 *
+	 * @param columns
+	 *            the columns
+	 */
+	public TableExportFormat(final List<ExportColumn> columns)
+	{
+		Args.notEmpty(columns, "columns");
+		this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+	}
+
+	/**
+	 * Gets the content type of the export.
+	 *
+	 * @return the content type
+	 */
+	public abstract String getContentType();
+
+	/**
+	 * Gets the file extension of the export without the dot.
+	 *
+	 * @return the file extension
+	 */
+	public abstract String getFileExtension();
+
+	/**
+	 * Gets the value of the given column from the given row.
+	 *
+	 * @param row
+	 *            the row
+	 * @param column
+	 *            the column
+	 * @return the value or null
+	 */
+	protected Object getValue(final T row, final ExportColumn column)
+	{
+		return row != null ? PropertyResolver.getValue(column.getProperty(), row) : null;
+	}
+
+	/**
+	 * Factory method for the date format of the exported dates. The date format is not thread
+	 * safe, so every writer has its own.
+	 *
+	 * @return the date format
+	 */
+	protected SimpleDateFormat newDateFormat()
+	{
+		return new SimpleDateFormat(DATE_PATTERN);
+	}
+
+	/**
+	 * Factory method for the writer of one export.
+	 *
+	 * @param output
+	 *            the output stream
+	 * @return the writer
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public abstract TableWriter<T> newWriter(OutputStream output) throws IOException;
+
+	/**
+	 * Converts the given value to a string.
+	 *
+	 * @param value
+	 *            the value
+	 * @param dateFormat
+	 *            the date format of the writer
+	 * @return the string or an empty string for null
+	 */
+	protected String toString(final Object value, final SimpleDateFormat dateFormat)
+	{
+		if (value == null)
+		{
+			return "";
+		}
+		if (value instanceof Date)
+		{
+			return dateFormat.format((Date)value);
+		}
+		return value.toString();
+	}
+
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import java.io.IOException;
+
+/**
+ * The Interface TableWriter writes the rows of one export to an output stream in the format of a
+ * {@link TableExportFormat}.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ */
+public interface TableWriter<T>
+{
+
+	/**
+	 * Writes the end of the document. The output stream is not closed.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void finish() throws IOException;
+
+	/**
+	 * Flushes the written rows to the output stream.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void flush() throws IOException;
+
+	/**
+	 * Writes the given row.
+	 *
+	 * @param row
+	 *            the row
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void writeRow(T row) throws IOException;
+
+}
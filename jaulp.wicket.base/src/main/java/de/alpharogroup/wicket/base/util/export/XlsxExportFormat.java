@@ -0,0 +1,268 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The Class XlsxExportFormat writes the rows as an Office Open XML workbook with one sheet. The
+ * sheet is streamed row by row into the zip archive, so the memory does not depend on the number
+ * of rows. Numbers are written as numeric cells, all other values as inline strings, so no shared
+ * string table is needed.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ */
+public class XlsxExportFormat<T> extends TableExportFormat<T>
+{
+
+	/** The Constant CONTENT_TYPES. */
+	private static final String CONTENT_TYPES = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+		+ "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+		+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+		+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+		+ "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+		+ "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+		+ "</Types>";
+
+	/** The Constant RELATIONSHIPS. */
+	private static final String RELATIONSHIPS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+		+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+		+ "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+		+ "</Relationships>";
+
+	/** The Constant WORKBOOK. */
+	private static final String WORKBOOK = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+		+ "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+		+ " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+		+ "<sheets><sheet name=\"Export\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>";
+
+	/** The Constant WORKBOOK_RELATIONSHIPS. */
+	private static final String WORKBOOK_RELATIONSHIPS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+		+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+		+ "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+		+ "</Relationships>";
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Escapes the given text for an xml element and removes the characters that are not allowed in
+	 * xml.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the escaped text
+	 */
+	private static String escape(final String text)
+	{
+		final StringBuilder sb = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++)
+		{
+			final char c = text.charAt(i);
+			switch (c)
+			{
+				case '<' :
+					sb.append("&lt;");
+					break;
+				case '>' :
+					sb.append("&gt;");
+					break;
+				case '&' :
+					sb.append("&amp;");
+					break;
+				default :
+					if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r')
+					{
+						sb.append(c);
+					}
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Instantiates a new {@link XlsxExportFormat}.
+	 *
+	 * @param columns
+	 *            the columns
+	 */
+	public XlsxExportFormat(final ExportColumn... columns)
+	{
+		super(columns);
+	}
+
+	/**
+	 * Instantiates a new {@link XlsxExportFormat}.
+	 *
+	 * @param columns
+	 *            the columns
+	 */
+	public XlsxExportFormat(final List<ExportColumn> columns)
+	{
+		super(columns);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getContentType()
+	{
+		return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getFileExtension()
+	{
+		return "xlsx";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public TableWriter<T> newWriter(final OutputStream output) throws IOException
+	{
+		// the zip archive is finished but the output stream of the response is not closed
+		final ZipOutputStream zip = new ZipOutputStream(new FilterOutputStream(output)
+		{
+			@Override
+			public void close() throws IOException
+			{
+				flush();
+			}
+
+			@Override
+			public void write(final byte[] b, final int off, final int len) throws IOException
+			{
+				out.write(b, off, len);
+			}
+		});
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(zip,
+			StandardCharsets.UTF_8));
+		writeEntry(zip, writer, "[Content_Types].xml", CONTENT_TYPES);
+		writeEntry(zip, writer, "_rels/.rels", RELATIONSHIPS);
+		writeEntry(zip, writer, "xl/workbook.xml", WORKBOOK);
+		writeEntry(zip, writer, "xl/_rels/workbook.xml.rels", WORKBOOK_RELATIONSHIPS);
+		zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+			+ "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+			+ "<sheetData>");
+		final SimpleDateFormat dateFormat = newDateFormat();
+		final List<ExportColumn> columns = getColumns();
+		writer.write("<row>");
+		for (final ExportColumn column : columns)
+		{
+			writeString(writer, column.getHeader());
+		}
+		writer.write("</row>");
+		return new TableWriter<T>()
+		{
+			@Override
+			public void finish() throws IOException
+			{
+				writer.write("</sheetData></worksheet>");
+				writer.flush();
+				zip.closeEntry();
+				zip.finish();
+				zip.flush();
+			}
+
+			@Override
+			public void flush() throws IOException
+			{
+				writer.flush();
+				zip.flush();
+			}
+
+			@Override
+			public void writeRow(final T row) throws IOException
+			{
+				writer.write("<row>");
+				for (final ExportColumn column : columns)
+				{
+					final Object value = getValue(row, column);
+					if (value instanceof Number && Double.isFinite(((Number)value).doubleValue()))
+					{
+						writer.write("<c><v>");
+						writer.write(value.toString());
+						writer.write("</v></c>");
+					}
+					else
+					{
+						writeString(writer, XlsxExportFormat.this.toString(value, dateFormat));
+					}
+				}
+				writer.write("</row>");
+			}
+		};
+	}
+
+	/**
+	 * Writes the given text as a cell with an inline string.
+	 *
+	 * @param writer
+	 *            the writer
+	 * @param text
+	 *            the text
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeString(final Writer writer, final String text) throws IOException
+	{
+		writer.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+		writer.write(escape(text));
+		writer.write("</t></is></c>");
+	}
+
+	/**
+	 * Writes the given content as an entry of the given zip archive.
+	 *
+	 * @param zip
+	 *            the zip archive
+	 * @param writer
+	 *            the writer of the zip archive
+	 * @param name
+	 *            the name of the entry
+	 * @param content
+	 *            the content
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeEntry(final ZipOutputStream zip, final Writer writer, final String name,
+		final String content) throws IOException
+	{
+		zip.putNextEntry(new ZipEntry(name));
+		writer.write(content);
+		writer.flush();
+		zip.closeEntry();
+	}
+
+}
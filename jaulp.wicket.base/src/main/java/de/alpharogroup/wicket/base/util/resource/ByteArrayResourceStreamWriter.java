@@ -21,7 +21,11 @@ import java.io.OutputStream;
 import org.apache.wicket.util.resource.AbstractResourceStreamWriter;
 
 /**
- * The Class ByteArrayResourceStreamWriter.
+ * The Class ByteArrayResourceStreamWriter.<br>
+ * <br>
+ * By default the loaded content is held in this instance. If {@link #getCacheKey()} is overwritten
+ * the content is held in the shared {@link ContentCache} instead, so it is reused over requests
+ * and instances and is not retained from pages that hold this writer.
  */
 public abstract class ByteArrayResourceStreamWriter extends AbstractResourceStreamWriter
 {
@@ -41,6 +45,28 @@ public abstract class ByteArrayResourceStreamWriter extends AbstractResourceStre
 	@Override
 	public abstract String getContentType();
 
+	/**
+	 * Gets the key of the content in the {@link ContentCache}. Overwrite this method to cache the
+	 * content over requests, the key has to identify the content over all users of the cache. The
+	 * default returns null, so the content is not cached.
+	 *
+	 * @return the cache key or null if the content should not be cached.
+	 */
+	protected Object getCacheKey()
+	{
+		return null;
+	}
+
+	/**
+	 * Gets the content cache that is used if a cache key is given.
+	 *
+	 * @return the content cache
+	 */
+	protected ContentCache getContentCache()
+	{
+		return ContentCache.getInstance();
+	}
+
 	/**
 	 * Initialize.
 	 *
@@ -76,6 +102,13 @@ public abstract class ByteArrayResourceStreamWriter extends AbstractResourceStre
 	@Override
 	public void write(final OutputStream output) throws IOException
 	{
+		final Object cacheKey = getCacheKey();
+		if (cacheKey != null)
+		{
+			getContentCache().write(cacheKey, this::load, output);
+			output.flush();
+			return;
+		}
 		initialize();
 		if (content == null)
 		{
@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.resource;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * The Class ByteRange is one satisfiable range of a HTTP Range header. The positions are inclusive
+ * like in the Content-Range header.
+ */
+@Getter
+@EqualsAndHashCode
+public final class ByteRange implements Serializable
+{
+
+	/** The Constant BYTES_UNIT. */
+	public static final String BYTES_UNIT = "bytes";
+
+	/** The Constant MAX_RANGES is the maximum number of ranges that will be served at once. */
+	public static final int MAX_RANGES = 16;
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Sorts the given ranges and merges the ranges that overlap or that are adjacent, so every byte
+	 * is sent only once.
+	 *
+	 * @param ranges
+	 *            the satisfiable ranges
+	 * @param length
+	 *            the length of the resource
+	 * @return the merged ranges or null if the given ranges ask for more bytes than the resource
+	 *         has, in this case the whole resource should be sent.
+	 */
+	private static List<ByteRange> coalesce(final List<ByteRange> ranges, final long length)
+	{
+		long requested = 0;
+		for (final ByteRange range : ranges)
+		{
+			requested += range.getLength();
+		}
+		if (requested > length)
+		{
+			// overlapping ranges would send the same bytes many times
+			return null;
+		}
+		final List<ByteRange> sorted = new ArrayList<>(ranges);
+		Collections.sort(sorted, Comparator.comparingLong(ByteRange::getFirst));
+		final List<ByteRange> merged = new ArrayList<>(sorted.size());
+		for (final ByteRange range : sorted)
+		{
+			final int lastIndex = merged.size() - 1;
+			if (lastIndex >= 0 && range.first <= merged.get(lastIndex).last + 1)
+			{
+				final ByteRange previous = merged.get(lastIndex);
+				merged.set(lastIndex, new ByteRange(previous.first, Math.max(previous.last,
+					range.last)));
+			}
+			else
+			{
+				merged.add(range);
+			}
+		}
+		return Collections.unmodifiableList(merged);
+	}
+
+	/**
+	 * Parses the given value of a HTTP Range header against a resource with the given length.
+	 * Ranges that start behind the end of the resource are dropped, ranges that end behind the end
+	 * of the resource are shortened. The ranges are sorted and overlapping or adjacent ranges are
+	 * merged.
+	 *
+	 * @param header
+	 *            the value of the Range header
+	 * @param length
+	 *            the length of the resource
+	 * @return the satisfiable ranges, an empty list if no range is satisfiable or null if the
+	 *         header is missing, malformed, asks for more than {@link #MAX_RANGES} ranges or for
+	 *         more bytes than the resource has, in this case the whole resource should be sent.
+	 */
+	public static List<ByteRange> parse(final String header, final long length)
+	{
+		if (header == null)
+		{
+			return null;
+		}
+		final String value = header.trim();
+		final int equals = value.indexOf('=');
+		if (equals < 0 || !BYTES_UNIT.equalsIgnoreCase(value.substring(0, equals).trim()))
+		{
+			return null;
+		}
+		final String[] specs = value.substring(equals + 1).split(",");
+		if (specs.length > MAX_RANGES)
+		{
+			return null;
+		}
+		final List<ByteRange> ranges = new ArrayList<>(specs.length);
+		for (final String rawSpec : specs)
+		{
+			final String spec = rawSpec.trim();
+			final int dash = spec.indexOf('-');
+			if (dash < 0)
+			{
+				return null;
+			}
+			final long first;
+			final long last;
+			try
+			{
+				if (dash == 0)
+				{
+					// suffix range, the last n bytes
+					final long suffix = Long.parseLong(spec.substring(1));
+					if (suffix < 0)
+					{
+						return null;
+					}
+					if (suffix == 0 || length == 0)
+					{
+						continue;
+					}
+					first = Math.max(0, length - suffix);
+					last = length - 1;
+				}
+				else
+				{
+					first = Long.parseLong(spec.substring(0, dash));
+					final String end = spec.substring(dash + 1);
+					last = end.isEmpty() ? length - 1 : Math.min(Long.parseLong(end), length - 1);
+					if (first < 0 || !end.isEmpty() && Long.parseLong(end) < first)
+					{
+						return null;
+					}
+					if (first >= length)
+					{
+						continue;
+					}
+				}
+			}
+			catch (final NumberFormatException e)
+			{
+				return null;
+			}
+			ranges.add(new ByteRange(first, last));
+		}
+		return coalesce(ranges, length);
+	}
+
+	/** The position of the first byte. */
+	private final long first;
+
+	/** The position of the last byte. */
+	private final long last;
+
+	/**
+	 * Instantiates a new {@link ByteRange}.
+	 *
+	 * @param first
+	 *            the position of the first byte
+	 * @param last
+	 *            the position of the last byte
+	 */
+	public ByteRange(final long first, final long last)
+	{
+		this.first = first;
+		this.last = last;
+	}
+
+	/**
+	 * Gets the number of bytes of this range.
+	 *
+	 * @return the number of bytes
+	 */
+	public long getLength()
+	{
+		return last - first + 1;
+	}
+
+	/**
+	 * Gets the value of the Content-Range header for this range.
+	 *
+	 * @param total
+	 *            the length of the whole resource
+	 * @return the value of the Content-Range header
+	 */
+	public String toContentRange(final long total)
+	{
+		return BYTES_UNIT + " " + first + "-" + last + "/" + total;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString()
+	{
+		return first + "-" + last;
+	}
+
+}
@@ -0,0 +1,450 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class ContentCache is a shared cache for the content of resources. The content is cached by
+ * a key that is supplied from the caller, so the key has to identify the content over all callers,
+ * for instance a key that contains the resource class and the id of the content. The cache is
+ * bounded by the sum of the cached bytes and evicts the least recently used content. The content
+ * can be held on the heap, over soft references that the garbage collector can clear under memory
+ * pressure or in direct buffers outside of the heap, see {@link Storage}. The hits, misses and
+ * evictions are counted.<br>
+ * <br>
+ * The content is loaded outside of the lock of the cache, so a slow load does not block other
+ * callers. Two callers that miss the same key at the same time can both load the content.
+ */
+public class ContentCache
+{
+
+	/**
+	 * The Interface ContentLoader loads the content of a missed key.
+	 */
+	public interface ContentLoader
+	{
+
+		/**
+		 * Load the content as a byte array.
+		 *
+		 * @return the byte[]
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		byte[] load() throws IOException;
+	}
+
+	/**
+	 * The Enum Storage defines where the cached content is held.
+	 */
+	public enum Storage
+	{
+
+		/** The content is held in byte arrays on the heap. */
+		HEAP,
+
+		/** The content is held over soft references, they are cleared under memory pressure. */
+		SOFT,
+
+		/** The content is held in direct buffers outside of the heap. */
+		DIRECT
+	}
+
+	/**
+	 * The Class Content is one cached content.
+	 */
+	private static final class Content
+	{
+
+		/** The length of the content. */
+		private final int length;
+
+		/** The bytes, a byte array or a soft reference of a byte array or a direct buffer. */
+		private final Object bytes;
+
+		/**
+		 * Instantiates a new {@link Content}.
+		 *
+		 * @param bytes
+		 *            the bytes
+		 * @param storage
+		 *            the storage
+		 */
+		private Content(final byte[] bytes, final Storage storage)
+		{
+			this.length = bytes.length;
+			switch (storage)
+			{
+				case SOFT :
+					this.bytes = new SoftReference<>(bytes);
+					break;
+				case DIRECT :
+					final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+					buffer.put(bytes);
+					// the cast links Buffer.flip(), which also exists on a Java 8 runtime
+					((Buffer)buffer).flip();
+					this.bytes = buffer.asReadOnlyBuffer();
+					break;
+				default :
+					this.bytes = bytes;
+			}
+		}
+
+		/**
+		 * Resolves the content.
+		 *
+		 * @return the byte array or the direct buffer or null if the soft reference was cleared.
+		 */
+		private Object resolve()
+		{
+			if (bytes instanceof SoftReference)
+			{
+				return ((SoftReference<?>)bytes).get();
+			}
+			return bytes;
+		}
+	}
+
+	/** The Constant DEFAULT_MAXIMUM_WEIGHT is the default size of the cache in bytes. */
+	public static final long DEFAULT_MAXIMUM_WEIGHT = 32L * 1024 * 1024;
+
+	/** The shared instance. */
+	private static volatile ContentCache instance;
+
+	/**
+	 * Gets the shared instance. If no instance was set, an instance with the
+	 * {@link #DEFAULT_MAXIMUM_WEIGHT} and the {@link Storage#HEAP} is created.
+	 *
+	 * @return the shared instance
+	 */
+	public static ContentCache getInstance()
+	{
+		ContentCache contentCache = instance;
+		if (contentCache == null)
+		{
+			synchronized (ContentCache.class)
+			{
+				contentCache = instance;
+				if (contentCache == null)
+				{
+					contentCache = new ContentCache(DEFAULT_MAXIMUM_WEIGHT, Storage.HEAP);
+					instance = contentCache;
+				}
+			}
+		}
+		return contentCache;
+	}
+
+	/**
+	 * Sets the shared instance, for instance in the init method of the application.
+	 *
+	 * @param contentCache
+	 *            the new shared instance
+	 */
+	public static void setInstance(final ContentCache contentCache)
+	{
+		instance = Args.notNull(contentCache, "contentCache");
+	}
+
+	/**
+	 * The maximum sum of the cached bytes.
+	 */
+	@Getter
+	private final long maximumWeight;
+
+	/**
+	 * The storage of the content.
+	 */
+	@Getter
+	private final Storage storage;
+
+	/** The cached content in the access order. */
+	private final LinkedHashMap<Object, Content> contents = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** The sum of the cached bytes, guarded by the lock of the contents. */
+	private long weight;
+
+	/** The counter of the hits. */
+	private final LongAdder hits = new LongAdder();
+
+	/** The counter of the misses. */
+	private final LongAdder misses = new LongAdder();
+
+	/** The counter of the evictions. */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Instantiates a new {@link ContentCache}.
+	 *
+	 * @param maximumWeight
+	 *            the maximum sum of the cached bytes
+	 * @param storage
+	 *            the storage of the content
+	 */
+	public ContentCache(final long maximumWeight, final Storage storage)
+	{
+		if (maximumWeight <= 0)
+		{
+			throw new IllegalArgumentException("The maximum weight has to be positive.");
+		}
+		this.maximumWeight = maximumWeight;
+		this.storage = Args.notNull(storage, "storage");
+	}
+
+	/**
+	 * Removes all content from this cache. The counters are not reset.
+	 */
+	public void clear()
+	{
+		synchronized (contents)
+		{
+			contents.clear();
+			weight = 0;
+		}
+	}
+
+	/**
+	 * Gets the content of the given key. If the key is not cached the content is loaded with the
+	 * given loader and cached. The returned array can be shared with other callers and must not
+	 * be modified.
+	 *
+	 * @param key
+	 *            the key
+	 * @param loader
+	 *            the loader
+	 * @return the content
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public byte[] get(final Object key, final ContentLoader loader) throws IOException
+	{
+		final Object content = lookup(key);
+		if (content == null)
+		{
+			return load(key, loader);
+		}
+		if (content instanceof ByteBuffer)
+		{
+			final ByteBuffer buffer = ((ByteBuffer)content).duplicate();
+			final byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return bytes;
+		}
+		return (byte[])content;
+	}
+
+	/**
+	 * Gets the number of evictions.
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictions()
+	{
+		return evictions.sum();
+	}
+
+	/**
+	 * Gets the number of hits.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of misses.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the number of cached keys.
+	 *
+	 * @return the number of cached keys
+	 */
+	public int getSize()
+	{
+		synchronized (contents)
+		{
+			return contents.size();
+		}
+	}
+
+	/**
+	 * Gets the sum of the cached bytes.
+	 *
+	 * @return the sum of the cached bytes
+	 */
+	public long getWeight()
+	{
+		synchronized (contents)
+		{
+			return weight;
+		}
+	}
+
+	/**
+	 * Removes the content of the given key.
+	 *
+	 * @param key
+	 *            the key
+	 */
+	public void invalidate(final Object key)
+	{
+		synchronized (contents)
+		{
+			final Content removed = contents.remove(key);
+			if (removed != null)
+			{
+				weight -= removed.length;
+			}
+		}
+	}
+
+	/**
+	 * Loads the content of the given key and caches it if it is not greater than the maximum
+	 * weight.
+	 *
+	 * @param key
+	 *            the key
+	 * @param loader
+	 *            the loader
+	 * @return the loaded content
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private byte[] load(final Object key, final ContentLoader loader) throws IOException
+	{
+		byte[] bytes = loader.load();
+		if (bytes == null)
+		{
+			bytes = new byte[0];
+		}
+		if (bytes.length <= maximumWeight)
+		{
+			final Content content = new Content(bytes, storage);
+			synchronized (contents)
+			{
+				final Content previous = contents.put(key, content);
+				if (previous != null)
+				{
+					weight -= previous.length;
+				}
+				weight += content.length;
+				final Iterator<Map.Entry<Object, Content>> iterator = contents.entrySet()
+					.iterator();
+				while (weight > maximumWeight && iterator.hasNext())
+				{
+					final Content eldest = iterator.next().getValue();
+					iterator.remove();
+					weight -= eldest.length;
+					evictions.increment();
+				}
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Looks up the content of the given key and counts the hit or the miss. Content with a cleared
+	 * soft reference is removed and counted as eviction.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the byte array or the direct buffer or null if the key is not cached.
+	 */
+	private Object lookup(final Object key)
+	{
+		Object resolved = null;
+		synchronized (contents)
+		{
+			final Content content = contents.get(key);
+			if (content != null)
+			{
+				resolved = content.resolve();
+				if (resolved == null)
+				{
+					contents.remove(key);
+					weight -= content.length;
+					evictions.increment();
+				}
+			}
+		}
+		if (resolved == null)
+		{
+			misses.increment();
+		}
+		else
+		{
+			hits.increment();
+		}
+		return resolved;
+	}
+
+	/**
+	 * Writes the content of the given key to the given output stream. If the key is not cached the
+	 * content is loaded with the given loader and cached. Content from direct buffers is copied in
+	 * chunks, so no byte array of the full content is created.
+	 *
+	 * @param key
+	 *            the key
+	 * @param loader
+	 *            the loader
+	 * @param output
+	 *            the output
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void write(final Object key, final ContentLoader loader, final OutputStream output)
+		throws IOException
+	{
+		final Object content = lookup(key);
+		if (content == null)
+		{
+			final byte[] bytes = load(key, loader);
+			output.write(bytes, 0, bytes.length);
+		}
+		else if (content instanceof ByteBuffer)
+		{
+			OffHeapContentStore.write(((ByteBuffer)content).duplicate(), output);
+		}
+		else
+		{
+			final byte[] bytes = (byte[])content;
+			output.write(bytes, 0, bytes.length);
+		}
+	}
+
+}
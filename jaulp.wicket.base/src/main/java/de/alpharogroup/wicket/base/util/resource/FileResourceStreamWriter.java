@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import lombok.Getter;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.resource.AbstractResourceStreamWriter;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * The Class FileResourceStreamWriter streams the content of a file to the client without loading
+ * it into the heap. Only the file and the content type are held, so the serialized size of this
+ * object does not depend on the file size. The length and the last modified time of the file are
+ * reported, so wicket can send the Content-Length header and answer conditional requests.<br>
+ * <br>
+ * The content is copied over a pooled buffer with positional reads of a {@link FileChannel}. A
+ * zero copy transfer is not possible, because the output stream of a servlet response is not a
+ * channel of the file system.
+ */
+public class FileResourceStreamWriter extends AbstractResourceStreamWriter
+{
+
+	/** The Constant BUFFER_SIZE. */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	/** The Constant MAX_POOLED_BUFFERS. */
+	private static final int MAX_POOLED_BUFFERS = 32;
+
+	/** The Constant BUFFERS is the pool of the copy buffers. */
+	private static final BlockingQueue<byte[]> BUFFERS = new ArrayBlockingQueue<>(
+		MAX_POOLED_BUFFERS);
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Acquires a copy buffer from the pool or creates a new one if the pool is empty.
+	 *
+	 * @return the buffer
+	 */
+	protected static byte[] acquireBuffer()
+	{
+		final byte[] buffer = BUFFERS.poll();
+		return buffer != null ? buffer : new byte[BUFFER_SIZE];
+	}
+
+	/**
+	 * Releases the given copy buffer to the pool.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 */
+	protected static void releaseBuffer(final byte[] buffer)
+	{
+		BUFFERS.offer(buffer);
+	}
+
+	/**
+	 * The file.
+	 */
+	@Getter
+	private final File file;
+
+	/** The content type. */
+	private final String contentType;
+
+	/**
+	 * Instantiates a new {@link FileResourceStreamWriter}.
+	 *
+	 * @param file
+	 *            the file
+	 * @param contentType
+	 *            the content type
+	 */
+	public FileResourceStreamWriter(final File file, final String contentType)
+	{
+		this.file = Args.notNull(file, "file");
+		this.contentType = contentType;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getContentType()
+	{
+		return contentType;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Time lastModifiedTime()
+	{
+		return Time.millis(file.lastModified());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Bytes length()
+	{
+		return Bytes.bytes(file.length());
+	}
+
+	/**
+	 * Writes the file content to the OutputStream from the client.
+	 *
+	 * @param output
+	 *            the output
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @see org.apache.wicket.util.resource.IResourceStreamWriter#write(java.io.OutputStream)
+	 */
+	@Override
+	public void write(final OutputStream output) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			write(channel, 0, channel.size(), output);
+		}
+		output.flush();
+	}
+
+	/**
+	 * Writes the given range of the given channel to the given output stream. The channel is read
+	 * with positional reads, so concurrent calls on the same channel do not interfere.
+	 *
+	 * @param channel
+	 *            the file channel
+	 * @param position
+	 *            the position of the first byte
+	 * @param count
+	 *            the number of bytes
+	 * @param output
+	 *            the output
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void write(final FileChannel channel, final long position, final long count,
+		final OutputStream output) throws IOException
+	{
+		final byte[] buffer = acquireBuffer();
+		try
+		{
+			final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+			// clear() and limit(int) are called over Buffer, the ByteBuffer overrides of newer
+			// JDKs do not exist on a Java 8 runtime
+			final Buffer view = byteBuffer;
+			long transferred = 0;
+			while (transferred < count)
+			{
+				view.clear();
+				view.limit((int)Math.min(buffer.length, count - transferred));
+				final int read = channel.read(byteBuffer, position + transferred);
+				if (read < 0)
+				{
+					break;
+				}
+				output.write(buffer, 0, read);
+				transferred += read;
+			}
+		}
+		finally
+		{
+			releaseBuffer(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class OffHeapContentStore holds content in direct buffers outside of the heap. The content
+ * is addressed by the SHA-256 hash of its bytes, so identical content is stored only once, no
+ * matter how many sessions put it. Pages and resources keep only the key, see
+ * {@link OffHeapImageResource}.<br>
+ * <br>
+ * The store is bounded by the sum of the stored bytes and evicts the least recently used content.
+ * A put of content that is already stored marks it as used, so content that is rendered again is
+ * kept.
+ */
+public class OffHeapContentStore
+{
+
+	/** The Constant DEFAULT_MAXIMUM_WEIGHT is the default size of the store in bytes. */
+	public static final long DEFAULT_MAXIMUM_WEIGHT = 64L * 1024 * 1024;
+
+	/** The Constant DIGEST_ALGORITHM. */
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	/** The Constant HEX_DIGITS. */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/** The shared instance. */
+	private static volatile OffHeapContentStore instance;
+
+	/**
+	 * Gets the shared instance. If no instance was set, an instance with the
+	 * {@link #DEFAULT_MAXIMUM_WEIGHT} is created.
+	 *
+	 * @return the shared instance
+	 */
+	public static OffHeapContentStore getInstance()
+	{
+		OffHeapContentStore store = instance;
+		if (store == null)
+		{
+			synchronized (OffHeapContentStore.class)
+			{
+				store = instance;
+				if (store == null)
+				{
+					store = new OffHeapContentStore(DEFAULT_MAXIMUM_WEIGHT);
+					instance = store;
+				}
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * Creates a new message digest for the keys.
+	 *
+	 * @return the message digest
+	 */
+	private static MessageDigest newDigest()
+	{
+		try
+		{
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new WicketRuntimeException(DIGEST_ALGORITHM + " is not supported.", e);
+		}
+	}
+
+	/**
+	 * Sets the shared instance, for instance in the init method of the application.
+	 *
+	 * @param store
+	 *            the new shared instance
+	 */
+	public static void setInstance(final OffHeapContentStore store)
+	{
+		instance = Args.notNull(store, "store");
+	}
+
+	/**
+	 * Writes the remaining bytes of the given buffer to the given output stream in chunks.
+	 *
+	 * @param content
+	 *            the buffer
+	 * @param output
+	 *            the output
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static void write(final ByteBuffer content, final OutputStream output) throws IOException
+	{
+		final byte[] chunk = FileResourceStreamWriter.acquireBuffer();
+		try
+		{
+			while (content.hasRemaining())
+			{
+				final int length = Math.min(chunk.length, content.remaining());
+				content.get(chunk, 0, length);
+				output.write(chunk, 0, length);
+			}
+		}
+		finally
+		{
+			FileResourceStreamWriter.releaseBuffer(chunk);
+		}
+	}
+
+	/**
+	 * Converts the given digest to a key.
+	 *
+	 * @param digest
+	 *            the digest
+	 * @return the key
+	 */
+	private static String toKey(final byte[] digest)
+	{
+		final char[] key = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++)
+		{
+			key[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+			key[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+		}
+		return new String(key);
+	}
+
+	/**
+	 * The maximum sum of the stored bytes.
+	 */
+	@Getter
+	private final long maximumWeight;
+
+	/** The stored content in the access order. */
+	private final LinkedHashMap<String, ByteBuffer> contents = new LinkedHashMap<>(16, 0.75f,
+		true);
+
+	/** The sum of the stored bytes, guarded by the lock of the contents. */
+	private long weight;
+
+	/**
+	 * Instantiates a new {@link OffHeapContentStore}.
+	 *
+	 * @param maximumWeight
+	 *            the maximum sum of the stored bytes
+	 */
+	public OffHeapContentStore(final long maximumWeight)
+	{
+		if (maximumWeight <= 0)
+		{
+			throw new IllegalArgumentException("The maximum weight has to be positive.");
+		}
+		this.maximumWeight = maximumWeight;
+	}
+
+	/**
+	 * Checks if content with the given key is stored.
+	 *
+	 * @param key
+	 *            the key
+	 * @return true, if the content is stored
+	 */
+	public boolean contains(final String key)
+	{
+		synchronized (contents)
+		{
+			return contents.containsKey(key);
+		}
+	}
+
+	/**
+	 * Gets a read only view of the content with the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the content or null if no content is stored with the given key.
+	 */
+	public ByteBuffer get(final String key)
+	{
+		final ByteBuffer content;
+		synchronized (contents)
+		{
+			content = contents.get(key);
+		}
+		return content != null ? content.duplicate() : null;
+	}
+
+	/**
+	 * Gets the number of stored contents.
+	 *
+	 * @return the number of stored contents
+	 */
+	public int getSize()
+	{
+		synchronized (contents)
+		{
+			return contents.size();
+		}
+	}
+
+	/**
+	 * Gets the sum of the stored bytes.
+	 *
+	 * @return the sum of the stored bytes
+	 */
+	public long getWeight()
+	{
+		synchronized (contents)
+		{
+			return weight;
+		}
+	}
+
+	/**
+	 * Stores the given content if it is not stored yet.
+	 *
+	 * @param data
+	 *            the content
+	 * @return the key of the content
+	 */
+	public String put(final byte[] data)
+	{
+		final String key = toKey(newDigest().digest(data));
+		if (!touch(key))
+		{
+			store(key, data);
+		}
+		return key;
+	}
+
+	/**
+	 * Stores the given content if it is not stored yet. The key is computed without a copy of the
+	 * content, the content is only converted to a byte array if it is not stored yet.
+	 *
+	 * @param data
+	 *            the content
+	 * @return the key of the content
+	 */
+	public String put(final Byte[] data)
+	{
+		final MessageDigest digest = newDigest();
+		final byte[] chunk = new byte[Math.min(data.length, 8192)];
+		for (int offset = 0; offset < data.length; offset += chunk.length)
+		{
+			final int length = Math.min(chunk.length, data.length - offset);
+			for (int i = 0; i < length; i++)
+			{
+				chunk[i] = data[offset + i];
+			}
+			digest.update(chunk, 0, length);
+		}
+		final String key = toKey(digest.digest());
+		if (!touch(key))
+		{
+			final byte[] bytes = new byte[data.length];
+			for (int i = 0; i < data.length; i++)
+			{
+				bytes[i] = data[i];
+			}
+			store(key, bytes);
+		}
+		return key;
+	}
+
+	/**
+	 * Removes the content with the given key.
+	 *
+	 * @param key
+	 *            the key
+	 */
+	public void remove(final String key)
+	{
+		synchronized (contents)
+		{
+			final ByteBuffer removed = contents.remove(key);
+			if (removed != null)
+			{
+				weight -= removed.capacity();
+			}
+		}
+	}
+
+	/**
+	 * Stores the given content with the given key and evicts the least recently used content if
+	 * the maximum weight is exceeded. Content that is greater than the maximum weight is not
+	 * stored.
+	 *
+	 * @param key
+	 *            the key
+	 * @param data
+	 *            the content
+	 */
+	private void store(final String key, final byte[] data)
+	{
+		if (data.length > maximumWeight)
+		{
+			return;
+		}
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		// a flip() over ByteBuffer would fail on a Java 8 runtime if compiled on a newer JDK
+		((Buffer)buffer).flip();
+		final ByteBuffer content = buffer.asReadOnlyBuffer();
+		synchronized (contents)
+		{
+			if (contents.containsKey(key))
+			{
+				return;
+			}
+			contents.put(key, content);
+			weight += data.length;
+			final Iterator<Map.Entry<String, ByteBuffer>> iterator = contents.entrySet().iterator();
+			while (weight > maximumWeight && iterator.hasNext())
+			{
+				final Map.Entry<String, ByteBuffer> eldest = iterator.next();
+				if (!eldest.getKey().equals(key))
+				{
+					iterator.remove();
+					weight -= eldest.getValue().capacity();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks the content with the given key as used.
+	 *
+	 * @param key
+	 *            the key
+	 * @return true, if the content is stored
+	 */
+	private boolean touch(final String key)
+	{
+		synchronized (contents)
+		{
+			return contents.get(key) != null;
+		}
+	}
+
+	/**
+	 * Writes the content with the given key to the given output stream. The content is copied from
+	 * the direct buffer in chunks, so no byte array of the full content is created.
+	 *
+	 * @param key
+	 *            the key
+	 * @param output
+	 *            the output
+	 * @return true, if the content was written or false if no content is stored with the given key.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public boolean write(final String key, final OutputStream output) throws IOException
+	{
+		final ByteBuffer content = get(key);
+		if (content == null)
+		{
+			return false;
+		}
+		write(content, output);
+		return true;
+	}
+
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.resource;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.Getter;
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.request.resource.AbstractResource;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class OffHeapImageResource is the counterpart of {@link DatabaseImageResource} that keeps
+ * the image bytes in the {@link OffHeapContentStore}. The resource holds only the key of the
+ * image, so the serialized page does not contain the image bytes, and the image is written from
+ * the direct buffer to the response.<br>
+ * <br>
+ * The store is bounded and lives only in the memory of one node, so an image can be missing after
+ * an eviction, a restart or a failover to another node, while a page still renders its url. If the
+ * resource has an {@link ImageLoader}, a missing image is loaded again and put in the store,
+ * otherwise the resource answers with 404.
+ */
+public class OffHeapImageResource extends AbstractResource
+{
+
+	/**
+	 * The Interface ImageLoader loads the bytes of an image again if it is missing in the store. The
+	 * loader is serialized with the resource, so it should keep only a reference to the source of
+	 * the image like a file name or an id and not the bytes.
+	 */
+	public interface ImageLoader extends Serializable
+	{
+
+		/**
+		 * Load the image as a byte array.
+		 *
+		 * @return the byte[] or null if the image does not exist anymore
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		byte[] load() throws IOException;
+	}
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The Constant logger. */
+	private static final Logger LOGGER = Logger.getLogger(OffHeapImageResource.class.getName());
+
+	/**
+	 * The content type.
+	 */
+	@Getter
+	private final String contentType;
+
+	/**
+	 * The key of the image in the store.
+	 */
+	@Getter
+	private final String key;
+
+	/**
+	 * The loader of the image if it is missing in the store or null.
+	 */
+	@Getter
+	private final ImageLoader imageLoader;
+
+	/**
+	 * Instantiates a new {@link OffHeapImageResource} from the given image data. The data is put in
+	 * the shared {@link OffHeapContentStore}.
+	 *
+	 * @param contentType
+	 *            the content type
+	 * @param data
+	 *            the data
+	 */
+	public OffHeapImageResource(final String contentType, final byte[] data)
+	{
+		this(contentType, data, null);
+	}
+
+	/**
+	 * Instantiates a new {@link OffHeapImageResource} from the given image data. The data is put in
+	 * the shared {@link OffHeapContentStore} and is loaded again with the given loader if it is
+	 * missing in the store.
+	 *
+	 * @param contentType
+	 *            the content type
+	 * @param data
+	 *            the data
+	 * @param imageLoader
+	 *            the loader of the image or null
+	 */
+	public OffHeapImageResource(final String contentType, final byte[] data,
+		final ImageLoader imageLoader)
+	{
+		this(contentType, OffHeapContentStore.getInstance().put(Args.notNull(data, "data")),
+			imageLoader);
+	}
+
+	/**
+	 * Instantiates a new {@link OffHeapImageResource} from the given key of an image in the store.
+	 *
+	 * @param contentType
+	 *            the content type
+	 * @param key
+	 *            the key of the image in the store
+	 */
+	public OffHeapImageResource(final String contentType, final String key)
+	{
+		this(contentType, key, null);
+	}
+
+	/**
+	 * Instantiates a new {@link OffHeapImageResource} from the given key of an image in the store.
+	 * The image is loaded again with the given loader if it is missing in the store.
+	 *
+	 * @param contentType
+	 *            the content type
+	 * @param key
+	 *            the key of the image in the store
+	 * @param imageLoader
+	 *            the loader of the image or null
+	 */
+	public OffHeapImageResource(final String contentType, final String key,
+		final ImageLoader imageLoader)
+	{
+		this.contentType = contentType;
+		this.key = Args.notNull(key, "key");
+		this.imageLoader = imageLoader;
+	}
+
+	/**
+	 * Gets the content of the image from the store. If the image is missing in the store, it is
+	 * loaded with the {@link ImageLoader} and put in the store again.
+	 *
+	 * @return the content or null if the image is missing and can not be loaded
+	 */
+	private ByteBuffer getContent()
+	{
+		final ByteBuffer content = getStore().get(key);
+		if (content != null || imageLoader == null)
+		{
+			return content;
+		}
+		try
+		{
+			final byte[] data = imageLoader.load();
+			if (data == null)
+			{
+				return null;
+			}
+			// the store does not keep data that is greater than its maximum weight
+			getStore().put(data);
+			return ByteBuffer.wrap(data).asReadOnlyBuffer();
+		}
+		catch (final IOException e)
+		{
+			LOGGER.error("The image with the key " + key + " could not be loaded again.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the store of the image. Overwrite this method if the image is not in the shared
+	 * {@link OffHeapContentStore}.
+	 *
+	 * @return the store
+	 */
+	protected OffHeapContentStore getStore()
+	{
+		return OffHeapContentStore.getInstance();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected ResourceResponse newResourceResponse(final Attributes attributes)
+	{
+		final ResourceResponse resourceResponse = new ResourceResponse();
+		final ByteBuffer content = getContent();
+		if (content == null)
+		{
+			resourceResponse.setError(HttpServletResponse.SC_NOT_FOUND);
+			return resourceResponse;
+		}
+		resourceResponse.setContentType(contentType);
+		resourceResponse.setContentLength(content.remaining());
+		resourceResponse.setWriteCallback(new WriteCallback()
+		{
+			@Override
+			public void writeData(final Attributes attributes) throws IOException
+			{
+				OffHeapContentStore.write(content, attributes.getResponse().getOutputStream());
+			}
+		});
+		return resourceResponse;
+	}
+
+}
@@ -15,77 +15,89 @@
  */
 package de.alpharogroup.wicket.base.util.seo;
 
-import java.util.HashSet;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import lombok.experimental.UtilityClass;
 
+import org.apache.log4j.Logger;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebRequest;
+
 /**
- * The Class BotAgentInspector has on method that checks for agent strings.
+ * The Class BotAgentInspector has on method that checks for agent strings.<br>
+ * <br>
+ * The patterns are compiled into a {@link MultiPatternMatcher}, so a user agent is scanned only
+ * once for all patterns. The verdicts are cached in a bounded LRU cache by the user agent and in
+ * the {@link RequestCycle} for the current request. The default patterns are loaded from the files
+ * <code>bot-agents.txt</code> and <code>no-bot-agents.txt</code> beside this class. They can be
+ * replaced without a code change with the system properties {@link #BOT_AGENTS_PROPERTY} and
+ * {@link #NO_BOT_AGENTS_PROPERTY}, which contain a comma separated list of files or classpath
+ * resources with the prefix <code>classpath:</code>. The files contain one pattern per line,
+ * lines that starts with <code>#</code> are ignored.
  */
 @UtilityClass
 public class BotAgentInspector
 {
 
-	/** The Constant BOT_AGENTS. */
-	private static final Set<String> BOT_AGENTS = new HashSet<String>()
+	/** The Constant BOT_AGENTS_PROPERTY is the system property for the robot pattern files. */
+	public static final String BOT_AGENTS_PROPERTY = "jaulp.wicket.seo.botAgents";
+
+	/** The Constant NO_BOT_AGENTS_PROPERTY is the system property for the no robot patterns. */
+	public static final String NO_BOT_AGENTS_PROPERTY = "jaulp.wicket.seo.noBotAgents";
+
+	/** The Constant CLASSPATH_PREFIX. */
+	public static final String CLASSPATH_PREFIX = "classpath:";
+
+	/** The Constant MAX_CACHED_AGENTS. */
+	public static final int MAX_CACHED_AGENTS = 1024;
+
+	/** The Constant IS_AGENT is the key for the verdict of the current request. */
+	public static final MetaDataKey<Boolean> IS_AGENT = new MetaDataKey<Boolean>()
 	{
 		private static final long serialVersionUID = 1L;
-		{
-			add("googlebot");
-			add("msnbot");
-			add("slurp");
-			add("jeeves");
-			add("appie");
-			add("architext");
-			add("ferret");
-			add("harvest");
-			add("htdig");
-			add("linkwalker");
-			add("lycos_");
-			add("moget");
-			add("muscatferret");
-			add("myweb");
-			add("nomad");
-			add("scooter");
-			add("yahoo!\\sslurp\\schina");
-			add("antibot");
-			add("bruinbot");
-			add("digout4u");
-			add("echo!");
-			add("ia_archiver");
-			add("jennybot");
-			add("mercator");
-			add("netcraft");
-			add("petersnews");
-			add("unlost_web_crawler");
-			add("voila");
-			add("webbase");
-			add("webcollage");
-			add("cfetch");
-			add("zyborg");
-			add("wisenutbot");
-			add("robot");
-			add("spider");
-		}
 	};
 
-	/** The Constant NO_BOT_AGENTS. */
-	private static final Set<String> NO_BOT_AGENTS = new HashSet<String>()
-	{
-		private static final long serialVersionUID = 1L;
+	/** The Constant logger. */
+	private static final Logger LOGGER = Logger.getLogger(BotAgentInspector.class.getName());
+
+	/** The bit of the robot patterns in the matcher. */
+	private static final int BOT = 1;
+
+	/** The bit of the no robot patterns in the matcher. */
+	private static final int NO_BOT = 1 << 1;
+
+	/** The Constant VERDICTS is the LRU cache of the verdicts by the user agent. */
+	private static final Map<String, Boolean> VERDICTS = Collections
+		.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true)
 		{
-			add("firefox");
-			add("msie");
-			add("opera");
-			add("netscape");
-			add("safari");
-			add("chrome");
-		}
-	};
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest)
+			{
+				return size() > MAX_CACHED_AGENTS;
+			}
+		});
+
+	/** The matcher of the robot and no robot patterns. */
+	private static volatile MultiPatternMatcher matcher = new MultiPatternMatcher(
+		loadPatterns(BOT_AGENTS_PROPERTY, "bot-agents.txt"),
+		loadPatterns(NO_BOT_AGENTS_PROPERTY, "no-bot-agents.txt"));
 
 	/**
-	 * Checks if the given String object is agent over the String array BOT_AGENTS.
+	 * Checks if the given String object is agent over the robot patterns.
 	 * 
 	 * @param agent
 	 *            String to check.
@@ -95,22 +107,153 @@ public class BotAgentInspector
 	{
 		if (agent != null)
 		{
-			final String lowerAgent = agent.toLowerCase();
-			for (final String noBot : NO_BOT_AGENTS)
+			Boolean verdict = VERDICTS.get(agent);
+			if (verdict == null)
+			{
+				final int found = matcher.match(agent, NO_BOT);
+				verdict = (found & NO_BOT) == 0 && (found & BOT) != 0;
+				VERDICTS.put(agent, verdict);
+			}
+			return verdict;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the user agent of the given request is an agent over the robot patterns. The
+	 * verdict is saved in the current {@link RequestCycle}, so it is computed once per request.
+	 *
+	 * @param request
+	 *            the request
+	 * @return true, if is agent
+	 */
+	public static boolean isAgent(final WebRequest request)
+	{
+		final RequestCycle requestCycle = RequestCycle.get();
+		if (requestCycle == null)
+		{
+			return isAgent(request.getHeader("User-Agent"));
+		}
+		Boolean verdict = requestCycle.getMetaData(IS_AGENT);
+		if (verdict == null)
+		{
+			verdict = isAgent(request.getHeader("User-Agent"));
+			requestCycle.setMetaData(IS_AGENT, verdict);
+		}
+		return verdict;
+	}
+
+	/**
+	 * Load the patterns from the locations of the given system property or from the given default
+	 * resource beside this class.
+	 *
+	 * @param property
+	 *            the system property
+	 * @param defaultResource
+	 *            the default resource
+	 * @return the patterns
+	 */
+	private static Set<String> loadPatterns(final String property, final String defaultResource)
+	{
+		final Set<String> patterns = new LinkedHashSet<>();
+		final String locations = System.getProperty(property);
+		if (locations != null && !locations.trim().isEmpty())
+		{
+			try
 			{
-				if (lowerAgent.contains(noBot))
+				for (final String location : locations.split(","))
 				{
-					return false;
+					patterns.addAll(readPatterns(openLocation(location.trim())));
 				}
+				return patterns;
 			}
-			for (final String bot : BOT_AGENTS)
+			catch (final IOException e)
 			{
-				if (lowerAgent.contains(bot))
+				LOGGER.error("Could not load the patterns from " + locations
+					+ ", the default patterns will be used.", e);
+				patterns.clear();
+			}
+		}
+		try
+		{
+			patterns.addAll(readPatterns(BotAgentInspector.class
+				.getResourceAsStream(defaultResource)));
+		}
+		catch (final IOException e)
+		{
+			LOGGER.error("Could not load the default patterns from " + defaultResource + ".", e);
+		}
+		return patterns;
+	}
+
+	/**
+	 * Opens the given location of a pattern file.
+	 *
+	 * @param location
+	 *            the file or the classpath resource with the prefix <code>classpath:</code>
+	 * @return the input stream
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static InputStream openLocation(final String location) throws IOException
+	{
+		if (location.startsWith(CLASSPATH_PREFIX))
+		{
+			final String resource = location.substring(CLASSPATH_PREFIX.length());
+			final ClassLoader classLoader = Thread.currentThread().getContextClassLoader() != null
+				? Thread.currentThread().getContextClassLoader()
+				: BotAgentInspector.class.getClassLoader();
+			return classLoader.getResourceAsStream(resource.startsWith("/")
+				? resource.substring(1)
+				: resource);
+		}
+		return new FileInputStream(location);
+	}
+
+	/**
+	 * Reads the patterns from the given input stream and closes it.
+	 *
+	 * @param inputStream
+	 *            the input stream
+	 * @return the patterns
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static Set<String> readPatterns(final InputStream inputStream) throws IOException
+	{
+		if (inputStream == null)
+		{
+			throw new IOException("The pattern file does not exist.");
+		}
+		final Set<String> patterns = new LinkedHashSet<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
+			StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#"))
 				{
-					return true;
+					patterns.add(line.toLowerCase());
 				}
 			}
 		}
-		return false;
+		return patterns;
+	}
+
+	/**
+	 * Replaces the robot and no robot patterns and clears the cached verdicts.
+	 *
+	 * @param botAgents
+	 *            the robot patterns
+	 * @param noBotAgents
+	 *            the no robot patterns, they have precedence over the robot patterns
+	 */
+	public static void setPatterns(final Collection<String> botAgents,
+		final Collection<String> noBotAgents)
+	{
+		matcher = new MultiPatternMatcher(botAgents, noBotAgents);
+		VERDICTS.clear();
 	}
 }
\ No newline at end of file
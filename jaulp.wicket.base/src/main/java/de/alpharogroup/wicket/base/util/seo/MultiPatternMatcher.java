@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.seo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * The Class MultiPatternMatcher is an Aho-Corasick automaton that finds several literal patterns
+ * in one pass over a text. The matching is case insensitive. Every pattern belongs to a group and
+ * the result of a match is the bit mask of the groups that have at least one pattern in the text.
+ * The automaton is compiled once in the constructor into a transition table, so the match of a
+ * text does not allocate any objects.
+ */
+public class MultiPatternMatcher implements Serializable
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The maximum number of groups. */
+	public static final int MAX_GROUPS = 31;
+
+	/** The columns of the ascii characters in the transition table, -1 if not in a pattern. */
+	private final int[] asciiColumns = new int[128];
+
+	/** The sorted non ascii characters that are contained in the patterns. */
+	private final char[] otherCharacters;
+
+	/** The columns of the sorted non ascii characters in the transition table. */
+	private final int[] otherColumns;
+
+	/** The transition table over the states and the columns. */
+	private final int[][] transitions;
+
+	/** The bit mask of the groups that are found when the state is reached. */
+	private final int[] outputs;
+
+	/**
+	 * Instantiates a new {@link MultiPatternMatcher}. The index of the given group is the bit of
+	 * the group in the result of {@link #match(CharSequence, int)}.
+	 *
+	 * @param groups
+	 *            the groups of patterns
+	 */
+	@SafeVarargs
+	public MultiPatternMatcher(final Collection<String>... groups)
+	{
+		if (groups.length > MAX_GROUPS)
+		{
+			throw new IllegalArgumentException("Only " + MAX_GROUPS + " groups are supported.");
+		}
+		Arrays.fill(asciiColumns, -1);
+		final Map<Character, Integer> others = new TreeMap<>();
+		int columnCount = 0;
+		// build the trie of the patterns...
+		final List<int[]> trie = new ArrayList<>();
+		final List<Integer> trieOutputs = new ArrayList<>();
+		trie.add(new int[0]);
+		trieOutputs.add(0);
+		for (int group = 0; group < groups.length; group++)
+		{
+			for (final String pattern : groups[group])
+			{
+				if (pattern == null || pattern.isEmpty())
+				{
+					continue;
+				}
+				int state = 0;
+				for (int i = 0; i < pattern.length(); i++)
+				{
+					final char c = Character.toLowerCase(pattern.charAt(i));
+					final int column;
+					if (c < asciiColumns.length)
+					{
+						if (asciiColumns[c] < 0)
+						{
+							asciiColumns[c] = columnCount++;
+						}
+						column = asciiColumns[c];
+					}
+					else
+					{
+						if (!others.containsKey(c))
+						{
+							others.put(c, columnCount++);
+						}
+						column = others.get(c);
+					}
+					int[] children = trie.get(state);
+					if (children.length <= column)
+					{
+						final int oldLength = children.length;
+						children = Arrays.copyOf(children, column + 1);
+						Arrays.fill(children, oldLength, children.length, -1);
+						trie.set(state, children);
+					}
+					if (children[column] < 0)
+					{
+						children[column] = trie.size();
+						trie.add(new int[0]);
+						trieOutputs.add(0);
+					}
+					state = children[column];
+				}
+				trieOutputs.set(state, trieOutputs.get(state) | (1 << group));
+			}
+		}
+		this.otherCharacters = new char[others.size()];
+		this.otherColumns = new int[others.size()];
+		int index = 0;
+		for (final Map.Entry<Character, Integer> entry : others.entrySet())
+		{
+			otherCharacters[index] = entry.getKey();
+			otherColumns[index++] = entry.getValue();
+		}
+		// compute the failure links in breadth first order and complete the transition table...
+		final int stateCount = trie.size();
+		this.transitions = new int[stateCount][columnCount];
+		this.outputs = new int[stateCount];
+		final int[] failures = new int[stateCount];
+		final Queue<Integer> queue = new LinkedList<>();
+		for (int column = 0; column < columnCount; column++)
+		{
+			final int child = child(trie, 0, column);
+			if (child > 0)
+			{
+				failures[child] = 0;
+				transitions[0][column] = child;
+				queue.add(child);
+			}
+		}
+		outputs[0] = trieOutputs.get(0);
+		while (!queue.isEmpty())
+		{
+			final int state = queue.poll();
+			outputs[state] = trieOutputs.get(state) | outputs[failures[state]];
+			for (int column = 0; column < columnCount; column++)
+			{
+				final int child = child(trie, state, column);
+				if (child > 0)
+				{
+					failures[child] = transitions[failures[state]][column];
+					transitions[state][column] = child;
+					queue.add(child);
+				}
+				else
+				{
+					transitions[state][column] = transitions[failures[state]][column];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the child state of the given state in the trie.
+	 *
+	 * @param trie
+	 *            the trie
+	 * @param state
+	 *            the state
+	 * @param column
+	 *            the column of the character
+	 * @return the child state or -1 if no child exists
+	 */
+	private static int child(final List<int[]> trie, final int state, final int column)
+	{
+		final int[] children = trie.get(state);
+		return column < children.length ? children[column] : -1;
+	}
+
+	/**
+	 * Gets the column of the given lower case character in the transition table.
+	 *
+	 * @param c
+	 *            the lower case character
+	 * @return the column or -1 if no pattern contains the character
+	 */
+	private int column(final char c)
+	{
+		if (c < asciiColumns.length)
+		{
+			return asciiColumns[c];
+		}
+		final int index = Arrays.binarySearch(otherCharacters, c);
+		return index < 0 ? -1 : otherColumns[index];
+	}
+
+	/**
+	 * Finds the groups that have at least one pattern in the given text.
+	 *
+	 * @param text
+	 *            the text
+	 * @param stopMask
+	 *            the bit mask of the groups that stops the match as soon as one of them is found
+	 * @return the bit mask of the found groups
+	 */
+	public int match(final CharSequence text, final int stopMask)
+	{
+		int found = 0;
+		int state = 0;
+		final int length = text.length();
+		for (int i = 0; i < length; i++)
+		{
+			final int column = column(Character.toLowerCase(text.charAt(i)));
+			state = column < 0 ? 0 : transitions[state][column];
+			found |= outputs[state];
+			if ((found & stopMask) != 0)
+			{
+				break;
+			}
+		}
+		return found;
+	}
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class ConcurrentOnlineUsersTest
+{
+
+	@Test
+	public void testAddAndRemove()
+	{
+		final ConcurrentOnlineUsers<String, String> onlineUsers = new ConcurrentOnlineUsers<>();
+		AssertJUnit.assertNull(onlineUsers.addOnline("alice", "s1"));
+		AssertJUnit.assertTrue(onlineUsers.isOnline("alice"));
+		AssertJUnit.assertEquals("alice", onlineUsers.getUser("s1"));
+		AssertJUnit.assertEquals(1, onlineUsers.getSize());
+
+		AssertJUnit.assertEquals("s1", onlineUsers.replaceSessionId("alice", "s1", "s2"));
+		AssertJUnit.assertNull(onlineUsers.getUser("s1"));
+		AssertJUnit.assertEquals("s2", onlineUsers.getSessionId("alice"));
+		AssertJUnit.assertEquals(1, onlineUsers.getSize());
+
+		AssertJUnit.assertEquals("alice", onlineUsers.remove("s2"));
+		AssertJUnit.assertFalse(onlineUsers.isOnline("alice"));
+		AssertJUnit.assertEquals(0, onlineUsers.getSize());
+		AssertJUnit.assertNull(onlineUsers.removeOnline("alice"));
+	}
+
+	@Test
+	public void testConcurrentLoginLogout() throws InterruptedException
+	{
+		final ConcurrentOnlineSessionUsers<Integer, String, Object> onlineUsers = new ConcurrentOnlineSessionUsers<>(
+			8);
+		final int threads = 16;
+		final int users = 500;
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++)
+		{
+			final int offset = t;
+			final Thread worker = new Thread(() -> {
+				try
+				{
+					start.await();
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+				for (int i = 0; i < users; i++)
+				{
+					final int user = (i + offset) % users;
+					onlineUsers.addOnline(user, user + "-" + offset, new Object());
+					if (i % 3 == 0)
+					{
+						onlineUsers.removeOnline(user);
+					}
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		start.countDown();
+		for (final Thread worker : workers)
+		{
+			worker.join();
+		}
+		int online = 0;
+		for (int user = 0; user < users; user++)
+		{
+			final String sessionId = onlineUsers.getSessionId(user);
+			if (sessionId != null)
+			{
+				online++;
+				AssertJUnit.assertEquals(Integer.valueOf(user), onlineUsers.getUser(sessionId));
+				AssertJUnit.assertNotNull(onlineUsers.getSession(sessionId));
+			}
+		}
+		AssertJUnit.assertEquals(online, onlineUsers.getSize());
+	}
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class ExpiringOnlineSessionUsersTest
+{
+
+	/**
+	 * A clock that is moved forward manually.
+	 */
+	private static class ManualClock extends Clock
+	{
+		private long millis;
+
+		@Override
+		public ZoneId getZone()
+		{
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Instant instant()
+		{
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override
+		public long millis()
+		{
+			return millis;
+		}
+
+		void advance(final long delta)
+		{
+			millis += delta;
+		}
+
+		@Override
+		public Clock withZone(final ZoneId zone)
+		{
+			return this;
+		}
+	}
+
+	@Test
+	public void testSweepEvictsIdleEntries()
+	{
+		final ManualClock clock = new ManualClock();
+		final ExpiringOnlineSessionUsers<String, String, Object> onlineUsers = new ExpiringOnlineSessionUsers<>(
+			10, TimeUnit.SECONDS, 1000, 100, clock);
+		onlineUsers.addOnline("alice", "s1", new Object());
+		onlineUsers.addOnline("bob", "s2", new Object());
+
+		clock.advance(6000);
+		AssertJUnit.assertEquals(0, onlineUsers.sweep());
+		AssertJUnit.assertTrue(onlineUsers.touch("s2"));
+
+		clock.advance(6000);
+		AssertJUnit.assertEquals(1, onlineUsers.sweep());
+		AssertJUnit.assertFalse(onlineUsers.isOnline("alice"));
+		AssertJUnit.assertNull(onlineUsers.getSession("s1"));
+		AssertJUnit.assertTrue(onlineUsers.isOnline("bob"));
+
+		clock.advance(6000);
+		AssertJUnit.assertEquals(1, onlineUsers.sweep());
+		AssertJUnit.assertEquals(0, onlineUsers.getSize());
+		AssertJUnit.assertFalse(onlineUsers.touch("s2"));
+	}
+
+	@Test
+	public void testSweepEvictsInBatches()
+	{
+		final ManualClock clock = new ManualClock();
+		final ExpiringOnlineSessionUsers<Integer, String, Object> onlineUsers = new ExpiringOnlineSessionUsers<>(
+			1, TimeUnit.SECONDS, 100, 10, clock);
+		for (int i = 0; i < 25; i++)
+		{
+			onlineUsers.addOnline(i, "s" + i, new Object());
+		}
+		clock.advance(5000);
+		AssertJUnit.assertEquals(10, onlineUsers.sweep());
+		AssertJUnit.assertEquals(10, onlineUsers.sweep());
+		AssertJUnit.assertEquals(5, onlineUsers.sweep());
+		AssertJUnit.assertEquals(0, onlineUsers.getSize());
+	}
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.application.replication;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class ReplicatedOnlineUsersTest
+{
+
+	@Test
+	public void testPresenceIsReplicated()
+	{
+		final LoopbackOnlineUsersTransport<String, String> transport = new LoopbackOnlineUsersTransport<>();
+		final ReplicatedOnlineUsers<String, String> node1 = new ReplicatedOnlineUsers<>("node1",
+			transport);
+		final ReplicatedOnlineUsers<String, String> node2 = new ReplicatedOnlineUsers<>("node2",
+			transport);
+		node1.join();
+		node2.join();
+
+		node1.addOnline("alice", "s1");
+		AssertJUnit.assertFalse(node2.isOnline("alice"));
+		AssertJUnit.assertEquals(1, node1.flush());
+		AssertJUnit.assertTrue(node2.isOnline("alice"));
+		AssertJUnit.assertEquals("alice", node2.getUser("s1"));
+		AssertJUnit.assertTrue(node1.isLocal("s1"));
+		AssertJUnit.assertFalse(node2.isLocal("s1"));
+
+		node2.addOnline("bob", "s2");
+		node2.flush();
+		AssertJUnit.assertEquals(2, node1.getSize());
+		AssertJUnit.assertEquals(2, node2.getSize());
+
+		node1.remove("s1");
+		node1.flush();
+		AssertJUnit.assertFalse(node2.isOnline("alice"));
+		AssertJUnit.assertEquals(1, node2.getSize());
+	}
+
+	@Test
+	public void testBatchSizeAndJoinAndLeave()
+	{
+		final LoopbackOnlineUsersTransport<String, String> transport = new LoopbackOnlineUsersTransport<>();
+		final ReplicatedOnlineUsers<String, String> node1 = new ReplicatedOnlineUsers<>("node1",
+			transport, 2);
+		node1.join();
+		node1.addOnline("alice", "s1");
+		node1.addOnline("bob", "s2");
+		node1.addOnline("carol", "s3");
+
+		final ReplicatedOnlineUsers<String, String> node2 = new ReplicatedOnlineUsers<>("node2",
+			transport, 2);
+		node2.join();
+		AssertJUnit.assertEquals(0, node2.getSize());
+		node1.flush();
+		AssertJUnit.assertEquals(3, node2.getSize());
+
+		node1.leave();
+		AssertJUnit.assertEquals(0, node2.getSize());
+	}
+
+}
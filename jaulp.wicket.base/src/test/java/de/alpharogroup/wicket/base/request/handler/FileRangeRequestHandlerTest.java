@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.request.handler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.mock.MockWebRequest;
+import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.request.IRequestCycle;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.resource.ContentDisposition;
+import org.apache.wicket.util.time.Time;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import de.alpharogroup.wicket.base.util.resource.FileResourceStreamWriter;
+
+public class FileRangeRequestHandlerTest
+{
+
+	private static final int LENGTH = 1000;
+
+	private byte[] content;
+
+	private File file;
+
+	private static int getStatus(final MockWebResponse response)
+	{
+		final Integer status = response.getStatus();
+		return status != null ? status : HttpServletResponse.SC_OK;
+	}
+
+	private MockWebResponse respond(final File file, final String... headers)
+	{
+		final MockWebRequest request = new MockWebRequest(Url.parse("download"));
+		for (int i = 0; i < headers.length; i += 2)
+		{
+			request.setHeader(headers[i], headers[i + 1]);
+		}
+		return respond(file, request);
+	}
+
+	private MockWebResponse respond(final File file, final MockWebRequest request)
+	{
+		final MockWebResponse response = new MockWebResponse();
+		final IRequestCycle requestCycle = (IRequestCycle)Proxy.newProxyInstance(getClass()
+			.getClassLoader(), new Class<?>[] { IRequestCycle.class }, (proxy, method, args) -> {
+			if (method.getName().equals("getRequest"))
+			{
+				return request;
+			}
+			if (method.getName().equals("getResponse"))
+			{
+				return response;
+			}
+			return null;
+		});
+		new FileRangeRequestHandler(new FileResourceStreamWriter(file, "application/pdf"),
+			"file.pdf", ContentDisposition.ATTACHMENT, true).respond(requestCycle);
+		return response;
+	}
+
+	@BeforeMethod
+	public void setUp() throws IOException
+	{
+		content = new byte[LENGTH];
+		for (int i = 0; i < LENGTH; i++)
+		{
+			content[i] = (byte)i;
+		}
+		file = File.createTempFile("range", ".pdf");
+		Files.write(file.toPath(), content);
+	}
+
+	@AfterMethod
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	@Test
+	public void testIfRangeMismatchSendsTheWholeContent()
+	{
+		final String entityTag = FileRangeRequestHandler.newEntityTag(file);
+		for (final String ifRange : new String[] { "W/" + entityTag, "\"other\"" })
+		{
+			final MockWebResponse response = respond(file, "Range", "bytes=0-9", "If-Range",
+				ifRange);
+			AssertJUnit.assertEquals(HttpServletResponse.SC_OK, getStatus(response));
+			AssertJUnit.assertNull(response.getHeader("Content-Range"));
+			AssertJUnit.assertTrue(Arrays.equals(content, response.getBinaryResponse()));
+		}
+		final MockWebResponse response = respond(file, "Range", "bytes=0-9", "If-Range",
+			entityTag);
+		AssertJUnit.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, getStatus(response));
+	}
+
+	@Test
+	public void testMissingFile()
+	{
+		final MockWebResponse response = respond(new File(file.getParentFile(), file.getName()
+			+ ".missing"));
+		AssertJUnit.assertEquals(HttpServletResponse.SC_NOT_FOUND, getStatus(response));
+	}
+
+	@Test
+	public void testMultipleRanges()
+	{
+		final MockWebResponse response = respond(file, "Range", "bytes=0-9,500-509,990-");
+		AssertJUnit.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, getStatus(response));
+		AssertJUnit.assertTrue(response.getContentType().startsWith(
+			"multipart/byteranges; boundary="));
+		final byte[] body = response.getBinaryResponse();
+		AssertJUnit.assertEquals(Long.valueOf(body.length), response.getContentLength());
+		final String text = new String(body, StandardCharsets.ISO_8859_1);
+		AssertJUnit.assertTrue(text.contains("Content-Range: bytes 500-509/1000\r\n"));
+		AssertJUnit.assertTrue(text.contains("Content-Range: bytes 990-999/1000\r\n"));
+		AssertJUnit.assertTrue(text.endsWith("--\r\n"));
+	}
+
+	@Test
+	public void testNotModified()
+	{
+		final String entityTag = FileRangeRequestHandler.newEntityTag(file);
+		for (final String ifNoneMatch : new String[] { entityTag, "W/" + entityTag, "*",
+				"\"other\", " + entityTag })
+		{
+			final MockWebResponse response = respond(file, "If-None-Match", ifNoneMatch);
+			AssertJUnit.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, getStatus(response));
+			AssertJUnit.assertEquals(entityTag, response.getHeader("ETag"));
+			AssertJUnit.assertNull(response.getBinaryResponse());
+		}
+		AssertJUnit.assertEquals(HttpServletResponse.SC_OK,
+			getStatus(respond(file, "If-None-Match", "\"other\"")));
+
+		final MockWebRequest request = new MockWebRequest(Url.parse("download"));
+		request.setDateHeader("If-Modified-Since", Time.millis(file.lastModified()));
+		AssertJUnit.assertEquals(HttpServletResponse.SC_NOT_MODIFIED,
+			getStatus(respond(file, request)));
+		final MockWebRequest modified = new MockWebRequest(Url.parse("download"));
+		modified.setDateHeader("If-Modified-Since", Time.millis(file.lastModified() - 60000));
+		AssertJUnit.assertEquals(HttpServletResponse.SC_OK, getStatus(respond(file, modified)));
+	}
+
+	@Test
+	public void testRangeNotSatisfiable()
+	{
+		final MockWebResponse response = respond(file, "Range", "bytes=2000-");
+		AssertJUnit.assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+			getStatus(response));
+		AssertJUnit.assertEquals("bytes */1000", response.getHeader("Content-Range"));
+	}
+
+	@Test
+	public void testSingleRange()
+	{
+		final MockWebResponse response = respond(file, "Range", "bytes=100-199");
+		AssertJUnit.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, getStatus(response));
+		AssertJUnit.assertEquals("bytes 100-199/1000", response.getHeader("Content-Range"));
+		AssertJUnit.assertEquals(Long.valueOf(100), response.getContentLength());
+		AssertJUnit.assertTrue(Arrays.equals(Arrays.copyOfRange(content, 100, 200),
+			response.getBinaryResponse()));
+	}
+
+	@Test
+	public void testWholeContent()
+	{
+		final MockWebResponse response = respond(file);
+		AssertJUnit.assertEquals(HttpServletResponse.SC_OK, getStatus(response));
+		AssertJUnit.assertEquals("bytes", response.getHeader("Accept-Ranges"));
+		AssertJUnit.assertEquals(Long.valueOf(LENGTH), response.getContentLength());
+		AssertJUnit.assertTrue(Arrays.equals(content, response.getBinaryResponse()));
+	}
+
+}
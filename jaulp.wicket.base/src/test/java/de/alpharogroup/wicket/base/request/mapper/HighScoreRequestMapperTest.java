@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.request.mapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.mock.MockWebRequest;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class HighScoreRequestMapperTest
+{
+
+	private static class ScoredMapper implements IRequestMapper
+	{
+		private final String name;
+		private final int score;
+		private final List<String> asked;
+		private int scored;
+
+		private ScoredMapper(final String name, final int score, final List<String> asked)
+		{
+			this.name = name;
+			this.score = score;
+			this.asked = asked;
+		}
+
+		@Override
+		public int getCompatibilityScore(final Request request)
+		{
+			scored++;
+			return score;
+		}
+
+		@Override
+		public Url mapHandler(final IRequestHandler requestHandler)
+		{
+			return null;
+		}
+
+		@Override
+		public IRequestHandler mapRequest(final Request request)
+		{
+			asked.add(name);
+			return null;
+		}
+	}
+
+	private static Request newRequest(final String url)
+	{
+		return new MockWebRequest(Url.parse(url));
+	}
+
+	@Test
+	public void testCacheIsBounded()
+	{
+		final ScoredMapper scoredMapper = new ScoredMapper("mapper", 1, new ArrayList<String>());
+		final HighScoreRequestMapper mapper = new HighScoreRequestMapper().register(scoredMapper);
+		mapper.setMaxCacheSize(8);
+		for (int i = 0; i < 100; i++)
+		{
+			mapper.getCompatibilityScore(newRequest("product/" + i));
+		}
+		AssertJUnit.assertEquals(100, scoredMapper.scored);
+		mapper.getCompatibilityScore(newRequest("product/99"));
+		AssertJUnit.assertEquals(100, scoredMapper.scored);
+	}
+
+	@Test
+	public void testCacheIsInvalidatedOnRegisterAndUnregister()
+	{
+		final List<String> asked = new ArrayList<>();
+		final ScoredMapper first = new ScoredMapper("first", 1, asked);
+		final HighScoreRequestMapper mapper = new HighScoreRequestMapper().register(first);
+
+		mapper.mapRequest(newRequest("product/123"));
+		AssertJUnit.assertEquals(1, mapper.getCompatibilityScore(newRequest("product/123")));
+		AssertJUnit.assertEquals(1, first.scored);
+
+		final ScoredMapper second = new ScoredMapper("second", 5, asked);
+		mapper.register(second);
+		asked.clear();
+		AssertJUnit.assertEquals(5, mapper.getCompatibilityScore(newRequest("product/123")));
+		mapper.mapRequest(newRequest("product/123"));
+		AssertJUnit.assertEquals(2, first.scored);
+		AssertJUnit.assertEquals(Arrays.asList("first", "second"), asked);
+
+		mapper.unregister(second);
+		asked.clear();
+		AssertJUnit.assertEquals(1, mapper.getCompatibilityScore(newRequest("product/123")));
+		mapper.mapRequest(newRequest("product/123"));
+		AssertJUnit.assertEquals(3, first.scored);
+		AssertJUnit.assertEquals(1, second.scored);
+		AssertJUnit.assertEquals(Arrays.asList("first"), asked);
+	}
+
+	@Test
+	public void testEqualScoresKeepTheRegistrationOrder()
+	{
+		final List<String> asked = new ArrayList<>();
+		final List<IRequestMapper> mappers = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+		{
+			mappers.add(new ScoredMapper("mapper" + i, i % 2 == 0 ? 3 : 7, asked));
+		}
+		final HighScoreRequestMapper mapper = new HighScoreRequestMapper(mappers);
+
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 20; i += 2)
+		{
+			expected.add("mapper" + i);
+		}
+		for (int i = 1; i < 20; i += 2)
+		{
+			expected.add("mapper" + i);
+		}
+		for (int i = 0; i < 2; i++)
+		{
+			asked.clear();
+			AssertJUnit.assertNull(mapper.mapRequest(newRequest("a/b")));
+			AssertJUnit.assertEquals(expected, asked);
+		}
+		AssertJUnit.assertEquals(7, mapper.getCompatibilityScore(newRequest("a/b")));
+	}
+
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.request.mapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.wicket.mock.MockWebRequest;
+import org.apache.wicket.request.IRequestCycle;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class TrieRequestMapperTest
+{
+
+	private static class NamedMapper implements IRequestMapper
+	{
+		private final String name;
+		private final int score;
+		private final List<String> log;
+		private final Url url = Url.parse("mapped");
+
+		private NamedMapper(final String name, final int score, final List<String> log)
+		{
+			this.name = name;
+			this.score = score;
+			this.log = log;
+		}
+
+		@Override
+		public int getCompatibilityScore(final Request request)
+		{
+			log.add("score " + name);
+			return score;
+		}
+
+		@Override
+		public Url mapHandler(final IRequestHandler requestHandler)
+		{
+			return requestHandler == HANDLER ? url : null;
+		}
+
+		@Override
+		public IRequestHandler mapRequest(final Request request)
+		{
+			log.add("ask " + name);
+			return null;
+		}
+	}
+
+	private static final IRequestHandler HANDLER = new IRequestHandler()
+	{
+		@Override
+		public void detach(final IRequestCycle requestCycle)
+		{
+		}
+
+		@Override
+		public void respond(final IRequestCycle requestCycle)
+		{
+		}
+	};
+
+	private static List<String> scored(final TrieRequestMapper mapper, final List<String> log,
+		final String url)
+	{
+		log.clear();
+		mapper.getCompatibilityScore(new MockWebRequest(Url.parse(url)));
+		final List<String> scored = new ArrayList<>();
+		for (final String entry : log)
+		{
+			scored.add(entry.substring("score ".length()));
+		}
+		Collections.sort(scored);
+		return scored;
+	}
+
+	@Test
+	public void testCandidates()
+	{
+		final List<String> log = new ArrayList<>();
+		final TrieRequestMapper mapper = new TrieRequestMapper();
+		mapper.mount("/products/${id}", new NamedMapper("product", 1, log));
+		mapper.mount("/products/list", new NamedMapper("list", 1, log));
+		mapper.mount("/about", new NamedMapper("about", 1, log));
+		mapper.mount("/search/#{query}/results", new NamedMapper("search", 1, log));
+		mapper.mount("/docs", new NamedMapper("docs", 1, log));
+
+		AssertJUnit.assertEquals(Arrays.asList("list", "product"),
+			scored(mapper, log, "products/list"));
+		AssertJUnit.assertEquals(Arrays.asList("product"), scored(mapper, log, "products/42"));
+		AssertJUnit.assertEquals(Arrays.asList("about"), scored(mapper, log, "about"));
+		AssertJUnit.assertEquals(Arrays.asList("search"),
+			scored(mapper, log, "search/results"));
+		AssertJUnit.assertEquals(Arrays.asList("search"),
+			scored(mapper, log, "search/wicket/results"));
+		// a mount path matches the deeper paths too, the mapper decides with its score
+		AssertJUnit.assertEquals(Arrays.asList("docs"), scored(mapper, log, "docs/guide/intro"));
+		AssertJUnit.assertEquals(Collections.emptyList(), scored(mapper, log, "contact"));
+	}
+
+	@Test
+	public void testDelegatesAreScored()
+	{
+		final List<String> log = new ArrayList<>();
+		final TrieRequestMapper mapper = new TrieRequestMapper(new NamedMapper("root", 0, log));
+		mapper.add(new NamedMapper("resources", -1, log));
+		mapper.mount("/about", new NamedMapper("about", 1, log));
+
+		AssertJUnit.assertEquals(Arrays.asList("resources", "root"),
+			scored(mapper, log, "contact"));
+		AssertJUnit.assertEquals(Arrays.asList("about", "resources", "root"),
+			scored(mapper, log, "about"));
+		log.clear();
+		AssertJUnit.assertNull(mapper.mapRequest(new MockWebRequest(Url.parse("about"))));
+		AssertJUnit.assertEquals(Arrays.asList("ask about", "ask root", "ask resources"),
+			log.subList(3, log.size()));
+	}
+
+	@Test
+	public void testEqualScoresKeepTheMountOrder()
+	{
+		final List<String> log = new ArrayList<>();
+		final TrieRequestMapper mapper = new TrieRequestMapper(new NamedMapper("root", 1, log));
+		mapper.mount("/a/${x}", new NamedMapper("first", 1, log));
+		mapper.mount("/a/b", new NamedMapper("second", 1, log));
+		mapper.mount("/#{y}/b", new NamedMapper("third", 1, log));
+		mapper.mount("/a", new NamedMapper("best", 2, log));
+
+		for (int i = 0; i < 2; i++)
+		{
+			log.clear();
+			mapper.mapRequest(new MockWebRequest(Url.parse("a/b")));
+			AssertJUnit.assertEquals(
+				Arrays.asList("ask best", "ask first", "ask second", "ask third", "ask root"),
+				log.subList(5, log.size()));
+		}
+	}
+
+	@Test
+	public void testMapHandlerPrefersTheLastMountedMapper()
+	{
+		final List<String> log = new ArrayList<>();
+		final NamedMapper first = new NamedMapper("first", 1, log);
+		final NamedMapper second = new NamedMapper("second", 1, log);
+		final TrieRequestMapper mapper = new TrieRequestMapper();
+		mapper.mount("/first", first).mount("/second", second);
+
+		AssertJUnit.assertSame(second.url, mapper.mapHandler(HANDLER));
+		mapper.unmount(second);
+		AssertJUnit.assertSame(first.url, mapper.mapHandler(HANDLER));
+	}
+
+	@Test
+	public void testUnmountRemovesEveryNode()
+	{
+		final List<String> log = new ArrayList<>();
+		final NamedMapper page = new NamedMapper("page", 1, log);
+		final TrieRequestMapper mapper = new TrieRequestMapper();
+		mapper.mount("/a", page).mount("/b/${x}", page).mount("/#{y}/c", page);
+		AssertJUnit.assertEquals(Arrays.asList("page"), scored(mapper, log, "b/1"));
+
+		mapper.unmount(page);
+		AssertJUnit.assertEquals(Collections.emptyList(), scored(mapper, log, "a"));
+		AssertJUnit.assertEquals(Collections.emptyList(), scored(mapper, log, "b/1"));
+		AssertJUnit.assertEquals(Collections.emptyList(), scored(mapper, log, "c"));
+		AssertJUnit.assertNull(mapper.mapHandler(HANDLER));
+	}
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import de.alpharogroup.wicket.PackageResourceReferenceWrapper;
+import de.alpharogroup.wicket.PackageResourceReferences;
+import de.alpharogroup.wicket.base.enums.ResourceReferenceType;
+
+public class WicketComponentExtensionsTest
+{
+
+	/**
+	 * The component class with the header contributions.
+	 */
+	private static class MenuComponent
+	{
+	}
+
+	@Test
+	public void testRenderHeaderResponse()
+	{
+		final Set<PackageResourceReferenceWrapper> references = new LinkedHashSet<>();
+		references.add(new PackageResourceReferenceWrapper(new PackageResourceReference(
+			MenuComponent.class, "menu.js"), ResourceReferenceType.JS));
+		references.add(new PackageResourceReferenceWrapper(new PackageResourceReference(
+			MenuComponent.class, "menu.css"), ResourceReferenceType.CSS));
+		references.add(new PackageResourceReferenceWrapper(new PackageResourceReference(
+			MenuComponent.class, "menu.less"), ResourceReferenceType.LESS));
+		PackageResourceReferences.getInstance().register(
+			Collections.singletonMap(MenuComponent.class, references));
+
+		final AtomicInteger rendered = new AtomicInteger();
+		final IHeaderResponse response = (IHeaderResponse)Proxy.newProxyInstance(getClass()
+			.getClassLoader(), new Class<?>[] { IHeaderResponse.class }, (proxy, method, args) -> {
+			if (method.getName().equals("render"))
+			{
+				rendered.incrementAndGet();
+			}
+			return null;
+		});
+
+		final HeaderItem[] headerItems = PackageResourceReferences.getInstance().getHeaderItems(
+			MenuComponent.class);
+		AssertJUnit.assertEquals(2, headerItems.length);
+		AssertJUnit.assertSame(headerItems, PackageResourceReferences.getInstance()
+			.getHeaderItems(MenuComponent.class));
+
+		WicketComponentExtensions.renderHeaderResponse(response, MenuComponent.class);
+		AssertJUnit.assertEquals(2, rendered.get());
+	}
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.wicket.markup.repeater.data.IDataProvider;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class DataExportResourceStreamWriterTest
+{
+
+	/**
+	 * A data provider over a list that counts the requested chunks.
+	 */
+	private static class ListProvider implements IDataProvider<HashMap<String, Object>>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<HashMap<String, Object>> rows;
+
+		private int chunks;
+
+		ListProvider(final List<HashMap<String, Object>> rows)
+		{
+			this.rows = rows;
+		}
+
+		@Override
+		public void detach()
+		{
+		}
+
+		@Override
+		public Iterator<? extends HashMap<String, Object>> iterator(final long first,
+			final long count)
+		{
+			chunks++;
+			return rows.subList((int)first, (int)(first + count)).iterator();
+		}
+
+		@Override
+		public IModel<HashMap<String, Object>> model(final HashMap<String, Object> object)
+		{
+			return Model.of(object);
+		}
+
+		@Override
+		public long size()
+		{
+			return rows.size();
+		}
+	}
+
+	private static List<HashMap<String, Object>> newRows(final int size)
+	{
+		final List<HashMap<String, Object>> rows = new ArrayList<>();
+		for (int i = 0; i < size; i++)
+		{
+			final HashMap<String, Object> row = new HashMap<>();
+			row.put("name", i == 1 ? "Doe, \"John\"" : "row" + i);
+			row.put("score", i % 2 == 0 ? Integer.valueOf(i) : null);
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	@Test
+	public void testCancelStopsTheExport() throws IOException
+	{
+		final ExportProgress progress = ExportProgress.newProgress();
+		progress.cancel();
+		final DataExportResourceStreamWriter<HashMap<String, Object>> writer = new DataExportResourceStreamWriter<>(
+			new ListProvider(newRows(10)), new CsvExportFormat<HashMap<String, Object>>(
+				new ExportColumn("Name", "name")), 3, progress.getId());
+		try
+		{
+			writer.write(new ByteArrayOutputStream());
+			AssertJUnit.fail("The cancelled export has to fail.");
+		}
+		catch (final InterruptedIOException e)
+		{
+			AssertJUnit.assertTrue(progress.isFinished());
+			AssertJUnit.assertEquals(0, progress.getRows());
+		}
+	}
+
+	@Test
+	public void testCsvIsWrittenInChunks() throws IOException
+	{
+		final ListProvider provider = new ListProvider(newRows(7));
+		final ExportProgress progress = ExportProgress.newProgress();
+		final DataExportResourceStreamWriter<HashMap<String, Object>> writer = new DataExportResourceStreamWriter<>(
+			provider, new CsvExportFormat<HashMap<String, Object>>(new ExportColumn("Name",
+				"name"), new ExportColumn("Score", "score")), 3, progress.getId());
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		writer.write(output);
+
+		final String csv = new String(output.toByteArray(), StandardCharsets.UTF_8);
+		AssertJUnit.assertTrue(csv.startsWith("\uFEFFName,Score\r\nrow0,0\r\n"
+			+ "\"Doe, \"\"John\"\"\",\r\nrow2,2\r\n"));
+		AssertJUnit.assertEquals(8, csv.split("\r\n").length);
+		AssertJUnit.assertEquals(3, provider.chunks);
+		AssertJUnit.assertEquals(7, progress.getRows());
+		AssertJUnit.assertEquals(7, progress.getTotal());
+		AssertJUnit.assertTrue(progress.isFinished());
+	}
+
+	@Test
+	public void testXlsxContainsAllRows() throws IOException
+	{
+		final DataExportResourceStreamWriter<HashMap<String, Object>> writer = new DataExportResourceStreamWriter<>(
+			new ListProvider(newRows(5)), new XlsxExportFormat<HashMap<String, Object>>(
+				new ExportColumn("Name", "name"), new ExportColumn("Score", "score")), 2,
+			ExportProgress.newProgress().getId());
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		writer.write(output);
+
+		final List<String> entries = new ArrayList<>();
+		String sheet = null;
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(
+			output.toByteArray())))
+		{
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null)
+			{
+				entries.add(entry.getName());
+				if (entry.getName().equals("xl/worksheets/sheet1.xml"))
+				{
+					final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					final byte[] buffer = new byte[4096];
+					int read;
+					while ((read = zip.read(buffer)) != -1)
+					{
+						bytes.write(buffer, 0, read);
+					}
+					sheet = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+				}
+			}
+		}
+		AssertJUnit.assertTrue(entries.contains("[Content_Types].xml"));
+		AssertJUnit.assertTrue(entries.contains("xl/workbook.xml"));
+		AssertJUnit.assertNotNull(sheet);
+		AssertJUnit.assertEquals(6, sheet.split("<row>").length - 1);
+		AssertJUnit.assertTrue(sheet.contains(">Doe, \"John\"</t>"));
+		AssertJUnit.assertTrue(sheet.endsWith("</worksheet>"));
+	}
+
+}
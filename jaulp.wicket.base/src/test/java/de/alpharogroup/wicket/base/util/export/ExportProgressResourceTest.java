@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.export;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class ExportProgressResourceTest
+{
+
+	@Test
+	public void testToJson()
+	{
+		final ExportProgress progress = ExportProgress.newProgress();
+		AssertJUnit.assertEquals("{\"id\":\"" + progress.getId() + "\",\"rows\":0,\"total\":-1,"
+			+ "\"elapsedMillis\":0,\"cancelled\":false,\"finished\":false}",
+			ExportProgressResource.toJson(progress));
+
+		progress.start(10);
+		progress.addRows(4);
+		progress.cancel();
+		final String json = ExportProgressResource.toJson(progress);
+		AssertJUnit.assertTrue(json.contains("\"rows\":4,\"total\":10,"));
+		AssertJUnit.assertTrue(json.contains("\"cancelled\":true,\"finished\":false}"));
+	}
+
+}
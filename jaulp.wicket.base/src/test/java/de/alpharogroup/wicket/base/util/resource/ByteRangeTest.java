@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.resource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class ByteRangeTest
+{
+
+	@Test
+	public void testParse()
+	{
+		AssertJUnit.assertEquals(Arrays.asList(new ByteRange(0, 499)),
+			ByteRange.parse("bytes=0-499", 1000));
+		AssertJUnit.assertEquals(Arrays.asList(new ByteRange(500, 999)),
+			ByteRange.parse("bytes=500-", 1000));
+		AssertJUnit.assertEquals(Arrays.asList(new ByteRange(900, 999)),
+			ByteRange.parse("bytes=-100", 1000));
+		AssertJUnit.assertEquals(Arrays.asList(new ByteRange(0, 999)),
+			ByteRange.parse("bytes=-5000", 1000));
+		AssertJUnit.assertEquals(Arrays.asList(new ByteRange(990, 999)),
+			ByteRange.parse("bytes=990-5000", 1000));
+
+		final List<ByteRange> ranges = ByteRange.parse("bytes=0-9, 20-29 ,2000-", 1000);
+		AssertJUnit.assertEquals(Arrays.asList(new ByteRange(0, 9), new ByteRange(20, 29)), ranges);
+		AssertJUnit.assertEquals(10, ranges.get(1).getLength());
+		AssertJUnit.assertEquals("bytes 20-29/1000", ranges.get(1).toContentRange(1000));
+	}
+
+	@Test
+	public void testParseCoalesces()
+	{
+		AssertJUnit.assertEquals(Arrays.asList(new ByteRange(0, 29), new ByteRange(50, 59)),
+			ByteRange.parse("bytes=50-59,10-19,0-9,15-29", 1000));
+		AssertJUnit.assertEquals(Arrays.asList(new ByteRange(0, 999)),
+			ByteRange.parse("bytes=500-,0-499", 1000));
+		// the same bytes asked many times are sent once as whole resource
+		AssertJUnit.assertNull(ByteRange.parse("bytes=0-999,0-999", 1000));
+		AssertJUnit.assertNull(ByteRange.parse("bytes=0-99,0-99,0-99,0-99,0-99,0-99,0-99,0-99,"
+			+ "0-99,0-99,0-99,0-99,0-99,0-99,0-99,0-99", 1000));
+	}
+
+	@Test
+	public void testParseInvalid()
+	{
+		AssertJUnit.assertNull(ByteRange.parse(null, 1000));
+		AssertJUnit.assertNull(ByteRange.parse("items=0-9", 1000));
+		AssertJUnit.assertNull(ByteRange.parse("bytes=9-0", 1000));
+		AssertJUnit.assertNull(ByteRange.parse("bytes=a-b", 1000));
+		AssertJUnit.assertNull(ByteRange.parse("bytes=0-1,2-3,4-5,6-7,8-9,10-11,12-13,14-15,"
+			+ "16-17,18-19,20-21,22-23,24-25,26-27,28-29,30-31,32-33", 1000));
+		AssertJUnit.assertTrue(ByteRange.parse("bytes=1000-", 1000).isEmpty());
+		AssertJUnit.assertTrue(ByteRange.parse("bytes=-0", 1000).isEmpty());
+	}
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class ContentCacheTest
+{
+
+	@Test
+	public void testEvictsByWeight() throws IOException
+	{
+		final ContentCache cache = new ContentCache(100, ContentCache.Storage.HEAP);
+		cache.get("a", () -> new byte[40]);
+		cache.get("b", () -> new byte[40]);
+		cache.get("a", () -> new byte[40]);
+		AssertJUnit.assertEquals(1, cache.getHits());
+		AssertJUnit.assertEquals(2, cache.getMisses());
+
+		// b is the least recently used content
+		cache.get("c", () -> new byte[40]);
+		AssertJUnit.assertEquals(1, cache.getEvictions());
+		AssertJUnit.assertEquals(80, cache.getWeight());
+		AssertJUnit.assertEquals(2, cache.getSize());
+		cache.get("a", () -> new byte[40]);
+		AssertJUnit.assertEquals(2, cache.getHits());
+
+		// content greater than the maximum weight is not cached
+		AssertJUnit.assertEquals(200, cache.get("d", () -> new byte[200]).length);
+		AssertJUnit.assertEquals(80, cache.getWeight());
+
+		cache.invalidate("a");
+		AssertJUnit.assertEquals(40, cache.getWeight());
+		cache.clear();
+		AssertJUnit.assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testWriteFromDirectStorage() throws IOException
+	{
+		final ContentCache cache = new ContentCache(1024 * 1024, ContentCache.Storage.DIRECT);
+		final byte[] content = new byte[FileResourceStreamWriter.BUFFER_SIZE * 2 + 17];
+		for (int i = 0; i < content.length; i++)
+		{
+			content[i] = (byte)i;
+		}
+		for (int i = 0; i < 2; i++)
+		{
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			cache.write("key", () -> content, output);
+			AssertJUnit.assertTrue(Arrays.equals(content, output.toByteArray()));
+		}
+		AssertJUnit.assertEquals(1, cache.getHits());
+		AssertJUnit.assertTrue(Arrays.equals(content, cache.get("key", () -> null)));
+	}
+
+}
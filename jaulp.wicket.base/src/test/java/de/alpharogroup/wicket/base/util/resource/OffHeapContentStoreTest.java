@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class OffHeapContentStoreTest
+{
+
+	@Test
+	public void testPutDeduplicates() throws IOException
+	{
+		final OffHeapContentStore store = new OffHeapContentStore(1024);
+		final byte[] data = { 1, 2, 3, 4 };
+		final String key = store.put(data);
+		AssertJUnit.assertEquals(key, store.put(data.clone()));
+		AssertJUnit.assertEquals(key, store.put(new Byte[] { 1, 2, 3, 4 }));
+		AssertJUnit.assertEquals(1, store.getSize());
+		AssertJUnit.assertEquals(4, store.getWeight());
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		AssertJUnit.assertTrue(store.write(key, output));
+		AssertJUnit.assertTrue(Arrays.equals(data, output.toByteArray()));
+		AssertJUnit.assertFalse(store.write("unknown", output));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed()
+	{
+		final OffHeapContentStore store = new OffHeapContentStore(100);
+		final String first = store.put(new byte[40]);
+		final String second = store.put(new byte[] { 1, 2, 3 });
+		store.put(new byte[40]);
+		final String third = store.put(new byte[60]);
+		AssertJUnit.assertTrue(store.contains(first));
+		AssertJUnit.assertFalse(store.contains(second));
+		AssertJUnit.assertTrue(store.contains(third));
+		AssertJUnit.assertEquals(100, store.getWeight());
+	}
+
+}
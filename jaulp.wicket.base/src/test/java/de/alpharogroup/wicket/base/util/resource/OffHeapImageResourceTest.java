@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.resource;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.request.resource.AbstractResource.ResourceResponse;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class OffHeapImageResourceTest
+{
+
+	private static class StoreImageResource extends OffHeapImageResource
+	{
+		private static final long serialVersionUID = 1L;
+		private final transient OffHeapContentStore store;
+
+		private StoreImageResource(final OffHeapContentStore store, final String key,
+			final ImageLoader imageLoader)
+		{
+			super("image/png", key, imageLoader);
+			this.store = store;
+		}
+
+		@Override
+		protected OffHeapContentStore getStore()
+		{
+			return store;
+		}
+	}
+
+	@Test
+	public void testMissingImageIsLoadedAgain()
+	{
+		final byte[] data = { 1, 2, 3, 4 };
+		final OffHeapContentStore store = new OffHeapContentStore(1024);
+		final String key = store.put(data);
+		store.remove(key);
+
+		final ResourceResponse missing = new StoreImageResource(store, key, null)
+			.newResourceResponse(null);
+		AssertJUnit.assertEquals(Integer.valueOf(HttpServletResponse.SC_NOT_FOUND),
+			missing.getErrorCode());
+
+		final ResourceResponse loaded = new StoreImageResource(store, key, () -> data.clone())
+			.newResourceResponse(null);
+		AssertJUnit.assertNull(loaded.getErrorCode());
+		AssertJUnit.assertEquals(4, loaded.getContentLength());
+		AssertJUnit.assertTrue(store.contains(key));
+	}
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.base.util.seo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class MultiPatternMatcherTest
+{
+
+	private static final String[] USER_AGENTS = {
+			"Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+			"Mozilla/5.0 (compatible; Yahoo! Slurp China; http://misc.yahoo.com.cn/help.html)",
+			"msnbot/2.0b (+http://search.msn.com/msnbot.htm)",
+			"ia_archiver (+http://www.alexa.com/site/help/webmasters; crawler@alexa.com)",
+			"Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:40.0) Gecko/20100101 Firefox/40.0",
+			"Mozilla/5.0 (Macintosh; Intel Mac OS X 10_10_5) AppleWebKit/600.8.9 (KHTML, like "
+				+ "Gecko) Version/8.0.8 Safari/600.8.9",
+			"Mozilla/4.0 (compatible; MSIE 8.0; Windows NT 6.1; Trident/4.0)",
+			"Opera/9.80 (Windows NT 6.1) Presto/2.12.388 Version/12.16",
+			"Mozilla/5.0 (compatible; spider; Chrome/45.0.2454.85)", "Wget/1.16.3 (linux-gnu)",
+			"", "ROBOT", "webcollage/1.135a", "Echo! 1.0", "Lycos_Spider_(T-Rex)" };
+
+	private static Set<String> readFixture(final String name) throws IOException
+	{
+		final Set<String> patterns = new LinkedHashSet<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+			BotAgentInspector.class.getResourceAsStream(name), StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#"))
+				{
+					patterns.add(line);
+				}
+			}
+		}
+		return patterns;
+	}
+
+	/**
+	 * The match of the former BotAgentInspector, that lower-cased the text and called contains for
+	 * every pattern.
+	 */
+	@SafeVarargs
+	private static int scan(final String text, final Collection<String>... groups)
+	{
+		final String lowerText = text.toLowerCase();
+		int found = 0;
+		for (int group = 0; group < groups.length; group++)
+		{
+			for (final String pattern : groups[group])
+			{
+				if (lowerText.contains(pattern.toLowerCase()))
+				{
+					found |= 1 << group;
+				}
+			}
+		}
+		return found;
+	}
+
+	@Test
+	public void testCaseFolding()
+	{
+		final MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("GoogleBot",
+			"ærø"), Arrays.asList("zürich"));
+		AssertJUnit.assertEquals(1, matcher.match("Mozilla/5.0 (compatible; GOOGLEBOT/2.1)", 0));
+		AssertJUnit.assertEquals(1, matcher.match("ÆRØSKØBING", 0));
+		AssertJUnit.assertEquals(2, matcher.match("ZÜRICH", 0));
+		AssertJUnit.assertEquals(0, matcher.match("zurich", 0));
+	}
+
+	@Test
+	public void testFixturesEqualScan() throws IOException
+	{
+		final Set<String> botAgents = readFixture("bot-agents.txt");
+		final Set<String> noBotAgents = readFixture("no-bot-agents.txt");
+		AssertJUnit.assertTrue(botAgents.contains("googlebot"));
+		AssertJUnit.assertTrue(noBotAgents.contains("firefox"));
+		final MultiPatternMatcher matcher = new MultiPatternMatcher(botAgents, noBotAgents);
+
+		final List<String> userAgents = new ArrayList<>(Arrays.asList(USER_AGENTS));
+		// random user agents of the patterns, their prefixes and their upper case forms
+		final List<String> fragments = new ArrayList<>();
+		for (final String pattern : botAgents)
+		{
+			fragments.add(pattern);
+			fragments.add(pattern.substring(0, pattern.length() / 2 + 1));
+			fragments.add(pattern.toUpperCase());
+		}
+		fragments.addAll(noBotAgents);
+		fragments.addAll(Arrays.asList(" ", "/", "Mozilla/5.0 (", ")", "; "));
+		final Random random = new Random(17);
+		for (int i = 0; i < 2000; i++)
+		{
+			final StringBuilder userAgent = new StringBuilder();
+			for (int j = random.nextInt(6); j >= 0; j--)
+			{
+				userAgent.append(fragments.get(random.nextInt(fragments.size())));
+			}
+			userAgents.add(userAgent.toString());
+		}
+
+		for (final String userAgent : userAgents)
+		{
+			final int expected = scan(userAgent, botAgents, noBotAgents);
+			AssertJUnit.assertEquals(userAgent, expected, matcher.match(userAgent, 0));
+			AssertJUnit.assertEquals(userAgent, expected == 1,
+				BotAgentInspector.isAgent(userAgent));
+		}
+	}
+
+	@Test
+	public void testOverlappingPatterns()
+	{
+		final MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("she"),
+			Arrays.asList("he", "hers"), Arrays.asList("his"), Arrays.asList("robot"),
+			Arrays.asList("bot"));
+		// she, he and hers end in the same text and are found over the failure links
+		AssertJUnit.assertEquals(1 | 2, matcher.match("ushers", 0));
+		// bot is a suffix of robot
+		AssertJUnit.assertEquals(8 | 16, matcher.match("a robot", 0));
+		AssertJUnit.assertEquals(16, matcher.match("rob bot", 0));
+		AssertJUnit.assertEquals(4, matcher.match("hhis", 0));
+		AssertJUnit.assertEquals(0, matcher.match("h s r b", 0));
+		// the match stops at the first found group of the stop mask
+		AssertJUnit.assertEquals(1 | 2, matcher.match("ushers and his robot", 1));
+		AssertJUnit.assertEquals(1 | 2 | 4 | 8 | 16, matcher.match("ushers and his robot", 0));
+	}
+
+	@Test
+	public void testWithoutPatterns()
+	{
+		final MultiPatternMatcher matcher = new MultiPatternMatcher(
+			Collections.<String> emptyList(), Arrays.asList("", null));
+		AssertJUnit.assertEquals(0, matcher.match("googlebot", 0));
+		AssertJUnit.assertEquals(0, matcher.match("", 0));
+	}
+
+}
@@ -17,10 +17,14 @@ package de.alpharogroup.wicket.behaviors;
 
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.behavior.AbstractAjaxBehavior;
+import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.handler.resource.ResourceStreamRequestHandler;
 import org.apache.wicket.request.resource.ContentDisposition;
 import org.apache.wicket.util.resource.IResourceStream;
 
+import de.alpharogroup.wicket.base.request.handler.FileRangeRequestHandler;
+import de.alpharogroup.wicket.base.util.resource.FileResourceStreamWriter;
+
 /**
  * This behavior enables us to initiate the download after the AJAX request has been completed.
  * 
@@ -28,6 +32,12 @@ import org.apache.wicket.util.resource.IResourceStream;
  * "https://cwiki.apache.org/confluence/display/WICKET/AJAX+update+and+file+download+in+one+blow"
  * >https://cwiki.apache.org/confluence/display/WICKET/AJAX+update+and+file+
  * download+in+one+blow</a>.
+ * 
+ * If the resource stream is a {@link FileResourceStreamWriter} the download is sent with a
+ * {@link FileRangeRequestHandler}, so interrupted downloads can be resumed with a Range request and
+ * unchanged files are validated with their ETag. Subclasses that return a
+ * {@link FileResourceStreamWriter} override {@link #isRangeable()}, then the url has no anti cache
+ * timestamp. The resource stream is only created in the download request.
  **/
 public abstract class AjaxDownloadBehavior extends AbstractAjaxBehavior
 {
@@ -35,7 +45,10 @@ public abstract class AjaxDownloadBehavior extends AbstractAjaxBehavior
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 
-	/** The anti cache. */
+	/**
+	 * The anti cache flag. For file downloads the client is forced to revalidate the ETag,
+	 * otherwise a timestamp is appended to the url.
+	 */
 	private boolean antiCache;
 
 	/**
@@ -67,7 +80,7 @@ public abstract class AjaxDownloadBehavior extends AbstractAjaxBehavior
 	{
 		String url = getCallbackUrl().toString();
 
-		if (antiCache)
+		if (antiCache && !isRangeable())
 		{
 			url = url + (url.contains("?") ? "&" : "?");
 			url = url + "antiCache=" + System.currentTimeMillis();
@@ -76,15 +89,39 @@ public abstract class AjaxDownloadBehavior extends AbstractAjaxBehavior
 		target.appendJavaScript("setTimeout(\"window.location.href='" + url + "'\", 100);");
 	}
 
+	/**
+	 * Hook method that reports if the resource stream of the download is a
+	 * {@link FileResourceStreamWriter}. Then the download can be resumed with a Range request and
+	 * the url needs no anti cache timestamp, because the ETag of the file is revalidated. The
+	 * default is false.
+	 * 
+	 * @return true, if the resource stream is a {@link FileResourceStreamWriter}
+	 */
+	protected boolean isRangeable()
+	{
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void onRequest()
 	{
-		final ResourceStreamRequestHandler handler = new ResourceStreamRequestHandler(
-			getResourceStream(), getFileName());
-		handler.setContentDisposition(ContentDisposition.ATTACHMENT);
+		final IResourceStream resourceStream = getResourceStream();
+		final IRequestHandler handler;
+		if (resourceStream instanceof FileResourceStreamWriter)
+		{
+			handler = new FileRangeRequestHandler((FileResourceStreamWriter)resourceStream,
+				getFileName(), ContentDisposition.ATTACHMENT, antiCache);
+		}
+		else
+		{
+			final ResourceStreamRequestHandler streamRequestHandler = new ResourceStreamRequestHandler(
+				resourceStream, getFileName());
+			streamRequestHandler.setContentDisposition(ContentDisposition.ATTACHMENT);
+			handler = streamRequestHandler;
+		}
 		getComponent().getRequestCycle().scheduleRequestHandlerAfterCurrent(handler);
 	}
 
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.behaviors;
+
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.markup.repeater.data.IDataProvider;
+import org.apache.wicket.util.resource.IResourceStream;
+
+import de.alpharogroup.wicket.base.util.export.DataExportResourceStreamWriter;
+import de.alpharogroup.wicket.base.util.export.ExportProgress;
+import de.alpharogroup.wicket.base.util.export.ExportProgressResource;
+import de.alpharogroup.wicket.base.util.export.TableExportFormat;
+
+/**
+ * The Class AjaxExportBehavior is an {@link AjaxDownloadBehavior} that streams all rows of a data
+ * provider in its current sort order and with its current filter with a
+ * {@link DataExportResourceStreamWriter}. Every {@link #initiate(AjaxRequestTarget)} registers a
+ * new {@link ExportProgress}, its id is held in this behavior.<br>
+ * <br>
+ * The download request holds the lock of the page while the rows are written. A progress display
+ * or a cancel button has therefore to use a request that is not bound to this page. The urls of
+ * {@link #getProgressUrl()} and {@link #getCancelUrl()} address the shared
+ * {@link ExportProgressResource}, they can be requested from JavaScript, for instance with an
+ * XMLHttpRequest, while the download is running. If the user cancels the download in the browser,
+ * the export stops too.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ */
+public abstract class AjaxExportBehavior<T> extends AjaxDownloadBehavior
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of rows that are requested at once from the data provider. */
+	private final int chunkSize;
+
+	/** The id of the progress of the last initiated export. */
+	private String progressId;
+
+	/**
+	 * Instantiates a new {@link AjaxExportBehavior} with the
+	 * {@link DataExportResourceStreamWriter#DEFAULT_CHUNK_SIZE}.
+	 */
+	public AjaxExportBehavior()
+	{
+		this(DataExportResourceStreamWriter.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Instantiates a new {@link AjaxExportBehavior}.
+	 *
+	 * @param chunkSize
+	 *            the number of rows that are requested at once from the data provider
+	 */
+	public AjaxExportBehavior(final int chunkSize)
+	{
+		super(true);
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Gets the url that cancels the last initiated export. The url is not bound to the page, so it
+	 * is served while the download holds the lock of the page.
+	 *
+	 * @return the url or null if no export was initiated
+	 */
+	public CharSequence getCancelUrl()
+	{
+		return progressId != null ? ExportProgressResource.urlFor(progressId, true) : null;
+	}
+
+	/**
+	 * Hook method providing the data provider of the exported rows.
+	 *
+	 * @return the data provider
+	 */
+	protected abstract IDataProvider<T> getDataProvider();
+
+	/**
+	 * Hook method providing the format of the export.
+	 *
+	 * @return the format
+	 */
+	protected abstract TableExportFormat<T> getExportFormat();
+
+	/**
+	 * Gets the progress of the last initiated export.
+	 *
+	 * @return the progress or null if no export was initiated
+	 */
+	public ExportProgress getProgress()
+	{
+		return ExportProgress.get(progressId);
+	}
+
+	/**
+	 * Gets the url that answers the progress of the last initiated export as JSON. The url is not
+	 * bound to the page, so it is served while the download holds the lock of the page.
+	 *
+	 * @return the url or null if no export was initiated
+	 */
+	public CharSequence getProgressUrl()
+	{
+		return progressId != null ? ExportProgressResource.urlFor(progressId, false) : null;
+	}
+
+	/**
+	 * Gets the id of the progress of the last initiated export.
+	 *
+	 * @return the id of the progress or null if no export was initiated
+	 */
+	public String getProgressId()
+	{
+		return progressId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected IResourceStream getResourceStream()
+	{
+		if (getProgress() == null)
+		{
+			progressId = ExportProgress.newProgress().getId();
+		}
+		return new DataExportResourceStreamWriter<>(getDataProvider(), getExportFormat(),
+			chunkSize, progressId);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initiate(final AjaxRequestTarget target)
+	{
+		progressId = ExportProgress.newProgress().getId();
+		super.initiate(target);
+	}
+
+}
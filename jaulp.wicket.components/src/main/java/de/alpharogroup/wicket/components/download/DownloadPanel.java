@@ -120,6 +120,15 @@ public abstract class DownloadPanel extends BasePanel<DownloadModelBean>
 				}
 				return null;
 			}
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			protected boolean isRangeable()
+			{
+				return true;
+			}
 		};
 		final AjaxLink<Void> downloadLink = new AjaxLink<Void>("downloadLink")
 		{
@@ -17,6 +17,7 @@ package de.alpharogroup.wicket.data.provider.examples.data.provider;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.Objects;
 
 public class PersonFilter implements Serializable
 {
@@ -38,6 +39,23 @@ public class PersonFilter implements Serializable
 		super();
 	}
 
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (!(obj instanceof PersonFilter))
+		{
+			return false;
+		}
+		final PersonFilter other = (PersonFilter)obj;
+		return Objects.equals(firstname, other.firstname)
+			&& Objects.equals(lastname, other.lastname) && Objects.equals(dateFrom, other.dateFrom)
+			&& Objects.equals(dateTo, other.dateTo);
+	}
+
 	public Date getDateFrom()
 	{
 		return dateFrom;
@@ -58,6 +76,12 @@ public class PersonFilter implements Serializable
 		return lastname;
 	}
 
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(firstname, lastname, dateFrom, dateTo);
+	}
+
 	public void setDateFrom(final Date dateFrom)
 	{
 		this.dateFrom = dateFrom;
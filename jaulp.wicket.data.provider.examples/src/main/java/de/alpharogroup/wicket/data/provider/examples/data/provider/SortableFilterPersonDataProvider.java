@@ -18,10 +18,15 @@ package de.alpharogroup.wicket.data.provider.examples.data.provider;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
 
 import de.alpharogroup.wicket.data.provider.AbstractSortFilterDataProvider;
+import de.alpharogroup.wicket.data.provider.ColumnStore;
 
 public class SortableFilterPersonDataProvider
 	extends
@@ -41,14 +46,56 @@ public class SortableFilterPersonDataProvider
 	public SortableFilterPersonDataProvider(final List<Person> data)
 	{
 		super(data);
+		setColumns("firstname", "lastname", "dateOfBirth");
 		setFilterState(new PersonFilter());
 		setSort("firstname", SortOrder.ASCENDING);
 	}
 
 	@Override
-	protected List<Person> filter(final List<Person> personsFound)
+	protected boolean isRefinement(final PersonFilter previous, final PersonFilter current)
 	{
-		return filterByFirstname(personsFound);
+		final String previousFirstname = previous.getFirstname();
+		final String currentFirstname = current.getFirstname();
+		if (!Objects.equals(previous.getLastname(), current.getLastname())
+			|| !Objects.equals(previous.getDateFrom(), current.getDateFrom())
+			|| !Objects.equals(previous.getDateTo(), current.getDateTo()))
+		{
+			return false;
+		}
+		if (previousFirstname == null)
+		{
+			return true;
+		}
+		// a longer prefix matches less persons, this holds only for a literal prefix
+		return currentFirstname != null && currentFirstname.startsWith(previousFirstname)
+			&& previousFirstname.chars().allMatch(Character::isLetterOrDigit);
+	}
+
+	@Override
+	protected IntPredicate newColumnFilter(final PersonFilter filterState,
+		final ColumnStore<Person> columns)
+	{
+		final String filter = filterState != null ? filterState.getFirstname() : null;
+		if (filter == null)
+		{
+			return position -> true;
+		}
+		// only a literal prefix can be looked up in the columns, other patterns use the predicate
+		return filter.chars().allMatch(Character::isLetterOrDigit) ? columns.startsWith(
+			"firstname", filter) : null;
+	}
+
+	@Override
+	protected Predicate<Person> newFilterPredicate(final PersonFilter filterState)
+	{
+		final String filter = filterState != null ? filterState.getFirstname() : null;
+		if (filter == null)
+		{
+			return person -> true;
+		}
+		final Pattern pattern = Pattern.compile(filter + "(.*)");
+		return person -> person != null && person.getFirstname() != null
+			&& pattern.matcher(person.getFirstname()).matches();
 	}
 
 	protected List<Person> filterByDateOfBirth(final List<Person> personsFound)
@@ -63,9 +63,12 @@ public class DataTablePanel extends Panel
 			@Override
 			public List<Person> getData()
 			{
-				final List<Person> persons = PersonDatabaseManager.getInstance().getPersons();
-				setData(persons);
-				return persons;
+				if (super.getData() == null)
+				{
+					// the data are not serialized with the page
+					setData(PersonDatabaseManager.getInstance().getPersons());
+				}
+				return super.getData();
 			}
 		};
 		dataProvider.setSort("firstname", SortOrder.ASCENDING);
@@ -0,0 +1,364 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.extensions.markup.html.repeater.data.sort.ISortState;
+import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
+import org.apache.wicket.extensions.markup.html.repeater.data.table.ISortableDataProvider;
+import org.apache.wicket.extensions.markup.html.repeater.data.table.filter.IFilterStateLocator;
+import org.apache.wicket.extensions.markup.html.repeater.util.SingleSortState;
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class AbstractQueryDataProvider is a data provider that does not hold the data. The offset,
+ * the number of rows, the sort parameter and the filter state of every page are pushed down to a
+ * {@link PageQuery}, so only the visible rows are loaded.<br>
+ * <br>
+ * If the page query supports keysets, the keyset of the last row of every loaded page is
+ * remembered as a bookmark for the offset of the next page. The next page is then requested after
+ * that keyset, so deep pages are stable and do not need to skip the rows of an offset. The
+ * bookmarks are dropped if the sort parameter or the filter state changes.<br>
+ * <br>
+ * The count of the rows is the expensive part of most queries, so it is cached for the size cache
+ * duration as long as the filter state does not change.<br>
+ * <br>
+ * The changes of the filter state are recognized over the serialized form of the filter state and
+ * not over its equals method, so a filter bean without equals and hashCode, like most filter
+ * states of Wicket forms, keeps the cached size and the bookmarks as long as its values do not
+ * change.
+ *
+ * @param <T>
+ *            the generic type of the Model for the DataProvider.
+ * @param <S>
+ *            the generic type for the SortState.
+ * @param <F>
+ *            the generic type for the Filter.
+ */
+public abstract class AbstractQueryDataProvider<T extends Serializable, S, F extends Serializable>
+	implements
+		ISortableDataProvider<T, S>,
+		IFilterStateLocator<F>
+{
+
+	/** The Constant DEFAULT_SIZE_CACHE_MILLIS is the default size cache duration. */
+	public static final long DEFAULT_SIZE_CACHE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+	/** The Constant MAX_BOOKMARKS is the maximum number of remembered keysets. */
+	private static final int MAX_BOOKMARKS = 1024;
+
+	/**
+	 * The serialVersionUID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The page query.
+	 */
+	@Getter
+	private final PageQuery<T, S, F> pageQuery;
+
+	/** The sort state. */
+	private final SingleSortState<S> sortState = new SingleSortState<>();
+
+	/** The batch loader of the row models or null if the rows are wrapped in a {@link Model}. */
+	private BatchRowLoader<T, ?> batchRowLoader;
+
+	/** The filter. */
+	private F filterState;
+
+	/**
+	 * The duration in milliseconds for that the size is cached.
+	 */
+	@Getter
+	private long sizeCacheMillis = DEFAULT_SIZE_CACHE_MILLIS;
+
+	/** The cached size or -1 if no size is cached. */
+	private long cachedSize = -1;
+
+	/** The time in milliseconds when the size was counted. */
+	private long cachedSizeTime;
+
+	/** The serialized filter state of the cached size. */
+	private byte[] cachedSizeFilter;
+
+	/** The keysets of the rows before the remembered offsets. */
+	private final TreeMap<Long, Serializable> bookmarks = new TreeMap<>();
+
+	/** The sort parameter of the bookmarks. */
+	private SortParam<S> bookmarksSort;
+
+	/** The serialized filter state of the bookmarks. */
+	private byte[] bookmarksFilter;
+
+	/**
+	 * Instantiates a new {@link AbstractQueryDataProvider}.
+	 *
+	 * @param pageQuery
+	 *            the page query
+	 */
+	public AbstractQueryDataProvider(final PageQuery<T, S, F> pageQuery)
+	{
+		this.pageQuery = Args.notNull(pageQuery, "pageQuery");
+	}
+
+	/**
+	 * Gets the current time in milliseconds.
+	 *
+	 * @return the current time in milliseconds
+	 */
+	protected long currentTimeMillis()
+	{
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void detach()
+	{
+		if (batchRowLoader != null)
+		{
+			batchRowLoader.detach();
+		}
+	}
+
+	/**
+	 * Gets the batch loader of the row models.
+	 *
+	 * @return the batch loader of the row models or null if the row objects are wrapped in a
+	 *         {@link Model}
+	 */
+	public BatchRowLoader<T, ?> getBatchRowLoader()
+	{
+		return batchRowLoader;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public F getFilterState()
+	{
+		return this.filterState;
+	}
+
+	/**
+	 * Returns current sort state.
+	 *
+	 * @return current sort state
+	 */
+	public SortParam<S> getSort()
+	{
+		return sortState.getSort();
+	}
+
+	/**
+	 * Gets the sort state.
+	 *
+	 * @return the sort state
+	 * @see ISortableDataProvider#getSortState()
+	 */
+	@Override
+	public final ISortState<S> getSortState()
+	{
+		return sortState;
+	}
+
+	/**
+	 * Drops the cached size and the bookmarks. This method has to be invoked if the data source
+	 * was changed.
+	 */
+	public void invalidate()
+	{
+		cachedSize = -1;
+		cachedSizeFilter = null;
+		bookmarks.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<? extends T> iterator(final long first, final long count)
+	{
+		if (batchRowLoader != null)
+		{
+			batchRowLoader.reset();
+		}
+		final SortParam<S> sort = getSort();
+		final F filter = getFilterState();
+		final byte[] serializedFilter = serialize(filter);
+		if (!Objects.equals(bookmarksSort, sort)
+			|| !Arrays.equals(bookmarksFilter, serializedFilter))
+		{
+			bookmarks.clear();
+			bookmarksSort = sort;
+			bookmarksFilter = serializedFilter;
+		}
+		final Serializable after = first > 0 ? bookmarks.get(first) : null;
+		final List<T> rows = pageQuery.find(new PageRequest<>(first, count, sort, filter, after));
+		if (!rows.isEmpty())
+		{
+			final Serializable key = pageQuery.keyOf(rows.get(rows.size() - 1), sort);
+			if (key != null)
+			{
+				if (bookmarks.size() >= MAX_BOOKMARKS)
+				{
+					bookmarks.pollFirstEntry();
+				}
+				bookmarks.put(first + rows.size(), key);
+			}
+		}
+		return rows.iterator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IModel<T> model(final T object)
+	{
+		return batchRowLoader != null ? batchRowLoader.model(object) : Model.of(object);
+	}
+
+	/**
+	 * Serializes the given filter state, so later changes of the filter state are recognized
+	 * without the equals method of the filter state.
+	 *
+	 * @param state
+	 *            the filter state
+	 * @return the serialized filter state or null if the filter state is null
+	 */
+	private static byte[] serialize(final Serializable state)
+	{
+		if (state == null)
+		{
+			return null;
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes))
+		{
+			output.writeObject(state);
+		}
+		catch (final IOException e)
+		{
+			throw new WicketRuntimeException("Unable to serialize the filter state", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setFilterState(final F filterState)
+	{
+		this.filterState = filterState;
+	}
+
+	/**
+	 * Sets the duration for that the size is cached, zero disables the cache.
+	 *
+	 * @param duration
+	 *            the duration
+	 * @param unit
+	 *            the time unit of the duration
+	 */
+	public void setSizeCacheDuration(final long duration, final TimeUnit unit)
+	{
+		this.sizeCacheMillis = unit.toMillis(duration);
+	}
+
+	/**
+	 * Sets the strategy of the row models. The row models keep only the id that is extracted with
+	 * the given id extractor, so the row objects are not serialized with the page. After detach
+	 * the row objects of all visible rows are loaded with one call of the given row loader.
+	 *
+	 * @param <K>
+	 *            the generic type of the ids
+	 * @param idExtractor
+	 *            the id extractor
+	 * @param rowLoader
+	 *            the row loader
+	 */
+	public <K extends Serializable> void setRowLoader(final IdExtractor<T, K> idExtractor,
+		final RowLoader<T, K> rowLoader)
+	{
+		this.batchRowLoader = new BatchRowLoader<>(idExtractor, rowLoader);
+	}
+
+	/**
+	 * Sets the current sort state.
+	 *
+	 * @param property
+	 *            sort property
+	 * @param order
+	 *            sort order
+	 */
+	public void setSort(final S property, final SortOrder order)
+	{
+		sortState.setPropertySortOrder(property, order);
+	}
+
+	/**
+	 * Sets the current sort state.
+	 *
+	 * @param param
+	 *            parameter containing new sorting information
+	 */
+	public void setSort(final SortParam<S> param)
+	{
+		sortState.setSort(param);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long size()
+	{
+		final F filter = getFilterState();
+		final byte[] serializedFilter = serialize(filter);
+		final long now = currentTimeMillis();
+		if (cachedSize < 0 || !Arrays.equals(cachedSizeFilter, serializedFilter)
+			|| now - cachedSizeTime >= sizeCacheMillis)
+		{
+			cachedSize = pageQuery.count(filter);
+			cachedSizeTime = now;
+			cachedSizeFilter = serializedFilter;
+		}
+		return cachedSize;
+	}
+
+}
@@ -17,11 +17,49 @@ package de.alpharogroup.wicket.data.provider;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 
+import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.wicket.extensions.markup.html.repeater.data.table.filter.IFilterStateLocator;
 
+/**
+ * The Class AbstractSortFilterDataProvider filters the data before it is sorted and paged.<br>
+ * <br>
+ * The filter is evaluated once for a filter state and the positions of the rows that passed the
+ * filter are cached as an index, so {@link #size()} and {@link #iterator(long, long)} do not
+ * filter twice and only the rows that passed the filter are sorted. The cache is keyed by the
+ * equals and hashCode methods of the filter state, so the filter state should implement them. If
+ * {@link #isRefinement(Serializable, Serializable)} reports that a new filter state narrows the
+ * previous one, only the rows of the previous index are filtered again.<br>
+ * <br>
+ * Subclasses implement {@link #newFilterPredicate(Serializable)} to get the index, subclasses that
+ * implement only {@link #filter(List)} are still supported but their result is not indexed. If the
+ * filtered properties are extracted into a {@link ColumnStore}, subclasses can implement
+ * {@link #newColumnFilter(Serializable, ColumnStore)} to filter over the primitive arrays.<br>
+ * <br>
+ * The values of the properties that are set with {@link #setFacets(String...)} are counted in the
+ * same pass that filters the rows and the {@link FacetCounts} are cached together with the index.
+ * For multi-select facets the rows of a facet are counted without the filter of the facet itself,
+ * see {@link #withoutFacetFilter(Serializable, String)}.<br>
+ * <br>
+ * The string properties that are set with {@link #setSearchProperties(String...)} are indexed in
+ * a {@link SearchIndex}. The positions of the rows that match the search text of the filter state,
+ * see {@link #getSearchText(Serializable)}, are looked up in the index and only these rows are
+ * filtered.
+ *
+ * @param <T>
+ *            the generic type of the Model for the DataProvider.
+ * @param <S>
+ *            the generic type for the SortState.
+ * @param <F>
+ *            the generic type for the Filter.
+ */
 public class AbstractSortFilterDataProvider<T extends Serializable, S extends Serializable, F extends Serializable>
 	extends
 		AbstractSortableDataProvider<T, S> implements IFilterStateLocator<F>
@@ -35,6 +73,33 @@ public class AbstractSortFilterDataProvider<T extends Serializable, S extends Se
 	/** The filter. */
 	private F filterState;
 
+	/** The copy of the filter state of the cached index. */
+	private transient F filteredState;
+
+	/** The data version of the cached index. */
+	private transient long filteredVersion;
+
+	/** The cached index or null if the filter is not indexed. */
+	private transient int[] filteredIndex;
+
+	/** The cached rows that passed the filter. */
+	private transient List<T> filteredRows;
+
+	/** The property expressions of the facets. */
+	private String[] facets;
+
+	/** The cached facet counts of the cached rows or null if no facets are set. */
+	private transient FacetCounts facetCounts;
+
+	/** The property expressions of the search index or null. */
+	private String[] searchProperties;
+
+	/** The cached search index. */
+	private transient SearchIndex<T> searchIndex;
+
+	/** The data version of the cached search index. */
+	private transient long searchIndexVersion;
+
 	/**
 	 * Default constructor.
 	 */
@@ -55,7 +120,44 @@ public class AbstractSortFilterDataProvider<T extends Serializable, S extends Se
 	}
 
 	/**
-	 * Filter the given list. Override this method to implement a filter.
+	 * Counts the values of the facets of all given rows.
+	 *
+	 * @param rows
+	 *            the rows
+	 * @return the facet counts
+	 */
+	private FacetCounts countFacets(final List<T> rows)
+	{
+		final List<FacetCounter<T>> counters = newFacetCounters(rows, null);
+		for (final FacetCounter<T> counter : counters)
+		{
+			for (int position = 0; position < rows.size(); position++)
+			{
+				counter.add(position);
+			}
+		}
+		return toFacetCounts(counters);
+	}
+
+	/**
+	 * Marks that rows were appended to the data list in place. The cached rows are invalidated
+	 * like with {@link #dataChanged()}, but the search index indexes only the appended rows.
+	 */
+	public void dataAppended()
+	{
+		final SearchIndex<T> index = searchIndex;
+		final boolean current = index != null && searchIndexVersion == getDataVersion();
+		dataChanged();
+		if (current)
+		{
+			index.update();
+			searchIndexVersion = getDataVersion();
+		}
+	}
+
+	/**
+	 * Filter the given list. Override this method to implement a filter. This method is only
+	 * invoked if {@link #newFilterPredicate(Serializable)} returns null.
 	 *
 	 * @param found
 	 *            the found
@@ -66,6 +168,239 @@ public class AbstractSortFilterDataProvider<T extends Serializable, S extends Se
 		return found;
 	}
 
+	/**
+	 * Filters the given positions of rows with the given filter and counts the values of the
+	 * facets in the same pass. If a facet is counted without its own filter, all rows are passed
+	 * and the rows that fail the filter are counted for every facet whose filter without its own
+	 * filter they pass. The pass is not parallel, also not in the parallel mode.
+	 *
+	 * @param data
+	 *            the data
+	 * @param columns
+	 *            the column store of the data or null
+	 * @param state
+	 *            the filter state
+	 * @param matches
+	 *            the positions of the rows that match the search text or null for all rows
+	 * @param candidates
+	 *            the positions of the rows that are filtered or null for all rows
+	 * @param filter
+	 *            the filter of the positions
+	 * @return the positions of the rows that passed the filter
+	 */
+	private int[] filterAndCount(final List<T> data, final ColumnStore<T> columns, final F state,
+		final int[] matches, final int[] candidates, final IntPredicate filter)
+	{
+		final List<FacetCounter<T>> counters = newFacetCounters(data, columns);
+		final IntPredicate[] facetFilters = new IntPredicate[counters.size()];
+		boolean excluding = false;
+		for (int i = 0; i < facetFilters.length; i++)
+		{
+			final F without = state != null ? withoutFacetFilter(state, facets[i]) : null;
+			if (without != null)
+			{
+				facetFilters[i] = newPositionFilter(data, columns, without);
+				excluding = true;
+			}
+		}
+		final int[] positions = excluding ? matches : candidates;
+		final int size = positions != null ? positions.length : data.size();
+		int[] index = new int[Math.min(size, 16)];
+		int found = 0;
+		for (int i = 0; i < size; i++)
+		{
+			final int position = positions != null ? positions[i] : i;
+			if (filter.test(position))
+			{
+				if (found == index.length)
+				{
+					index = Arrays.copyOf(index, Math.min(size, index.length * 2));
+				}
+				index[found++] = position;
+				for (final FacetCounter<T> counter : counters)
+				{
+					counter.add(position);
+				}
+			}
+			else if (excluding)
+			{
+				for (int j = 0; j < facetFilters.length; j++)
+				{
+					if (facetFilters[j] != null && facetFilters[j].test(position))
+					{
+						counters.get(j).add(position);
+					}
+				}
+			}
+		}
+		facetCounts = toFacetCounts(counters);
+		return found == index.length ? index : Arrays.copyOf(index, found);
+	}
+
+	/**
+	 * Filters the rows at the given positions of the given data with the given predicate. In the
+	 * parallel mode the rows are filtered with the shared {@link ParallelRows}, so the predicate
+	 * has to be thread safe.
+	 *
+	 * @param data
+	 *            the data
+	 * @param candidates
+	 *            the positions of the rows that are filtered or null for all rows
+	 * @param predicate
+	 *            the predicate
+	 * @return the positions of the rows that passed the filter
+	 */
+	protected int[] filterIndex(final List<T> data, final int[] candidates,
+		final Predicate<? super T> predicate)
+	{
+		return filterPositions(data.size(), candidates,
+			position -> predicate.test(data.get(position)));
+	}
+
+	/**
+	 * Filters the given positions of rows with the given filter. In the parallel mode the
+	 * positions are filtered with the shared {@link ParallelRows}, so the filter has to be thread
+	 * safe.
+	 *
+	 * @param rows
+	 *            the number of rows
+	 * @param candidates
+	 *            the positions of the rows that are filtered or null for all rows
+	 * @param filter
+	 *            the filter of the positions
+	 * @return the positions of the rows that passed the filter
+	 */
+	protected int[] filterPositions(final int rows, final int[] candidates,
+		final IntPredicate filter)
+	{
+		if (isParallel())
+		{
+			return ParallelRows.getInstance().filter(rows, candidates, filter);
+		}
+		final int size = candidates != null ? candidates.length : rows;
+		int[] index = new int[Math.min(size, 16)];
+		int found = 0;
+		for (int i = 0; i < size; i++)
+		{
+			final int position = candidates != null ? candidates[i] : i;
+			if (filter.test(position))
+			{
+				if (found == index.length)
+				{
+					index = Arrays.copyOf(index, Math.min(size, index.length * 2));
+				}
+				index[found++] = position;
+			}
+		}
+		return found == index.length ? index : Arrays.copyOf(index, found);
+	}
+
+	/**
+	 * Gets the facet counts of the rows that passed the current filter state. The counts are
+	 * computed together with the filtered rows and cached until the data or the filter state
+	 * change.
+	 *
+	 * @return the facet counts or {@link FacetCounts#EMPTY} if no facets are set
+	 */
+	public FacetCounts getFacetCounts()
+	{
+		getFilteredRows();
+		return facetCounts != null ? facetCounts : FacetCounts.EMPTY;
+	}
+
+	/**
+	 * Gets the search index of the data. The search index is created again if the data change,
+	 * rows that are appended in place are indexed with {@link #dataAppended()}.
+	 *
+	 * @return the search index or null if no search properties are set
+	 */
+	protected SearchIndex<T> getSearchIndex()
+	{
+		final List<T> data = getData();
+		if (searchProperties == null || data == null)
+		{
+			return null;
+		}
+		if (searchIndex == null || searchIndexVersion != getDataVersion()
+			|| searchIndex.getRows() != data)
+		{
+			searchIndex = new SearchIndex<>(data, searchProperties);
+			searchIndexVersion = getDataVersion();
+		}
+		return searchIndex;
+	}
+
+	/**
+	 * Gets the search text of the given filter state, for instance the text of a search panel. The
+	 * default returns null.
+	 *
+	 * @param filterState
+	 *            the filter state
+	 * @return the search text or null if the rows are not searched
+	 */
+	protected String getSearchText(final F filterState)
+	{
+		return null;
+	}
+
+	/**
+	 * Gets the rows that passed the filter. The rows are filtered only if the data or the filter
+	 * state changed since the last call.
+	 *
+	 * @return the rows that passed the filter
+	 */
+	protected List<T> getFilteredRows()
+	{
+		final F state = getFilterState();
+		final long dataVersion = getDataVersion();
+		if (filteredRows != null && filteredVersion == dataVersion
+			&& Objects.equals(filteredState, state))
+		{
+			return filteredRows;
+		}
+		final List<T> data = getData();
+		final ColumnStore<T> store = getColumnStore();
+		final IntPredicate columnFilter = store != null ? newColumnFilter(state, store) : null;
+		final Predicate<? super T> predicate = columnFilter == null
+			? newFilterPredicate(state)
+			: null;
+		final int[] matches = search(state);
+		if (columnFilter != null || predicate != null)
+		{
+			int[] candidates = matches;
+			if (candidates == null && filteredIndex != null && filteredVersion == dataVersion
+				&& filteredState != null && state != null && isRefinement(filteredState, state))
+			{
+				candidates = filteredIndex;
+			}
+			if (facets != null)
+			{
+				filteredIndex = filterAndCount(data, store, state, matches, candidates,
+					columnFilter != null ? columnFilter : position -> predicate.test(data
+						.get(position)));
+			}
+			else
+			{
+				filteredIndex = columnFilter != null
+					? filterPositions(data.size(), candidates, columnFilter)
+					: filterIndex(data, candidates, predicate);
+				facetCounts = null;
+			}
+			filteredRows = new ArrayList<>(new IndexedRows<>(data, filteredIndex));
+		}
+		else
+		{
+			filteredIndex = null;
+			filteredRows = new ArrayList<>(filter(matches != null
+				? new IndexedRows<>(data, matches)
+				: data));
+			facetCounts = facets != null ? countFacets(filteredRows) : null;
+		}
+		filteredState = snapshot(state);
+		filteredVersion = dataVersion;
+		return filteredRows;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -79,18 +414,142 @@ public class AbstractSortFilterDataProvider<T extends Serializable, S extends Se
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Iterator<? extends T> iterator(final long first, final long count)
+	protected int[] getRowPositions()
+	{
+		getFilteredRows();
+		return filteredIndex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected List<T> getRows()
+	{
+		return getFilteredRows();
+	}
+
+	/**
+	 * Checks if the given current filter state is a refinement of the given previous filter state,
+	 * this means that every row that passes the current filter state passed also the previous
+	 * filter state. In this case only the rows that passed the previous filter state are filtered.
+	 * The default returns false.
+	 *
+	 * @param previous
+	 *            the copy of the previous filter state
+	 * @param current
+	 *            the current filter state
+	 * @return true, if the current filter state is a refinement of the previous one
+	 */
+	protected boolean isRefinement(final F previous, final F current)
 	{
-		List<T> ret = new ArrayList<>(filter(sort()));
-		if (ret.size() > first + count)
+		return false;
+	}
+
+	/**
+	 * Factory method for the filter of the given filter state that works on the columns of the
+	 * given column store. The filter gets the positions of the rows and is created from the
+	 * filters of the {@link ColumnStore}, so the row objects are not accessed. The default returns
+	 * null, in this case {@link #newFilterPredicate(Serializable)} is used.
+	 *
+	 * @param filterState
+	 *            the filter state
+	 * @param columns
+	 *            the column store
+	 * @return the filter of the positions or null if the predicate should be used
+	 */
+	protected IntPredicate newColumnFilter(final F filterState, final ColumnStore<T> columns)
+	{
+		return null;
+	}
+
+	/**
+	 * Factory method for the counters of the facets.
+	 *
+	 * @param rows
+	 *            the rows
+	 * @param columns
+	 *            the column store of the rows or null
+	 * @return the counters in the order of the facets
+	 */
+	private List<FacetCounter<T>> newFacetCounters(final List<T> rows,
+		final ColumnStore<T> columns)
+	{
+		final List<FacetCounter<T>> counters = new ArrayList<>(facets.length);
+		for (final String facet : facets)
 		{
-			ret = ret.subList((int)first, (int)first + (int)count);
+			counters.add(new FacetCounter<>(facet, rows, columns));
 		}
-		else
+		return counters;
+	}
+
+	/**
+	 * Factory method for the predicate of the given filter state. Override this method to filter
+	 * the rows one by one, the result is indexed. The default returns null, in this case
+	 * {@link #filter(List)} is used.
+	 *
+	 * @param filterState
+	 *            the filter state
+	 * @return the predicate or null if {@link #filter(List)} should be used
+	 */
+	protected Predicate<? super T> newFilterPredicate(final F filterState)
+	{
+		return null;
+	}
+
+	/**
+	 * Factory method for the filter of the positions of the given filter state. The filter is
+	 * created from {@link #newColumnFilter(Serializable, ColumnStore)} or from
+	 * {@link #newFilterPredicate(Serializable)}, if both return null all rows pass.
+	 *
+	 * @param data
+	 *            the data
+	 * @param columns
+	 *            the column store of the data or null
+	 * @param state
+	 *            the filter state
+	 * @return the filter of the positions
+	 */
+	private IntPredicate newPositionFilter(final List<T> data, final ColumnStore<T> columns,
+		final F state)
+	{
+		final IntPredicate columnFilter = columns != null ? newColumnFilter(state, columns) : null;
+		if (columnFilter != null)
 		{
-			ret = ret.subList((int)first, ret.size());
+			return columnFilter;
 		}
-		return ret.iterator();
+		final Predicate<? super T> predicate = newFilterPredicate(state);
+		return predicate != null
+			? position -> predicate.test(data.get(position))
+			: position -> true;
+	}
+
+	/**
+	 * Searches the search text of the given filter state in the search index.
+	 *
+	 * @param state
+	 *            the filter state
+	 * @return the ascending positions of the matching rows or null if nothing is searched
+	 */
+	private int[] search(final F state)
+	{
+		final SearchIndex<T> index = getSearchIndex();
+		return index != null && state != null ? index.search(getSearchText(state)) : null;
+	}
+
+	/**
+	 * Sets the property expressions of the facets. The values of the facets are counted for the
+	 * rows that passed the filter, see {@link #getFacetCounts()}. If a facet is extracted into the
+	 * column store, see {@link #setColumns(String...)}, its values are counted over the codes of
+	 * the column.
+	 *
+	 * @param properties
+	 *            the property expressions or nothing to disable the facets
+	 */
+	public void setFacets(final String... properties)
+	{
+		this.facets = properties.length > 0 ? properties.clone() : null;
+		this.filteredRows = null;
 	}
 
 	/**
@@ -104,12 +563,66 @@ public class AbstractSortFilterDataProvider<T extends Serializable, S extends Se
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Sets the property expressions of the string values that are indexed in the search index.
+	 *
+	 * @param properties
+	 *            the property expressions or nothing to disable the search index
 	 */
-	@Override
-	public long size()
+	public void setSearchProperties(final String... properties)
+	{
+		this.searchProperties = properties.length > 0 ? properties.clone() : null;
+		this.searchIndex = null;
+		this.filteredRows = null;
+	}
+
+	/**
+	 * Creates a copy of the given filter state, so later changes of the filter state are
+	 * recognized.
+	 *
+	 * @param state
+	 *            the filter state
+	 * @return the copy
+	 */
+	@SuppressWarnings("unchecked")
+	private F snapshot(final F state)
+	{
+		return state != null ? (F)WicketObjects.cloneObject(state) : null;
+	}
+
+	/**
+	 * Converts the given counters into facet counts.
+	 *
+	 * @param counters
+	 *            the counters
+	 * @return the facet counts
+	 */
+	private static <T> FacetCounts toFacetCounts(final List<FacetCounter<T>> counters)
+	{
+		final Map<String, Map<Object, Integer>> counts = new LinkedHashMap<>();
+		for (final FacetCounter<T> counter : counters)
+		{
+			counts.put(counter.getProperty(), counter.toCounts());
+		}
+		return new FacetCounts(counts);
+	}
+
+	/**
+	 * Creates a filter state without the filter of the given facet, so a multi-select facet can
+	 * count the rows that the other selected values of the facet would add. The rows that fail the
+	 * filter are counted for the facet if they pass the returned filter state. This is only
+	 * correct if the filter is the conjunction of the filters of the facets and the other filters.
+	 * The default returns null, in this case the facet is counted over the rows that passed the
+	 * filter.
+	 *
+	 * @param filterState
+	 *            the current filter state, it must not be modified
+	 * @param property
+	 *            the property expression of the facet
+	 * @return a new filter state without the filter of the given facet or null
+	 */
+	protected F withoutFacetFilter(final F filterState, final String property)
 	{
-		return filter(getData()).size();
+		return null;
 	}
 
 }
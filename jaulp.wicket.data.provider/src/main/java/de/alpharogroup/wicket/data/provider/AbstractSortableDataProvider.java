@@ -17,8 +17,11 @@ package de.alpharogroup.wicket.data.provider;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 
 import org.apache.wicket.extensions.markup.html.repeater.data.sort.ISortState;
 import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
@@ -28,10 +31,23 @@ import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
 
-import de.alpharogroup.collections.ListExtensions;
+import de.alpharogroup.wicket.data.provider.PropertyComparators.CompiledPropertyComparator;
 
 /**
- * The Class AbstractSortableDataProvider.
+ * The Class AbstractSortableDataProvider.<br>
+ * <br>
+ * The sorted data is cached as a sorted view by the current {@link SortParam} and a version of the
+ * data, so paging over the same sort order does not sort again. The version is increased with
+ * {@link #setData(List)} if another list is set and with {@link #dataChanged()}. If only the first
+ * rows of a large list are requested, only these rows are selected with a {@link PartialSort}. The
+ * pages are returned as views of the sorted view without a copy.<br>
+ * <br>
+ * With {@link #setRowLoader(IdExtractor, RowLoader)} the row models keep only the ids of the
+ * visible rows, so the row objects are not serialized with the page. The data itself are also not
+ * serialized with the page, subclasses override {@link #getData()} to load them again after the
+ * page was deserialized. Very large data can be sorted in parallel, see
+ * {@link #setParallel(boolean)}. With {@link #setColumns(String...)} the sort properties are
+ * extracted into a {@link ColumnStore}, the rows are then sorted over primitive arrays.
  *
  * @param <T>
  *            the generic type of the Model for the DataProvider.
@@ -49,12 +65,51 @@ public class AbstractSortableDataProvider<T extends Serializable, S extends Seri
 	 */
 	private static final long serialVersionUID = 1L;
 
-	/** The data for this DataProvider. */
-	private List<T> data;
+	/**
+	 * The Constant PARTIAL_SORT_DIVISOR. A partial selection is used if less than this fraction of
+	 * the rows is requested.
+	 */
+	private static final int PARTIAL_SORT_DIVISOR = 8;
+
+	/** The data for this DataProvider, they are not serialized with the page. */
+	private transient List<T> data;
 
 	/** The sort state. */
 	private final SingleSortState<S> sortState = new SingleSortState<>();
 
+	/** The flag if large data are sorted in parallel. */
+	private boolean parallel;
+
+	/** The property expressions that are extracted into the column store or null. */
+	private String[] columns;
+
+	/** The cached column store. */
+	private transient ColumnStore<T> columnStore;
+
+	/** The data version of the cached column store. */
+	private transient long columnStoreVersion;
+
+	/** The batch loader of the row models or null if the rows are wrapped in a {@link Model}. */
+	private BatchRowLoader<T, ?> batchRowLoader;
+
+	/** The version of the data, it is increased if the data changes. */
+	private long dataVersion;
+
+	/** The cached sorted view. */
+	private transient List<T> sortedView;
+
+	/** The rows of the cached sorted view. */
+	private transient List<T> sortedViewRows;
+
+	/** The sort parameter of the cached sorted view. */
+	private transient SortParam<S> sortedViewSort;
+
+	/** The data version of the cached sorted view. */
+	private transient long sortedViewVersion;
+
+	/** The number of rows of the cached sorted view. */
+	private transient int sortedViewLimit;
+
 	/**
 	 * Default constructor.
 	 */
@@ -74,17 +129,65 @@ public class AbstractSortableDataProvider<T extends Serializable, S extends Seri
 		this.data = data;
 	}
 
+	/**
+	 * Marks the data as changed, this invalidates the cached sorted view. This method has to be
+	 * invoked if the data list was modified in place.
+	 */
+	public void dataChanged()
+	{
+		dataVersion++;
+		sortedView = null;
+		sortedViewRows = null;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void detach()
 	{
-		this.data = null;
+		if (batchRowLoader != null)
+		{
+			batchRowLoader.detach();
+		}
+	}
+
+	/**
+	 * Gets the batch loader of the row models.
+	 *
+	 * @return the batch loader of the row models or null if the row objects are wrapped in a
+	 *         {@link Model}
+	 */
+	public BatchRowLoader<T, ?> getBatchRowLoader()
+	{
+		return batchRowLoader;
+	}
+
+	/**
+	 * Gets the column store of the data. The column store is created again if the data change.
+	 *
+	 * @return the column store or null if no columns are set
+	 */
+	protected ColumnStore<T> getColumnStore()
+	{
+		final List<T> data = getData();
+		if (columns == null || data == null)
+		{
+			return null;
+		}
+		if (columnStore == null || columnStoreVersion != dataVersion
+			|| columnStore.getRows() != data)
+		{
+			columnStore = new ColumnStore<>(data, columns);
+			columnStoreVersion = dataVersion;
+		}
+		return columnStore;
 	}
 
 	/**
-	 * Gets the data.
+	 * Gets the data. The data are not serialized with the page, so this method returns null after
+	 * the page was deserialized. Subclasses override this method to load the data again, for
+	 * instance from a service, and can set them with {@link #setData(List)}.
 	 *
 	 * @return the data
 	 */
@@ -93,6 +196,91 @@ public class AbstractSortableDataProvider<T extends Serializable, S extends Seri
 		return this.data;
 	}
 
+	/**
+	 * Gets the version of the data, it is increased if the data changes.
+	 *
+	 * @return the version of the data
+	 */
+	protected long getDataVersion()
+	{
+		return dataVersion;
+	}
+
+	/**
+	 * Gets the positions of the rows from {@link #getRows()} in the data. The positions are used to
+	 * sort the rows over the column store.
+	 *
+	 * @return the positions of the rows or null if the rows are not a selection of the data
+	 */
+	protected int[] getRowPositions()
+	{
+		final ColumnStore<T> store = getColumnStore();
+		return store != null ? store.getPositions() : null;
+	}
+
+	/**
+	 * Gets the rows that are sorted and paged. This are the data, subclasses can return a subset
+	 * of the data like the filtered rows. The sorted view is cached as long as the same list is
+	 * returned.
+	 *
+	 * @return the rows
+	 */
+	protected List<T> getRows()
+	{
+		return getData();
+	}
+
+	/**
+	 * Gets the sorted view of the rows that contains at least the given number of rows. The view
+	 * is cached until the sort parameter or the rows change. If less than an eighth of the rows is
+	 * requested, only the requested rows are selected with the comparator from
+	 * {@link #newComparator(SortParam)}, otherwise the rows are sorted with {@link #sort()}. In the
+	 * parallel mode many rows are always sorted completely, then the sorted view serves all pages.
+	 *
+	 * @param limit
+	 *            the number of the requested rows
+	 * @return the sorted view
+	 */
+	protected List<T> getSortedView(final int limit)
+	{
+		final SortParam<S> sortParam = getSort();
+		final List<T> rows = getRows();
+		final boolean sameView = sortedView != null && sortedViewVersion == dataVersion
+			&& sortedViewRows == rows && Objects.equals(sortedViewSort, sortParam);
+		if (sameView && (sortedViewLimit >= limit || sortedViewLimit >= rows.size()))
+		{
+			return sortedView;
+		}
+		// a growing limit of the same view, for instance the chunks of an export, grows
+		// geometrically, so the rows are not selected again for every chunk
+		final int partialLimit = sameView ? (int)Math.min(Integer.MAX_VALUE,
+			Math.max(limit, 2L * sortedViewLimit)) : limit;
+		final int[] positions = sortParam != null ? sortPositions(sortParam) : null;
+		if (positions != null)
+		{
+			sortedView = new IndexedRows<>(getData(), positions);
+			sortedViewLimit = Integer.MAX_VALUE;
+		}
+		else if (sortParam != null && partialLimit < rows.size() / PARTIAL_SORT_DIVISOR
+			&& !(parallel && rows.size() >= ParallelRows.getInstance().getThreshold()))
+		{
+			sortedView = PartialSort.top(rows, newComparator(sortParam), partialLimit);
+			sortedViewLimit = partialLimit;
+		}
+		else
+		{
+			// the data are not sorted in place if the column store addresses them by position
+			sortedView = rows != getData() ? sort(rows) : columns == null
+				? sort()
+				: sort(new ArrayList<>(rows));
+			sortedViewLimit = Integer.MAX_VALUE;
+		}
+		sortedViewRows = rows;
+		sortedViewSort = sortParam;
+		sortedViewVersion = dataVersion;
+		return sortedView;
+	}
+
 	/**
 	 * Returns current sort state.
 	 *
@@ -115,22 +303,31 @@ public class AbstractSortableDataProvider<T extends Serializable, S extends Seri
 		return sortState;
 	}
 
+	/**
+	 * Checks if the data are sorted in parallel if they have more rows than the threshold of the
+	 * {@link ParallelRows}.
+	 *
+	 * @return true, if the parallel mode is enabled
+	 */
+	public boolean isParallel()
+	{
+		return parallel;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public Iterator<? extends T> iterator(final long first, final long count)
 	{
-		List<T> result = new ArrayList<>(sort());
-		if (result.size() > first + count)
-		{
-			result = result.subList((int)first, (int)first + (int)count);
-		}
-		else
+		if (batchRowLoader != null)
 		{
-			result = result.subList((int)first, result.size());
+			batchRowLoader.reset();
 		}
-		return result.iterator();
+		final int size = getRows().size();
+		final int to = (int)Math.min(size, first + count);
+		final List<T> sorted = getSortedView(to);
+		return sorted.subList((int)Math.min(first, to), to).iterator();
 	}
 
 	/**
@@ -139,18 +336,84 @@ public class AbstractSortableDataProvider<T extends Serializable, S extends Seri
 	@Override
 	public IModel<T> model(final T object)
 	{
-		return Model.of(object);
+		return batchRowLoader != null ? batchRowLoader.model(object) : Model.of(object);
 	}
 
 	/**
-	 * Sets the data.
+	 * Factory method for the comparator of the given sort parameter. The default comparator is
+	 * compiled from the property expression with the {@link PropertyComparators}.
+	 *
+	 * @param sortParam
+	 *            the sort parameter
+	 * @return the comparator
+	 */
+	protected Comparator<T> newComparator(final SortParam<S> sortParam)
+	{
+		return PropertyComparators.comparing((String)sortParam.getProperty(),
+			sortParam.isAscending());
+	}
+
+	/**
+	 * Sets the property expressions that are extracted into a column store. If the comparator of
+	 * the sort parameter is a comparator of the {@link PropertyComparators} and its property is
+	 * extracted, the rows are sorted over the primitive arrays of the {@link ColumnStore} and the
+	 * row objects are only accessed for the visible rows.
+	 *
+	 * @param properties
+	 *            the property expressions or nothing to disable the column store
+	 */
+	public void setColumns(final String... properties)
+	{
+		this.columns = properties.length > 0 ? properties.clone() : null;
+		this.columnStore = null;
+	}
+
+	/**
+	 * Sets the data. The cached sorted view is only invalidated if the given list is another list
+	 * than the current data, so subclasses can set the same list again in {@link #getData()}. If
+	 * the current list was modified in place, {@link #dataChanged()} has to be invoked.
 	 *
 	 * @param data
 	 *            the new data
 	 */
 	protected void setData(final List<T> data)
 	{
-		this.data = data;
+		if (data != this.data)
+		{
+			this.data = data;
+			dataChanged();
+		}
+	}
+
+	/**
+	 * Enables or disables the parallel mode. In the parallel mode the data are sorted on the pool
+	 * of the shared {@link ParallelRows} if they have more rows than its threshold, so the
+	 * comparator has to be thread safe. The default is false.
+	 *
+	 * @param parallel
+	 *            the flag if the parallel mode is enabled
+	 */
+	public void setParallel(final boolean parallel)
+	{
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Sets the strategy of the row models. The row models keep only the id that is extracted with
+	 * the given id extractor, so the row objects are not serialized with the page. After detach
+	 * the row objects of all visible rows are loaded with one call of the given row loader.
+	 *
+	 * @param <K>
+	 *            the generic type of the ids
+	 * @param idExtractor
+	 *            the id extractor
+	 * @param rowLoader
+	 *            the row loader
+	 */
+	public <K extends Serializable> void setRowLoader(final IdExtractor<T, K> idExtractor,
+		final RowLoader<T, K> rowLoader)
+	{
+		this.batchRowLoader = new BatchRowLoader<>(idExtractor, rowLoader);
 	}
 
 	/**
@@ -177,13 +440,45 @@ public class AbstractSortableDataProvider<T extends Serializable, S extends Seri
 		sortState.setSort(param);
 	}
 
+	/**
+	 * Sorts the positions of the rows over the column store, if the comparator of the given sort
+	 * parameter compares a property of the column store.
+	 *
+	 * @param sortParam
+	 *            the sort parameter
+	 * @return the sorted positions of the rows or null if the rows can not be sorted over the column
+	 *         store
+	 */
+	@SuppressWarnings("unchecked")
+	private int[] sortPositions(final SortParam<S> sortParam)
+	{
+		final ColumnStore<T> store = getColumnStore();
+		if (store == null)
+		{
+			return null;
+		}
+		final Comparator<T> comparator = newComparator(sortParam);
+		if (!(comparator instanceof CompiledPropertyComparator))
+		{
+			return null;
+		}
+		final CompiledPropertyComparator<T> compiled = (CompiledPropertyComparator<T>)comparator;
+		final int[] positions = getRowPositions();
+		if (positions == null || !store.hasColumn(compiled.getProperty()))
+		{
+			return null;
+		}
+		return store.sort(positions, compiled.getProperty(), compiled.isAscending(),
+			compiled.isNullsFirst(), parallel);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public long size()
 	{
-		return getData().size();
+		return getRows().size();
 	}
 
 	/**
@@ -210,9 +505,14 @@ public class AbstractSortableDataProvider<T extends Serializable, S extends Seri
 		final SortParam<S> sortParam = getSort();
 		if (sortParam != null)
 		{
-			final String property = (String)sortParam.getProperty();
-			final boolean ascending = sortParam.isAscending();
-			ListExtensions.sortByProperty(unsortedList, property, ascending);
+			if (parallel)
+			{
+				ParallelRows.getInstance().sort(unsortedList, newComparator(sortParam));
+			}
+			else
+			{
+				Collections.sort(unsortedList, newComparator(sortParam));
+			}
 		}
 		return unsortedList;
 	}
@@ -17,6 +17,8 @@ package de.alpharogroup.wicket.data.provider;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -29,11 +31,10 @@ import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
 
-import de.alpharogroup.collections.ListExtensions;
-
 /**
  * The Class AbstractSortableFilterDataProvider is an abstract generic implementation for the
- * ISortableDataProvider and the IFilterStateLocator interface.
+ * ISortableDataProvider and the IFilterStateLocator interface. The data are not serialized with
+ * the page, see {@link #getData()}.
  *
  * @author Asterios Raptis
  * @param <T>
@@ -57,12 +58,18 @@ public abstract class AbstractSortableFilterDataProvider<T extends Serializable,
 	/** The filter. */
 	private F filterState;
 
-	/** The data. */
-	private List<T> data;
+	/** The data, they are not serialized with the page. */
+	private transient List<T> data;
 
 	/** The sort state. */
 	private final SingleSortState<S> sortState = new SingleSortState<>();
 
+	/** The flag if large data are sorted in parallel. */
+	private boolean parallel;
+
+	/** The batch loader of the row models or null if the rows are wrapped in a {@link Model}. */
+	private BatchRowLoader<T, ?> batchRowLoader;
+
 	/**
 	 * Default constructor.
 	 */
@@ -88,7 +95,10 @@ public abstract class AbstractSortableFilterDataProvider<T extends Serializable,
 	@Override
 	public void detach()
 	{
-		setData(null);
+		if (batchRowLoader != null)
+		{
+			batchRowLoader.detach();
+		}
 	}
 
 	/**
@@ -104,7 +114,20 @@ public abstract class AbstractSortableFilterDataProvider<T extends Serializable,
 	}
 
 	/**
-	 * Gets the data.
+	 * Gets the batch loader of the row models.
+	 *
+	 * @return the batch loader of the row models or null if the row objects are wrapped in a
+	 *         {@link Model}
+	 */
+	public BatchRowLoader<T, ?> getBatchRowLoader()
+	{
+		return batchRowLoader;
+	}
+
+	/**
+	 * Gets the data. The data are not serialized with the page, so this method returns null after
+	 * the page was deserialized. Subclasses override this method to load the data again, for
+	 * instance from a service, and can set them with {@link #setData(List)}.
 	 *
 	 * @return the data
 	 */
@@ -144,12 +167,27 @@ public abstract class AbstractSortableFilterDataProvider<T extends Serializable,
 		return sortState;
 	}
 
+	/**
+	 * Checks if the data are sorted in parallel if they have more rows than the threshold of the
+	 * {@link ParallelRows}.
+	 *
+	 * @return true, if the parallel mode is enabled
+	 */
+	public boolean isParallel()
+	{
+		return parallel;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public Iterator<? extends T> iterator(final long first, final long count)
 	{
+		if (batchRowLoader != null)
+		{
+			batchRowLoader.reset();
+		}
 		List<T> ret = new ArrayList<>(filter(sort()));
 		if (ret.size() > first + count)
 		{
@@ -168,7 +206,21 @@ public abstract class AbstractSortableFilterDataProvider<T extends Serializable,
 	@Override
 	public IModel<T> model(final T object)
 	{
-		return Model.of(object);
+		return batchRowLoader != null ? batchRowLoader.model(object) : Model.of(object);
+	}
+
+	/**
+	 * Factory method for the comparator of the given sort parameter. The default comparator is
+	 * compiled from the property expression with the {@link PropertyComparators}.
+	 *
+	 * @param sortParam
+	 *            the sort parameter
+	 * @return the comparator
+	 */
+	protected Comparator<T> newComparator(final SortParam<S> sortParam)
+	{
+		return PropertyComparators.comparing((String)sortParam.getProperty(),
+			sortParam.isAscending());
 	}
 
 	/**
@@ -192,6 +244,37 @@ public abstract class AbstractSortableFilterDataProvider<T extends Serializable,
 
 	}
 
+	/**
+	 * Enables or disables the parallel mode. In the parallel mode the data are sorted on the pool
+	 * of the shared {@link ParallelRows} if they have more rows than its threshold, so the
+	 * comparator has to be thread safe. The default is false.
+	 *
+	 * @param parallel
+	 *            the flag if the parallel mode is enabled
+	 */
+	public void setParallel(final boolean parallel)
+	{
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Sets the strategy of the row models. The row models keep only the id that is extracted with
+	 * the given id extractor, so the row objects are not serialized with the page. After detach
+	 * the row objects of all visible rows are loaded with one call of the given row loader.
+	 *
+	 * @param <K>
+	 *            the generic type of the ids
+	 * @param idExtractor
+	 *            the id extractor
+	 * @param rowLoader
+	 *            the row loader
+	 */
+	public <K extends Serializable> void setRowLoader(final IdExtractor<T, K> idExtractor,
+		final RowLoader<T, K> rowLoader)
+	{
+		this.batchRowLoader = new BatchRowLoader<>(idExtractor, rowLoader);
+	}
+
 	/**
 	 * Sets the current sort state.
 	 *
@@ -249,9 +332,14 @@ public abstract class AbstractSortableFilterDataProvider<T extends Serializable,
 		final SortParam<S> sortParam = getSort();
 		if (sortParam != null)
 		{
-			final String property = (String)sortParam.getProperty();
-			final boolean ascending = sortParam.isAscending();
-			ListExtensions.sortByProperty(unsortedList, property, ascending);
+			if (parallel)
+			{
+				ParallelRows.getInstance().sort(unsortedList, newComparator(sortParam));
+			}
+			else
+			{
+				Collections.sort(unsortedList, newComparator(sortParam));
+			}
 		}
 		return unsortedList;
 	}
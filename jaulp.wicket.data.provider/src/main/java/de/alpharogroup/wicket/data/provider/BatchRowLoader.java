@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class BatchRowLoader creates the {@link LoadableRowModel}s of a data provider and loads the
+ * row objects of the visible rows in one call. The ids of the rows of the current page are
+ * remembered, when the first row model is loaded in a request all these rows are loaded with the
+ * {@link RowLoader}. The loaded rows are held until the row models are detached at the end of the
+ * request.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ * @param <K>
+ *            the generic type of the ids.
+ */
+public class BatchRowLoader<T, K extends Serializable> implements Serializable
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The id extractor. */
+	private final IdExtractor<T, K> idExtractor;
+
+	/** The row loader. */
+	private final RowLoader<T, K> rowLoader;
+
+	/** The ids of the rows of the current page. */
+	private final Set<K> ids = new LinkedHashSet<>();
+
+	/** The rows that are loaded in the current request. */
+	private transient Map<K, T> loaded;
+
+	/**
+	 * Instantiates a new {@link BatchRowLoader}.
+	 *
+	 * @param idExtractor
+	 *            the id extractor
+	 * @param rowLoader
+	 *            the row loader
+	 */
+	public BatchRowLoader(final IdExtractor<T, K> idExtractor, final RowLoader<T, K> rowLoader)
+	{
+		this.idExtractor = Args.notNull(idExtractor, "idExtractor");
+		this.rowLoader = Args.notNull(rowLoader, "rowLoader");
+	}
+
+	/**
+	 * Releases the loaded rows. This method is invoked when a row model is detached.
+	 */
+	public void detach()
+	{
+		loaded = null;
+	}
+
+	/**
+	 * Gets the row object of the given id. The first call in a request loads the rows of all
+	 * remembered ids together with the given one, later calls load only rows that are missing.
+	 *
+	 * @param id
+	 *            the id
+	 * @return the row object or null if the row does not exist anymore
+	 */
+	public T get(final K id)
+	{
+		if (loaded == null)
+		{
+			ids.add(id);
+			loaded = new HashMap<>(rowLoader.load(ids));
+		}
+		if (!loaded.containsKey(id))
+		{
+			loaded.putAll(rowLoader.load(Collections.singleton(id)));
+			if (!loaded.containsKey(id))
+			{
+				// remember missing rows, so they are not requested again in this request
+				loaded.put(id, null);
+			}
+		}
+		return loaded.get(id);
+	}
+
+	/**
+	 * Factory method for the row model of the given row object. The id of the row object is
+	 * remembered for the batch load.
+	 *
+	 * @param object
+	 *            the row object
+	 * @return the row model
+	 */
+	public IModel<T> model(final T object)
+	{
+		final K id = idExtractor.getId(object);
+		ids.add(id);
+		if (loaded != null)
+		{
+			loaded.put(id, object);
+		}
+		return new LoadableRowModel<>(object, id, this);
+	}
+
+	/**
+	 * Forgets the remembered ids. This method is invoked when the rows of a new page are
+	 * requested.
+	 */
+	public void reset()
+	{
+		ids.clear();
+	}
+
+}
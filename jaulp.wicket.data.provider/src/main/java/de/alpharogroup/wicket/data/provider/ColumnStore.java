@@ -0,0 +1,566 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class ColumnStore holds properties of a list of rows column by column in primitive arrays.
+ * Every property is extracted once and dictionary encoded: the distinct values are sorted into a
+ * <code>long[]</code> for integral and {@link Date} properties, into a <code>double[]</code> for
+ * floating point properties or into an array of values of one class for other properties, and
+ * every row holds the position of its value in the dictionary in an <code>int[]</code>. The codes
+ * have the same order as the values, so the rows are sorted and filtered over the codes without
+ * touching the row objects. The order of the codes is the order of the comparators of the
+ * {@link PropertyComparators}.<br>
+ * <br>
+ * The rows are addressed by their positions in the list. The store is immutable and has to be
+ * created again if the list changes.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ */
+public class ColumnStore<T>
+{
+
+	/**
+	 * The Class Column is one extracted property.
+	 */
+	private static final class Column
+	{
+
+		/** The codes of the rows, negative codes are the null levels. */
+		private final int[] codes;
+
+		/** The sorted distinct values, a long array, a double array or an object array. */
+		private final Object dictionary;
+
+		/** The number of distinct values. */
+		private final int size;
+
+		/**
+		 * Instantiates a new {@link Column}.
+		 *
+		 * @param codes
+		 *            the codes of the rows
+		 * @param dictionary
+		 *            the sorted distinct values
+		 * @param size
+		 *            the number of distinct values
+		 */
+		private Column(final int[] codes, final Object dictionary, final int size)
+		{
+			this.codes = codes;
+			this.dictionary = dictionary;
+			this.size = size;
+		}
+
+		/**
+		 * Searches the given value in the dictionary. The value is converted to the type of the
+		 * dictionary.
+		 *
+		 * @param value
+		 *            the value
+		 * @return the code of the value or <code>(-(insertion point) - 1)</code> like
+		 *         {@link Arrays#binarySearch(long[], long)}
+		 */
+		private int search(final Object value)
+		{
+			if (dictionary instanceof long[])
+			{
+				final long key = value instanceof Date
+					? ((Date)value).getTime()
+					: ((Number)value).longValue();
+				return Arrays.binarySearch((long[])dictionary, 0, size, key);
+			}
+			if (dictionary instanceof double[])
+			{
+				return Arrays.binarySearch((double[])dictionary, 0, size,
+					((Number)value).doubleValue());
+			}
+			return Arrays.binarySearch((Object[])dictionary, 0, size, value, VALUE_ORDER);
+		}
+	}
+
+	/** The code of a row that is null. */
+	private static final int NULL_ROW = -3;
+
+	/** The code of a row with a null nested property. */
+	private static final int NULL_PROPERTY = -2;
+
+	/** The code of a row with a null value. */
+	private static final int NULL_VALUE = -1;
+
+	/** The order of the values of the object columns. */
+	private static final Comparator<Object> VALUE_ORDER = PropertyComparator::compareValues;
+
+	/** The rows. */
+	private final List<T> rows;
+
+	/** The columns by their property expressions. */
+	private final Map<String, Column> columns = new HashMap<>();
+
+	/** The positions of all rows. */
+	private int[] positions;
+
+	/**
+	 * Instantiates a new {@link ColumnStore} and extracts the given properties. Properties that can
+	 * not be extracted, for instance because the rows are of different classes with different
+	 * types of the property, are skipped.
+	 *
+	 * @param rows
+	 *            the rows
+	 * @param properties
+	 *            the property expressions
+	 */
+	public ColumnStore(final List<T> rows, final String... properties)
+	{
+		this.rows = Args.notNull(rows, "rows");
+		for (final String property : properties)
+		{
+			final Column column = extract(property);
+			if (column != null)
+			{
+				columns.put(property, column);
+			}
+		}
+	}
+
+	/**
+	 * Creates a filter for the rows with a value of the given property between the given bounds.
+	 * Rows with a null value do not pass the filter.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @param from
+	 *            the inclusive lower bound or null for no lower bound
+	 * @param to
+	 *            the inclusive upper bound or null for no upper bound
+	 * @return the filter of the positions of the rows
+	 */
+	public IntPredicate between(final String property, final Object from, final Object to)
+	{
+		final Column column = getColumn(property);
+		int lower = 0;
+		if (from != null)
+		{
+			final int code = column.search(from);
+			lower = code >= 0 ? code : -code - 1;
+		}
+		int upper = column.size - 1;
+		if (to != null)
+		{
+			final int code = column.search(to);
+			upper = code >= 0 ? code : -code - 2;
+		}
+		return range(column, lower, upper);
+	}
+
+	/**
+	 * Creates a filter for the rows with a value of the given property that equals the given
+	 * value.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @param value
+	 *            the value
+	 * @return the filter of the positions of the rows
+	 */
+	public IntPredicate equalTo(final String property, final Object value)
+	{
+		return between(property, Args.notNull(value, "value"), value);
+	}
+
+	/**
+	 * Extracts the given property of all rows into a column.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @return the column or null if the property can not be extracted
+	 */
+	private Column extract(final String property)
+	{
+		final int size = rows.size();
+		final int[] codes = new int[size];
+		PropertyAccessor.Kind kind = null;
+		PropertyAccessor accessor = null;
+		Class<?> type = null;
+		Class<?> valueType = null;
+		long[] longs = null;
+		double[] doubles = null;
+		Object[] objects = null;
+		int count = 0;
+		for (int i = 0; i < size; i++)
+		{
+			final T row = rows.get(i);
+			if (row == null)
+			{
+				codes[i] = NULL_ROW;
+				continue;
+			}
+			if (row.getClass() != type)
+			{
+				type = row.getClass();
+				accessor = PropertyComparators.getAccessor(type, property);
+				if (kind == null)
+				{
+					kind = accessor.getKind();
+					if (kind == PropertyAccessor.Kind.DOUBLE)
+					{
+						doubles = new double[size];
+					}
+					else if (kind == PropertyAccessor.Kind.OBJECT)
+					{
+						objects = new Object[size];
+					}
+					else
+					{
+						longs = new long[size];
+					}
+				}
+				else if (kind != accessor.getKind())
+				{
+					return null;
+				}
+			}
+			final Object holder = accessor.getHolder(row);
+			if (holder == null)
+			{
+				codes[i] = NULL_PROPERTY;
+				continue;
+			}
+			switch (kind)
+			{
+				case LONG :
+					longs[count++] = accessor.getLong(holder);
+					break;
+				case DOUBLE :
+					doubles[count++] = accessor.getDouble(holder);
+					break;
+				case DATE :
+					final Date date = (Date)accessor.getObject(holder);
+					if (date == null)
+					{
+						codes[i] = NULL_VALUE;
+						continue;
+					}
+					longs[count++] = date.getTime();
+					break;
+				default :
+					final Object value = accessor.getObject(holder);
+					if (value == null)
+					{
+						codes[i] = NULL_VALUE;
+						continue;
+					}
+					if (valueType == null)
+					{
+						valueType = value.getClass();
+					}
+					else if (valueType != value.getClass())
+					{
+						// the values of different classes have no consistent order
+						return null;
+					}
+					objects[count++] = value;
+			}
+		}
+		if (kind == null)
+		{
+			return new Column(codes, new long[0], 0);
+		}
+		// the values are collected in the order of the rows, so the codes are assigned in that order
+		if (longs != null)
+		{
+			final long[] values = Arrays.copyOf(longs, count);
+			Arrays.sort(values);
+			final int distinct = distinct(values);
+			for (int i = 0, value = 0; i < size; i++)
+			{
+				if (codes[i] == 0)
+				{
+					codes[i] = Arrays.binarySearch(values, 0, distinct, longs[value++]);
+				}
+			}
+			return new Column(codes, values, distinct);
+		}
+		if (doubles != null)
+		{
+			final double[] values = Arrays.copyOf(doubles, count);
+			Arrays.sort(values);
+			int distinct = 0;
+			for (int i = 0; i < values.length; i++)
+			{
+				if (distinct == 0 || Double.compare(values[i], values[distinct - 1]) != 0)
+				{
+					values[distinct++] = values[i];
+				}
+			}
+			for (int i = 0, value = 0; i < size; i++)
+			{
+				if (codes[i] == 0)
+				{
+					codes[i] = Arrays.binarySearch(values, 0, distinct, doubles[value++]);
+				}
+			}
+			return new Column(codes, values, distinct);
+		}
+		final Object[] values = Arrays.copyOf(objects, count);
+		Arrays.sort(values, VALUE_ORDER);
+		int distinct = 0;
+		for (int i = 0; i < values.length; i++)
+		{
+			if (distinct == 0 || VALUE_ORDER.compare(values[i], values[distinct - 1]) != 0)
+			{
+				values[distinct++] = values[i];
+			}
+		}
+		for (int i = 0, value = 0; i < size; i++)
+		{
+			if (codes[i] == 0)
+			{
+				codes[i] = Arrays.binarySearch(values, 0, distinct, objects[value++], VALUE_ORDER);
+			}
+		}
+		return new Column(codes, values, distinct);
+	}
+
+	/**
+	 * Removes the duplicates from the given sorted values.
+	 *
+	 * @param values
+	 *            the sorted values
+	 * @return the number of distinct values at the start of the array
+	 */
+	private static int distinct(final long[] values)
+	{
+		int distinct = 0;
+		for (int i = 0; i < values.length; i++)
+		{
+			if (distinct == 0 || values[i] != values[distinct - 1])
+			{
+				values[distinct++] = values[i];
+			}
+		}
+		return distinct;
+	}
+
+	/**
+	 * Gets the column of the given property expression.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @return the column
+	 */
+	private Column getColumn(final String property)
+	{
+		final Column column = columns.get(property);
+		if (column == null)
+		{
+			throw new IllegalArgumentException("The property " + property
+				+ " is not extracted into a column.");
+		}
+		return column;
+	}
+
+	/**
+	 * Gets the number of distinct values of the given property.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @return the number of distinct values
+	 */
+	int getCardinality(final String property)
+	{
+		return getColumn(property).size;
+	}
+
+	/**
+	 * Gets the codes of the rows of the given property, the negative codes are the null levels.
+	 * The returned array is shared and must not be modified.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @return the codes of the rows
+	 */
+	int[] getCodes(final String property)
+	{
+		return getColumn(property).codes;
+	}
+
+	/**
+	 * Gets the positions of all rows. The returned array is shared and must not be modified.
+	 *
+	 * @return the positions of all rows
+	 */
+	public int[] getPositions()
+	{
+		if (positions == null)
+		{
+			final int[] all = new int[rows.size()];
+			for (int i = 0; i < all.length; i++)
+			{
+				all[i] = i;
+			}
+			positions = all;
+		}
+		return positions;
+	}
+
+	/**
+	 * Gets the rows.
+	 *
+	 * @return the rows
+	 */
+	public List<T> getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Checks if the given property is extracted into a column.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @return true, if the property is extracted
+	 */
+	public boolean hasColumn(final String property)
+	{
+		return columns.containsKey(property);
+	}
+
+	/**
+	 * Creates a filter for the rows with a code of the given column in the given range.
+	 *
+	 * @param column
+	 *            the column
+	 * @param lower
+	 *            the inclusive lower code
+	 * @param upper
+	 *            the inclusive upper code
+	 * @return the filter of the positions of the rows
+	 */
+	private static IntPredicate range(final Column column, final int lower, final int upper)
+	{
+		if (lower > upper)
+		{
+			return position -> false;
+		}
+		final int[] codes = column.codes;
+		return position -> {
+			final int code = codes[position];
+			return code >= lower && code <= upper;
+		};
+	}
+
+	/**
+	 * Sorts the given positions of rows by the given property. The result is the same as the sort
+	 * with the comparator from {@link PropertyComparators} for the property, rows with equal
+	 * values keep the order of the given positions.
+	 *
+	 * @param positions
+	 *            the positions of the rows
+	 * @param property
+	 *            the property expression
+	 * @param ascending
+	 *            the flag if the order is ascending
+	 * @param nullsFirst
+	 *            the flag if null values are ordered first
+	 * @param parallel
+	 *            the flag if the positions are sorted with the shared {@link ParallelRows}
+	 * @return the sorted positions in a new array
+	 */
+	public int[] sort(final int[] positions, final String property, final boolean ascending,
+		final boolean nullsFirst, final boolean parallel)
+	{
+		final Column column = getColumn(property);
+		final int[] codes = column.codes;
+		final long size = column.size;
+		final long[] keys = new long[positions.length];
+		for (int i = 0; i < positions.length; i++)
+		{
+			final int code = codes[positions[i]];
+			final long key;
+			if (code < 0)
+			{
+				key = nullsFirst ? code - NULL_ROW : size - 1 - code;
+			}
+			else
+			{
+				final long rank = ascending ? code : size - 1 - code;
+				key = nullsFirst ? rank - NULL_ROW : rank;
+			}
+			keys[i] = key << 32 | i;
+		}
+		if (parallel)
+		{
+			ParallelRows.getInstance().sort(keys);
+		}
+		else
+		{
+			Arrays.sort(keys);
+		}
+		final int[] sorted = new int[keys.length];
+		for (int i = 0; i < keys.length; i++)
+		{
+			sorted[i] = positions[(int)keys[i]];
+		}
+		return sorted;
+	}
+
+	/**
+	 * Creates a filter for the rows with a string value of the given property that starts with
+	 * the given prefix.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @param prefix
+	 *            the prefix
+	 * @return the filter of the positions of the rows
+	 */
+	public IntPredicate startsWith(final String property, final String prefix)
+	{
+		final Column column = getColumn(property);
+		if (column.size == 0)
+		{
+			return position -> false;
+		}
+		if (!(column.dictionary instanceof Object[])
+			|| !(((Object[])column.dictionary)[0] instanceof String))
+		{
+			throw new IllegalArgumentException("The property " + property
+				+ " is not a string property.");
+		}
+		final Object[] values = (Object[])column.dictionary;
+		final int code = column.search(prefix);
+		final int lower = code >= 0 ? code : -code - 1;
+		int upper = lower - 1;
+		while (upper + 1 < column.size && ((String)values[upper + 1]).startsWith(prefix))
+		{
+			upper++;
+		}
+		return range(column, lower, upper);
+	}
+
+}
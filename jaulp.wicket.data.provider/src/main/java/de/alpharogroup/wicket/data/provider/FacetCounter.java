@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class FacetCounter counts the values of one property for the rows at the added positions.
+ * If the property is extracted into a {@link ColumnStore}, the rows are counted over the codes of
+ * the column and the value of a code is resolved once from the first row with that code.
+ * Otherwise the value is resolved from every row with the compiled {@link PropertyAccessor} of the
+ * class of the row, that is looked up again only if the class changes.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ */
+final class FacetCounter<T>
+{
+
+	/** The property expression. */
+	private final String property;
+
+	/** The accessor of the property of the class of the last resolved row. */
+	private PropertyAccessor accessor;
+
+	/** The class of the last resolved row. */
+	private Class<?> type;
+
+	/** The rows. */
+	private final List<T> rows;
+
+	/** The codes of the column or null if the property is not extracted. */
+	private final int[] codes;
+
+	/** The counts by the code plus one, all null levels are counted at the index zero. */
+	private final int[] counts;
+
+	/** The position of the first counted row by the code plus one. */
+	private final int[] firstPositions;
+
+	/** The counts by the value if the property is not extracted. */
+	private final Map<Object, int[]> values;
+
+	/**
+	 * Instantiates a new {@link FacetCounter}.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @param rows
+	 *            the rows
+	 * @param columns
+	 *            the column store of the given rows or null
+	 */
+	FacetCounter(final String property, final List<T> rows, final ColumnStore<T> columns)
+	{
+		this.property = property;
+		this.rows = rows;
+		if (columns != null && columns.hasColumn(property))
+		{
+			this.codes = columns.getCodes(property);
+			this.counts = new int[columns.getCardinality(property) + 1];
+			this.firstPositions = new int[counts.length];
+			this.values = null;
+		}
+		else
+		{
+			this.codes = null;
+			this.counts = null;
+			this.firstPositions = null;
+			this.values = new LinkedHashMap<>();
+		}
+	}
+
+	/**
+	 * Counts the row at the given position.
+	 *
+	 * @param position
+	 *            the position of the row
+	 */
+	void add(final int position)
+	{
+		if (codes != null)
+		{
+			final int index = Math.max(codes[position], -1) + 1;
+			if (counts[index]++ == 0)
+			{
+				firstPositions[index] = position;
+			}
+			return;
+		}
+		final Object value = getValue(position);
+		final int[] count = values.get(value);
+		if (count == null)
+		{
+			values.put(value, new int[] { 1 });
+		}
+		else
+		{
+			count[0]++;
+		}
+	}
+
+	/**
+	 * Gets the property expression.
+	 *
+	 * @return the property expression
+	 */
+	String getProperty()
+	{
+		return property;
+	}
+
+	/**
+	 * Gets the value of the property of the row at the given position.
+	 *
+	 * @param position
+	 *            the position of the row
+	 * @return the value or null if the row or a nested property is null
+	 */
+	private Object getValue(final int position)
+	{
+		final T row = rows.get(position);
+		if (row == null)
+		{
+			return null;
+		}
+		if (row.getClass() != type)
+		{
+			type = row.getClass();
+			accessor = PropertyComparators.getAccessor(type, property);
+		}
+		return accessor.getValue(row);
+	}
+
+	/**
+	 * Gets the counted values with their counts. The values are ordered by the descending counts,
+	 * values with the same count are ordered by the order of the column or the order in which they
+	 * were counted first. The null value is counted under the key null.
+	 *
+	 * @return the counts by the values
+	 */
+	Map<Object, Integer> toCounts()
+	{
+		final List<Map.Entry<Object, Integer>> entries = new ArrayList<>();
+		if (codes != null)
+		{
+			for (int i = 0; i < counts.length; i++)
+			{
+				if (counts[i] > 0)
+				{
+					final Object value = i == 0 ? null : getValue(firstPositions[i]);
+					entries.add(new AbstractMap.SimpleImmutableEntry<>(value, counts[i]));
+				}
+			}
+		}
+		else
+		{
+			for (final Map.Entry<Object, int[]> entry : values.entrySet())
+			{
+				entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(),
+					entry.getValue()[0]));
+			}
+		}
+		// the sort is stable, so values with the same count keep their order
+		entries.sort((left, right) -> Integer.compare(right.getValue(), left.getValue()));
+		final Map<Object, Integer> result = new LinkedHashMap<>();
+		for (final Map.Entry<Object, Integer> entry : entries)
+		{
+			result.put(entry.getKey(), entry.getValue());
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.ToString;
+
+/**
+ * The Class FacetCounts holds the number of rows per value of the facet properties of a data
+ * provider for one filter state, see
+ * {@link AbstractSortFilterDataProvider#setFacets(String...)}. The counts are immutable.
+ */
+@ToString
+public class FacetCounts
+{
+
+	/** The empty facet counts. */
+	public static final FacetCounts EMPTY = new FacetCounts(
+		Collections.<String, Map<Object, Integer>> emptyMap());
+
+	/** The counts by the values by the property expressions. */
+	private final Map<String, Map<Object, Integer>> counts;
+
+	/**
+	 * Instantiates a new {@link FacetCounts}.
+	 *
+	 * @param counts
+	 *            the counts by the values by the property expressions
+	 */
+	FacetCounts(final Map<String, Map<Object, Integer>> counts)
+	{
+		this.counts = Collections.unmodifiableMap(new LinkedHashMap<>(counts));
+	}
+
+	/**
+	 * Gets the number of rows with the given value of the given property.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @param value
+	 *            the value, null for the rows with a null value
+	 * @return the number of rows
+	 */
+	public int getCount(final String property, final Object value)
+	{
+		final Integer count = getCounts(property).get(value);
+		return count != null ? count : 0;
+	}
+
+	/**
+	 * Gets the values of the given property with their number of rows. The values are ordered by
+	 * the descending number of rows, values without rows are not contained.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @return the number of rows by the values or an empty map if the property is not a facet
+	 */
+	public Map<Object, Integer> getCounts(final String property)
+	{
+		final Map<Object, Integer> values = counts.get(property);
+		return values != null ? values : Collections.<Object, Integer> emptyMap();
+	}
+
+	/**
+	 * Gets the property expressions of the facets.
+	 *
+	 * @return the property expressions
+	 */
+	public Set<String> getProperties()
+	{
+		return counts.keySet();
+	}
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+
+/**
+ * The Interface IdExtractor gets the id from a row object. The id is kept in a
+ * {@link LoadableRowModel} instead of the row object, so it has to be small and serializable.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ * @param <K>
+ *            the generic type of the ids.
+ */
+@FunctionalInterface
+public interface IdExtractor<T, K extends Serializable> extends Serializable
+{
+
+	/**
+	 * Gets the id of the given row object.
+	 *
+	 * @param object
+	 *            the row object
+	 * @return the id
+	 */
+	K getId(T object);
+
+}
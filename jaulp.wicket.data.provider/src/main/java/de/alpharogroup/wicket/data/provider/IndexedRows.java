@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The Class IndexedRows is a list view of the rows at the given positions of the data.
+ *
+ * @param <T>
+ *            the generic type of the rows
+ */
+final class IndexedRows<T> extends AbstractList<T> implements RandomAccess
+{
+
+	/** The data. */
+	private final List<T> data;
+
+	/** The positions of the rows in the data. */
+	private final int[] index;
+
+	/**
+	 * Instantiates a new {@link IndexedRows}.
+	 *
+	 * @param data
+	 *            the data
+	 * @param index
+	 *            the positions of the rows in the data
+	 */
+	IndexedRows(final List<T> data, final int[] index)
+	{
+		this.data = data;
+		this.index = index;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public T get(final int position)
+	{
+		return data.get(index[position]);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size()
+	{
+		return index.length;
+	}
+
+}
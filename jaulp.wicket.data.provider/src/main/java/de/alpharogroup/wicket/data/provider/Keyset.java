@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The Class Keyset is the position of a row in a sort order for the keyset pagination. It holds
+ * the values of the sort columns of the row followed by a unique id of the row, so the next page
+ * can be queried with a condition like <code>(sortValue, id) &gt; (?, ?)</code> instead of an
+ * offset.
+ */
+public final class Keyset implements Serializable
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The values. */
+	private final Serializable[] values;
+
+	/**
+	 * Instantiates a new {@link Keyset}.
+	 *
+	 * @param values
+	 *            the values of the sort columns followed by the unique id of the row
+	 */
+	public Keyset(final Serializable... values)
+	{
+		this.values = values.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj)
+	{
+		return obj instanceof Keyset && Arrays.equals(values, ((Keyset)obj).values);
+	}
+
+	/**
+	 * Gets the value at the given position.
+	 *
+	 * @param index
+	 *            the position
+	 * @return the value
+	 */
+	public Serializable getValue(final int index)
+	{
+		return values[index];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(values);
+	}
+
+	/**
+	 * Gets the number of values.
+	 *
+	 * @return the number of values
+	 */
+	public int size()
+	{
+		return values.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString()
+	{
+		return Arrays.toString(values);
+	}
+
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class ListPageQuery is a {@link PageQuery} over a list in memory. It is a stand-in for a
+ * database query in tests and prototypes and shows the contract of the keyset pagination. The sort
+ * properties are property expressions, the rows are ordered by the sort property and then by the
+ * unique id property. Override {@link #accept(Object, Serializable)} to filter the rows.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ * @param <F>
+ *            the generic type for the Filter.
+ */
+public class ListPageQuery<T, F extends Serializable> implements PageQuery<T, String, F>
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Gets the value of the given property expression from the given row.
+	 *
+	 * @param row
+	 *            the row
+	 * @param property
+	 *            the property expression
+	 * @return the value
+	 */
+	private static Serializable getValue(final Object row, final String property)
+	{
+		return (Serializable)PropertyComparators.getAccessor(row.getClass(), property).getValue(
+			row);
+	}
+
+	/** The rows. */
+	private final List<T> rows;
+
+	/** The property expression of the unique id. */
+	private final String idProperty;
+
+	/**
+	 * Instantiates a new {@link ListPageQuery}.
+	 *
+	 * @param rows
+	 *            the rows
+	 * @param idProperty
+	 *            the property expression of the unique id
+	 */
+	public ListPageQuery(final List<T> rows, final String idProperty)
+	{
+		this.rows = Args.notNull(rows, "rows");
+		this.idProperty = Args.notEmpty(idProperty, "idProperty");
+	}
+
+	/**
+	 * Checks if the given row passes the given filter state. The default accepts all rows.
+	 *
+	 * @param row
+	 *            the row
+	 * @param filter
+	 *            the filter state
+	 * @return true, if the row passes the filter state
+	 */
+	protected boolean accept(final T row, final F filter)
+	{
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long count(final F filter)
+	{
+		long count = 0;
+		for (final T row : rows)
+		{
+			if (accept(row, filter))
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<T> find(final PageRequest<String, F> request)
+	{
+		final SortParam<String> sort = request.getSort();
+		final Comparator<Keyset> order = newKeysetComparator(sort);
+		final List<Keyset> keys = new ArrayList<>();
+		final List<T> matches = new ArrayList<>();
+		for (final T row : rows)
+		{
+			if (accept(row, request.getFilter()))
+			{
+				keys.add(keyOf(row, sort));
+				matches.add(row);
+			}
+		}
+		final Integer[] positions = new Integer[matches.size()];
+		for (int i = 0; i < positions.length; i++)
+		{
+			positions[i] = i;
+		}
+		Arrays.sort(positions, (a, b) -> order.compare(keys.get(a), keys.get(b)));
+
+		int start = (int)Math.min(request.getFirst(), positions.length);
+		if (request.getAfter() != null)
+		{
+			// seek to the first row after the keyset
+			final Keyset after = (Keyset)request.getAfter();
+			int low = 0;
+			int high = positions.length;
+			while (low < high)
+			{
+				final int middle = (low + high) >>> 1;
+				if (order.compare(keys.get(positions[middle]), after) <= 0)
+				{
+					low = middle + 1;
+				}
+				else
+				{
+					high = middle;
+				}
+			}
+			start = low;
+		}
+		final int end = (int)Math.min(positions.length, start + request.getCount());
+		final List<T> page = new ArrayList<>(Math.max(0, end - start));
+		for (int i = start; i < end; i++)
+		{
+			page.add(matches.get(positions[i]));
+		}
+		return page;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Keyset keyOf(final T row, final SortParam<String> sort)
+	{
+		if (sort == null)
+		{
+			return new Keyset(getValue(row, idProperty));
+		}
+		return new Keyset(getValue(row, sort.getProperty()), getValue(row, idProperty));
+	}
+
+	/**
+	 * Creates the comparator of the keysets for the given sort parameter. Null values are ordered
+	 * first.
+	 *
+	 * @param sort
+	 *            the sort parameter
+	 * @return the comparator
+	 */
+	private Comparator<Keyset> newKeysetComparator(final SortParam<String> sort)
+	{
+		return (keyset, other) -> {
+			for (int i = 0; i < keyset.size(); i++)
+			{
+				final Serializable value = keyset.getValue(i);
+				final Serializable otherValue = other.getValue(i);
+				final int result = PropertyComparator.compareValues(value, otherValue);
+				if (result != 0)
+				{
+					// only the sort column is descending, the id is always ascending
+					final boolean descending = sort != null && !sort.isAscending() && i == 0
+						&& value != null && otherValue != null;
+					return descending ? -result : result;
+				}
+			}
+			return 0;
+		};
+	}
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.apache.wicket.model.LoadableDetachableModel;
+
+/**
+ * The Class LoadableRowModel is a row model that keeps only the id of the row object. After
+ * detach the row object is loaded again from the {@link BatchRowLoader}, which loads the rows of
+ * all visible row models in one call.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ * @param <K>
+ *            the generic type of the ids.
+ */
+public class LoadableRowModel<T, K extends Serializable> extends LoadableDetachableModel<T>
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The id of the row object. */
+	private final K id;
+
+	/** The batch loader of the row objects. */
+	private final BatchRowLoader<T, K> batchRowLoader;
+
+	/**
+	 * Instantiates a new {@link LoadableRowModel}.
+	 *
+	 * @param object
+	 *            the row object
+	 * @param id
+	 *            the id of the row object
+	 * @param batchRowLoader
+	 *            the batch loader of the row objects
+	 */
+	LoadableRowModel(final T object, final K id, final BatchRowLoader<T, K> batchRowLoader)
+	{
+		super(object);
+		this.id = id;
+		this.batchRowLoader = batchRowLoader;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass())
+		{
+			return false;
+		}
+		return Objects.equals(id, ((LoadableRowModel<?, ?>)obj).id);
+	}
+
+	/**
+	 * Gets the id of the row object.
+	 *
+	 * @return the id
+	 */
+	public K getId()
+	{
+		return id;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode()
+	{
+		return Objects.hashCode(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected T load()
+	{
+		return batchRowLoader.get(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onDetach()
+	{
+		batchRowLoader.detach();
+	}
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+
+/**
+ * The Interface PageQuery is the callback of an {@link AbstractQueryDataProvider} that pushes the
+ * paging, the sorting and the filtering down to the data source, for instance a database.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ * @param <S>
+ *            the generic type for the SortState.
+ * @param <F>
+ *            the generic type for the Filter.
+ */
+public interface PageQuery<T, S, F> extends Serializable
+{
+
+	/**
+	 * Counts the rows that pass the given filter state.
+	 *
+	 * @param filter
+	 *            the filter state
+	 * @return the number of rows
+	 */
+	long count(F filter);
+
+	/**
+	 * Finds the rows of the given page request. If the page request has a keyset, the rows after
+	 * that keyset in the sort order have to be returned, otherwise the rows from the offset.
+	 *
+	 * @param request
+	 *            the page request
+	 * @return the rows
+	 */
+	List<T> find(PageRequest<S, F> request);
+
+	/**
+	 * Gets the keyset of the given row in the given sort order. The keyset has to identify the
+	 * position of the row uniquely, so it should contain a unique id. The default returns null,
+	 * in this case the pages are requested only by the offset.
+	 *
+	 * @param row
+	 *            the row
+	 * @param sort
+	 *            the sort parameter
+	 * @return the keyset or null if the keyset pagination is not supported
+	 */
+	default Serializable keyOf(final T row, final SortParam<S> sort)
+	{
+		return null;
+	}
+
+}
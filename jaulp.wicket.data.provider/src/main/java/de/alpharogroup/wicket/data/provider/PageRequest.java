@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+
+/**
+ * The Class PageRequest describes one page that is requested from a {@link PageQuery}.
+ *
+ * @param <S>
+ *            the generic type for the SortState.
+ * @param <F>
+ *            the generic type for the Filter.
+ */
+@Getter
+@ToString
+public class PageRequest<S, F> implements Serializable
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The offset of the first row. */
+	private final long first;
+
+	/** The maximum number of rows. */
+	private final long count;
+
+	/** The sort parameter or null if the rows are not sorted. */
+	private final SortParam<S> sort;
+
+	/** The filter state. */
+	private final F filter;
+
+	/**
+	 * The keyset of the row before the first row or null. If it is given, the rows after this
+	 * keyset are requested and the offset is only informative.
+	 */
+	private final Serializable after;
+
+	/**
+	 * Instantiates a new {@link PageRequest}.
+	 *
+	 * @param first
+	 *            the offset of the first row
+	 * @param count
+	 *            the maximum number of rows
+	 * @param sort
+	 *            the sort parameter
+	 * @param filter
+	 *            the filter state
+	 * @param after
+	 *            the keyset of the row before the first row or null
+	 */
+	public PageRequest(final long first, final long count, final SortParam<S> sort,
+		final F filter, final Serializable after)
+	{
+		this.first = first;
+		this.count = count;
+		this.sort = sort;
+		this.filter = filter;
+		this.after = after;
+	}
+
+}
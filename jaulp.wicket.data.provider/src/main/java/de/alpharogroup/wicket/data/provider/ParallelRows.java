@@ -0,0 +1,375 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import lombok.Getter;
+
+import org.apache.wicket.util.lang.Args;
+
+import de.alpharogroup.wicket.data.provider.PropertyComparators.CompiledPropertyComparator;
+
+/**
+ * The Class ParallelRows sorts and filters large lists of rows on a dedicated
+ * {@link ForkJoinPool}. The parallelism of the pool is bounded, so large reports do not occupy all
+ * processors and the request threads are not starved. Lists with less rows than the threshold are
+ * sorted and filtered sequentially in the calling thread.<br>
+ * <br>
+ * Comparators from {@link PropertyComparators} of integral, floating point and {@link Date}
+ * properties are not invoked for every comparison. The keys of the rows are extracted once into a
+ * primitive index that is sorted with {@link Arrays#parallelSort(long[])}, the order of equal keys
+ * is kept. Other comparators are used with {@link Arrays#parallelSort(Object[], Comparator)}.<br>
+ * <br>
+ * The tasks are started from a worker of the dedicated pool, so the parallel sort and the
+ * parallel streams fork their subtasks into this pool and not into the common pool.
+ */
+public class ParallelRows
+{
+
+	/** The Constant DEFAULT_THRESHOLD is the default number of rows to work in parallel. */
+	public static final int DEFAULT_THRESHOLD = 50_000;
+
+	/** The shared instance. */
+	private static volatile ParallelRows instance;
+
+	/**
+	 * Gets the shared instance. If no instance was set, an instance with the
+	 * {@link #DEFAULT_THRESHOLD} and a pool with the half of the available processors is created.
+	 *
+	 * @return the shared instance
+	 */
+	public static ParallelRows getInstance()
+	{
+		ParallelRows parallelRows = instance;
+		if (parallelRows == null)
+		{
+			synchronized (ParallelRows.class)
+			{
+				parallelRows = instance;
+				if (parallelRows == null)
+				{
+					parallelRows = new ParallelRows(newPool(Math.max(1, Runtime.getRuntime()
+						.availableProcessors() / 2)), DEFAULT_THRESHOLD);
+					instance = parallelRows;
+				}
+			}
+		}
+		return parallelRows;
+	}
+
+	/**
+	 * Factory method for a pool with daemon threads and the given parallelism.
+	 *
+	 * @param parallelism
+	 *            the maximum number of threads
+	 * @return the pool
+	 */
+	public static ForkJoinPool newPool(final int parallelism)
+	{
+		return new ForkJoinPool(parallelism, pool -> {
+			final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+				.newThread(pool);
+			thread.setName("data-provider-parallel-" + thread.getPoolIndex());
+			thread.setDaemon(true);
+			return thread;
+		}, null, false);
+	}
+
+	/**
+	 * Sets the shared instance, for instance in the init method of the application.
+	 *
+	 * @param parallelRows
+	 *            the new shared instance
+	 */
+	public static void setInstance(final ParallelRows parallelRows)
+	{
+		instance = Args.notNull(parallelRows, "parallelRows");
+	}
+
+	/**
+	 * Converts the given double value to a long value with the same order as
+	 * {@link Double#compare(double, double)}.
+	 *
+	 * @param value
+	 *            the double value
+	 * @return the long value
+	 */
+	private static long toSortableLong(final double value)
+	{
+		final long bits = Double.doubleToLongBits(value);
+		return bits ^ bits >> 63 & Long.MAX_VALUE;
+	}
+
+	/** The pool. */
+	@Getter
+	private final ForkJoinPool pool;
+
+	/** The minimum number of rows that are sorted or filtered in parallel. */
+	@Getter
+	private final int threshold;
+
+	/**
+	 * Instantiates a new {@link ParallelRows}.
+	 *
+	 * @param pool
+	 *            the pool
+	 * @param threshold
+	 *            the minimum number of rows that are sorted or filtered in parallel
+	 */
+	public ParallelRows(final ForkJoinPool pool, final int threshold)
+	{
+		this.pool = Args.notNull(pool, "pool");
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Filters the rows at the given positions of the given data with the given predicate. The
+	 * predicate has to be thread safe if the rows are filtered in parallel.
+	 *
+	 * @param <T>
+	 *            the generic type of the rows
+	 * @param data
+	 *            the data
+	 * @param candidates
+	 *            the positions of the rows that are filtered or null for all rows
+	 * @param predicate
+	 *            the predicate
+	 * @return the positions of the rows that passed the filter in ascending order
+	 */
+	public <T> int[] filter(final List<T> data, final int[] candidates,
+		final Predicate<? super T> predicate)
+	{
+		return filter(data.size(), candidates, position -> predicate.test(data.get(position)));
+	}
+
+	/**
+	 * Filters the given positions with the given filter. The filter has to be thread safe if the
+	 * positions are filtered in parallel.
+	 *
+	 * @param size
+	 *            the number of rows
+	 * @param candidates
+	 *            the positions of the rows that are filtered or null for all rows
+	 * @param filter
+	 *            the filter of the positions
+	 * @return the positions that passed the filter in ascending order
+	 */
+	public int[] filter(final int size, final int[] candidates, final IntPredicate filter)
+	{
+		final IntStream positions = candidates != null
+			? Arrays.stream(candidates)
+			: IntStream.range(0, size);
+		if ((candidates != null ? candidates.length : size) < threshold)
+		{
+			return positions.filter(filter).toArray();
+		}
+		return invoke(() -> positions.parallel().filter(filter).toArray());
+	}
+
+	/**
+	 * Invokes the given task in the pool and waits for the result.
+	 *
+	 * @param <R>
+	 *            the generic type of the result
+	 * @param task
+	 *            the task
+	 * @return the result
+	 */
+	private <R> R invoke(final Callable<R> task)
+	{
+		return pool.submit(task).join();
+	}
+
+	/**
+	 * Extracts the sort keys of the given rows into a primitive index and sorts it.
+	 *
+	 * @param <T>
+	 *            the generic type of the rows
+	 * @param rows
+	 *            the rows
+	 * @param comparator
+	 *            the comparator
+	 * @return the positions of the rows in the sorted order or null if the keys of the rows can not
+	 *         be extracted
+	 */
+	private <T> int[] sortIndex(final List<T> rows, final CompiledPropertyComparator<T> comparator)
+	{
+		final T first = rows.get(0);
+		if (first == null)
+		{
+			return null;
+		}
+		final Class<?> type = first.getClass();
+		final PropertyAccessor accessor = PropertyComparators.getAccessor(type,
+			comparator.getProperty());
+		final PropertyAccessor.Kind kind = accessor.getKind();
+		if (kind == PropertyAccessor.Kind.OBJECT)
+		{
+			return null;
+		}
+		final int size = rows.size();
+		final long[] keys = new long[size];
+		// the null level is 3 for a null row, 2 for a null nested property and 1 for a null value
+		final byte[] nulls = new byte[size];
+		final boolean extracted = IntStream.range(0, size).parallel().allMatch(i -> {
+			final T row = rows.get(i);
+			if (row != null && row.getClass() != type)
+			{
+				return false;
+			}
+			final Object holder = accessor.getHolder(row);
+			if (holder == null)
+			{
+				nulls[i] = (byte)(row == null ? 3 : 2);
+			}
+			else if (kind == PropertyAccessor.Kind.LONG)
+			{
+				keys[i] = accessor.getLong(holder);
+			}
+			else if (kind == PropertyAccessor.Kind.DOUBLE)
+			{
+				keys[i] = toSortableLong(accessor.getDouble(holder));
+			}
+			else
+			{
+				final Date date = (Date)accessor.getObject(holder);
+				nulls[i] = (byte)(date == null ? 1 : 0);
+				keys[i] = date != null ? date.getTime() : 0L;
+			}
+			return true;
+		});
+		if (!extracted)
+		{
+			return null;
+		}
+		// the keys are replaced by their rank, so the rank and the position fit in one long
+		final long[] distinct = IntStream.range(0, size).filter(i -> nulls[i] == 0)
+			.mapToLong(i -> keys[i]).toArray();
+		Arrays.parallelSort(distinct);
+		int ranks = 0;
+		for (int i = 0; i < distinct.length; i++)
+		{
+			if (i == 0 || distinct[i] != distinct[ranks - 1])
+			{
+				distinct[ranks++] = distinct[i];
+			}
+		}
+		final int distinctCount = ranks;
+		final boolean nullsFirst = comparator.isNullsFirst();
+		final boolean ascending = comparator.isAscending();
+		final long[] index = new long[size];
+		IntStream.range(0, size).parallel().forEach(i -> {
+			final long rank;
+			if (nulls[i] != 0)
+			{
+				rank = nullsFirst ? 3L - nulls[i] : distinctCount + 3L + nulls[i];
+			}
+			else
+			{
+				final int position = Arrays.binarySearch(distinct, 0, distinctCount, keys[i]);
+				rank = ascending ? position + 3L : distinctCount + 2L - position;
+			}
+			index[i] = rank << 32 | i;
+		});
+		Arrays.parallelSort(index);
+		final int[] positions = new int[size];
+		for (int i = 0; i < size; i++)
+		{
+			positions[i] = (int)index[i];
+		}
+		return positions;
+	}
+
+	/**
+	 * Sorts the given keys in ascending order.
+	 *
+	 * @param keys
+	 *            the keys
+	 */
+	public void sort(final long[] keys)
+	{
+		if (keys.length < threshold)
+		{
+			Arrays.sort(keys);
+		}
+		else
+		{
+			invoke(() -> {
+				Arrays.parallelSort(keys);
+				return keys;
+			});
+		}
+	}
+
+	/**
+	 * Sorts the given list with the given comparator. The sort is stable like
+	 * {@link Collections#sort(List, Comparator)}. The comparator has to be thread safe if the
+	 * list is sorted in parallel.
+	 *
+	 * @param <T>
+	 *            the generic type of the rows
+	 * @param rows
+	 *            the rows
+	 * @param comparator
+	 *            the comparator
+	 * @return the same list but sorted
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> sort(final List<T> rows, final Comparator<? super T> comparator)
+	{
+		if (rows.size() < threshold)
+		{
+			Collections.sort(rows, comparator);
+			return rows;
+		}
+		final Object[] sorted = invoke(() -> {
+			if (comparator instanceof CompiledPropertyComparator)
+			{
+				final int[] positions = sortIndex(rows,
+					(CompiledPropertyComparator<T>)comparator);
+				if (positions != null)
+				{
+					final Object[] array = new Object[positions.length];
+					for (int i = 0; i < positions.length; i++)
+					{
+						array[i] = rows.get(positions[i]);
+					}
+					return array;
+				}
+			}
+			final Object[] array = rows.toArray();
+			Arrays.parallelSort(array, (Comparator<Object>)comparator);
+			return array;
+		});
+		for (int i = 0; i < sorted.length; i++)
+		{
+			rows.set(i, (T)sorted[i]);
+		}
+		return rows;
+	}
+
+}
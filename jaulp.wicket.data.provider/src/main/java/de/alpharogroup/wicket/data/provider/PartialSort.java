@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * The Class PartialSort selects the first elements of a list in sort order without sorting the
+ * whole list. The selection costs O(n log k) comparisons for k selected elements instead of O(n
+ * log n) for a full sort. Equal elements keep their order in the list, so the selection is equal
+ * to the first k elements of a stable sort of the list.
+ */
+@UtilityClass
+public class PartialSort
+{
+
+	/**
+	 * Selects the first elements of the given list in the order of the given comparator.
+	 *
+	 * @param <T>
+	 *            the generic type of the elements
+	 * @param list
+	 *            the list
+	 * @param comparator
+	 *            the comparator
+	 * @param limit
+	 *            the maximum number of the selected elements
+	 * @return a new sorted list with the selected elements
+	 */
+	public static <T> List<T> top(final List<T> list, final Comparator<? super T> comparator,
+		final int limit)
+	{
+		if (limit <= 0)
+		{
+			return Collections.emptyList();
+		}
+		final int size = list.size();
+		// the index breaks ties, so the selection is stable
+		final Comparator<Integer> order = (a, b) -> {
+			final int result = comparator.compare(list.get(a), list.get(b));
+			return result != 0 ? result : Integer.compare(a, b);
+		};
+		final PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, size) + 1,
+			order.reversed());
+		for (int i = 0; i < size; i++)
+		{
+			if (heap.size() < limit)
+			{
+				heap.add(i);
+			}
+			else if (order.compare(i, heap.peek()) < 0)
+			{
+				heap.poll();
+				heap.add(i);
+			}
+		}
+		final Integer[] selected = heap.toArray(new Integer[heap.size()]);
+		Arrays.sort(selected, order);
+		final List<T> result = new ArrayList<>(selected.length);
+		for (final Integer index : selected)
+		{
+			result.add(list.get(index));
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,502 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Date;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.core.util.lang.PropertyResolver;
+
+/**
+ * The Class PropertyAccessor is the compiled form of a property expression like
+ * <code>address.street</code> for one class. Every getter of the expression is resolved once and
+ * bound to a function that is created with the {@link LambdaMetafactory}, so the property is read
+ * without reflection. Getters that return a primitive number are bound to primitive functions, so
+ * their values are compared without boxing. If the getter chain can not be resolved, for instance
+ * for map keys or public fields, the accessor falls back to the {@link PropertyResolver}.
+ */
+final class PropertyAccessor
+{
+
+	/**
+	 * The Enum Kind of the property value.
+	 */
+	enum Kind
+	{
+
+		/** A primitive integral number that is read as long. */
+		LONG,
+
+		/** A primitive floating point number that is read as double. */
+		DOUBLE,
+
+		/** A {@link Date}. */
+		DATE,
+
+		/** Any other object. */
+		OBJECT
+	}
+
+	/** The Constant LOOKUP. */
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	/**
+	 * Compiles the given property expression for the given class.
+	 *
+	 * @param type
+	 *            the class
+	 * @param property
+	 *            the property expression
+	 * @return the property accessor
+	 */
+	static PropertyAccessor compile(final Class<?> type, final String property)
+	{
+		final String[] segments = property.split("\\.");
+		Function<Object, Object> parent = null;
+		Class<?> current = type;
+		try
+		{
+			for (int i = 0; i < segments.length - 1; i++)
+			{
+				final Method getter = findGetter(current, segments[i]);
+				if (getter == null)
+				{
+					return new PropertyAccessor(property);
+				}
+				final Function<Object, Object> function = toFunction(getter);
+				parent = parent == null ? function : andThen(parent, function);
+				current = getter.getReturnType();
+			}
+			final Method getter = findGetter(current, segments[segments.length - 1]);
+			if (getter == null)
+			{
+				return new PropertyAccessor(property);
+			}
+			final Class<?> returnType = getter.getReturnType();
+			if (returnType == long.class || returnType == int.class || returnType == short.class
+				|| returnType == byte.class || returnType == char.class)
+			{
+				return new PropertyAccessor(Kind.LONG, parent, null, toLongFunction(getter), null);
+			}
+			if (returnType == double.class || returnType == float.class)
+			{
+				return new PropertyAccessor(Kind.DOUBLE, parent, null, null,
+					toDoubleFunction(getter));
+			}
+			return new PropertyAccessor(Date.class.isAssignableFrom(returnType)
+				? Kind.DATE
+				: Kind.OBJECT, parent, toFunction(getter), null, null);
+		}
+		catch (final Throwable e)
+		{
+			// the getters are not accessible, e.g. from a class of another class loader
+			return new PropertyAccessor(property);
+		}
+	}
+
+	/**
+	 * Chains the given functions, the second function is not invoked for null values.
+	 *
+	 * @param first
+	 *            the first function
+	 * @param second
+	 *            the second function
+	 * @return the chained function
+	 */
+	private static Function<Object, Object> andThen(final Function<Object, Object> first,
+		final Function<Object, Object> second)
+	{
+		return bean -> {
+			final Object value = first.apply(bean);
+			return value != null ? second.apply(value) : null;
+		};
+	}
+
+	/**
+	 * Finds the public getter of the given property in the given class.
+	 *
+	 * @param type
+	 *            the class
+	 * @param name
+	 *            the name of the property
+	 * @return the getter or null if no getter exists
+	 */
+	private static Method findGetter(final Class<?> type, final String name)
+	{
+		if (name.isEmpty())
+		{
+			return null;
+		}
+		final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		for (final String prefix : new String[] { "get", "is" })
+		{
+			try
+			{
+				final Method method = type.getMethod(prefix + capitalized);
+				if (method.getReturnType() != void.class)
+				{
+					return method;
+				}
+			}
+			catch (final NoSuchMethodException e)
+			{
+				// try the next prefix
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if the given getter can be bound with the {@link LambdaMetafactory}. This is the case
+	 * if the getter is public and its classes are visible from the class loader of this class.
+	 *
+	 * @param getter
+	 *            the getter
+	 * @return true, if the getter can be bound
+	 */
+	private static boolean isBindable(final Method getter)
+	{
+		return Modifier.isPublic(getter.getModifiers())
+			&& Modifier.isPublic(getter.getDeclaringClass().getModifiers())
+			&& isVisible(getter.getDeclaringClass()) && isVisible(getter.getReturnType());
+	}
+
+	/**
+	 * Checks if the given class is visible from the class loader of this class.
+	 *
+	 * @param type
+	 *            the class
+	 * @return true, if the class is visible
+	 */
+	private static boolean isVisible(final Class<?> type)
+	{
+		if (type.isPrimitive() || type.getClassLoader() == null)
+		{
+			return true;
+		}
+		try
+		{
+			return Class.forName(type.getName(), false, PropertyAccessor.class.getClassLoader())
+				== type;
+		}
+		catch (final ClassNotFoundException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Binds the given getter with the {@link LambdaMetafactory} to the given functional interface.
+	 *
+	 * @param getter
+	 *            the getter
+	 * @param functionalInterface
+	 *            the functional interface
+	 * @param methodName
+	 *            the name of the method of the functional interface
+	 * @param returnType
+	 *            the erased return type of the method of the functional interface
+	 * @return the instance of the functional interface
+	 * @throws Throwable
+	 *             if the getter can not be bound
+	 */
+	private static Object metafactory(final Method getter, final Class<?> functionalInterface,
+		final String methodName, final Class<?> returnType) throws Throwable
+	{
+		final MethodHandle handle = LOOKUP.unreflect(getter);
+		final Class<?> instantiatedReturnType = returnType == Object.class ? MethodType
+			.methodType(getter.getReturnType()).wrap().returnType() : returnType;
+		final CallSite site = LambdaMetafactory.metafactory(LOOKUP, methodName,
+			MethodType.methodType(functionalInterface), MethodType.methodType(returnType,
+				Object.class), handle, MethodType.methodType(instantiatedReturnType, getter
+				.getDeclaringClass()));
+		return site.getTarget().invoke();
+	}
+
+	/**
+	 * Creates a generic method handle for the given getter.
+	 *
+	 * @param getter
+	 *            the getter
+	 * @param returnType
+	 *            the return type of the method handle
+	 * @return the method handle
+	 * @throws IllegalAccessException
+	 *             if the getter is not accessible
+	 */
+	private static MethodHandle toHandle(final Method getter, final Class<?> returnType)
+		throws IllegalAccessException
+	{
+		getter.setAccessible(true);
+		return LOOKUP.unreflect(getter).asType(MethodType.methodType(returnType, Object.class));
+	}
+
+	/**
+	 * Binds the given getter to a function.
+	 *
+	 * @param getter
+	 *            the getter
+	 * @return the function
+	 * @throws Throwable
+	 *             if the getter can not be bound
+	 */
+	@SuppressWarnings("unchecked")
+	private static Function<Object, Object> toFunction(final Method getter) throws Throwable
+	{
+		if (isBindable(getter))
+		{
+			return (Function<Object, Object>)metafactory(getter, Function.class, "apply",
+				Object.class);
+		}
+		final MethodHandle handle = toHandle(getter, Object.class);
+		return bean -> {
+			try
+			{
+				return handle.invokeExact(bean);
+			}
+			catch (final Throwable e)
+			{
+				throw rethrow(e);
+			}
+		};
+	}
+
+	/**
+	 * Binds the given getter to a double function.
+	 *
+	 * @param getter
+	 *            the getter
+	 * @return the double function
+	 * @throws Throwable
+	 *             if the getter can not be bound
+	 */
+	@SuppressWarnings("unchecked")
+	private static ToDoubleFunction<Object> toDoubleFunction(final Method getter)
+		throws Throwable
+	{
+		if (isBindable(getter))
+		{
+			return (ToDoubleFunction<Object>)metafactory(getter, ToDoubleFunction.class,
+				"applyAsDouble", double.class);
+		}
+		final MethodHandle handle = toHandle(getter, double.class);
+		return bean -> {
+			try
+			{
+				return (double)handle.invokeExact(bean);
+			}
+			catch (final Throwable e)
+			{
+				throw rethrow(e);
+			}
+		};
+	}
+
+	/**
+	 * Binds the given getter to a long function.
+	 *
+	 * @param getter
+	 *            the getter
+	 * @return the long function
+	 * @throws Throwable
+	 *             if the getter can not be bound
+	 */
+	@SuppressWarnings("unchecked")
+	private static ToLongFunction<Object> toLongFunction(final Method getter) throws Throwable
+	{
+		if (isBindable(getter))
+		{
+			return (ToLongFunction<Object>)metafactory(getter, ToLongFunction.class,
+				"applyAsLong", long.class);
+		}
+		final MethodHandle handle = toHandle(getter, long.class);
+		return bean -> {
+			try
+			{
+				return (long)handle.invokeExact(bean);
+			}
+			catch (final Throwable e)
+			{
+				throw rethrow(e);
+			}
+		};
+	}
+
+	/**
+	 * Converts the given throwable of a getter to an unchecked exception.
+	 *
+	 * @param e
+	 *            the throwable
+	 * @return the unchecked exception
+	 */
+	private static RuntimeException rethrow(final Throwable e)
+	{
+		if (e instanceof RuntimeException)
+		{
+			return (RuntimeException)e;
+		}
+		if (e instanceof Error)
+		{
+			throw (Error)e;
+		}
+		return new WicketRuntimeException(e);
+	}
+
+	/** The kind of the property value. */
+	private final Kind kind;
+
+	/** The function that resolves the object that holds the property or null for the bean. */
+	private final Function<Object, Object> parent;
+
+	/** The getter of an object property. */
+	private final Function<Object, Object> objectGetter;
+
+	/** The getter of an integral property. */
+	private final ToLongFunction<Object> longGetter;
+
+	/** The getter of a floating point property. */
+	private final ToDoubleFunction<Object> doubleGetter;
+
+	/**
+	 * Instantiates a new {@link PropertyAccessor} that uses the {@link PropertyResolver}.
+	 *
+	 * @param property
+	 *            the property expression
+	 */
+	private PropertyAccessor(final String property)
+	{
+		this(Kind.OBJECT, null, bean -> PropertyResolver.getValue(property, bean), null, null);
+	}
+
+	/**
+	 * Instantiates a new {@link PropertyAccessor}.
+	 *
+	 * @param kind
+	 *            the kind of the property value
+	 * @param parent
+	 *            the function that resolves the object that holds the property
+	 * @param objectGetter
+	 *            the getter of an object property
+	 * @param longGetter
+	 *            the getter of an integral property
+	 * @param doubleGetter
+	 *            the getter of a floating point property
+	 */
+	private PropertyAccessor(final Kind kind, final Function<Object, Object> parent,
+		final Function<Object, Object> objectGetter, final ToLongFunction<Object> longGetter,
+		final ToDoubleFunction<Object> doubleGetter)
+	{
+		this.kind = kind;
+		this.parent = parent;
+		this.objectGetter = objectGetter;
+		this.longGetter = longGetter;
+		this.doubleGetter = doubleGetter;
+	}
+
+	/**
+	 * Gets the kind of the property value.
+	 *
+	 * @return the kind
+	 */
+	Kind getKind()
+	{
+		return kind;
+	}
+
+	/**
+	 * Gets the double value from the given holder.
+	 *
+	 * @param holder
+	 *            the object that holds the property, see {@link #getHolder(Object)}
+	 * @return the value
+	 */
+	double getDouble(final Object holder)
+	{
+		return doubleGetter.applyAsDouble(holder);
+	}
+
+	/**
+	 * Gets the object that holds the property, this is the bean itself for a simple property.
+	 *
+	 * @param bean
+	 *            the bean
+	 * @return the object that holds the property or null if the bean or a nested property is null.
+	 */
+	Object getHolder(final Object bean)
+	{
+		return parent == null || bean == null ? bean : parent.apply(bean);
+	}
+
+	/**
+	 * Gets the long value from the given holder.
+	 *
+	 * @param holder
+	 *            the object that holds the property, see {@link #getHolder(Object)}
+	 * @return the value
+	 */
+	long getLong(final Object holder)
+	{
+		return longGetter.applyAsLong(holder);
+	}
+
+	/**
+	 * Gets the object value from the given holder.
+	 *
+	 * @param holder
+	 *            the object that holds the property, see {@link #getHolder(Object)}
+	 * @return the value
+	 */
+	Object getObject(final Object holder)
+	{
+		return objectGetter.apply(holder);
+	}
+
+	/**
+	 * Gets the value of the property from the given bean, primitive values are boxed.
+	 *
+	 * @param bean
+	 *            the bean
+	 * @return the value or null if the bean or a nested property is null.
+	 */
+	Object getValue(final Object bean)
+	{
+		final Object holder = getHolder(bean);
+		if (holder == null)
+		{
+			return null;
+		}
+		switch (kind)
+		{
+			case LONG :
+				return getLong(holder);
+			case DOUBLE :
+				return getDouble(holder);
+			default :
+				return getObject(holder);
+		}
+	}
+
+}
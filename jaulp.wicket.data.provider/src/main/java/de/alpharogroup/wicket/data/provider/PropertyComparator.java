@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+import lombok.Getter;
+
+import org.apache.wicket.core.util.lang.PropertyResolver;
+
+/**
+ * The Class PropertyComparator compares objects by the value of a property expression like
+ * <code>address.street</code>. Null values are ordered before all other values in the ascending
+ * order. Values that are not {@link Comparable} are compared by their string representation.
+ *
+ * @param <T>
+ *            the generic type of the compared objects
+ */
+public class PropertyComparator<T> implements Comparator<T>, Serializable
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Compares the given property values.
+	 *
+	 * @param value
+	 *            the value
+	 * @param other
+	 *            the other value
+	 * @return the result of the comparison
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static int compareValues(final Object value, final Object other)
+	{
+		if (value == other)
+		{
+			return 0;
+		}
+		if (value == null)
+		{
+			return -1;
+		}
+		if (other == null)
+		{
+			return 1;
+		}
+		if (value instanceof Comparable && value.getClass().isInstance(other))
+		{
+			return ((Comparable)value).compareTo(other);
+		}
+		return value.toString().compareTo(other.toString());
+	}
+
+	/**
+	 * The property expression.
+	 */
+	@Getter
+	private final String property;
+
+	/**
+	 * The flag if the order is ascending.
+	 */
+	@Getter
+	private final boolean ascending;
+
+	/**
+	 * Instantiates a new {@link PropertyComparator}.
+	 *
+	 * @param property
+	 *            the property expression
+	 * @param ascending
+	 *            the flag if the order is ascending
+	 */
+	public PropertyComparator(final String property, final boolean ascending)
+	{
+		this.property = property;
+		this.ascending = ascending;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int compare(final T object, final T other)
+	{
+		final int result = compareValues(getValue(object), getValue(other));
+		return ascending ? result : -result;
+	}
+
+	/**
+	 * Gets the value of the property from the given object.
+	 *
+	 * @param object
+	 *            the object
+	 * @return the value or null if the object is null
+	 */
+	protected Object getValue(final T object)
+	{
+		return object != null ? PropertyResolver.getValue(property, object) : null;
+	}
+
+}
@@ -0,0 +1,348 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.experimental.UtilityClass;
+
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class PropertyComparators creates comparators for property expressions like
+ * <code>address.street</code>. A property expression is compiled once per class into a
+ * {@link PropertyAccessor} and cached, so the comparisons do not use reflection. Integral and
+ * floating point properties and {@link Date} properties are compared without boxing. The
+ * comparators support the ordering of null values and multi-column sorting.
+ */
+@UtilityClass
+public class PropertyComparators
+{
+
+	/**
+	 * The Enum NullOrdering defines the position of null values, it does not depend on the sort
+	 * direction.
+	 */
+	public enum NullOrdering
+	{
+
+		/** Null values are ordered before all other values. */
+		FIRST,
+
+		/** Null values are ordered after all other values. */
+		LAST
+	}
+
+	/**
+	 * The Class CompiledPropertyComparator compares by one property expression. The accessor of the
+	 * last compared class is held in the comparator, so sorting a list of beans of one class needs
+	 * no lookup in the cache.
+	 *
+	 * @param <T>
+	 *            the generic type of the compared objects
+	 */
+	static final class CompiledPropertyComparator<T> implements Comparator<T>
+	{
+
+		/**
+		 * The Class Binding is the accessor of a property expression for one class.
+		 */
+		private static final class Binding
+		{
+
+			/** The class. */
+			private final Class<?> type;
+
+			/** The accessor. */
+			private final PropertyAccessor accessor;
+
+			/**
+			 * Instantiates a new {@link Binding}.
+			 *
+			 * @param type
+			 *            the class
+			 * @param accessor
+			 *            the accessor
+			 */
+			private Binding(final Class<?> type, final PropertyAccessor accessor)
+			{
+				this.type = type;
+				this.accessor = accessor;
+			}
+		}
+
+		/** The property expression. */
+		private final String property;
+
+		/** The flag if the order is ascending. */
+		private final boolean ascending;
+
+		/** The result of the comparison of a null value with a non null value. */
+		private final int nullResult;
+
+		/** The binding of the last compared class. */
+		private volatile Binding binding;
+
+		/**
+		 * Instantiates a new {@link CompiledPropertyComparator}.
+		 *
+		 * @param property
+		 *            the property expression
+		 * @param ascending
+		 *            the flag if the order is ascending
+		 * @param nullOrdering
+		 *            the ordering of null values
+		 */
+		private CompiledPropertyComparator(final String property, final boolean ascending,
+			final NullOrdering nullOrdering)
+		{
+			this.property = Args.notEmpty(property, "property");
+			this.ascending = ascending;
+			this.nullResult = nullOrdering == NullOrdering.FIRST ? -1 : 1;
+		}
+
+		/**
+		 * Gets the property expression.
+		 *
+		 * @return the property expression
+		 */
+		String getProperty()
+		{
+			return property;
+		}
+
+		/**
+		 * Checks if the order is ascending.
+		 *
+		 * @return true, if the order is ascending
+		 */
+		boolean isAscending()
+		{
+			return ascending;
+		}
+
+		/**
+		 * Checks if null values are ordered before all other values.
+		 *
+		 * @return true, if null values are ordered first
+		 */
+		boolean isNullsFirst()
+		{
+			return nullResult < 0;
+		}
+
+		/**
+		 * Gets the accessor for the class of the given bean.
+		 *
+		 * @param bean
+		 *            the bean
+		 * @return the accessor
+		 */
+		private PropertyAccessor accessor(final Object bean)
+		{
+			final Binding current = binding;
+			if (current != null && current.type == bean.getClass())
+			{
+				return current.accessor;
+			}
+			final PropertyAccessor accessor = getAccessor(bean.getClass(), property);
+			binding = new Binding(bean.getClass(), accessor);
+			return accessor;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compare(final T object, final T other)
+		{
+			if (object == null || other == null)
+			{
+				return compareNulls(object, other);
+			}
+			final PropertyAccessor accessor = accessor(object);
+			final PropertyAccessor otherAccessor = object.getClass() == other.getClass()
+				? accessor
+				: accessor(other);
+			final Object holder = accessor.getHolder(object);
+			final Object otherHolder = otherAccessor.getHolder(other);
+			if (holder == null || otherHolder == null)
+			{
+				return compareNulls(holder, otherHolder);
+			}
+			final int result;
+			if (accessor != otherAccessor)
+			{
+				final Object value = accessor.getValue(object);
+				final Object otherValue = otherAccessor.getValue(other);
+				if (value == null || otherValue == null)
+				{
+					return compareNulls(value, otherValue);
+				}
+				result = PropertyComparator.compareValues(value, otherValue);
+			}
+			else
+			{
+				switch (accessor.getKind())
+				{
+					case LONG :
+						result = Long.compare(accessor.getLong(holder), accessor.getLong(otherHolder));
+						break;
+					case DOUBLE :
+						result = Double.compare(accessor.getDouble(holder),
+							accessor.getDouble(otherHolder));
+						break;
+					case DATE :
+						final Date date = (Date)accessor.getObject(holder);
+						final Date otherDate = (Date)accessor.getObject(otherHolder);
+						if (date == null || otherDate == null)
+						{
+							return compareNulls(date, otherDate);
+						}
+						result = Long.compare(date.getTime(), otherDate.getTime());
+						break;
+					default :
+						final Object value = accessor.getObject(holder);
+						final Object otherValue = accessor.getObject(otherHolder);
+						if (value == null || otherValue == null)
+						{
+							return compareNulls(value, otherValue);
+						}
+						result = PropertyComparator.compareValues(value, otherValue);
+				}
+			}
+			return ascending ? result : -result;
+		}
+
+		/**
+		 * Compares the given values of which at least one is null.
+		 *
+		 * @param value
+		 *            the value
+		 * @param other
+		 *            the other value
+		 * @return the result of the comparison
+		 */
+		private int compareNulls(final Object value, final Object other)
+		{
+			if (value == other)
+			{
+				return 0;
+			}
+			return value == null ? nullResult : -nullResult;
+		}
+	}
+
+	/** The Constant ACCESSORS is the cache of the compiled property expressions by class. */
+	private static final ClassValue<ConcurrentMap<String, PropertyAccessor>> ACCESSORS = new ClassValue<ConcurrentMap<String, PropertyAccessor>>()
+	{
+		@Override
+		protected ConcurrentMap<String, PropertyAccessor> computeValue(final Class<?> type)
+		{
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	/**
+	 * Creates a comparator for the given property expression, null values are ordered first.
+	 *
+	 * @param <T>
+	 *            the generic type of the compared objects
+	 * @param property
+	 *            the property expression
+	 * @param ascending
+	 *            the flag if the order is ascending
+	 * @return the comparator
+	 */
+	public static <T> Comparator<T> comparing(final String property, final boolean ascending)
+	{
+		return comparing(property, ascending, NullOrdering.FIRST);
+	}
+
+	/**
+	 * Creates a comparator for the given property expression.
+	 *
+	 * @param <T>
+	 *            the generic type of the compared objects
+	 * @param property
+	 *            the property expression
+	 * @param ascending
+	 *            the flag if the order is ascending
+	 * @param nullOrdering
+	 *            the ordering of null values
+	 * @return the comparator
+	 */
+	public static <T> Comparator<T> comparing(final String property, final boolean ascending,
+		final NullOrdering nullOrdering)
+	{
+		return new CompiledPropertyComparator<>(property, ascending, nullOrdering);
+	}
+
+	/**
+	 * Creates a comparator that sorts by the given sort parameters in the given order, every
+	 * further parameter is used for equal values of the previous parameters.
+	 *
+	 * @param <T>
+	 *            the generic type of the compared objects
+	 * @param sortParams
+	 *            the sort parameters
+	 * @param nullOrdering
+	 *            the ordering of null values
+	 * @return the comparator
+	 */
+	public static <T> Comparator<T> comparing(final Iterable<? extends SortParam<String>> sortParams,
+		final NullOrdering nullOrdering)
+	{
+		Comparator<T> comparator = null;
+		for (final SortParam<String> sortParam : sortParams)
+		{
+			final Comparator<T> next = comparing(sortParam.getProperty(), sortParam.isAscending(),
+				nullOrdering);
+			comparator = comparator == null ? next : comparator.thenComparing(next);
+		}
+		return comparator != null ? comparator : (object, other) -> 0;
+	}
+
+	/**
+	 * Gets the compiled accessor of the given property expression for the given class.
+	 *
+	 * @param type
+	 *            the class
+	 * @param property
+	 *            the property expression
+	 * @return the accessor
+	 */
+	static PropertyAccessor getAccessor(final Class<?> type, final String property)
+	{
+		final ConcurrentMap<String, PropertyAccessor> accessors = ACCESSORS.get(type);
+		PropertyAccessor accessor = accessors.get(property);
+		if (accessor == null)
+		{
+			accessor = PropertyAccessor.compile(type, property);
+			final PropertyAccessor previous = accessors.putIfAbsent(property, accessor);
+			if (previous != null)
+			{
+				accessor = previous;
+			}
+		}
+		return accessor;
+	}
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The Interface RowLoader loads the row objects of the given ids in one call, for instance with
+ * one query with an <code>IN</code> clause.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ * @param <K>
+ *            the generic type of the ids.
+ */
+@FunctionalInterface
+public interface RowLoader<T, K extends Serializable> extends Serializable
+{
+
+	/**
+	 * Loads the row objects of the given ids. Ids of rows that does not exist anymore are missing
+	 * in the returned map.
+	 *
+	 * @param ids
+	 *            the ids
+	 * @return the row objects by their ids
+	 */
+	Map<K, T> load(Collection<K> ids);
+
+}
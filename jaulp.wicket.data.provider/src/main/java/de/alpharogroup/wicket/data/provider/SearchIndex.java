@@ -0,0 +1,559 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * The Class SearchIndex is an in-memory inverted index over string properties of a list of rows.
+ * The values of the properties are split into tokens at every character that is not a letter or
+ * a digit, the tokens are lower cased and their diacritics are removed, see
+ * {@link #normalize(String)}. Every token maps to the ascending positions of the rows that
+ * contain it.<br>
+ * <br>
+ * A query is tokenized in the same way and every query token matches all tokens that start with
+ * it, so <code>"müll ha"</code> finds the rows that contain a token that starts with
+ * <code>"mull"</code> and a token that starts with <code>"ha"</code>. The result is the array of
+ * the ascending positions of the rows, so it can be used directly as the candidates of a filter.
+ * <br>
+ * <br>
+ * Rows that are appended to the list are indexed with {@link #update()}, the index is not built
+ * again. The sorted term dictionary for the prefix queries is merged with the new terms on the
+ * next query. The index is not thread safe.
+ *
+ * @param <T>
+ *            the generic type of the rows.
+ */
+public class SearchIndex<T>
+{
+
+	/**
+	 * The Class Postings holds the ascending positions of the rows of one token.
+	 */
+	private static final class Postings
+	{
+
+		/** The positions. */
+		private int[] positions = new int[2];
+
+		/** The number of positions. */
+		private int size;
+
+		/**
+		 * Adds the given position if it is not the last added position.
+		 *
+		 * @param position
+		 *            the position
+		 */
+		private void add(final int position)
+		{
+			if (size > 0 && positions[size - 1] == position)
+			{
+				return;
+			}
+			if (size == positions.length)
+			{
+				positions = Arrays.copyOf(positions, size + (size >> 1) + 1);
+			}
+			positions[size++] = position;
+		}
+
+		/**
+		 * Trims the capacity to the number of positions.
+		 */
+		private void trim()
+		{
+			if (positions.length != size)
+			{
+				positions = Arrays.copyOf(positions, size);
+			}
+		}
+	}
+
+	/** The estimated size of an object header in bytes. */
+	private static final int OBJECT_HEADER = 16;
+
+	/** The estimated size of a reference in bytes. */
+	private static final int REFERENCE = 8;
+
+	/**
+	 * Folds a character that is not decomposed by the {@link Normalizer}.
+	 *
+	 * @param c
+	 *            the lower case character
+	 * @return the folded characters or null if the character is not folded
+	 */
+	private static String fold(final char c)
+	{
+		switch (c)
+		{
+			case 'ß' :
+				return "ss";
+			case 'æ' :
+				return "ae";
+			case 'œ' :
+				return "oe";
+			case 'ø' :
+				return "o";
+			case 'ł' :
+				return "l";
+			case 'đ' :
+				return "d";
+			case 'þ' :
+				return "th";
+			default :
+				return null;
+		}
+	}
+
+	/**
+	 * Intersects the given ascending positions.
+	 *
+	 * @param left
+	 *            the ascending positions
+	 * @param right
+	 *            the ascending positions
+	 * @return the positions that are contained in both arrays
+	 */
+	private static int[] intersect(final int[] left, final int[] right)
+	{
+		final int[] smaller = left.length <= right.length ? left : right;
+		final int[] larger = smaller == left ? right : left;
+		final int[] result = new int[smaller.length];
+		int found = 0;
+		if (smaller.length * 16 < larger.length)
+		{
+			// a binary search in the larger array is cheaper than a scan of it
+			int from = 0;
+			for (final int position : smaller)
+			{
+				final int index = Arrays.binarySearch(larger, from, larger.length, position);
+				if (index >= 0)
+				{
+					result[found++] = position;
+					from = index + 1;
+				}
+				else
+				{
+					from = -index - 1;
+				}
+			}
+		}
+		else
+		{
+			for (int i = 0, j = 0; i < smaller.length && j < larger.length;)
+			{
+				if (smaller[i] < larger[j])
+				{
+					i++;
+				}
+				else if (smaller[i] > larger[j])
+				{
+					j++;
+				}
+				else
+				{
+					result[found++] = smaller[i];
+					i++;
+					j++;
+				}
+			}
+		}
+		return Arrays.copyOf(result, found);
+	}
+
+	/**
+	 * Normalizes the given text, it is lower cased and the diacritics are removed, for instance
+	 * <code>"Ærøskøbing Straße"</code> becomes <code>"aeroskobing strasse"</code>.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the normalized text
+	 */
+	public static String normalize(final String text)
+	{
+		final String lowerCase = text.toLowerCase(Locale.ROOT);
+		boolean ascii = true;
+		for (int i = 0; i < lowerCase.length() && ascii; i++)
+		{
+			ascii = lowerCase.charAt(i) < 0x80;
+		}
+		if (ascii)
+		{
+			return lowerCase;
+		}
+		final String decomposed = Normalizer.normalize(lowerCase, Normalizer.Form.NFD);
+		final StringBuilder sb = new StringBuilder(decomposed.length());
+		for (int i = 0; i < decomposed.length(); i++)
+		{
+			final char c = decomposed.charAt(i);
+			if (Character.getType(c) == Character.NON_SPACING_MARK)
+			{
+				continue;
+			}
+			final String folded = fold(c);
+			if (folded != null)
+			{
+				sb.append(folded);
+			}
+			else
+			{
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Splits the given text into normalized tokens.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the tokens in the order of the text
+	 */
+	public static List<String> tokenize(final String text)
+	{
+		final List<String> tokens = new ArrayList<>();
+		if (text == null)
+		{
+			return tokens;
+		}
+		final String normalized = normalize(text);
+		int start = -1;
+		for (int i = 0; i <= normalized.length(); i++)
+		{
+			final boolean tokenChar = i < normalized.length()
+				&& Character.isLetterOrDigit(normalized.charAt(i));
+			if (tokenChar && start < 0)
+			{
+				start = i;
+			}
+			else if (!tokenChar && start >= 0)
+			{
+				tokens.add(normalized.substring(start, i));
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	/** The indexed property expressions. */
+	private final String[] properties;
+
+	/** The accessors of the properties of the class of the last indexed row. */
+	private final PropertyAccessor[] accessors;
+
+	/** The class of the last indexed row. */
+	private Class<?> type;
+
+	/** The rows. */
+	private final List<T> rows;
+
+	/** The postings by the tokens. */
+	private final Map<String, Postings> postings = new HashMap<>();
+
+	/** The sorted tokens of the prefix queries. */
+	private String[] terms = new String[0];
+
+	/** The tokens that are not merged into the sorted tokens yet. */
+	private final List<String> newTerms = new ArrayList<>();
+
+	/** The number of indexed rows. */
+	private int size;
+
+	/**
+	 * Instantiates a new {@link SearchIndex} and indexes the given rows.
+	 *
+	 * @param rows
+	 *            the rows
+	 * @param properties
+	 *            the property expressions of the indexed string values
+	 */
+	public SearchIndex(final List<T> rows, final String... properties)
+	{
+		this.rows = Args.notNull(rows, "rows");
+		this.properties = Args.notNull(properties, "properties").clone();
+		this.accessors = new PropertyAccessor[properties.length];
+		update();
+	}
+
+	/**
+	 * Compacts the postings to their sizes. This can be invoked after the rows are indexed to
+	 * reduce the memory of the index.
+	 */
+	public void compact()
+	{
+		for (final Postings value : postings.values())
+		{
+			value.trim();
+		}
+	}
+
+	/**
+	 * Estimates the memory of the index in bytes. The estimate counts the tokens, the postings and
+	 * the dictionaries with compressed references, the rows are not counted.
+	 *
+	 * @return the estimated memory in bytes
+	 */
+	public long getMemoryFootprint()
+	{
+		long bytes = 0;
+		for (final Map.Entry<String, Postings> entry : postings.entrySet())
+		{
+			// the token with its char array, the map entry, the postings with its int array
+			bytes += OBJECT_HEADER + 8 + OBJECT_HEADER + 2L * entry.getKey().length();
+			bytes += OBJECT_HEADER + 4 * REFERENCE;
+			bytes += OBJECT_HEADER + 8 + OBJECT_HEADER + 4L * entry.getValue().positions.length;
+		}
+		// the table of the map and the sorted tokens
+		bytes += 2L * REFERENCE * postings.size() + (long)REFERENCE * terms.length;
+		return bytes;
+	}
+
+	/**
+	 * Gets the rows.
+	 *
+	 * @return the rows
+	 */
+	public List<T> getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Gets the number of indexed rows.
+	 *
+	 * @return the number of indexed rows
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Gets the number of distinct tokens.
+	 *
+	 * @return the number of distinct tokens
+	 */
+	public int getTermCount()
+	{
+		return postings.size();
+	}
+
+	/**
+	 * Indexes the given row at the given position.
+	 *
+	 * @param row
+	 *            the row
+	 * @param position
+	 *            the position of the row
+	 */
+	private void index(final T row, final int position)
+	{
+		if (row == null)
+		{
+			return;
+		}
+		if (row.getClass() != type)
+		{
+			type = row.getClass();
+			for (int i = 0; i < properties.length; i++)
+			{
+				accessors[i] = PropertyComparators.getAccessor(type, properties[i]);
+			}
+		}
+		for (final PropertyAccessor accessor : accessors)
+		{
+			final Object value = accessor.getValue(row);
+			if (value == null)
+			{
+				continue;
+			}
+			for (final String token : tokenize(value.toString()))
+			{
+				Postings tokenPostings = postings.get(token);
+				if (tokenPostings == null)
+				{
+					tokenPostings = new Postings();
+					postings.put(token, tokenPostings);
+					newTerms.add(token);
+				}
+				tokenPostings.add(position);
+			}
+		}
+	}
+
+	/**
+	 * Merges the new tokens into the sorted tokens.
+	 */
+	private void mergeTerms()
+	{
+		if (newTerms.isEmpty())
+		{
+			return;
+		}
+		final String[] added = newTerms.toArray(new String[newTerms.size()]);
+		Arrays.sort(added);
+		final String[] merged = new String[terms.length + added.length];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < terms.length && j < added.length)
+		{
+			merged[k++] = terms[i].compareTo(added[j]) <= 0 ? terms[i++] : added[j++];
+		}
+		while (i < terms.length)
+		{
+			merged[k++] = terms[i++];
+		}
+		while (j < added.length)
+		{
+			merged[k++] = added[j++];
+		}
+		terms = merged;
+		newTerms.clear();
+	}
+
+	/**
+	 * Finds the ascending positions of the rows that contain a token that starts with the given
+	 * normalized prefix.
+	 *
+	 * @param prefix
+	 *            the normalized prefix
+	 * @return the ascending positions
+	 */
+	private int[] prefix(final String prefix)
+	{
+		int from = Arrays.binarySearch(terms, prefix);
+		from = from >= 0 ? from : -from - 1;
+		int to = from;
+		long total = 0;
+		while (to < terms.length && terms[to].startsWith(prefix))
+		{
+			total += postings.get(terms[to]).size;
+			to++;
+		}
+		if (to - from == 0)
+		{
+			return new int[0];
+		}
+		if (to - from == 1)
+		{
+			final Postings single = postings.get(terms[from]);
+			return Arrays.copyOf(single.positions, single.size);
+		}
+		if (total * 16 < size)
+		{
+			// few positions are sorted, otherwise the positions are collected in a bit set
+			final int[] all = new int[(int)total];
+			int count = 0;
+			for (int t = from; t < to; t++)
+			{
+				final Postings termPostings = postings.get(terms[t]);
+				System.arraycopy(termPostings.positions, 0, all, count, termPostings.size);
+				count += termPostings.size;
+			}
+			Arrays.sort(all);
+			int distinct = 0;
+			for (int i = 0; i < all.length; i++)
+			{
+				if (distinct == 0 || all[i] != all[distinct - 1])
+				{
+					all[distinct++] = all[i];
+				}
+			}
+			return Arrays.copyOf(all, distinct);
+		}
+		final long[] bits = new long[(size + 63) >>> 6];
+		for (int t = from; t < to; t++)
+		{
+			final Postings termPostings = postings.get(terms[t]);
+			for (int i = 0; i < termPostings.size; i++)
+			{
+				final int position = termPostings.positions[i];
+				bits[position >>> 6] |= 1L << position;
+			}
+		}
+		int count = 0;
+		for (final long word : bits)
+		{
+			count += Long.bitCount(word);
+		}
+		final int[] result = new int[count];
+		int found = 0;
+		for (int w = 0; w < bits.length; w++)
+		{
+			long word = bits[w];
+			while (word != 0)
+			{
+				result[found++] = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Searches the rows that match all tokens of the given query, every query token matches the
+	 * tokens that start with it.
+	 *
+	 * @param query
+	 *            the query
+	 * @return the ascending positions of the matching rows or null if the query has no tokens
+	 */
+	public int[] search(final String query)
+	{
+		final List<String> tokens = tokenize(query);
+		if (tokens.isEmpty())
+		{
+			return null;
+		}
+		mergeTerms();
+		int[] result = null;
+		for (final String token : tokens)
+		{
+			final int[] positions = prefix(token);
+			result = result == null ? positions : intersect(result, positions);
+			if (result.length == 0)
+			{
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Indexes the rows that were appended to the list since the last update.
+	 */
+	public void update()
+	{
+		final int rowCount = rows.size();
+		for (int position = size; position < rowCount; position++)
+		{
+			index(rows.get(position), position);
+		}
+		size = Math.max(size, rowCount);
+	}
+
+}
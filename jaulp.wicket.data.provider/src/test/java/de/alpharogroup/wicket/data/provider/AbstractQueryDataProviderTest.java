@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class AbstractQueryDataProviderTest
+{
+
+	public static class Row implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private final int id;
+		private final int group;
+
+		public Row(final int id, final int group)
+		{
+			this.id = id;
+			this.group = group;
+		}
+
+		public int getGroup()
+		{
+			return group;
+		}
+
+		public int getId()
+		{
+			return id;
+		}
+	}
+
+	/**
+	 * The filter bean does not override equals and hashCode, like most filter states of forms.
+	 */
+	public static class GroupFilter implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private Integer group;
+	}
+
+	private static class GroupFilterQuery extends ListPageQuery<Row, GroupFilter>
+	{
+		private static final long serialVersionUID = 1L;
+		private int counts;
+		private final List<PageRequest<String, GroupFilter>> requests = new ArrayList<>();
+
+		private GroupFilterQuery(final List<Row> rows)
+		{
+			super(rows, "id");
+		}
+
+		@Override
+		protected boolean accept(final Row row, final GroupFilter filter)
+		{
+			return filter.group == null || row.getGroup() == filter.group;
+		}
+
+		@Override
+		public long count(final GroupFilter filter)
+		{
+			counts++;
+			return super.count(filter);
+		}
+
+		@Override
+		public List<Row> find(final PageRequest<String, GroupFilter> request)
+		{
+			requests.add(request);
+			return super.find(request);
+		}
+	}
+
+	private static class GroupFilterDataProvider
+		extends
+			AbstractQueryDataProvider<Row, String, GroupFilter>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private GroupFilterDataProvider(final PageQuery<Row, String, GroupFilter> pageQuery)
+		{
+			super(pageQuery);
+		}
+	}
+
+	private static class CountingQuery extends ListPageQuery<Row, Integer>
+	{
+		private static final long serialVersionUID = 1L;
+		private int counts;
+		private final List<PageRequest<String, Integer>> requests = new ArrayList<>();
+
+		private CountingQuery(final List<Row> rows)
+		{
+			super(rows, "id");
+		}
+
+		@Override
+		protected boolean accept(final Row row, final Integer filter)
+		{
+			return filter == null || row.getGroup() == filter;
+		}
+
+		@Override
+		public long count(final Integer filter)
+		{
+			counts++;
+			return super.count(filter);
+		}
+
+		@Override
+		public List<Row> find(final PageRequest<String, Integer> request)
+		{
+			requests.add(request);
+			return super.find(request);
+		}
+	}
+
+	private static class RowDataProvider extends AbstractQueryDataProvider<Row, String, Integer>
+	{
+		private static final long serialVersionUID = 1L;
+		private long now;
+
+		private RowDataProvider(final PageQuery<Row, String, Integer> pageQuery)
+		{
+			super(pageQuery);
+		}
+
+		@Override
+		protected long currentTimeMillis()
+		{
+			return now;
+		}
+	}
+
+	private static List<Integer> ids(final Iterator<? extends Row> iterator)
+	{
+		final List<Integer> ids = new ArrayList<>();
+		while (iterator.hasNext())
+		{
+			ids.add(iterator.next().getId());
+		}
+		return ids;
+	}
+
+	@Test
+	public void testFilterWithoutEquals()
+	{
+		final List<Row> rows = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+		{
+			rows.add(new Row(i, i % 2));
+		}
+		final GroupFilterQuery query = new GroupFilterQuery(rows);
+		final GroupFilterDataProvider provider = new GroupFilterDataProvider(query);
+		provider.setFilterState(new GroupFilter());
+		provider.setSort("id", SortOrder.ASCENDING);
+
+		AssertJUnit.assertEquals(10, provider.size());
+		AssertJUnit.assertEquals(10, provider.size());
+		AssertJUnit.assertEquals(1, query.counts);
+		AssertJUnit.assertEquals("[0, 1, 2]", ids(provider.iterator(0, 3)).toString());
+		AssertJUnit.assertEquals("[3, 4, 5]", ids(provider.iterator(3, 3)).toString());
+		AssertJUnit.assertNotNull(query.requests.get(1).getAfter());
+
+		provider.getFilterState().group = 1;
+		AssertJUnit.assertEquals(5, provider.size());
+		AssertJUnit.assertEquals(5, provider.size());
+		AssertJUnit.assertEquals(2, query.counts);
+		AssertJUnit.assertEquals("[7, 9]", ids(provider.iterator(3, 3)).toString());
+		AssertJUnit.assertNull(query.requests.get(2).getAfter());
+	}
+
+	@Test
+	public void testKeysetPaging()
+	{
+		final List<Row> rows = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+		{
+			rows.add(new Row(i, i % 3));
+		}
+		final CountingQuery query = new CountingQuery(rows);
+		final RowDataProvider provider = new RowDataProvider(query);
+		provider.setSort("group", SortOrder.DESCENDING);
+
+		AssertJUnit.assertEquals("[2, 5, 8, 1]", ids(provider.iterator(0, 4)).toString());
+		AssertJUnit.assertEquals("[4, 7, 0, 3]", ids(provider.iterator(4, 4)).toString());
+		AssertJUnit.assertEquals("[6, 9]", ids(provider.iterator(8, 4)).toString());
+		AssertJUnit.assertNull(query.requests.get(0).getAfter());
+		AssertJUnit.assertEquals(new Keyset(1L, 1L), query.requests.get(1).getAfter());
+		AssertJUnit.assertEquals(new Keyset(0L, 3L), query.requests.get(2).getAfter());
+
+		// the integral values of the keysets are read as long
+
+		// a page without a bookmark is requested by the offset
+		AssertJUnit.assertEquals("[8, 1]", ids(provider.iterator(2, 2)).toString());
+		AssertJUnit.assertNull(query.requests.get(3).getAfter());
+
+		// the bookmarks are dropped if the filter changes
+		provider.setFilterState(1);
+		AssertJUnit.assertEquals("[1, 4, 7]", ids(provider.iterator(0, 3)).toString());
+		AssertJUnit.assertEquals("[]", ids(provider.iterator(3, 3)).toString());
+		AssertJUnit.assertEquals(new Keyset(1L, 7L), query.requests.get(5).getAfter());
+	}
+
+	@Test
+	public void testSizeIsCached()
+	{
+		final List<Row> rows = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+		{
+			rows.add(new Row(i, i % 2));
+		}
+		final CountingQuery query = new CountingQuery(rows);
+		final RowDataProvider provider = new RowDataProvider(query);
+		provider.setSizeCacheDuration(10, TimeUnit.SECONDS);
+
+		AssertJUnit.assertEquals(10, provider.size());
+		provider.now = 9000;
+		AssertJUnit.assertEquals(10, provider.size());
+		AssertJUnit.assertEquals(1, query.counts);
+
+		provider.setFilterState(0);
+		AssertJUnit.assertEquals(5, provider.size());
+		AssertJUnit.assertEquals(2, query.counts);
+
+		provider.now = 20000;
+		AssertJUnit.assertEquals(5, provider.size());
+		AssertJUnit.assertEquals(3, query.counts);
+
+		provider.invalidate();
+		AssertJUnit.assertEquals(5, provider.size());
+		AssertJUnit.assertEquals(4, query.counts);
+	}
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class AbstractSortFilterDataProviderTest
+{
+
+	public static class Item implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private final String name;
+		private final int rank;
+
+		public Item(final String name, final int rank)
+		{
+			this.name = name;
+			this.rank = rank;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public int getRank()
+		{
+			return rank;
+		}
+	}
+
+	public static class PrefixFilter implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private String prefix;
+
+		public String getPrefix()
+		{
+			return prefix;
+		}
+
+		public void setPrefix(final String prefix)
+		{
+			this.prefix = prefix;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			return obj instanceof PrefixFilter && Objects.equals(prefix, ((PrefixFilter)obj).prefix);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hashCode(prefix);
+		}
+	}
+
+	private static class ItemDataProvider
+		extends
+			AbstractSortFilterDataProvider<Item, String, PrefixFilter>
+	{
+		private static final long serialVersionUID = 1L;
+		private final AtomicInteger tests = new AtomicInteger();
+
+		private ItemDataProvider(final List<Item> data)
+		{
+			super(data);
+			setFilterState(new PrefixFilter());
+			setSort("rank", SortOrder.DESCENDING);
+		}
+
+		@Override
+		protected boolean isRefinement(final PrefixFilter previous, final PrefixFilter current)
+		{
+			return previous.prefix == null || current.prefix != null
+				&& current.prefix.startsWith(previous.prefix);
+		}
+
+		@Override
+		protected Predicate<Item> newFilterPredicate(final PrefixFilter filterState)
+		{
+			return item -> {
+				tests.incrementAndGet();
+				return filterState.prefix == null || item.getName().startsWith(filterState.prefix);
+			};
+		}
+	}
+
+	private static List<String> names(final Iterator<? extends Item> iterator)
+	{
+		final List<String> names = new ArrayList<>();
+		while (iterator.hasNext())
+		{
+			names.add(iterator.next().getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testFilterOnceAndRefine()
+	{
+		final List<Item> data = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+		{
+			data.add(new Item((i % 2 == 0 ? "ab" : "b") + i, i));
+		}
+		final ItemDataProvider provider = new ItemDataProvider(data);
+		AssertJUnit.assertEquals(100, provider.size());
+		AssertJUnit.assertEquals(100, provider.tests.get());
+
+		provider.getFilterState().prefix = "a";
+		AssertJUnit.assertEquals(50, provider.size());
+		AssertJUnit.assertEquals("[ab98, ab96, ab94]", names(provider.iterator(0, 3)).toString());
+		AssertJUnit.assertEquals("[ab2, ab0]", names(provider.iterator(48, 10)).toString());
+		// the refinement filtered all rows that passed the empty filter once
+		AssertJUnit.assertEquals(200, provider.tests.get());
+
+		provider.getFilterState().prefix = "ab1";
+		AssertJUnit.assertEquals(5, provider.size());
+		AssertJUnit.assertEquals(250, provider.tests.get());
+		AssertJUnit.assertEquals("[ab18, ab16]", names(provider.iterator(0, 2)).toString());
+
+		provider.getFilterState().prefix = "b";
+		AssertJUnit.assertEquals(50, provider.size());
+		AssertJUnit.assertEquals(350, provider.tests.get());
+	}
+
+	@Test
+	public void testSetSameDataKeepsTheIndex()
+	{
+		final List<Item> data = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+		{
+			data.add(new Item("a" + i, i));
+		}
+		final ItemDataProvider provider = new ItemDataProvider(data);
+		AssertJUnit.assertEquals(100, provider.size());
+		provider.setData(data);
+		AssertJUnit.assertEquals("[a99, a98]", names(provider.iterator(0, 2)).toString());
+		AssertJUnit.assertEquals(100, provider.tests.get());
+
+		provider.setData(new ArrayList<>(data));
+		AssertJUnit.assertEquals(100, provider.size());
+		AssertJUnit.assertEquals(200, provider.tests.get());
+	}
+
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.model.IModel;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class BatchRowLoaderTest
+{
+
+	public static class Row implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private final long id;
+		private final String name;
+		private final String description;
+
+		public Row(final long id)
+		{
+			this.id = id;
+			this.name = "name " + id;
+			this.description = "a description of the row with the id " + id
+				+ " that is rendered in one column of the table";
+		}
+
+		public String getDescription()
+		{
+			return description;
+		}
+
+		public long getId()
+		{
+			return id;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+	}
+
+	private static class RowStore implements RowLoader<Row, Long>
+	{
+		private static final long serialVersionUID = 1L;
+		private transient int calls;
+
+		@Override
+		public Map<Long, Row> load(final Collection<Long> ids)
+		{
+			calls++;
+			final Map<Long, Row> rows = new LinkedHashMap<>();
+			for (final Long id : ids)
+			{
+				if (id < 1000)
+				{
+					rows.put(id, new Row(id));
+				}
+			}
+			return rows;
+		}
+	}
+
+	private static List<Row> newRows(final int size)
+	{
+		final List<Row> rows = new ArrayList<>();
+		for (long i = 0; i < size; i++)
+		{
+			rows.add(new Row(i));
+		}
+		return rows;
+	}
+
+	private static List<IModel<Row>> newPage(final AbstractSortableDataProvider<Row, String> provider)
+	{
+		final List<IModel<Row>> models = new ArrayList<>();
+		final Iterator<? extends Row> iterator = provider.iterator(0, provider.size());
+		while (iterator.hasNext())
+		{
+			models.add(provider.model(iterator.next()));
+		}
+		return models;
+	}
+
+	private static byte[] serialize(final Object object) throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testRowsAreLoadedInOneCall()
+	{
+		final RowStore store = new RowStore();
+		final AbstractSortableDataProvider<Row, String> provider = new AbstractSortableDataProvider<>(
+			newRows(20));
+		provider.setRowLoader(Row::getId, store);
+		final List<IModel<Row>> models = newPage(provider);
+		AssertJUnit.assertEquals(0, store.calls);
+
+		for (final IModel<Row> model : models)
+		{
+			model.detach();
+		}
+		provider.detach();
+		AssertJUnit.assertEquals(20, provider.size());
+
+		for (int i = 0; i < models.size(); i++)
+		{
+			AssertJUnit.assertEquals(i, models.get(i).getObject().getId());
+		}
+		AssertJUnit.assertEquals(1, store.calls);
+		AssertJUnit.assertEquals(models.get(3), provider.model(new Row(3)));
+	}
+
+	@Test
+	public void testSerializedPageSize() throws Exception
+	{
+		// the provider and the item models of a table with 100 rows are serialized with the page,
+		// the rows itself are loaded again from the data source
+		final List<Row> rows = newRows(100);
+		final AbstractSortableDataProvider<Row, String> provider = new AbstractSortableDataProvider<>(
+			rows);
+		final List<Object> page = new ArrayList<Object>(newPage(provider));
+		page.add(provider);
+		final int before = serialize(page).length;
+		// the data are not serialized with the provider
+		AssertJUnit.assertTrue(serialize(provider).length < serialize(rows).length / 10);
+
+		provider.setRowLoader(Row::getId, new RowStore());
+		final List<IModel<Row>> models = newPage(provider);
+		for (final IModel<Row> model : models)
+		{
+			model.detach();
+		}
+		provider.detach();
+		page.clear();
+		page.addAll(models);
+		page.add(provider);
+		final byte[] serialized = serialize(page);
+		AssertJUnit.assertTrue(serialized.length < before);
+
+		final List<?> deserialized = (List<?>)new ObjectInputStream(new ByteArrayInputStream(
+			serialized)).readObject();
+		AssertJUnit.assertNull(((AbstractSortableDataProvider<?, ?>)deserialized.get(100))
+			.getData());
+		AssertJUnit.assertEquals("name 42", ((Row)((IModel<?>)deserialized.get(42)).getObject())
+			.getName());
+	}
+
+}
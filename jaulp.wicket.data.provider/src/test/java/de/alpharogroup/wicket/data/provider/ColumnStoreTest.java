@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import de.alpharogroup.wicket.data.provider.AbstractSortFilterDataProviderTest.Item;
+import de.alpharogroup.wicket.data.provider.AbstractSortFilterDataProviderTest.PrefixFilter;
+import de.alpharogroup.wicket.data.provider.PropertyComparators.NullOrdering;
+import de.alpharogroup.wicket.data.provider.PropertyComparatorsTest.Bean;
+
+public class ColumnStoreTest
+{
+
+	private static class ColumnItemDataProvider
+		extends
+			AbstractSortFilterDataProvider<Item, String, PrefixFilter>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private ColumnItemDataProvider(final List<Item> data)
+		{
+			super(data);
+			setColumns("name", "rank");
+			setFilterState(new PrefixFilter());
+			setSort("rank", SortOrder.DESCENDING);
+		}
+
+		@Override
+		protected IntPredicate newColumnFilter(final PrefixFilter filterState,
+			final ColumnStore<Item> columns)
+		{
+			return columns.startsWith("name", filterState.getPrefix() != null
+				? filterState.getPrefix()
+				: "");
+		}
+
+		@Override
+		protected Predicate<Item> newFilterPredicate(final PrefixFilter filterState)
+		{
+			throw new AssertionError("The rows are filtered over the columns.");
+		}
+	}
+
+	private static List<Integer> filter(final ColumnStore<Bean> store, final IntPredicate filter)
+	{
+		final List<Integer> positions = new ArrayList<>();
+		for (final int position : store.getPositions())
+		{
+			if (filter.test(position))
+			{
+				positions.add(position);
+			}
+		}
+		return positions;
+	}
+
+	private static List<Integer> filter(final List<Bean> beans, final Predicate<Bean> predicate)
+	{
+		final List<Integer> positions = new ArrayList<>();
+		for (int i = 0; i < beans.size(); i++)
+		{
+			if (beans.get(i) != null && predicate.test(beans.get(i)))
+			{
+				positions.add(i);
+			}
+		}
+		return positions;
+	}
+
+	@Test
+	public void testFilters()
+	{
+		final List<Bean> beans = ParallelRowsTest.newBeans(2000);
+		final ColumnStore<Bean> store = new ColumnStore<>(beans, "age", "score", "date", "name",
+			"address.city");
+
+		AssertJUnit.assertEquals(filter(beans, bean -> bean.getAge() >= -3 && bean.getAge() <= 7),
+			filter(store, store.between("age", -3, 7)));
+		// the order of the values is the order of the comparator, NaN is greater than all values
+		AssertJUnit.assertEquals(filter(beans, bean -> Double.compare(bean.getScore(), 2.6) >= 0),
+			filter(store, store.between("score", 2.6, null)));
+		AssertJUnit.assertEquals(
+			filter(beans, bean -> bean.getDate() != null && bean.getDate().getTime() <= 100),
+			filter(store, store.between("date", null, new Date(100))));
+		AssertJUnit.assertEquals(
+			filter(beans, bean -> bean.getName().startsWith("name1")),
+			filter(store, store.startsWith("name", "name1")));
+		AssertJUnit.assertEquals(
+			filter(beans, bean -> bean.getAddress() != null
+				&& bean.getAddress().getCity().equals("city7")),
+			filter(store, store.equalTo("address.city", "city7")));
+		AssertJUnit.assertTrue(filter(store, store.startsWith("name", "x")).isEmpty());
+	}
+
+	@Test
+	public void testProviderSortsAndFiltersOverColumns()
+	{
+		final List<Item> data = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+		{
+			data.add(new Item((i % 2 == 0 ? "ab" : "b") + i, i));
+		}
+		final ColumnItemDataProvider provider = new ColumnItemDataProvider(data);
+		AssertJUnit.assertEquals(100, provider.size());
+
+		provider.getFilterState().setPrefix("a");
+		AssertJUnit.assertEquals(50, provider.size());
+		AssertJUnit.assertEquals("[ab98, ab96, ab94]", names(provider.iterator(0, 3)).toString());
+		AssertJUnit.assertEquals("[ab2, ab0]", names(provider.iterator(48, 10)).toString());
+
+		provider.getFilterState().setPrefix("ab1");
+		provider.setSort("name", SortOrder.ASCENDING);
+		AssertJUnit.assertEquals(5, provider.size());
+		AssertJUnit.assertEquals("[ab10, ab12]", names(provider.iterator(0, 2)).toString());
+		// the data are not sorted in place
+		AssertJUnit.assertEquals("ab0", data.get(0).getName());
+	}
+
+	@Test
+	public void testSortEqualsComparator()
+	{
+		final List<Bean> beans = ParallelRowsTest.newBeans(2000);
+		final ColumnStore<Bean> store = new ColumnStore<>(beans, "age", "score", "date", "name",
+			"address.city");
+		for (final String property : Arrays.asList("age", "score", "date", "name",
+			"address.city"))
+		{
+			AssertJUnit.assertTrue(store.hasColumn(property));
+			for (final NullOrdering nullOrdering : NullOrdering.values())
+			{
+				for (final boolean ascending : new boolean[] { true, false })
+				{
+					final Comparator<Bean> comparator = PropertyComparators.comparing(property,
+						ascending, nullOrdering);
+					final List<Bean> expected = new ArrayList<>(beans);
+					Collections.sort(expected, comparator);
+					final int[] sorted = store.sort(store.getPositions(), property, ascending,
+						nullOrdering == NullOrdering.FIRST, false);
+					for (int i = 0; i < expected.size(); i++)
+					{
+						AssertJUnit.assertSame(property + " " + ascending + " " + nullOrdering
+							+ " at " + i, expected.get(i), beans.get(sorted[i]));
+					}
+				}
+			}
+		}
+	}
+
+	private static List<String> names(final Iterator<? extends Item> iterator)
+	{
+		final List<String> names = new ArrayList<>();
+		while (iterator.hasNext())
+		{
+			names.add(iterator.next().getName());
+		}
+		return names;
+	}
+
+}
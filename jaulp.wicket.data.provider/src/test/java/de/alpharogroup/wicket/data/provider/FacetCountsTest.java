@@ -0,0 +1,230 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class FacetCountsTest
+{
+
+	public static class Product implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		public final String color;
+		public final String size;
+
+		public Product(final String color, final String size)
+		{
+			this.color = color;
+			this.size = size;
+		}
+
+		public String getColor()
+		{
+			return color;
+		}
+
+		public String getSize()
+		{
+			return size;
+		}
+	}
+
+	public static class PaintedProduct extends Product
+	{
+		private static final long serialVersionUID = 1L;
+
+		public PaintedProduct(final String color, final String size)
+		{
+			super(color, size);
+		}
+
+		@Override
+		public String getColor()
+		{
+			return color != null ? "painted " + color : null;
+		}
+	}
+
+	public static class ProductFilter implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private final Set<String> colors = new HashSet<>();
+		private final Set<String> sizes = new HashSet<>();
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			return obj instanceof ProductFilter && colors.equals(((ProductFilter)obj).colors)
+				&& sizes.equals(((ProductFilter)obj).sizes);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(colors, sizes);
+		}
+
+		boolean test(final Product product)
+		{
+			return (colors.isEmpty() || colors.contains(product.getColor()))
+				&& (sizes.isEmpty() || sizes.contains(product.getSize()));
+		}
+	}
+
+	private static class ProductDataProvider
+		extends
+			AbstractSortFilterDataProvider<Product, String, ProductFilter>
+	{
+		private static final long serialVersionUID = 1L;
+		private final AtomicInteger tests = new AtomicInteger();
+
+		private ProductDataProvider(final List<Product> data)
+		{
+			super(data);
+			setFilterState(new ProductFilter());
+			setFacets("color", "size");
+		}
+
+		@Override
+		protected Predicate<Product> newFilterPredicate(final ProductFilter filterState)
+		{
+			return product -> {
+				tests.incrementAndGet();
+				return filterState.test(product);
+			};
+		}
+
+		@Override
+		protected ProductFilter withoutFacetFilter(final ProductFilter filterState,
+			final String property)
+		{
+			final ProductFilter without = new ProductFilter();
+			without.colors.addAll(filterState.colors);
+			without.sizes.addAll(filterState.sizes);
+			(property.equals("color") ? without.colors : without.sizes).clear();
+			return without;
+		}
+	}
+
+	private static Map<Object, Integer> count(final List<Product> data, final ProductFilter filter,
+		final boolean color)
+	{
+		final Map<Object, Integer> counts = new LinkedHashMap<>();
+		for (final Product product : data)
+		{
+			if (filter.test(product))
+			{
+				counts.merge(color ? product.getColor() : product.getSize(), 1, Integer::sum);
+			}
+		}
+		return counts;
+	}
+
+	private static List<Product> newProducts()
+	{
+		final String[] colors = { "red", "green", "blue", null };
+		final String[] sizes = { "S", "M", "L" };
+		final List<Product> data = new ArrayList<>();
+		for (int i = 0; i < 120; i++)
+		{
+			data.add(new Product(colors[i * 7 % 11 % colors.length], sizes[i * 5 % 13
+				% sizes.length]));
+		}
+		return data;
+	}
+
+	private static void assertFacetCounts(final ProductDataProvider provider,
+		final List<Product> data)
+	{
+		final ProductFilter filter = provider.getFilterState();
+		final FacetCounts facetCounts = provider.getFacetCounts();
+		AssertJUnit.assertEquals(count(data, provider.withoutFacetFilter(filter, "color"), true),
+			facetCounts.getCounts("color"));
+		AssertJUnit.assertEquals(count(data, provider.withoutFacetFilter(filter, "size"), false),
+			facetCounts.getCounts("size"));
+	}
+
+	@Test
+	public void testFacetsExcludeTheirOwnFilter()
+	{
+		final List<Product> data = newProducts();
+		final ProductDataProvider provider = new ProductDataProvider(data);
+		provider.getFilterState().colors.add("red");
+		provider.getFilterState().colors.add("blue");
+		provider.getFilterState().sizes.add("M");
+		final long size = provider.size();
+		final int tests = provider.tests.get();
+		assertFacetCounts(provider, data);
+		// the counts are cached with the filtered rows
+		AssertJUnit.assertEquals(tests, provider.tests.get());
+		AssertJUnit.assertEquals(size, provider.getFacetCounts().getCount("size", "M"));
+		AssertJUnit.assertEquals(0, provider.getFacetCounts().getCount("color", "yellow"));
+
+		provider.getFilterState().colors.clear();
+		assertFacetCounts(provider, data);
+		AssertJUnit.assertTrue(provider.getFacetCounts().getCounts("color").containsKey(null));
+	}
+
+	@Test
+	public void testFacetsOverColumns()
+	{
+		final List<Product> data = newProducts();
+		final ProductDataProvider provider = new ProductDataProvider(data);
+		provider.setColumns("color", "size");
+		provider.getFilterState().colors.add("green");
+		provider.getFilterState().sizes.add("S");
+		provider.getFilterState().sizes.add("L");
+		assertFacetCounts(provider, data);
+
+		final Map<Object, Integer> colors = provider.getFacetCounts().getCounts("color");
+		int previous = Integer.MAX_VALUE;
+		for (final Integer count : colors.values())
+		{
+			AssertJUnit.assertTrue(count <= previous);
+			previous = count;
+		}
+	}
+
+	@Test
+	public void testFacetsOverRowsOfDifferentClasses()
+	{
+		final List<Product> data = new ArrayList<>();
+		for (final Product product : newProducts())
+		{
+			data.add(data.size() % 3 == 0 ? new PaintedProduct(product.color, product.size)
+				: product);
+		}
+		final ProductDataProvider provider = new ProductDataProvider(data);
+		provider.getFilterState().sizes.add("M");
+		assertFacetCounts(provider, data);
+		AssertJUnit.assertTrue(provider.getFacetCounts().getCount("color", "painted red") > 0);
+		AssertJUnit.assertTrue(provider.getFacetCounts().getCount("color", "red") > 0);
+	}
+
+}
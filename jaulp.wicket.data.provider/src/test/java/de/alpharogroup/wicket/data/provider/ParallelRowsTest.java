@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import de.alpharogroup.wicket.data.provider.PropertyComparators.NullOrdering;
+import de.alpharogroup.wicket.data.provider.PropertyComparatorsTest.Address;
+import de.alpharogroup.wicket.data.provider.PropertyComparatorsTest.Bean;
+
+public class ParallelRowsTest
+{
+
+	static List<Bean> newBeans(final int size)
+	{
+		final Random random = new Random(42);
+		final List<Bean> beans = new ArrayList<>();
+		for (int i = 0; i < size; i++)
+		{
+			beans.add(new Bean("name" + random.nextInt(100), random.nextInt(50) - 25,
+				random.nextInt(20) == 0 ? Double.NaN : random.nextInt(40) / 4.0 - 5,
+				random.nextInt(10) == 0 ? null : new Date(random.nextInt(1000)),
+				random.nextInt(10) == 0 ? null : new Address("city" + random.nextInt(30))));
+		}
+		beans.set(7, null);
+		return beans;
+	}
+
+	@Test
+	public void testFilterKeepsTheOrder()
+	{
+		final ParallelRows parallelRows = new ParallelRows(ParallelRows.newPool(4), 1);
+		final List<Bean> beans = newBeans(10_000);
+		final Predicate<Bean> predicate = bean -> bean != null && bean.getAge() > 0;
+
+		final int[] all = parallelRows.filter(beans, null, predicate);
+		final List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < beans.size(); i++)
+		{
+			if (predicate.test(beans.get(i)))
+			{
+				expected.add(i);
+			}
+		}
+		AssertJUnit.assertEquals(expected.size(), all.length);
+		for (int i = 0; i < all.length; i++)
+		{
+			AssertJUnit.assertEquals((int)expected.get(i), all[i]);
+		}
+
+		final int[] refined = parallelRows.filter(beans, all,
+			bean -> bean.getAge() > 10);
+		for (final int position : refined)
+		{
+			AssertJUnit.assertTrue(Arrays.binarySearch(all, position) >= 0);
+			AssertJUnit.assertTrue(beans.get(position).getAge() > 10);
+		}
+		parallelRows.getPool().shutdown();
+	}
+
+	@Test
+	public void testSortEqualsSequentialStableSort()
+	{
+		final ParallelRows parallelRows = new ParallelRows(ParallelRows.newPool(4), 1);
+		final List<Bean> beans = newBeans(10_000);
+		for (final String property : Arrays.asList("age", "score", "date", "name",
+			"address.city"))
+		{
+			for (final NullOrdering nullOrdering : NullOrdering.values())
+			{
+				for (final boolean ascending : new boolean[] { true, false })
+				{
+					final Comparator<Bean> comparator = PropertyComparators.comparing(property,
+						ascending, nullOrdering);
+					final List<Bean> expected = new ArrayList<>(beans);
+					Collections.sort(expected, comparator);
+					final List<Bean> actual = parallelRows.sort(new ArrayList<>(beans),
+						comparator);
+					for (int i = 0; i < expected.size(); i++)
+					{
+						AssertJUnit.assertSame(property + " " + ascending + " " + nullOrdering
+							+ " at " + i, expected.get(i), actual.get(i));
+					}
+				}
+			}
+		}
+		parallelRows.getPool().shutdown();
+	}
+
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class PartialSortTest
+{
+
+	@Test
+	public void testTopEqualsStableSort()
+	{
+		final Random random = new Random(7);
+		final List<int[]> list = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+		{
+			// few distinct keys, so the stability is checked with the second value
+			list.add(new int[] { random.nextInt(20), i });
+		}
+		final Comparator<int[]> comparator = (a, b) -> Integer.compare(a[0], b[0]);
+		final List<int[]> sorted = new ArrayList<>(list);
+		sorted.sort(comparator);
+
+		final List<int[]> top = PartialSort.top(list, comparator, 50);
+		AssertJUnit.assertEquals(50, top.size());
+		for (int i = 0; i < top.size(); i++)
+		{
+			AssertJUnit.assertSame(sorted.get(i), top.get(i));
+		}
+		AssertJUnit.assertEquals(1000, PartialSort.top(list, comparator, 5000).size());
+		AssertJUnit.assertTrue(PartialSort.top(list, comparator, 0).isEmpty());
+	}
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class PropertyComparatorsTest
+{
+
+	public static class Address
+	{
+		private final String city;
+
+		public Address(final String city)
+		{
+			this.city = city;
+		}
+
+		public String getCity()
+		{
+			return city;
+		}
+	}
+
+	public static class Bean
+	{
+		private final String name;
+		private final int age;
+		private final double score;
+		private final Date date;
+		private final Address address;
+
+		public Bean(final String name, final int age, final double score, final Date date,
+			final Address address)
+		{
+			this.name = name;
+			this.age = age;
+			this.score = score;
+			this.date = date;
+			this.address = address;
+		}
+
+		public Address getAddress()
+		{
+			return address;
+		}
+
+		public int getAge()
+		{
+			return age;
+		}
+
+		public Date getDate()
+		{
+			return date;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public double getScore()
+		{
+			return score;
+		}
+	}
+
+	private static class HiddenBean
+	{
+		public int getValue()
+		{
+			return 42;
+		}
+	}
+
+	private final Bean alice = new Bean("alice", 30, 1.5, new Date(3000), new Address("Berlin"));
+	private final Bean bob = new Bean("bob", 25, 2.5, null, new Address(null));
+	private final Bean carol = new Bean(null, 30, 0.5, new Date(1000), null);
+
+	private List<String> sort(final java.util.Comparator<Bean> comparator)
+	{
+		final List<Bean> beans = new ArrayList<>(Arrays.asList(alice, bob, carol));
+		beans.sort(comparator);
+		final List<String> names = new ArrayList<>();
+		for (final Bean bean : beans)
+		{
+			names.add(bean == alice ? "alice" : bean == bob ? "bob" : "carol");
+		}
+		return names;
+	}
+
+	@Test
+	public void testMultiColumn()
+	{
+		final List<SortParam<String>> sortParams = Arrays.asList(new SortParam<>("age", false),
+			new SortParam<>("score", true));
+		AssertJUnit.assertEquals(Arrays.asList("carol", "alice", "bob"),
+			sort(PropertyComparators.comparing(sortParams, PropertyComparators.NullOrdering.FIRST)));
+	}
+
+	@Test
+	public void testNestedAndNullOrdering()
+	{
+		AssertJUnit.assertEquals(Arrays.asList("carol", "bob", "alice"),
+			sort(PropertyComparators.<Bean> comparing("address.city", true)));
+		AssertJUnit.assertEquals(Arrays.asList("alice", "bob", "carol"), sort(PropertyComparators
+			.<Bean> comparing("address.city", false, PropertyComparators.NullOrdering.LAST)));
+		AssertJUnit.assertEquals(Arrays.asList("carol", "alice", "bob"),
+			sort(PropertyComparators.<Bean> comparing("name", true)));
+	}
+
+	@Test
+	public void testPrimitiveAndDateProperties()
+	{
+		AssertJUnit.assertEquals(PropertyAccessor.Kind.LONG,
+			PropertyComparators.getAccessor(Bean.class, "age").getKind());
+		AssertJUnit.assertEquals(PropertyAccessor.Kind.DOUBLE,
+			PropertyComparators.getAccessor(Bean.class, "score").getKind());
+		AssertJUnit.assertEquals(PropertyAccessor.Kind.DATE,
+			PropertyComparators.getAccessor(Bean.class, "date").getKind());
+		AssertJUnit.assertEquals(Arrays.asList("carol", "alice", "bob"),
+			sort(PropertyComparators.<Bean> comparing("score", true)));
+		AssertJUnit.assertEquals(Arrays.asList("bob", "carol", "alice"),
+			sort(PropertyComparators.<Bean> comparing("date", true)));
+		AssertJUnit.assertEquals(Integer.valueOf(42).longValue(), PropertyComparators
+			.getAccessor(HiddenBean.class, "value").getValue(new HiddenBean()));
+	}
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2010 Asterios Raptis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.alpharogroup.wicket.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class SearchIndexTest
+{
+
+	public static class Document implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		public final String title;
+		public final int year;
+
+		public Document(final String title, final int year)
+		{
+			this.title = title;
+			this.year = year;
+		}
+
+		public String getTitle()
+		{
+			return title;
+		}
+
+		public int getYear()
+		{
+			return year;
+		}
+	}
+
+	public static class DocumentFilter implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private String searchtext;
+		private Integer year;
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			return obj instanceof DocumentFilter
+				&& Objects.equals(searchtext, ((DocumentFilter)obj).searchtext)
+				&& Objects.equals(year, ((DocumentFilter)obj).year);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(searchtext, year);
+		}
+	}
+
+	private static class DocumentDataProvider
+		extends
+			AbstractSortFilterDataProvider<Document, String, DocumentFilter>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private DocumentDataProvider(final List<Document> data)
+		{
+			super(data);
+			setFilterState(new DocumentFilter());
+			setSearchProperties("title");
+		}
+
+		@Override
+		protected String getSearchText(final DocumentFilter filterState)
+		{
+			return filterState.searchtext;
+		}
+
+		@Override
+		protected Predicate<Document> newFilterPredicate(final DocumentFilter filterState)
+		{
+			return document -> filterState.year == null
+				|| filterState.year.intValue() == document.getYear();
+		}
+	}
+
+	private static final String[] WORDS = { "Müller", "Straße", "Ærøskøbing", "café", "Crème",
+			"brûlée", "Haus", "hauptbahnhof", "naïve", "data", "provider", "wicket", "search",
+			"index", "Zürich", "façade" };
+
+	private static List<Document> newDocuments(final int size)
+	{
+		final Random random = new Random(17);
+		final List<Document> documents = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			final StringBuilder title = new StringBuilder();
+			for (int w = 0; w < 4; w++)
+			{
+				title.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(50))
+					.append(w < 3 ? " " : "");
+			}
+			documents.add(new Document(title.toString(), 2000 + i % 20));
+		}
+		return documents;
+	}
+
+	private static int[] scan(final List<Document> documents, final String query)
+	{
+		final List<String> queryTokens = SearchIndex.tokenize(query);
+		final int[] found = new int[documents.size()];
+		int count = 0;
+		for (int i = 0; i < documents.size(); i++)
+		{
+			final List<String> tokens = SearchIndex.tokenize(documents.get(i).getTitle());
+			boolean all = true;
+			for (final String queryToken : queryTokens)
+			{
+				boolean any = false;
+				for (final String token : tokens)
+				{
+					any |= token.startsWith(queryToken);
+				}
+				all &= any;
+			}
+			if (all)
+			{
+				found[count++] = i;
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	@Test
+	public void testNormalize()
+	{
+		AssertJUnit.assertEquals("aeroskobing strasse",
+			SearchIndex.normalize("Ærøskøbing Straße"));
+		AssertJUnit.assertEquals("[creme, brulee, 42]",
+			SearchIndex.tokenize(" Crème-brûlée, 42!").toString());
+	}
+
+	@Test
+	public void testProviderFiltersTheMatches()
+	{
+		final List<Document> documents = newDocuments(2000);
+		final DocumentDataProvider provider = new DocumentDataProvider(documents);
+		provider.getFilterState().searchtext = "zurich HAUS";
+		provider.getFilterState().year = 2003;
+		int expected = 0;
+		for (final int position : scan(documents, "zurich haus"))
+		{
+			expected += documents.get(position).getYear() == 2003 ? 1 : 0;
+		}
+		AssertJUnit.assertEquals(expected, provider.size());
+
+		documents.add(new Document("Haus in Zürich", 2003));
+		provider.dataAppended();
+		AssertJUnit.assertEquals(expected + 1, provider.size());
+		final Iterator<? extends Document> iterator = provider.iterator(0, provider.size());
+		while (iterator.hasNext())
+		{
+			AssertJUnit.assertEquals(2003, iterator.next().getYear());
+		}
+	}
+
+	@Test
+	public void testSearchEqualsScan()
+	{
+		final int size = 200_000;
+		final List<Document> documents = newDocuments(size);
+		final SearchIndex<Document> index = new SearchIndex<>(documents, "title");
+		index.compact();
+
+		final String[] queries = { "muller", "strasse1", "zur haus", "aeroskobing4 cafe",
+				"creme brulee naive", "x", "h" };
+		for (final String query : queries)
+		{
+			AssertJUnit.assertTrue(query,
+				Arrays.equals(scan(documents, query), index.search(query)));
+		}
+		AssertJUnit.assertNull(index.search(" - "));
+	}
+
+}